@@ -0,0 +1,296 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @description 离线批量补全：前缀文件每行一个前缀，经过"读取->多个查询线程->按输入顺序写出"的流水线，
+ *              输出文件每行是"前缀\t结果1\t结果2..."，与输入逐行对应（空行输出空行）；文件名以.gz结尾时按gzip读写。
+ *              阶段之间是有界队列，读取线程每读入一个前缀占用一个许可，写出后归还，已读入未写出的前缀（包括乱序完成、
+ *              等待前面结果的）不超过MAX_IN_FLIGHT个，因此内存占用与输入大小无关。运行期间每秒打印进度和各队列的深度
+ *              用法：BatchCompleter 词典名称 前缀文件 输出文件 [查询线程数] [每个前缀的结果条数] [词典目录]
+ * @author fengliangcheng
+ * @update 2026-10-22 下午7:20:48
+ */
+
+public class BatchCompleter {
+    private static final int QUEUE_CAPACITY = 4096; //读取->查询、查询->写出两个队列的容量
+    private static final int MAX_IN_FLIGHT = 4 * QUEUE_CAPACITY; //已读入还没有写出的前缀个数上限
+    private static final long REPORT_MILLIS = 1000; //打印进度的间隔
+
+    /**
+     * @description 流水线中的一个前缀，seq是它在输入中的行号
+     */
+    private static final class Item
+    {
+        final long seq;
+        final String prefix;
+        List<String> results;
+
+        Item(final long s, final String p)
+        {
+            seq = s;
+            prefix = p;
+        }
+    }
+
+    private static final Item END = new Item(-1, null); //输入结束的标记，每个查询线程一个
+
+    private final KBSmarter smarter_; //查询使用的实例
+    private final String dictName_; //查询的词典
+    private final int maxCount_; //每个前缀的结果条数
+    private final int threads_; //查询线程数
+    private final ArrayBlockingQueue<Item> prefixQueue_; //读取->查询
+    private final ArrayBlockingQueue<Item> resultQueue_; //查询->写出，结果可能乱序
+    private final Semaphore inFlight_; //已读入未写出的前缀个数的许可
+    private final AtomicLong read_ = new AtomicLong(); //已读入的前缀个数
+    private final AtomicLong queried_ = new AtomicLong(); //已查询的前缀个数
+    private volatile long written_ = 0; //已写出的前缀个数
+    private volatile int reordering_ = 0; //已查询、等待前面的结果写出的前缀个数
+
+    /**
+     * constructors of the class
+     * @param smarter 查询使用的实例，词典已经加载
+     * @param dictName 查询的词典
+     * @param maxCount 每个前缀的结果条数
+     * @param threads 查询线程数
+     */
+    public BatchCompleter(final KBSmarter smarter, final String dictName, final int maxCount, final int threads)
+    {
+        smarter_ = smarter;
+        dictName_ = dictName;
+        maxCount_ = maxCount;
+        threads_ = Math.max(1, threads);
+        prefixQueue_ = new ArrayBlockingQueue<Item>(QUEUE_CAPACITY);
+        resultQueue_ = new ArrayBlockingQueue<Item>(QUEUE_CAPACITY);
+        inFlight_ = new Semaphore(MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @description 补全前缀文件中的所有前缀，一个实例只能运行一次；任一阶段出错时停止所有阶段并抛出异常，输出文件不完整
+     * @author fengliangcheng
+     * @update 2026-10-22 下午7:26:10
+     * @param prefixFile 前缀文件，UTF-8编码
+     * @param outFile 输出文件，UTF-8编码
+     * @return 补全的前缀个数
+     */
+    public long run(final File prefixFile, final File outFile)
+    {
+        final AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads_ + 2, new ThreadFactory() {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "batch-complete-" + threadId.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        long begin = System.nanoTime();
+        try
+        {
+            List<Future<?>> stages = new ArrayList<Future<?>>();
+            stages.add(pool.submit(new Callable<Void>() {
+                public Void call() throws IOException, InterruptedException
+                {
+                    readPrefixes(prefixFile);
+                    return null;
+                }
+            }));
+            for(int i = 0; i < threads_; i++)
+            {
+                stages.add(pool.submit(new Callable<Void>() {
+                    public Void call() throws InterruptedException
+                    {
+                        query();
+                        return null;
+                    }
+                }));
+            }
+            Future<?> writer = pool.submit(new Callable<Void>() {
+                public Void call() throws IOException, InterruptedException
+                {
+                    writeResults(outFile);
+                    return null;
+                }
+            });
+            stages.add(writer);
+
+            //等待写出完成，期间定时打印进度；任一阶段失败时其他阶段可能永远阻塞在队列上，要立即停止
+            long lastReport = begin;
+            long lastWritten = 0;
+            while(true)
+            {
+                try
+                {
+                    writer.get(REPORT_MILLIS, TimeUnit.MILLISECONDS);
+                    break;
+                }
+                catch(TimeoutException e)
+                {
+                    for(Future<?> stage: stages)
+                    {
+                        if(stage.isDone())
+                        {
+                            stage.get(); //失败时抛出ExecutionException
+                        }
+                    }
+                }
+                long now = System.nanoTime();
+                long written = written_;
+                System.out.println("read=" + read_.get() + " queried=" + queried_.get() + " written=" + written
+                                   + " rate=" + (written - lastWritten) * 1000000000L / Math.max(1, now - lastReport) + "/s"
+                                   + " prefixQueue=" + prefixQueue_.size() + "/" + QUEUE_CAPACITY
+                                   + " resultQueue=" + resultQueue_.size() + "/" + QUEUE_CAPACITY
+                                   + " reordering=" + reordering_);
+                lastReport = now;
+                lastWritten = written;
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch(ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        System.out.println("completed " + written_ + " prefixes in " + elapsedNanos / 1000000 + "ms, throughput "
+                           + written_ * 1000000000L / Math.max(1, elapsedNanos) + " prefixes/s with " + threads_ + " query threads");
+        return written_;
+    }
+
+    /**
+     * @description 读取阶段：逐行读入前缀，去掉首尾空白，许可用完时等待写出
+     */
+    private void readPrefixes(final File prefixFile) throws IOException, InterruptedException
+    {
+        DirectoryConfigure.readLines(prefixFile, new DirectoryConfigure.LineHandler() {
+            private long seq = 0;
+
+            public void line(char[] buf, int off, int len)
+            {
+                try
+                {
+                    inFlight_.acquire();
+                    prefixQueue_.put(new Item(seq++, new String(buf, off, len).trim()));
+                }
+                catch(InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                read_.incrementAndGet();
+            }
+        });
+        for(int i = 0; i < threads_; i++)
+        {
+            prefixQueue_.put(END);
+        }
+    }
+
+    /**
+     * @description 查询阶段：取到结束标记时转给写出阶段后退出
+     */
+    private void query() throws InterruptedException
+    {
+        while(true)
+        {
+            Item item = prefixQueue_.take();
+            if(END == item)
+            {
+                resultQueue_.put(END);
+                return;
+            }
+            item.results = item.prefix.isEmpty() ? new ArrayList<String>() : smarter_.findMatch(dictName_, item.prefix, maxCount_);
+            queried_.incrementAndGet();
+            resultQueue_.put(item);
+        }
+    }
+
+    /**
+     * @description 写出阶段：乱序到达的结果先放在重排表中，按行号依次写出并归还许可，收到所有查询线程的结束标记后结束
+     */
+    private void writeResults(final File outFile) throws IOException, InterruptedException
+    {
+        OutputStream out = new FileOutputStream(outFile);
+        if(outFile.getName().endsWith(".gz"))
+        {
+            out = new GZIPOutputStream(out, 1 << 16);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), 1 << 16);
+        try
+        {
+            HashMap<Long, Item> pending = new HashMap<Long, Item>();
+            long next = 0;
+            int ended = 0;
+            while(ended < threads_)
+            {
+                Item item = resultQueue_.take();
+                if(END == item)
+                {
+                    ended++;
+                    continue;
+                }
+                pending.put(item.seq, item);
+                while(null != (item = pending.remove(next)))
+                {
+                    writer.write(item.prefix);
+                    for(String word: item.results)
+                    {
+                        writer.write('\t');
+                        writer.write(word);
+                    }
+                    writer.write('\n');
+                    next++;
+                    inFlight_.release();
+                }
+                written_ = next;
+                reordering_ = pending.size();
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        if(args.length < 3)
+        {
+            System.out.println("usage: BatchCompleter dictName prefixFile outFile [queryThreads] [maxCount] [dictDir]");
+            System.exit(1);
+        }
+        int threads = (args.length >= 4) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int maxCount = (args.length >= 5) ? Integer.parseInt(args[4]) : 20;
+        ConfigureData configure = (args.length >= 6) ? new DirectoryConfigure(args[5]) : new FileConfigure();
+        KBSmarter smarter = KBSmarter.getInstance(configure, true);
+        new BatchCompleter(smarter, args[0], maxCount, threads).run(new File(args[1]), new File(args[2]));
+    }
+}
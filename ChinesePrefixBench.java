@@ -0,0 +1,217 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @description 比较全汉字前缀的两条查询路径：按第一个读音遍历拼音trie树再逐个校验同音词，以及在有序词语中直接查找。
+ *              词典在原有词语之外，为读音表中的每个汉字（需要归一化的繁体字除外，否则直接查找被禁用）生成若干个以它开头的词语，使常见读音下有大量同音词；
+ *              前缀取同音词最多的汉字（拼音路径遍历的词语数与真正匹配的词语数之比最大），先核对两条路径的结果是否相同，
+ *              再比较每次查询的耗时；开始前先核对繁体输入仍能匹配繁体词语（包括读音与简体不一致而没有归一化的字）
+ *              用法：ChinesePrefixBench [词典文件] [每个汉字开头的词语数] [查询轮数]
+ * @author fengliangcheng
+ * @update 2026-10-27 上午10:40:12
+ */
+
+public class ChinesePrefixBench {
+    private static final int PREFIXES = 20; //参与比较的前缀个数
+    private static final int COUNT = 30; //每次查询的条数
+    private static final String[] TRADITIONAL_WORDS = {"腳本", "係統", "襪子", "國家"}; //繁体词语，腳、係、襪的读音与简体字的第一个读音不同
+    private static final String[][] TRADITIONAL_CASES = { //前缀和期望的结果
+        {"腳", "腳本"}, {"腳本", "腳本"}, {"係", "係統"}, {"係統", "係統"}, {"襪", "襪子"}, {"國", "國家"}, {"国", "國家"}, {"国家", "國家"}
+    };
+
+    public static void main(String[] args) throws IOException
+    {
+        String dictFile = (args.length > 0) ? args[0] : "charge.txt";
+        int perChar = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+
+        List<String> base = readWords(dictFile);
+        HashSet<String> all = new HashSet<String>(base);
+        int next = 0;
+        KBSmarter smarter = KBSmarter.getInstance(new FileConfigure(), true);
+        checkTraditional(smarter);
+        for(Character ch: new FileConfigure().generatePyConfigSet().keySet())
+        {
+            if(PrefixConstraint.normalize(ch.charValue()) != ch.charValue())
+            {
+                continue; //繁体字开头的词语不在归一化前缀的区间内，直接查找的结果必然不同
+            }
+            for(int k = 0; k < perChar; k++)
+            {
+                all.add(ch + base.get(next++ % base.size()));
+            }
+        }
+        smarter.dictionary_reLoad("bench-chinese", new HashSet<String>(all));
+        DictSnapshot snapshot = smarter.currentSnapshot("bench-chinese");
+        if(!snapshot.wordsNormalized())
+        {
+            System.out.println("dict " + dictFile + " contains words to be normalized, findMatch never uses the char path on it");
+            return;
+        }
+        ChinesePrefixMatcher direct = new ChinesePrefixMatcher(snapshot.wordIds());
+
+        //每个首字的真正匹配数，以及其第一个读音下的词语数（拼音路径需要遍历的词语）
+        final Map<String, Integer> matches = new HashMap<String, Integer>();
+        Map<String, Integer> bySyllable = new HashMap<String, Integer>();
+        for(String word: all)
+        {
+            String first = word.substring(0, 1);
+            PrefixConstraint constraint = smarter.compile(first);
+            if(!constraint.bFullChinese || 0 == constraint.prefixPy.length())
+            {
+                continue;
+            }
+            increment(matches, first);
+            increment(bySyllable, constraint.prefixPy);
+        }
+        final Map<String, Double> ratio = new HashMap<String, Double>();
+        for(Map.Entry<String, Integer> entry: matches.entrySet())
+        {
+            int homophones = bySyllable.get(smarter.compile(entry.getKey()).prefixPy);
+            ratio.put(entry.getKey(), (double)homophones / entry.getValue());
+        }
+        List<String> prefixes = new ArrayList<String>(ratio.keySet());
+        Collections.sort(prefixes, new Comparator<String>() {
+            public int compare(String a, String b)
+            {
+                int cmp = Double.compare(ratio.get(b), ratio.get(a));
+                return (0 != cmp) ? cmp : a.compareTo(b);
+            }
+        });
+        prefixes = prefixes.subList(0, Math.min(PREFIXES, prefixes.size()));
+        System.out.println("words=" + all.size() + " prefixes=" + prefixes);
+
+        //核对结果：按长度优先时顺序相同，否则取全部结果比较集合
+        int mismatches = 0;
+        int fallbacks = 0;
+        for(String prefix: prefixes)
+        {
+            PrefixConstraint constraint = smarter.compile(prefix);
+            LinkedHashSet<String> byPinyin = new LinkedHashSet<String>();
+            LinkedHashSet<String> byChar = new LinkedHashSet<String>();
+            snapshot.prefixTrie.findPrefix(constraint, COUNT, byPinyin, true);
+            if(!direct.findPrefix(constraint, COUNT, byChar, true, null))
+            {
+                fallbacks++;
+            }
+            else if(!new ArrayList<String>(byPinyin).equals(new ArrayList<String>(byChar)))
+            {
+                mismatches++;
+                System.out.println("shortest first mismatch " + prefix + ": " + byPinyin + " vs " + byChar);
+            }
+            Set<String> fullPinyin = new HashSet<String>();
+            Set<String> fullChar = new HashSet<String>();
+            snapshot.prefixTrie.findPrefix(constraint, Integer.MAX_VALUE, fullPinyin, false);
+            direct.findPrefix(constraint, Integer.MAX_VALUE, fullChar, false, null);
+            if(!fullPinyin.equals(fullChar))
+            {
+                mismatches++;
+                System.out.println("result set mismatch " + prefix + ": " + fullPinyin.size() + " vs " + fullChar.size());
+            }
+        }
+        System.out.println("cross check: mismatches=" + mismatches + " shortest first fallbacks=" + fallbacks);
+
+        for(boolean shortestFirst: new boolean[] {false, true})
+        {
+            long pinyinCost = measure(snapshot, direct, smarter, prefixes, rounds, shortestFirst, false);
+            long charCost = measure(snapshot, direct, smarter, prefixes, rounds, shortestFirst, true);
+            long queries = (long)rounds * prefixes.size();
+            System.out.println((shortestFirst ? "shortest first" : "depth first") + ": pinyin path " + pinyinCost / queries
+                               + " ns/query, char path " + charCost / queries + " ns/query");
+        }
+    }
+
+    /**
+     * @description 核对繁体输入匹配繁体词语的结果
+     * @param smarter 已初始化的实例
+     */
+    private static void checkTraditional(final KBSmarter smarter)
+    {
+        HashSet<String> words = new HashSet<String>();
+        Collections.addAll(words, TRADITIONAL_WORDS);
+        smarter.dictionary_reLoad("bench-t2s", words);
+        int failures = 0;
+        for(String[] item: TRADITIONAL_CASES)
+        {
+            List<String> result = smarter.findMatch("bench-t2s", item[0], COUNT);
+            if(!result.equals(Collections.singletonList(item[1])))
+            {
+                failures++;
+                System.out.println("traditional mismatch " + item[0] + ": " + result + " expected [" + item[1] + "]");
+            }
+        }
+        System.out.println("traditional check: cases=" + TRADITIONAL_CASES.length + " failures=" + failures);
+    }
+
+    private static void increment(final Map<String, Integer> counts, final String key)
+    {
+        Integer count = counts.get(key);
+        counts.put(key, (null == count) ? 1 : count + 1);
+    }
+
+    /**
+     * @description 预热后多轮查询所有前缀
+     * @return 总耗时纳秒
+     */
+    private static long measure(final DictSnapshot snapshot, final ChinesePrefixMatcher direct, final KBSmarter smarter,
+                                final List<String> prefixes, final int rounds, final boolean shortestFirst, final boolean byChar)
+    {
+        List<PrefixConstraint> constraints = new ArrayList<PrefixConstraint>();
+        for(String prefix: prefixes)
+        {
+            constraints.add(smarter.compile(prefix));
+        }
+        long begin = 0;
+        long sink = 0;
+        for(int pass = 0; pass < 2; pass++) //第一遍预热
+        {
+            begin = System.nanoTime();
+            for(int r = 0; r < rounds; r++)
+            {
+                for(PrefixConstraint constraint: constraints)
+                {
+                    LinkedHashSet<String> result = new LinkedHashSet<String>();
+                    if(!byChar || !direct.findPrefix(constraint, COUNT, result, shortestFirst, null))
+                    {
+                        snapshot.prefixTrie.findPrefix(constraint, COUNT, result, shortestFirst);
+                    }
+                    sink += result.size();
+                }
+            }
+        }
+        return (0 == sink) ? 0 : System.nanoTime() - begin;
+    }
+
+    private static List<String> readWords(final String path) throws IOException
+    {
+        List<String> words = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(path));
+        try
+        {
+            String record;
+            while((record = reader.readLine()) != null)
+            {
+                if(0 != record.length())
+                {
+                    words.add(record);
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return words;
+    }
+}
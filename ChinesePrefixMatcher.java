@@ -0,0 +1,109 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * @description 全汉字前缀的直接匹配：有序词语存储中以某个字符串开头的词语连续存放，二分查找到起点后顺序读取，
+ *              只访问真正匹配的词语，不用像拼音路径那样按第一个读音遍历所有同音词再逐个校验。
+ *              按长度优先返回时，每个词语按它在拼音trie树上按层遍历时第一次出现的拼音串排序，结果与拼音路径相同；
+ *              匹配的词语超过MAX_RANKED个时逐个计算拼音串的代价过高，交还给拼音路径
+ * @author fengliangcheng
+ * @update 2026-10-21 下午8:12:36
+ */
+
+final class ChinesePrefixMatcher {
+    static final int MAX_RANKED = 512; //按长度优先返回时最多排序的词语个数，再多时真正匹配的词语很多，拼音路径很快就能凑够条数
+
+    private final WordStore store_; //有序的词语存储
+
+    /**
+     * constructors of the class
+     * @param store 有序的词语存储
+     */
+    ChinesePrefixMatcher(final WordStore store)
+    {
+        store_ = store;
+    }
+
+    /**
+     * @description 查找以全汉字前缀开头的词语
+     * @author fengliangcheng
+     * @update 2026-10-21 下午8:15:02
+     * @param constraint 编译后的输入前缀，必须是全汉字
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回，否则按词语的字典序
+     * @param budget 代价上限，为null时不限制；每读取一个词语计一次
+     * @return true-已经得到结果 false-匹配的词语太多（按长度优先或者按类别过滤时超过MAX_RANKED个），
+     *         调用方应该改走可以按长度分层、按类别剪枝的拼音路径，set_result没有被修改
+     */
+    boolean findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                       final boolean shortestFirst, final SearchBudget budget)
+    {
+        String prefix = constraint.prefix;
+        int size = store_.size();
+        int id = store_.ceiling(prefix);
+        if(!shortestFirst && 0 == constraint.categoryMask)
+        {
+            for(; id < size && set_result.size() < count; id++)
+            {
+                if(null != budget && !budget.spend())
+                {
+                    break;
+                }
+                String word = store_.wordAt(id);
+                if(!word.startsWith(prefix))
+                {
+                    break;
+                }
+                set_result.add(word);
+            }
+            return true;
+        }
+
+        ArrayList<String> matched = new ArrayList<String>();
+        for(int scanned = 0; id < size; id++)
+        {
+            if(null != budget && !budget.spend())
+            {
+                break;
+            }
+            String word = store_.wordAt(id);
+            if(!word.startsWith(prefix))
+            {
+                break;
+            }
+            if(++scanned > MAX_RANKED)
+            {
+                return false;
+            }
+            if(constraint.inCategory(word))
+            {
+                matched.add(word);
+            }
+        }
+        if(!shortestFirst) //按类别过滤，已经是字典序
+        {
+            for(int i = 0; i < matched.size() && set_result.size() < count; i++)
+            {
+                set_result.add(matched.get(i));
+            }
+            return true;
+        }
+
+        PinyinExpander expander = new PinyinExpander(constraint.pinyinTable());
+        ArrayList<String> keys = new ArrayList<String>();
+        ArrayList<ShardedIndex.Ranked> ranked = new ArrayList<ShardedIndex.Ranked>(matched.size());
+        for(String word: matched)
+        {
+            ranked.add(new ShardedIndex.Ranked(expander.firstKey(word, constraint.prefixPy, keys, null), word, 0));
+        }
+        Collections.sort(ranked);
+        for(int i = 0; i < ranked.size() && set_result.size() < count; i++)
+        {
+            set_result.add(ranked.get(i).word);
+        }
+        return true;
+    }
+}
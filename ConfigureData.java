@@ -13,4 +13,27 @@ import java.util.Map;
 public interface ConfigureData {
 	Map<Character, String> generatePyConfigSet(); //获取汉字读音映射表,子类要实现
     Map<String, HashSet<String>> generateDictSets(); //获取需要建立trie树的词典,子类要实现
+
+    /**
+     * @description 获取词语的类别，用于按类别过滤的查询；每个类别占一位，一个词语最多属于64个类别，子类可选实现
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:05:30
+     * @return 词典名称->(词语->类别位)，没有类别的词典或者词语不用出现，默认返回null
+     */
+    default Map<String, Map<String, Long>> generateDictCategories()
+    {
+        return null;
+    }
+
+    /**
+     * @description 获取字符归一化表：查询时输入的字符和匹配到的词语都先按该表归一化再比较，比如繁体->简体，
+     *              词典只需要保存简体词语，繁体输入也能匹配；子类可选实现
+     * @author fengliangcheng
+     * @update 2026-10-25 上午10:12:08
+     * @return 字符->归一化后的字符，默认返回null，不归一化
+     */
+    default Map<Character, Character> generateCharNormalization()
+    {
+        return null;
+    }
 }
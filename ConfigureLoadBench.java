@@ -0,0 +1,183 @@
+package com.tcgroup.common.spell;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @description 比较FileConfigure和DirectoryConfigure加载大量词典的耗时：在临时目录生成若干词典文件（每个由基础词典复制多份、
+ *              加上不同的后缀得到），FileConfigure的方式逐个文件readLine读取，DirectoryConfigure分别用单线程和多线程读取，
+ *              再把同样的词典压缩成gzip后读取一次；每种方式重复若干轮取最快的一轮，并校验读到的词典完全相同
+ *              用法：ConfigureLoadBench [词典文件] [文件个数] [每个文件的复制份数] [线程数] [轮数]
+ * @author fengliangcheng
+ * @update 2026-10-22 下午5:40:16
+ */
+
+public class ConfigureLoadBench {
+    public static void main(String[] args) throws IOException
+    {
+        String dictFile = (args.length > 0) ? args[0] : "charge.txt";
+        int files = (args.length > 1) ? Integer.parseInt(args[1]) : 24;
+        int copies = (args.length > 2) ? Integer.parseInt(args[2]) : 500;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int rounds = (args.length > 4) ? Integer.parseInt(args[4]) : 3;
+
+        List<String> base = new ArrayList<String>(FileConfigure.read_dict(dictFile));
+        File plainDir = createTempDir("dict-plain");
+        File gzipDir = createTempDir("dict-gzip");
+        long bytes = 0;
+        long words = 0;
+        try
+        {
+            for(int f = 0; f < files; f++)
+            {
+                bytes += writeDict(new File(plainDir, "d" + f + ".txt"), base, copies, f, false);
+                writeDict(new File(gzipDir, "d" + f + ".txt.gz"), base, copies, f, true);
+                words += (long)base.size() * copies;
+            }
+            System.out.println(files + " files, " + words + " words, " + bytes / (1 << 20) + "MB, " + threads + " threads");
+
+            long fileConfigure = Long.MAX_VALUE;
+            long single = Long.MAX_VALUE;
+            long parallel = Long.MAX_VALUE;
+            long gzip = Long.MAX_VALUE;
+            for(int r = 0; r < rounds; r++)
+            {
+                long begin = System.nanoTime();
+                readSerially(plainDir);
+                fileConfigure = Math.min(fileConfigure, System.nanoTime() - begin);
+
+                single = Math.min(single, time(new DirectoryConfigure("pinyin.txt", plainDir.getPath(), 1), plainDir));
+                parallel = Math.min(parallel, time(new DirectoryConfigure("pinyin.txt", plainDir.getPath(), threads), plainDir));
+                gzip = Math.min(gzip, time(new DirectoryConfigure("pinyin.txt", gzipDir.getPath(), threads), plainDir));
+            }
+            System.out.println("FileConfigure (readLine, serial): " + fileConfigure / 1000000 + "ms");
+            System.out.println("DirectoryConfigure, 1 thread:     " + single / 1000000 + "ms");
+            System.out.println("DirectoryConfigure, " + threads + " threads:    " + parallel / 1000000 + "ms");
+            System.out.println("DirectoryConfigure, gzip:         " + gzip / 1000000 + "ms");
+
+            long begin = System.nanoTime();
+            Map<Character, String> pyTable = new FileConfigure().generatePyConfigSet();
+            long pyFile = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            Map<Character, String> pyDir = new DirectoryConfigure("pinyin.txt", plainDir.getPath(), 1).generatePyConfigSet();
+            long pyNio = System.nanoTime() - begin;
+            System.out.println("pinyin table: FileConfigure " + pyFile / 1000 + "us, DirectoryConfigure " + pyNio / 1000 + "us, "
+                               + (pyTable.equals(pyDir) ? "same" : "DIFFERENT"));
+        }
+        finally
+        {
+            deleteDir(plainDir);
+            deleteDir(gzipDir);
+        }
+    }
+
+    /**
+     * @description 计时，计时结束后再校验
+     */
+    private static long time(final DirectoryConfigure configure, final File plainDir) throws IOException
+    {
+        long begin = System.nanoTime();
+        Map<String, HashSet<String>> dicts = configure.generateDictSets();
+        long nanos = System.nanoTime() - begin;
+        check(dicts, plainDir);
+        return nanos;
+    }
+
+    /**
+     * @description 按FileConfigure的方式逐个读取目录下的词典
+     */
+    private static Map<String, HashSet<String>> readSerially(final File dir)
+    {
+        Map<String, HashSet<String>> dicts = new HashMap<String, HashSet<String>>();
+        for(File file: dir.listFiles())
+        {
+            dicts.put(DirectoryConfigure.dictName(file.getName()), FileConfigure.read_dict(file.getPath()));
+        }
+        return dicts;
+    }
+
+    /**
+     * @description 逐个词典与FileConfigure读到的内容比较，不同时抛出异常
+     */
+    private static void check(final Map<String, HashSet<String>> dicts, final File plainDir) throws IOException
+    {
+        File[] files = plainDir.listFiles();
+        if(dicts.size() != files.length)
+        {
+            throw new IllegalStateException("expected " + files.length + " dicts, got " + dicts.size());
+        }
+        for(File file: files)
+        {
+            String dictName = DirectoryConfigure.dictName(file.getName());
+            if(!FileConfigure.read_dict(file.getPath()).equals(dicts.get(dictName)))
+            {
+                throw new IllegalStateException("dict " + dictName + " differs");
+            }
+        }
+    }
+
+    /**
+     * @description 写一个词典文件，每个词加上文件编号和份数的后缀
+     * @return 写入的字节数（压缩前）
+     */
+    private static long writeDict(final File file, final List<String> base, final int copies, final int index,
+                                  final boolean compressed) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        if(compressed)
+        {
+            out = new GZIPOutputStream(out, 1 << 16);
+        }
+        Writer writer = new OutputStreamWriter(out, "UTF-8");
+        long bytes = 0;
+        try
+        {
+            for(int c = 0; c < copies; c++)
+            {
+                for(String word: base)
+                {
+                    String line = word + index + "x" + c + "\n";
+                    writer.write(line);
+                    bytes += line.getBytes("UTF-8").length;
+                }
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+        return bytes;
+    }
+
+    private static File createTempDir(final String prefix) throws IOException
+    {
+        File dir = File.createTempFile(prefix, "");
+        if(!dir.delete() || !dir.mkdir())
+        {
+            throw new IOException("can not create " + dir);
+        }
+        return dir;
+    }
+
+    private static void deleteDir(final File dir)
+    {
+        File[] files = dir.listFiles();
+        if(null != files)
+        {
+            for(File file: files)
+            {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
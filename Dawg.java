@@ -0,0 +1,759 @@
+package com.tcgroup.common.spell;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @description 由有序拼音串增量构建的最小无环自动机（DAWG），公共后缀被共享；节点和边保存在连续数组中，
+ *              每个节点记录其下的拼音串个数，从而把拼音串映射为字典序编号，再通过编号找到对应词语
+ * @author fengliangcheng
+ * @update 2026-10-19 下午6:02:37
+ */
+
+final class Dawg implements SpellIndex {
+    private final int[] firstEdge; //firstEdge[s]~firstEdge[s+1]是节点s的出边，按字符升序
+    private final char[] edgeLabel; //边上的字符
+    private final int[] edgeTarget; //边指向的节点
+    private final boolean[] isFinal; //节点是否一个拼音串的结束位置
+    private final int[] keyCount; //从该节点出发能到达的拼音串个数（含自身）
+    private final int[] postingStart; //postingStart[k]~postingStart[k+1]是第k个拼音串对应的词语编号
+    private final int[] postingWord; //词语编号，同一拼音串下升序
+    private final WordStore words; //所有词语，编号即下标
+    private final Map<Character, List<String>> pinyinTable; //存储汉字->读音的映射表
+    private long[] keyMasks; //按拼音串编号的类别并集线段树，keyMasks[n+k]是第k个拼音串所有词语的类别，为null时不剪枝
+
+    private Dawg(int[] first, char[] label, int[] target, boolean[] finals, int[] counts,
+                 int[] pStart, int[] pWord, WordStore wordSet, Map<Character, List<String>> pyTable)
+    {
+        firstEdge = first;
+        edgeLabel = label;
+        edgeTarget = target;
+        isFinal = finals;
+        keyCount = counts;
+        postingStart = pStart;
+        postingWord = pWord;
+        words = wordSet;
+        pinyinTable = pyTable;
+    }
+
+    /**
+     * @description 获取词语集合
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:04:11
+     * @return 词语集合
+     */
+    WordStore words()
+    {
+        return words;
+    }
+
+    /**
+     * @description 获取自动机的节点个数
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:04:40
+     * @return 节点个数
+     */
+    int stateCount()
+    {
+        return isFinal.length;
+    }
+
+    /**
+     * @description 获取拼音串个数
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:05:02
+     * @return 拼音串个数
+     */
+    int keyCount()
+    {
+        return postingStart.length - 1;
+    }
+
+    /**
+     * @description 写出自动机的所有数组，用于快照复制；词语集合和类别不写，由调用方另外处理
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:20:16
+     * @param out 输出
+     * @throws IOException
+     */
+    void writeTo(final DataOutput out) throws IOException
+    {
+        SnapshotCodec.writeInts(out, firstEdge);
+        SnapshotCodec.writeVarint(out, edgeLabel.length);
+        for(char label: edgeLabel)
+        {
+            out.writeChar(label);
+        }
+        SnapshotCodec.writeInts(out, edgeTarget);
+        SnapshotCodec.writeVarint(out, isFinal.length);
+        for(boolean finalState: isFinal)
+        {
+            out.writeBoolean(finalState);
+        }
+        SnapshotCodec.writeInts(out, keyCount);
+        SnapshotCodec.writeInts(out, postingStart);
+        SnapshotCodec.writeInts(out, postingWord);
+    }
+
+    /**
+     * @description 读取writeTo写出的自动机
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:22:40
+     * @param in 输入
+     * @param wordSet 所有词语，编号与写出方相同
+     * @param pyTable 存储汉字->读音的映射表，必须与写出方的相同
+     * @return 自动机
+     * @throws IOException
+     */
+    static Dawg readFrom(final DataInput in, final WordStore wordSet, final Map<Character, List<String>> pyTable) throws IOException
+    {
+        int[] first = SnapshotCodec.readInts(in);
+        char[] label = new char[SnapshotCodec.readVarint(in)];
+        for(int i = 0; i < label.length; i++)
+        {
+            label[i] = in.readChar();
+        }
+        int[] target = SnapshotCodec.readInts(in);
+        boolean[] finals = new boolean[SnapshotCodec.readVarint(in)];
+        for(int i = 0; i < finals.length; i++)
+        {
+            finals[i] = in.readBoolean();
+        }
+        int[] counts = SnapshotCodec.readInts(in);
+        int[] pStart = SnapshotCodec.readInts(in);
+        int[] pWord = SnapshotCodec.readInts(in);
+        return new Dawg(first, label, target, finals, counts, pStart, pWord, wordSet, pyTable);
+    }
+
+    /**
+     * @description 前缀匹配；DAWG共享后缀，节点上无法记录汉字位置，混合输入只能对匹配词语逐个校验
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:07:15
+     * @param prefix 前缀字符串
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     */
+    public void findPrefix(final String prefix, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        findPrefix(PrefixConstraint.compile(prefix, pinyinTable), count, set_result, shortestFirst);
+    }
+
+    /**
+     * @description 使用已经编译好的前缀进行前缀匹配
+     * @author fengliangcheng
+     * @update 2026-10-20 下午7:14:20
+     * @param constraint 编译后的输入前缀
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     */
+    public void findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        find(constraint.prefixPy, count, constraint, set_result, shortestFirst, null);
+    }
+
+    public void findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                           final boolean shortestFirst, final SearchBudget budget)
+    {
+        find(constraint.prefixPy, count, constraint, set_result, shortestFirst, budget);
+    }
+
+    /**
+     * @description 根节点是否有该字符的边
+     * @author fengliangcheng
+     * @update 2026-10-20 下午7:14:52
+     * @param first 拼音串的首字符
+     * @return true-有 false-没有
+     */
+    public boolean mayMatch(final char first)
+    {
+        return findEdge(0, first) >= 0;
+    }
+
+    /**
+     * @description 估算自动机占用的堆内存，词语集合与快照共享，不计算在内
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:18:05
+     * @return 估算的字节数
+     */
+    public long estimateBytes()
+    {
+        return MemoryEstimator.array(firstEdge.length, 4) + MemoryEstimator.array(edgeLabel.length, 2)
+               + MemoryEstimator.array(edgeTarget.length, 4) + MemoryEstimator.array(isFinal.length, 1)
+               + MemoryEstimator.array(keyCount.length, 4) + MemoryEstimator.array(postingStart.length, 4)
+               + MemoryEstimator.array(postingWord.length, 4)
+               + ((null == keyMasks) ? 0 : MemoryEstimator.array(keyMasks.length, 8));
+    }
+
+    /**
+     * @description 设置词语的类别：节点下的拼音串编号是连续的一段，因此按编号建立类别并集的线段树，
+     *              任一节点子树的类别并集都可以在O(log n)内查出，无需在共享后缀的节点上保存
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:40:12
+     * @param categories 词语->类别
+     */
+    public void setCategories(final Map<String, Long> categories)
+    {
+        int n = keyCount();
+        long[] tree = new long[2 * Math.max(1, n)];
+        for(int k = 0; k < n; k++)
+        {
+            long mask = 0;
+            for(int p = postingStart[k]; p < postingStart[k + 1]; p++)
+            {
+                Long flags = categories.get(words.wordAt(postingWord[p]));
+                if(null != flags)
+                {
+                    mask |= flags.longValue();
+                }
+            }
+            tree[n + k] = mask;
+        }
+        for(int i = n - 1; i > 0; i--)
+        {
+            tree[i] = tree[2 * i] | tree[2 * i + 1];
+        }
+        keyMasks = tree;
+    }
+
+    /**
+     * @description 查询编号在[from, to)内的拼音串的类别并集
+     * @param from 起始编号
+     * @param to 结束编号（不含）
+     * @return 类别并集，未设置类别时返回-1（不剪枝）
+     */
+    private long rangeMask(int from, int to)
+    {
+        if(null == keyMasks)
+        {
+            return -1L;
+        }
+        int n = keyMasks.length / 2;
+        long mask = 0;
+        for(from += n, to += n; from < to; from >>= 1, to >>= 1)
+        {
+            if(0 != (from & 1))
+            {
+                mask |= keyMasks[from++];
+            }
+            if(0 != (to & 1))
+            {
+                mask |= keyMasks[--to];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @description 节点下是否一定没有要求类别的词语
+     * @param state 节点
+     * @param base 节点下第一个拼音串的编号
+     * @param constraint 编译后的输入前缀，为null时不过滤
+     * @return true-整棵子树都可以跳过
+     */
+    private boolean pruned(final int state, final int base, final PrefixConstraint constraint)
+    {
+        return null != constraint && 0 != constraint.categoryMask
+               && !constraint.mayContain(rangeMask(base, base + keyCount[state]));
+    }
+
+    /**
+     * @description 简拼子串匹配
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:07:48
+     * @param prefix 子串的前缀（所有字符一定是拼音或者数字）
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     */
+    public void findSubPrefix(final String prefix, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        find(prefix, count, null, set_result, shortestFirst, null);
+    }
+
+    public void findSubPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                              final boolean shortestFirst, final SearchBudget budget)
+    {
+        find(constraint.prefix, count, constraint.categoryFilter(), set_result, shortestFirst, budget);
+    }
+
+    /**
+     * @description 沿拼音串走到对应节点，同时累计字典序编号，然后遍历该节点下的所有拼音串
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:10:26
+     * @param py 需要匹配的拼音串
+     * @param count 匹配结果最大条数
+     * @param constraint 编译后的输入前缀，为null时不校验
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按层遍历
+     * @param budget 代价上限，为null时不限制
+     */
+    private void find(final String py, final int count, final PrefixConstraint constraint,
+                      Set<String> set_result, final boolean shortestFirst, final SearchBudget budget)
+    {
+        int state = 0;
+        int base = 0; //当前节点下第一个拼音串的编号
+        for(int i = 0; i < py.length(); i++)
+        {
+            int edge = findEdge(state, py.charAt(i));
+            if(edge < 0)
+            {
+                return; //无法匹配该拼音串
+            }
+            base += isFinal[state] ? 1 : 0;
+            for(int e = firstEdge[state]; e < edge; e++) //跳过字典序更小的分支
+            {
+                base += keyCount[edgeTarget[e]];
+            }
+            state = edgeTarget[edge];
+        }
+
+        if(pruned(state, base, constraint))
+        {
+            return; //子树中没有要求类别的词语
+        }
+        if(shortestFirst)
+        {
+            findShortestFirst(state, base, count, constraint, set_result, budget);
+        }
+        else
+        {
+            findDepthFirst(state, base, count, constraint, set_result, budget);
+        }
+    }
+
+    /**
+     * @description 在节点的出边中二分查找某个字符
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:11:40
+     * @param state 节点
+     * @param ch 字符
+     * @return 边的下标，没有则返回-1
+     */
+    private int findEdge(final int state, final char ch)
+    {
+        int low = firstEdge[state];
+        int high = firstEdge[state + 1] - 1;
+        while(low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            char label = edgeLabel[mid];
+            if(label < ch)
+            {
+                low = mid + 1;
+            }
+            else if(label > ch)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @description 把某个编号的拼音串对应的词语加入结果
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:12:55
+     * @param key 拼音串编号
+     * @param count 匹配结果最大条数
+     * @param constraint 编译后的输入前缀，为null时不校验
+     * @param set_result 匹配结果保存的地方
+     * @param budget 代价上限，为null时不限制，只有需要校验的词语才计数
+     * @return false-结果条数已经满足或者超出代价上限
+     */
+    private boolean collect(final int key, final int count, final PrefixConstraint constraint, Set<String> set_result,
+                            final SearchBudget budget)
+    {
+        for(int p = postingStart[key]; p < postingStart[key + 1]; p++)
+        {
+            if(set_result.size() >= count)
+            {
+                return false;
+            }
+            if(null != constraint && null != budget && !budget.spend())
+            {
+                return false;
+            }
+            String word = words.wordAt(postingWord[p]);
+            if(null == constraint || constraint.accept(word))
+            {
+                set_result.add(word);
+            }
+        }
+        return set_result.size() < count;
+    }
+
+    /**
+     * @description 按字典序深度优先遍历
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:14:21
+     * @param state 当前节点
+     * @param base 当前节点下第一个拼音串的编号
+     * @param count 匹配结果最大条数
+     * @param constraint 编译后的输入前缀，为null时不校验
+     * @param set_result 匹配结果保存的地方
+     * @param budget 代价上限，为null时不限制
+     * @return false-结果条数已经满足或者超出代价上限
+     */
+    private boolean findDepthFirst(final int state, int base, final int count,
+                                   final PrefixConstraint constraint, Set<String> set_result, final SearchBudget budget)
+    {
+        if(pruned(state, base, constraint))
+        {
+            return true; //跳过没有要求类别的子树
+        }
+        if(null != budget && !budget.spend())
+        {
+            return false;
+        }
+        if(isFinal[state])
+        {
+            if(!collect(base, count, constraint, set_result, budget))
+            {
+                return false;
+            }
+            base++;
+        }
+        for(int e = firstEdge[state]; e < firstEdge[state + 1]; e++)
+        {
+            int target = edgeTarget[e];
+            if(!findDepthFirst(target, base, count, constraint, set_result, budget))
+            {
+                return false;
+            }
+            base += keyCount[target];
+        }
+        return true;
+    }
+
+    /**
+     * @description 按层遍历，短的拼音串优先，同一层内按字典序；每层最多保留MAX_FRONTIER个节点
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:16:02
+     * @param start 开始节点
+     * @param startBase 开始节点下第一个拼音串的编号
+     * @param count 匹配结果最大条数
+     * @param constraint 编译后的输入前缀，为null时不校验
+     * @param set_result 匹配结果保存的地方
+     * @param budget 代价上限，为null时不限制
+     */
+    private void findShortestFirst(final int start, final int startBase, final int count,
+                                   final PrefixConstraint constraint, Set<String> set_result, final SearchBudget budget)
+    {
+        int[] level = new int[]{start};
+        int[] levelBase = new int[]{startBase};
+        int levelSize = 1;
+        while(levelSize > 0)
+        {
+            for(int i = 0; i < levelSize; i++)
+            {
+                if(null != budget && !budget.spend())
+                {
+                    return;
+                }
+                if(isFinal[level[i]] && !collect(levelBase[i], count, constraint, set_result, budget))
+                {
+                    return;
+                }
+            }
+
+            int[] nextLevel = new int[16];
+            int[] nextBase = new int[16];
+            int nextSize = 0;
+            for(int i = 0; i < levelSize && nextSize < Trie.MAX_FRONTIER; i++)
+            {
+                int state = level[i];
+                int base = levelBase[i] + (isFinal[state] ? 1 : 0);
+                for(int e = firstEdge[state]; e < firstEdge[state + 1] && nextSize < Trie.MAX_FRONTIER; e++)
+                {
+                    int target = edgeTarget[e];
+                    if(pruned(target, base, constraint)) //跳过没有要求类别的子树，不占用每层的名额
+                    {
+                        base += keyCount[target];
+                        continue;
+                    }
+                    if(nextSize == nextLevel.length)
+                    {
+                        nextLevel = Arrays.copyOf(nextLevel, nextSize * 2);
+                        nextBase = Arrays.copyOf(nextBase, nextSize * 2);
+                    }
+                    nextLevel[nextSize] = target;
+                    nextBase[nextSize] = base;
+                    nextSize++;
+                    base += keyCount[target];
+                }
+            }
+            level = nextLevel;
+            levelBase = nextBase;
+            levelSize = nextSize;
+        }
+    }
+
+    /**
+     * @description 按字典序逐个接收拼音串，增量构建最小自动机（Daciuk算法）：
+     *              每加入一个拼音串，上一个拼音串中不再与之共享前缀的部分就已经确定，立即与已登记的等价节点合并
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:20:33
+     */
+    static final class Builder
+    {
+        /**
+         * @description 构建过程中的节点
+         * @author fengliangcheng
+         * @update 2026-10-19 下午6:21:05
+         */
+        private static final class State
+        {
+            char[] labels = new char[2];
+            State[] targets = new State[2];
+            int size;
+            boolean isFinal;
+            int id = -1; //转化为数组时的编号
+            int hash;
+
+            void addEdge(final char ch, final State target)
+            {
+                if(size == labels.length)
+                {
+                    labels = Arrays.copyOf(labels, size * 2);
+                    targets = Arrays.copyOf(targets, size * 2);
+                }
+                labels[size] = ch;
+                targets[size] = target;
+                size++;
+            }
+
+            void freeze() //登记前计算hash，登记之后节点不会再被修改
+            {
+                int h = isFinal ? 1 : 0;
+                for(int i = 0; i < size; i++)
+                {
+                    h = h * 31 + labels[i];
+                    h = h * 31 + System.identityHashCode(targets[i]);
+                }
+                hash = h;
+            }
+
+            @Override
+            public int hashCode()
+            {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object o)
+            {
+                if(!(o instanceof State))
+                {
+                    return false;
+                }
+                State other = (State)o;
+                if(hash != other.hash || isFinal != other.isFinal || size != other.size)
+                {
+                    return false;
+                }
+                for(int i = 0; i < size; i++)
+                {
+                    if(labels[i] != other.labels[i] || targets[i] != other.targets[i])
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+
+        private final State root_ = new State();
+        private final HashMap<State, State> register_ = new HashMap<State, State>(); //已经确定的等价类
+        private State[] path_ = new State[64]; //上一个拼音串经过的节点
+        private String prevKey_ = ""; //上一个拼音串
+        private int keyNum_ = 0; //已加入的拼音串个数
+        private int[] postingStart_ = new int[1024];
+        private int[] postingWord_ = new int[1024];
+        private int postingSize_ = 0;
+
+        /**
+         * @description 加入一个拼音串及其对应的词语编号，拼音串必须严格按字典序递增
+         * @author fengliangcheng
+         * @update 2026-10-19 下午6:24:18
+         * @param key 拼音串
+         * @param wordIds 词语编号，升序
+         * @param idCount 词语编号的个数
+         */
+        void add(final String key, final int[] wordIds, final int idCount)
+        {
+            if(key.length() == 0 || key.compareTo(prevKey_) <= 0)
+            {
+                throw new IllegalArgumentException("keys must be non-empty and strictly increasing: " + key);
+            }
+            int common = 0;
+            int max = Math.min(key.length(), prevKey_.length());
+            while(common < max && key.charAt(common) == prevKey_.charAt(common))
+            {
+                common++;
+            }
+
+            path_[0] = root_;
+            State last = path_[common];
+            if(last.size > 0)
+            {
+                replaceOrRegister(last); //上一个拼音串在分叉点之后的部分已经确定
+            }
+            if(path_.length <= key.length())
+            {
+                path_ = Arrays.copyOf(path_, key.length() * 2);
+            }
+            for(int i = common; i < key.length(); i++)
+            {
+                State next = new State();
+                path_[i].addEdge(key.charAt(i), next);
+                path_[i + 1] = next;
+            }
+            path_[key.length()].isFinal = true;
+            prevKey_ = key;
+
+            if(keyNum_ + 1 >= postingStart_.length)
+            {
+                postingStart_ = Arrays.copyOf(postingStart_, postingStart_.length * 2);
+            }
+            postingStart_[keyNum_] = postingSize_;
+            if(postingSize_ + idCount > postingWord_.length)
+            {
+                postingWord_ = Arrays.copyOf(postingWord_, Math.max(postingWord_.length * 2, postingSize_ + idCount));
+            }
+            System.arraycopy(wordIds, 0, postingWord_, postingSize_, idCount);
+            postingSize_ += idCount;
+            keyNum_++;
+        }
+
+        /**
+         * @description 合并节点最后一条出边指向的子树中已经确定的部分
+         * @author fengliangcheng
+         * @update 2026-10-19 下午6:26:40
+         * @param state 节点
+         */
+        private void replaceOrRegister(State state)
+        {
+            State child = state.targets[state.size - 1];
+            if(child.size > 0)
+            {
+                replaceOrRegister(child);
+            }
+            child.freeze();
+            State existing = register_.get(child);
+            if(null != existing)
+            {
+                state.targets[state.size - 1] = existing; //用等价节点替换，child被丢弃
+            }
+            else
+            {
+                register_.put(child, child);
+            }
+        }
+
+        /**
+         * @description 结束构建，转化为连续数组表示
+         * @author fengliangcheng
+         * @update 2026-10-19 下午6:29:15
+         * @param wordSet 所有词语，编号即下标
+         * @param pyTable 存储汉字->读音的映射表
+         * @return 构建好的DAWG
+         */
+        Dawg build(final WordStore wordSet, final Map<Character, List<String>> pyTable)
+        {
+            if(root_.size > 0)
+            {
+                replaceOrRegister(root_);
+            }
+            register_.clear();
+
+            ArrayList<State> states = new ArrayList<State>();
+            int edgeTotal = number(root_, states, 0);
+            int n = states.size();
+            int[] first = new int[n + 1];
+            char[] label = new char[edgeTotal];
+            int[] target = new int[edgeTotal];
+            boolean[] finals = new boolean[n];
+            int edge = 0;
+            for(int s = 0; s < n; s++) //编号顺序即出边的存放顺序
+            {
+                State state = states.get(s);
+                first[s] = edge;
+                finals[s] = state.isFinal;
+                for(int i = 0; i < state.size; i++)
+                {
+                    label[edge] = state.labels[i];
+                    target[edge] = state.targets[i].id;
+                    edge++;
+                }
+            }
+            first[n] = edge;
+            states.clear();
+
+            int[] counts = new int[n];
+            Arrays.fill(counts, -1);
+            countKeys(0, first, target, finals, counts);
+
+            postingStart_[keyNum_] = postingSize_;
+            return new Dawg(first, label, target, finals, counts,
+                            Arrays.copyOf(postingStart_, keyNum_ + 1), Arrays.copyOf(postingWord_, postingSize_),
+                            wordSet, pyTable);
+        }
+
+        /**
+         * @description 给所有节点编号（根节点为0）
+         * @author fengliangcheng
+         * @update 2026-10-19 下午6:30:27
+         * @param state 当前节点
+         * @param states 按编号保存的节点
+         * @param edgeTotal 已经统计的边数
+         * @return 统计后的边数
+         */
+        private static int number(State state, ArrayList<State> states, int edgeTotal)
+        {
+            state.id = states.size();
+            states.add(state);
+            edgeTotal += state.size;
+            for(int i = 0; i < state.size; i++)
+            {
+                if(state.targets[i].id < 0)
+                {
+                    edgeTotal = number(state.targets[i], states, edgeTotal);
+                }
+            }
+            return edgeTotal;
+        }
+
+        /**
+         * @description 统计每个节点下的拼音串个数
+         * @author fengliangcheng
+         * @update 2026-10-19 下午6:31:44
+         * @return 该节点下的拼音串个数
+         */
+        private static int countKeys(int s, int[] first, int[] target, boolean[] finals, int[] counts)
+        {
+            if(counts[s] >= 0)
+            {
+                return counts[s];
+            }
+            int total = finals[s] ? 1 : 0;
+            for(int e = first[s]; e < first[s + 1]; e++)
+            {
+                total += countKeys(target[e], first, target, finals, counts);
+            }
+            counts[s] = total;
+            return total;
+        }
+    }
+}
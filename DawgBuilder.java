@@ -0,0 +1,233 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @description 流式构建词典：逐行读取词语，展开出的拼音串经过外部排序后按序输出，
+ *              边输出边增量构建最小DAWG，构建过程中除词语本身外只占用固定大小的排序缓存
+ * @author fengliangcheng
+ * @update 2026-10-19 下午6:40:12 
+ */
+
+final class DawgBuilder {
+    static final int DEFAULT_MAX_BUFFERED = 1 << 20; //排序缓存默认最多保存的记录条数
+
+    private final Map<Character, List<String>> pinyinTable_; //存储汉字->读音的映射表
+    private final int maxBuffered_; //排序缓存最多保存的记录条数
+    private final boolean enableShortSubMatched_; //是否需要生成简拼子串索引
+    private final boolean compressWords_; //词语是否使用前缀压缩的UTF-8存储
+
+    /**
+     * constructors of the class
+     * @param pyTable 存储汉字->读音的映射表
+     * @param maxBuffered 排序缓存最多保存的记录条数
+     * @param enableShortSubMatched 是否需要生成简拼子串索引
+     * @param compressWords 词语是否使用前缀压缩的UTF-8存储
+     */
+    DawgBuilder(final Map<Character, List<String>> pyTable, final int maxBuffered, final boolean enableShortSubMatched,
+                final boolean compressWords)
+    {
+        pinyinTable_ = pyTable;
+        maxBuffered_ = maxBuffered;
+        enableShortSubMatched_ = enableShortSubMatched;
+        compressWords_ = compressWords;
+    }
+
+    /**
+     * @description 从词典文件流式构建词典快照
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:42:35
+     * @param dictName 词典名称
+     * @param dictFilePath 词典文件路径，UTF-8编码，每行一个词
+     * @return 词典快照
+     * @throws IOException 读取词典或者读写临时文件失败
+     */
+    DictSnapshot build(final String dictName, final String dictFilePath) throws IOException
+    {
+        Build build = new Build();
+        try
+        {
+            //第一遍：逐行读取词语，展开的拼音串交给外部排序
+            BufferedReader dictReader = new BufferedReader(new InputStreamReader(new FileInputStream(dictFilePath), "UTF-8"));
+            try
+            {
+                String record;
+                while((record = dictReader.readLine()) != null)
+                {
+                    build.add(record);
+                }
+            }
+            finally
+            {
+                dictReader.close();
+            }
+            return build.finish(dictName);
+        }
+        finally
+        {
+            build.close();
+        }
+    }
+
+    /**
+     * @description 由内存中的词语构建词典快照，不生成拼音串->词语的中间HashMap，构建出的快照也不引用传入的集合
+     * @author fengliangcheng
+     * @update 2026-10-22 下午2:20:48
+     * @param dictName 词典名称
+     * @param words 词典包含的词语
+     * @return 词典快照
+     * @throws IOException 读写临时文件失败
+     */
+    DictSnapshot build(final String dictName, final Collection<String> words) throws IOException
+    {
+        Build build = new Build();
+        try
+        {
+            for(String word: words)
+            {
+                build.add(word);
+            }
+            return build.finish(dictName);
+        }
+        finally
+        {
+            build.close();
+        }
+    }
+
+    /**
+     * @description 一次构建的中间状态：第一遍接收词语并把展开的拼音串交给外部排序，第二遍归并输出构建DAWG；
+     *              每个阶段结束后立即释放该阶段的缓存和临时文件
+     * @author fengliangcheng
+     * @update 2026-10-22 下午2:23:10
+     */
+    private final class Build
+    {
+        private ExternalKeySorter prefixSorter = new ExternalKeySorter(maxBuffered_);
+        private ExternalKeySorter subSorter = enableShortSubMatched_ ? new ExternalKeySorter(maxBuffered_) : null;
+        private String[] rawWords = new String[1024];
+        private int wordNum = 0;
+        private final PinyinExpander expander = new PinyinExpander(pinyinTable_);
+        private final ArrayList<String> keys = new ArrayList<String>();
+        private final ArrayList<String> subKeys = enableShortSubMatched_ ? new ArrayList<String>() : null;
+
+        void add(final String record) throws IOException
+        {
+            if(0 == record.length())
+            {
+                return;
+            }
+            if(wordNum == rawWords.length)
+            {
+                rawWords = Arrays.copyOf(rawWords, wordNum * 2);
+            }
+            rawWords[wordNum++] = record;
+
+            expander.expand(record, keys, subKeys);
+            for(String key: keys)
+            {
+                prefixSorter.add(key, record);
+            }
+            keys.clear();
+            if(null != subKeys)
+            {
+                for(String key: subKeys)
+                {
+                    subSorter.add(key, record);
+                }
+                subKeys.clear();
+            }
+        }
+
+        DictSnapshot finish(final String dictName) throws IOException
+        {
+            SortedWordSet wordSet = SortedWordSet.sortAndDedupe(rawWords, wordNum);
+            rawWords = null;
+            WordStore store = wordSet; //压缩后编号不变，构建时仍用String数组查编号，构建完成后String数组即可回收
+            if(compressWords_)
+            {
+                FrontCodedWordSet compressed = FrontCodedWordSet.encode(wordSet);
+                if(null != compressed)
+                {
+                    store = compressed;
+                }
+            }
+
+            //第二遍：归并输出有序的拼音串，增量构建DAWG；前缀索引构建完成后先释放它的排序临时文件，再构建子串索引
+            Dawg prefixDawg = buildDawg(prefixSorter, wordSet, store);
+            prefixSorter.close();
+            prefixSorter = null;
+            Dawg subDawg = null;
+            if(null != subSorter)
+            {
+                subDawg = buildDawg(subSorter, wordSet, store);
+                subSorter.close();
+                subSorter = null;
+            }
+            return new DictSnapshot(dictName, prefixDawg, subDawg, store);
+        }
+
+        void close() throws IOException
+        {
+            if(null != prefixSorter)
+            {
+                prefixSorter.close();
+            }
+            if(null != subSorter)
+            {
+                subSorter.close();
+            }
+        }
+    }
+
+    /**
+     * @description 按序读取排序后的记录，同一拼音串的词语编号合并后加入DAWG
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:45:50
+     * @param sorter 外部排序器
+     * @param wordSet 所有词语，编号即下标
+     * @param store 构建出的DAWG使用的词语存储，编号与wordSet相同
+     * @return 构建好的DAWG
+     * @throws IOException 读临时文件失败
+     */
+    private Dawg buildDawg(ExternalKeySorter sorter, final SortedWordSet wordSet, final WordStore store) throws IOException
+    {
+        sorter.finish();
+        Dawg.Builder builder = new Dawg.Builder();
+        int[] ids = new int[16];
+        int idCount = 0;
+        String currKey = null;
+        ExternalKeySorter.Record record;
+        while((record = sorter.next()) != null)
+        {
+            if(null != currKey && !currKey.equals(record.key))
+            {
+                builder.add(currKey, ids, idCount);
+                idCount = 0;
+            }
+            currKey = record.key;
+            int id = wordSet.idOf(record.word);
+            if(idCount > 0 && ids[idCount - 1] == id) //同一拼音串下重复的词语（记录按词语排序，重复的必然相邻）
+            {
+                continue;
+            }
+            if(idCount == ids.length)
+            {
+                ids = Arrays.copyOf(ids, idCount * 2);
+            }
+            ids[idCount++] = id;
+        }
+        if(null != currKey)
+        {
+            builder.add(currKey, ids, idCount);
+        }
+        return builder.build(store, pinyinTable_);
+    }
+}
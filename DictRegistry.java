@@ -0,0 +1,125 @@
+package com.tcgroup.common.spell;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @description 词典快照的注册表：读操作无锁，只读取一次当前的不可变映射表；写操作复制映射表后整体切换，
+ *              因此一次可以同时切换多个词典，读线程不会看到只更新了一半的词典组合
+ * @author fengliangcheng
+ * @update 2026-10-19 下午3:05:47 
+ */
+
+final class DictRegistry {
+    private final AtomicReference<Map<String, DictSnapshot>> current_; //当前发布的词典名称->快照映射表，不可变
+    private final Object writeLock_ = new Object(); //串行化写操作，避免并发发布时互相覆盖
+
+    /**
+     * constructors of the class
+     */
+    DictRegistry()
+    {
+        Map<String, DictSnapshot> empty = Collections.emptyMap();
+        current_ = new AtomicReference<Map<String, DictSnapshot>>(empty);
+    }
+
+    /**
+     * @description 获取某个词典的当前快照
+     * @author fengliangcheng
+     * @update 2026-10-19 下午3:08:20
+     * @param dictName 词典名称
+     * @return 词典快照，不存在则返回null
+     */
+    DictSnapshot get(final String dictName)
+    {
+        return current_.get().get(dictName);
+    }
+
+    /**
+     * @description 获取所有词典的当前快照，返回的映射表是不可变的一致视图
+     * @author fengliangcheng
+     * @update 2026-10-19 下午3:08:51
+     * @return 词典名称->快照映射表
+     */
+    Map<String, DictSnapshot> snapshot()
+    {
+        return current_.get();
+    }
+
+    /**
+     * @description 发布单个词典的快照
+     * @author fengliangcheng
+     * @update 2026-10-19 下午3:10:02
+     * @param snapshot 新的词典快照
+     * @return 被替换的旧快照，没有则返回null
+     */
+    DictSnapshot publish(final DictSnapshot snapshot)
+    {
+        Map<String, DictSnapshot> updates = new HashMap<String, DictSnapshot>();
+        updates.put(snapshot.dictName, snapshot);
+        return publishAll(updates).get(snapshot.dictName);
+    }
+
+    /**
+     * @description 在一次切换中发布多个词典的快照
+     * @author fengliangcheng
+     * @update 2026-10-19 下午3:12:36
+     * @param updates 词典名称->新快照
+     * @return 切换前的映射表
+     */
+    Map<String, DictSnapshot> publishAll(final Map<String, DictSnapshot> updates)
+    {
+        synchronized(writeLock_)
+        {
+            Map<String, DictSnapshot> old = current_.get();
+            Map<String, DictSnapshot> next = new HashMap<String, DictSnapshot>(old);
+            next.putAll(updates);
+            current_.set(Collections.unmodifiableMap(next));
+            return old;
+        }
+    }
+
+    /**
+     * @description 词典还没有快照时才发布，已经被其他途径（比如reload）发布过时放弃，避免旧的构建结果覆盖新的
+     * @author fengliangcheng
+     * @update 2026-10-21 上午11:02:14
+     * @param snapshot 新的词典快照
+     * @return true-已发布 false-词典已经存在
+     */
+    boolean publishIfAbsent(final DictSnapshot snapshot)
+    {
+        synchronized(writeLock_)
+        {
+            if(current_.get().containsKey(snapshot.dictName))
+            {
+                return false;
+            }
+            publish(snapshot);
+            return true;
+        }
+    }
+
+    /**
+     * @description 词典的当前快照仍是指定的快照时才移除，期间被reload替换过时放弃
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:30:12
+     * @param snapshot 需要移除的快照
+     * @return true-已移除 false-当前快照已经不是它
+     */
+    boolean remove(final DictSnapshot snapshot)
+    {
+        synchronized(writeLock_)
+        {
+            Map<String, DictSnapshot> old = current_.get();
+            if(old.get(snapshot.dictName) != snapshot)
+            {
+                return false;
+            }
+            Map<String, DictSnapshot> next = new HashMap<String, DictSnapshot>(old);
+            next.remove(snapshot.dictName);
+            current_.set(Collections.unmodifiableMap(next));
+            return true;
+        }
+    }
+}
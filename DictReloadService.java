@@ -0,0 +1,360 @@
+package com.tcgroup.common.spell;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description 词典文件热加载服务：通过WatchService监听词典文件，合并短时间内的多次修改，
+ *              在低优先级的有界线程池中重建词典，完成后原子发布新的快照，不占用查询线程
+ * @author fengliangcheng
+ * @update 2026-10-19 下午4:10:26 
+ */
+
+public class DictReloadService {
+
+    /**
+     * @description 单个词典的reload统计信息
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:12:03 
+     */
+    public static class ReloadMetrics
+    {
+        private volatile long lastBuildMillis; //最近一次重建耗时（毫秒）
+        private volatile long lastPeakHeapBytes; //最近一次重建过程中堆内存的峰值（字节）
+        private volatile long lastSuccessTime; //最近一次成功发布的时间戳，从未成功则为0
+        private final AtomicLong successCount = new AtomicLong(); //成功发布的次数
+        private final AtomicLong skipCount = new AtomicLong(); //词典未变化或者为空而跳过的次数
+        private final AtomicLong failureCount = new AtomicLong(); //失败的次数，重建线程和提交任务被拒绝的线程都会累加
+        private volatile String lastError; //最近一次失败的原因
+
+        public long getLastBuildMillis() { return lastBuildMillis; }
+        public long getLastPeakHeapBytes() { return lastPeakHeapBytes; }
+        public long getLastSuccessTime() { return lastSuccessTime; }
+        public long getSuccessCount() { return successCount.get(); }
+        public long getSkipCount() { return skipCount.get(); }
+        public long getFailureCount() { return failureCount.get(); }
+        public String getLastError() { return lastError; }
+
+        @Override
+        public String toString()
+        {
+            return "build=" + lastBuildMillis + "ms peakHeap=" + (lastPeakHeapBytes >> 20) + "MB lastSuccess=" + lastSuccessTime
+                   + " success=" + successCount.get() + " skip=" + skipCount.get() + " failure=" + failureCount.get()
+                   + (null == lastError ? "" : " lastError=" + lastError);
+        }
+    }
+
+    private static final int MAX_PENDING = 16; //重建线程池中最多排队的任务数
+
+    /**
+     * @description 某个词典的重建任务，线程池拒绝时据此把词典移出排队集合
+     */
+    private final class BuildTask implements Runnable
+    {
+        final String dictName;
+        final Path file;
+
+        BuildTask(final String name, final Path dictFile)
+        {
+            dictName = name;
+            file = dictFile;
+        }
+
+        public void run()
+        {
+            queuedDicts_.remove(dictName);
+            rebuild(dictName, file);
+        }
+    }
+
+    private final KBSmarter smarter_; //需要热加载的实例
+    private final long debounceMillis_; //文件最后一次修改后等待多久才开始重建
+    private final Map<Path, String> watchedFiles_; //文件绝对路径->词典名称
+    private final Map<String, ReloadMetrics> metrics_; //词典名称->统计信息
+    private final Map<String, ScheduledFuture<?>> pendingReloads_; //词典名称->等待中的重建任务，用于合并连续修改
+    private final Set<String> queuedDicts_; //已经提交到重建线程池但还没开始执行的词典
+    private final WatchService watchService_;
+    private final ScheduledExecutorService debouncer_; //合并修改事件的定时器
+    private final ThreadPoolExecutor builder_; //低优先级、有界的重建线程池
+    private final Thread watcherThread_;
+
+    /**
+     * constructors of the class
+     * @param smarter 需要热加载的实例
+     * @param debounceMillis 文件最后一次修改后等待多久才开始重建
+     * @throws IOException 无法创建WatchService
+     */
+    public DictReloadService(KBSmarter smarter, long debounceMillis) throws IOException
+    {
+        smarter_ = smarter;
+        debounceMillis_ = debounceMillis;
+        watchedFiles_ = new ConcurrentHashMap<Path, String>();
+        metrics_ = new ConcurrentHashMap<String, ReloadMetrics>();
+        pendingReloads_ = new ConcurrentHashMap<String, ScheduledFuture<?>>();
+        queuedDicts_ = ConcurrentHashMap.newKeySet();
+        watchService_ = FileSystems.getDefault().newWatchService();
+        debouncer_ = Executors.newSingleThreadScheduledExecutor(lowPriorityFactory("dict-reload-debouncer"));
+        builder_ = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<Runnable>(MAX_PENDING),
+                                          lowPriorityFactory("dict-reload-builder"),
+                                          new RejectedExecutionHandler() {
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+            {
+                //同一词典排队时会被合并，排满或者已经停止时丢弃，但必须移出排队集合，否则该词典以后的修改都会被忽略
+                BuildTask task = (BuildTask)r;
+                queuedDicts_.remove(task.dictName);
+                ReloadMetrics metrics = metrics_.get(task.dictName);
+                metrics.lastError = executor.isShutdown() ? "reload service stopped" : "reload queue full";
+                metrics.failureCount.incrementAndGet();
+                System.out.println("dict " + task.dictName + " reload dropped: " + metrics.lastError);
+            }
+        });
+        watcherThread_ = lowPriorityFactory("dict-reload-watcher").newThread(new Runnable() {
+            public void run()
+            {
+                watchLoop();
+            }
+        });
+    }
+
+    /**
+     * @description 生成低优先级的守护线程
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:15:47
+     * @param name 线程名称
+     * @return 线程工厂
+     */
+    private static ThreadFactory lowPriorityFactory(final String name)
+    {
+        return new ThreadFactory() {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY); //重建词典不能抢占查询线程的CPU
+                return t;
+            }
+        };
+    }
+
+    /**
+     * @description 监听某个词典文件，文件修改或者被替换后自动reload
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:18:22
+     * @param dictName 词典名称
+     * @param dictFilePath 词典文件路径
+     * @throws IOException 无法监听该文件所在目录
+     */
+    public void watch(final String dictName, final String dictFilePath) throws IOException
+    {
+        Path file = Paths.get(dictFilePath).toAbsolutePath().normalize();
+        Path dir = file.getParent();
+        dir.register(watchService_, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedFiles_.put(file, dictName);
+        if(!metrics_.containsKey(dictName))
+        {
+            metrics_.put(dictName, new ReloadMetrics());
+        }
+    }
+
+    /**
+     * @description 启动监听线程
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:19:05
+     */
+    public void start()
+    {
+        watcherThread_.start();
+    }
+
+    /**
+     * @description 停止监听，正在执行的重建会继续完成
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:19:31
+     */
+    public void stop()
+    {
+        try
+        {
+            watchService_.close();
+        }
+        catch(IOException e)
+        {
+            System.out.println("closing watch service failed: " + e.getMessage());
+        }
+        debouncer_.shutdownNow();
+        builder_.shutdown();
+    }
+
+    /**
+     * @description 获取某个词典的reload统计信息
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:20:14
+     * @param dictName 词典名称
+     * @return 统计信息，没有监听该词典则返回null
+     */
+    public ReloadMetrics getMetrics(final String dictName)
+    {
+        return metrics_.get(dictName);
+    }
+
+    /**
+     * @description 获取builder线程池中正在排队的重建任务数
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:20:40
+     * @return 排队任务数
+     */
+    public int getQueuedCount()
+    {
+        return builder_.getQueue().size();
+    }
+
+    /**
+     * @description 请求reload某个词典：取消该词典还在等待的请求，重新计时，计时结束后提交到重建线程池
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:23:18
+     * @param dictName 词典名称，没有监听的词典也可以，第一次请求时创建它的统计信息
+     * @param file 词典文件
+     */
+    public void requestReload(final String dictName, final Path file)
+    {
+        if(!metrics_.containsKey(dictName))
+        {
+            metrics_.putIfAbsent(dictName, new ReloadMetrics());
+        }
+        ScheduledFuture<?> future = debouncer_.schedule(new Runnable() {
+            public void run()
+            {
+                submitBuild(dictName, file);
+            }
+        }, debounceMillis_, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = pendingReloads_.put(dictName, future);
+        if(null != previous)
+        {
+            previous.cancel(false); //合并连续的修改事件
+        }
+    }
+
+    /**
+     * @description 提交重建任务，同一词典已经在排队时无需重复提交（执行时总是读取文件的最新内容）
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:25:02
+     * @param dictName 词典名称
+     * @param file 词典文件
+     */
+    private void submitBuild(final String dictName, final Path file)
+    {
+        if(!queuedDicts_.add(dictName))
+        {
+            return;
+        }
+        builder_.execute(new BuildTask(dictName, file));
+    }
+
+    /**
+     * @description 读取词典文件并重建、发布该词典，同时记录耗时和内存峰值
+     * @author fengliangcheng
+     * @update 2026-10-27 下午2:34:02
+     * @param dictName 词典名称
+     * @param file 词典文件
+     */
+    private void rebuild(final String dictName, final Path file)
+    {
+        ReloadMetrics metrics = metrics_.get(dictName);
+        HeapMeter meter = new HeapMeter(); //只在这里重置峰值，低峰值reload也使用它，不再嵌套测量
+
+        long begin = System.currentTimeMillis();
+        try
+        {
+            HashSet<String> dict_set = FileConfigure.read_dict(file.toString());
+            int ret = smarter_.dictionary_reLoad(dictName, dict_set, meter); //构建完成后原子切换
+            long end = System.currentTimeMillis();
+            metrics.lastBuildMillis = end - begin;
+            if(1 == ret)
+            {
+                metrics.lastSuccessTime = end;
+                metrics.successCount.incrementAndGet();
+            }
+            else
+            {
+                metrics.skipCount.incrementAndGet();
+            }
+        }
+        catch(RuntimeException e)
+        {
+            metrics.lastBuildMillis = System.currentTimeMillis() - begin;
+            metrics.lastError = String.valueOf(e.getMessage());
+            metrics.failureCount.incrementAndGet();
+        }
+
+        metrics.lastPeakHeapBytes = meter.peakBytes();
+        System.out.println("dict " + dictName + " reloaded: " + metrics);
+    }
+
+    /**
+     * @description 监听线程的主循环，把文件事件转化为reload请求
+     * @author fengliangcheng
+     * @update 2026-10-19 下午4:31:10
+     */
+    private void watchLoop()
+    {
+        while(true)
+        {
+            WatchKey key;
+            try
+            {
+                key = watchService_.take();
+            }
+            catch(InterruptedException e)
+            {
+                return;
+            }
+            catch(ClosedWatchServiceException e)
+            {
+                return;
+            }
+
+            Path dir = (Path)key.watchable();
+            for(WatchEvent<?> event: key.pollEvents())
+            {
+                if(StandardWatchEventKinds.OVERFLOW == event.kind()) //事件丢失，reload该目录下所有词典
+                {
+                    for(Map.Entry<Path, String> entry: watchedFiles_.entrySet())
+                    {
+                        if(dir.equals(entry.getKey().getParent()))
+                        {
+                            requestReload(entry.getValue(), entry.getKey());
+                        }
+                    }
+                    continue;
+                }
+                Path file = dir.resolve((Path)event.context());
+                String dictName = watchedFiles_.get(file);
+                if(null != dictName)
+                {
+                    requestReload(dictName, file);
+                }
+            }
+            key.reset();
+        }
+    }
+}
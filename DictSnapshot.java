@@ -0,0 +1,189 @@
+package com.tcgroup.common.spell;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @description 某个词典在某一时刻的不可变快照，前缀匹配trie树、简拼子串trie树和词语集合总是一起发布和切换
+ * @author fengliangcheng
+ * @update 2026-10-19 下午3:02:11 
+ */
+
+final class DictSnapshot {
+    final String dictName; //词典名称
+    final SpellIndex prefixTrie; //前缀匹配索引（trie树或者DAWG）
+    final SpellIndex subTrie; //简拼子串匹配索引，未启用简拼子串匹配时为null
+    final Set<String> words; //词典中的所有词，只读
+    private final Set<String> rawWords; //未包装的词语集合，用于按实际的实现估算内存
+    private volatile long[] memoryBytes; //{前缀索引, 子串索引, 词语集合（含有序存储）}估算的字节数，第一次使用时计算
+    private volatile long lastAccess; //最近一次被查询的时间，用于按LRU淘汰
+    private final WordStore wordIds; //有序的词语存储，构造时在构建线程上生成，查询线程不排序
+    private final int unnormalized; //含有需要归一化的字符（比如繁体字）的词语个数，构造时计算，增量reload时按变化的词语更新
+    private Map<String, Long> categories; //构建索引时使用的词语类别，没有类别时为null
+
+    /**
+     * constructors of the class
+     * @param name 词典名称
+     * @param prefix 前缀匹配索引
+     * @param sub 简拼子串匹配索引，可以为null
+     * @param dictWords 词典中的所有词，构造之后调用方不能再修改
+     */
+    DictSnapshot(final String name, final SpellIndex prefix, final SpellIndex sub, final Set<String> dictWords)
+    {
+        this(name, prefix, sub, dictWords, sortedStore(dictWords), countUnnormalized(dictWords));
+    }
+
+    private DictSnapshot(final String name, final SpellIndex prefix, final SpellIndex sub, final Set<String> dictWords,
+                         final WordStore sortedWords, final int unnormalizedWords)
+    {
+        dictName = name;
+        prefixTrie = prefix;
+        subTrie = sub;
+        rawWords = dictWords;
+        words = Collections.unmodifiableSet(dictWords);
+        wordIds = sortedWords;
+        unnormalized = unnormalizedWords;
+        lastAccess = System.currentTimeMillis();
+    }
+
+    private static WordStore sortedStore(final Set<String> dictWords)
+    {
+        if(dictWords instanceof WordStore)
+        {
+            return (WordStore)dictWords;
+        }
+        String[] array = dictWords.toArray(new String[dictWords.size()]);
+        return SortedWordSet.sortAndDedupe(array, array.length);
+    }
+
+    private static int countUnnormalized(final Collection<String> dictWords)
+    {
+        int count = 0;
+        for(String word: dictWords)
+        {
+            if(PrefixConstraint.normalize(word) != word) //不需要归一化时返回原对象
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @description 增量reload：由当前快照的有序存储和归一化计数加上变化的词语得到新快照，代价与变化的词语数成正比，
+     *              不重新排序和扫描整个词典；有序存储不是SortedWordSet时按新词语完整构造
+     * @author fengliangcheng
+     * @update 2026-10-27 上午11:36:42
+     * @param prefix 应用增量后的前缀匹配索引
+     * @param sub 应用增量后的简拼子串匹配索引，可以为null
+     * @param dictWords 新词典的所有词，构造之后调用方不能再修改
+     * @param added 新增的词语
+     * @param removed 删除的词语
+     * @return 新快照
+     */
+    DictSnapshot withDelta(final SpellIndex prefix, final SpellIndex sub, final Set<String> dictWords,
+                           final Collection<String> added, final Collection<String> removed)
+    {
+        if(!(wordIds instanceof SortedWordSet) || wordIds == rawWords)
+        {
+            return new DictSnapshot(dictName, prefix, sub, dictWords);
+        }
+        return new DictSnapshot(dictName, prefix, sub, dictWords, ((SortedWordSet)wordIds).withDelta(added, removed),
+                                unnormalized + countUnnormalized(added) - countUnnormalized(removed));
+    }
+
+    /**
+     * @description 记录构建索引时使用的词语类别，在发布之前调用
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:48:20
+     * @param wordCategories 词语->类别，索引已经按它计算了子树的类别并集
+     */
+    void setCategories(final Map<String, Long> wordCategories)
+    {
+        categories = wordCategories;
+    }
+
+    Map<String, Long> categories()
+    {
+        return categories;
+    }
+
+    /**
+     * @description 记录一次查询，时间没有变化时不写，减少查询线程之间的缓存行争用
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:22:40
+     */
+    void touch()
+    {
+        long now = System.currentTimeMillis();
+        if(now != lastAccess)
+        {
+            lastAccess = now;
+        }
+    }
+
+    long lastAccess()
+    {
+        return lastAccess;
+    }
+
+    /**
+     * @description 获取词语的编号：DAWG和有序数组的词语本身就是有序存储，直接使用；其他词典在构造快照时排序生成，
+     *              增量reload时在旧的有序存储上加入和删除变化的词语，都在构建线程上完成，发布之后的查询不会再排序
+     * @author fengliangcheng
+     * @update 2026-10-21 下午5:20:02
+     * @return 有序的词语存储，编号即下标
+     */
+    WordStore wordIds()
+    {
+        return wordIds;
+    }
+
+    /**
+     * @description 所有词语是否都已经是归一化的：归一化后的全汉字前缀只能在这样的词典上直接查找有序词语，
+     *              否则以繁体字保存的词语不在归一化前缀的区间内，要走拼音路径逐个校验
+     * @author fengliangcheng
+     * @update 2026-10-25 上午11:02:40
+     * @return true-没有词语需要归一化 false-有
+     */
+    boolean wordsNormalized()
+    {
+        return 0 == unnormalized;
+    }
+
+    /**
+     * @description 估算快照占用的堆内存，快照不可变，只计算一次；并发计算时结果相同，不需要加锁
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:24:18
+     * @return {前缀索引, 简拼子串索引, 词语集合（含有序存储）}的字节数
+     */
+    long[] memoryBytes()
+    {
+        long[] bytes = memoryBytes;
+        if(null == bytes)
+        {
+            long wordBytes = MemoryEstimator.wordSet(rawWords);
+            if(wordIds != rawWords) //有序存储与词语集合共享字符串，只多出对象和引用数组
+            {
+                wordBytes += MemoryEstimator.align(MemoryEstimator.HEADER + MemoryEstimator.REF)
+                             + MemoryEstimator.array(wordIds.size(), MemoryEstimator.REF);
+            }
+            bytes = new long[] {prefixTrie.estimateBytes(),
+                                (null == subTrie) ? 0 : subTrie.estimateBytes(),
+                                wordBytes};
+            memoryBytes = bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * @description 估算快照占用的堆内存总数
+     * @return 字节数
+     */
+    long totalBytes()
+    {
+        long[] bytes = memoryBytes();
+        return bytes[0] + bytes[1] + bytes[2];
+    }
+}
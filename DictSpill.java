@@ -0,0 +1,92 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @description 被淘汰词典在本地磁盘上的形式：只保存有序的词语，每行一个，与词典文件的格式相同；
+ *              索引不落盘，恢复时重新构建，磁盘占用只有词语本身，也可以直接交给DawgBuilder流式构建；
+ *              固定使用UTF-8，不受平台默认字符集影响
+ * @author fengliangcheng
+ * @update 2026-10-27 上午11:05:20
+ */
+
+final class DictSpill {
+    private DictSpill()
+    {
+    }
+
+    /**
+     * @description 把词典的词语写入目录下的新文件
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:36:12
+     * @param dir 保存的目录，为null时使用系统临时目录
+     * @param words 词语集合
+     * @return 写入的文件
+     * @throws IOException 写文件失败，已经写了一部分的文件会被删除
+     */
+    static File write(final File dir, final Set<String> words) throws IOException
+    {
+        String[] sorted = words.toArray(new String[words.size()]);
+        Arrays.sort(sorted); //有序便于比较和压缩，也让DawgBuilder的外部排序更快
+        File file = File.createTempFile("spell-evict-", ".words", dir);
+        boolean done = false;
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+        try
+        {
+            for(String word: sorted)
+            {
+                writer.write(word);
+                writer.newLine();
+            }
+            done = true;
+        }
+        finally
+        {
+            writer.close();
+            if(!done)
+            {
+                file.delete();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @description 读回被淘汰词典的词语
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:37:40
+     * @param file write写入的文件
+     * @return 词语集合
+     * @throws IOException 读文件失败
+     */
+    static HashSet<String> read(final File file) throws IOException
+    {
+        HashSet<String> words = new HashSet<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"), 1 << 16);
+        try
+        {
+            String record;
+            while((record = reader.readLine()) != null)
+            {
+                if(0 != record.length())
+                {
+                    words.add(record);
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return words;
+    }
+}
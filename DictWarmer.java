@@ -0,0 +1,318 @@
+package com.tcgroup.common.spell;
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @description 后台构建已注册但还没有快照的词典：非延迟的词典按注册顺序（即优先级）提交到构建线程池，
+ *              延迟的词典和因内存预算被淘汰到磁盘的词典在第一次被查询时才提交；
+ *              构建完成后只在注册表中还没有该词典时发布，不会覆盖期间reload的结果
+ * @author fengliangcheng
+ * @update 2026-10-21 上午10:58:20
+ */
+
+final class DictWarmer {
+    static final int STATUS_NONE = 0; //没有等待构建的词典
+    static final int STATUS_WARMING = 2; //正在构建或者排队等待构建
+    static final int STATUS_LAZY = 3; //第一次查询时才构建，尚未开始
+    static final int STATUS_EVICTED = 4; //已淘汰到磁盘，第一次查询时才恢复，尚未开始
+
+    /**
+     * @description 由调用方提供的构建方法
+     */
+    interface SnapshotFactory
+    {
+        DictSnapshot build(String dictName, HashSet<String> words);
+
+        /**
+         * @description 从淘汰到磁盘的文件恢复词典
+         * @param compact 淘汰前是否压缩的DAWG
+         */
+        DictSnapshot restore(String dictName, File spill, boolean compact);
+
+        /**
+         * @description 快照发布之后调用，用于执行内存预算
+         */
+        void published(DictSnapshot snapshot);
+    }
+
+    /**
+     * @description 一个等待构建的词典
+     */
+    private static final class Pending
+    {
+        final String dictName;
+        final boolean lazy;
+        HashSet<String> words; //构建开始后置为null，尽早释放
+        final File spill; //淘汰到磁盘的文件，不是被淘汰的词典时为null
+        final boolean compact; //淘汰前是否压缩的DAWG
+        final AtomicBoolean started = new AtomicBoolean(false);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Pending(final String name, final HashSet<String> dictWords, final boolean isLazy)
+        {
+            dictName = name;
+            words = dictWords;
+            lazy = isLazy;
+            spill = null;
+            compact = false;
+        }
+
+        Pending(final String name, final File spillFile, final boolean isCompact)
+        {
+            dictName = name;
+            words = null;
+            lazy = true;
+            spill = spillFile;
+            compact = isCompact;
+        }
+    }
+
+    private final DictRegistry registry_; //构建完成后发布到的注册表
+    private final SnapshotFactory factory_;
+    private final ConcurrentHashMap<String, Pending> pending_; //词典名称->等待构建的词典
+    private final ThreadPoolExecutor executor_; //先进先出，保证按优先级开始构建
+
+    /**
+     * constructors of the class
+     * @param registry 构建完成后发布到的注册表
+     * @param factory 构建方法
+     * @param threads 构建线程数
+     */
+    DictWarmer(final DictRegistry registry, final SnapshotFactory factory, final int threads)
+    {
+        registry_ = registry;
+        factory_ = factory;
+        pending_ = new ConcurrentHashMap<String, Pending>();
+        executor_ = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private int index = 0;
+
+                    public synchronized Thread newThread(Runnable r)
+                    {
+                        Thread t = new Thread(r, "spell-warmup-" + (index++));
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor_.allowCoreThreadTimeOut(true); //全部构建完成后线程退出，延迟构建时再创建
+    }
+
+    /**
+     * @description 注册一个词典，非延迟的词典立即排队构建；应按优先级顺序调用
+     * @author fengliangcheng
+     * @update 2026-10-21 上午11:04:36
+     * @param dictName 词典名称
+     * @param words 词典包含的词语
+     * @param lazy 是否第一次查询时才构建
+     */
+    void register(final String dictName, final HashSet<String> words, final boolean lazy)
+    {
+        Pending p = new Pending(dictName, words, lazy);
+        pending_.put(dictName, p);
+        if(!lazy)
+        {
+            start(p);
+        }
+    }
+
+    /**
+     * @description 登记一个已经淘汰到磁盘的词典，第一次查询时恢复
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:41:26
+     * @param dictName 词典名称
+     * @param spill 淘汰到磁盘的文件
+     * @param compact 淘汰前是否压缩的DAWG
+     */
+    void registerSpilled(final String dictName, final File spill, final boolean compact)
+    {
+        pending_.put(dictName, new Pending(dictName, spill, compact));
+    }
+
+    /**
+     * @description 词典已经通过reload等其他途径发布，放弃尚未开始的构建，淘汰到磁盘的文件一并删除
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:43:02
+     * @param dictName 词典名称
+     */
+    void discard(final String dictName)
+    {
+        Pending p = pending_.get(dictName);
+        if(null != p && p.started.compareAndSet(false, true))
+        {
+            pending_.remove(dictName, p);
+            if(null != p.spill)
+            {
+                p.spill.delete();
+            }
+            p.done.countDown();
+        }
+    }
+
+    /**
+     * @description 获取尚未恢复的被淘汰词典
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:44:15
+     * @return 词典名称->淘汰到磁盘的文件
+     */
+    Map<String, File> spilled()
+    {
+        Map<String, File> result = new HashMap<String, File>();
+        for(Pending p: pending_.values())
+        {
+            if(null != p.spill && !p.started.get())
+            {
+                result.put(p.dictName, p.spill);
+            }
+        }
+        return result;
+    }
+
+    private void start(final Pending p)
+    {
+        if(!p.started.compareAndSet(false, true))
+        {
+            return;
+        }
+        executor_.execute(new Runnable() {
+            public void run()
+            {
+                long begin = System.currentTimeMillis();
+                try
+                {
+                    DictSnapshot snapshot;
+                    if(null != p.spill)
+                    {
+                        snapshot = factory_.restore(p.dictName, p.spill, p.compact);
+                        p.spill.delete(); //恢复失败时保留文件，便于人工处理
+                    }
+                    else
+                    {
+                        HashSet<String> words = p.words;
+                        p.words = null;
+                        snapshot = factory_.build(p.dictName, words);
+                    }
+                    if(registry_.publishIfAbsent(snapshot))
+                    {
+                        System.out.println("dict " + p.dictName + (null != p.spill ? " restored" : " warmed up") + " in "
+                                           + (System.currentTimeMillis() - begin) + " ms");
+                        factory_.published(snapshot);
+                    }
+                }
+                catch(RuntimeException e)
+                {
+                    System.out.println("warming up dict " + p.dictName + " failed: " + e
+                                       + (null != p.spill ? ", evicted words kept in " + p.spill : ""));
+                    if(null != p.spill) //仍登记为被淘汰的词典，之后的查询重新尝试恢复
+                    {
+                        pending_.replace(p.dictName, p, new Pending(p.dictName, p.spill, p.compact));
+                    }
+                }
+                finally
+                {
+                    pending_.remove(p.dictName, p);
+                    p.done.countDown();
+                }
+            }
+        });
+    }
+
+    /**
+     * @description 等待词典构建完成，延迟构建的词典在这里开始构建；被淘汰的词典之前已经可以查询，可以单独指定等待恢复的时间
+     * @author fengliangcheng
+     * @update 2026-10-26 上午11:12:40
+     * @param dictName 词典名称
+     * @param waitMillis 等待构建最多的毫秒数，0表示不等待
+     * @param restoreWaitMillis 等待被淘汰的词典恢复最多的毫秒数，0表示不等待
+     * @return true-词典已经不在等待构建的状态 false-等待超时
+     */
+    boolean await(final String dictName, final long waitMillis, final long restoreWaitMillis)
+    {
+        Pending p = pending_.get(dictName);
+        if(null == p)
+        {
+            return true;
+        }
+        start(p);
+        long wait = (null != p.spill) ? restoreWaitMillis : waitMillis;
+        if(wait <= 0)
+        {
+            return false;
+        }
+        try
+        {
+            return p.done.await(wait, TimeUnit.MILLISECONDS);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @description 获取词典的构建状态
+     * @author fengliangcheng
+     * @update 2026-10-21 上午11:09:10
+     * @param dictName 词典名称
+     * @return STATUS_NONE、STATUS_WARMING、STATUS_LAZY或者STATUS_EVICTED
+     */
+    int status(final String dictName)
+    {
+        Pending p = pending_.get(dictName);
+        if(null == p)
+        {
+            return STATUS_NONE;
+        }
+        if(p.started.get())
+        {
+            return STATUS_WARMING;
+        }
+        if(null != p.spill)
+        {
+            return STATUS_EVICTED;
+        }
+        return p.lazy ? STATUS_LAZY : STATUS_WARMING;
+    }
+
+    /**
+     * @description 等待所有非延迟的词典构建完成
+     * @author fengliangcheng
+     * @update 2026-10-21 上午11:10:25
+     * @param timeoutMillis 最多等待的毫秒数
+     * @return true-都已完成 false-超时
+     */
+    boolean awaitEager(final long timeoutMillis)
+    {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for(Pending p: pending_.values())
+        {
+            if(p.lazy && !p.started.get())
+            {
+                continue;
+            }
+            try
+            {
+                long left = deadline - System.currentTimeMillis();
+                if(left <= 0 || !p.done.await(left, TimeUnit.MILLISECONDS))
+                {
+                    return false;
+                }
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
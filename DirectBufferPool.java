@@ -0,0 +1,82 @@
+package com.tcgroup.common.spell;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @description 固定大小的堆外缓冲区池：网络读写直接使用堆外内存，避免每次复制到临时的堆外缓冲区，
+ *              归还后的缓冲区被复用，池中最多保留固定个数
+ * @author fengliangcheng
+ * @update 2026-10-20 上午10:05:12 
+ */
+
+final class DirectBufferPool {
+    private final int bufferSize_; //每个缓冲区的字节数
+    private final int maxPooled_; //池中最多保留的缓冲区个数
+    private final ConcurrentLinkedQueue<ByteBuffer> free_; //空闲的缓冲区
+    private final AtomicInteger freeCount_; //空闲缓冲区个数（ConcurrentLinkedQueue.size()需要遍历）
+
+    /**
+     * constructors of the class
+     * @param bufferSize 每个缓冲区的字节数
+     * @param maxPooled 池中最多保留的缓冲区个数
+     */
+    DirectBufferPool(final int bufferSize, final int maxPooled)
+    {
+        bufferSize_ = bufferSize;
+        maxPooled_ = maxPooled;
+        free_ = new ConcurrentLinkedQueue<ByteBuffer>();
+        freeCount_ = new AtomicInteger();
+    }
+
+    /**
+     * @description 获取每个缓冲区的字节数
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:06:30
+     * @return 字节数
+     */
+    int bufferSize()
+    {
+        return bufferSize_;
+    }
+
+    /**
+     * @description 取出一个已清空的缓冲区，池为空时新分配
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:07:02
+     * @return 缓冲区
+     */
+    ByteBuffer acquire()
+    {
+        ByteBuffer buf = free_.poll();
+        if(null == buf)
+        {
+            return ByteBuffer.allocateDirect(bufferSize_);
+        }
+        freeCount_.decrementAndGet();
+        buf.clear();
+        return buf;
+    }
+
+    /**
+     * @description 归还缓冲区，池已满时丢弃，由GC回收
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:07:40
+     * @param buf 缓冲区
+     */
+    void release(final ByteBuffer buf)
+    {
+        if(null == buf || buf.capacity() != bufferSize_ || !buf.isDirect())
+        {
+            return;
+        }
+        if(freeCount_.incrementAndGet() <= maxPooled_)
+        {
+            free_.offer(buf);
+        }
+        else
+        {
+            freeCount_.decrementAndGet();
+        }
+    }
+}
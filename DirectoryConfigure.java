@@ -0,0 +1,424 @@
+package com.tcgroup.common.spell;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * @description 从目录加载词典：目录下每个.txt/.dic文件是一个词典，可以用gzip压缩（再加.gz后缀），去掉后缀的文件名就是词典名称，
+ *              同名的压缩和未压缩文件合并为一个词典；文件通过FileChannel按块读取，固定按UTF-8解码（不依赖平台字符集），
+ *              直接在字符缓冲区中查找换行，不用readLine和正则表达式，多个文件并行加载。汉字拼音表的格式与FileConfigure相同，
+ *              拼音表所在目录下的t2s.txt是繁体->简体的字符归一化表
+ * @author fengliangcheng
+ * @update 2026-10-22 下午5:10:24
+ */
+
+public class DirectoryConfigure implements ConfigureData {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 1 << 16; //读取和解码的缓冲区大小
+    private static final int BYTES_PER_WORD = 16; //估算词典词语个数时每个词（含换行）的平均字节数
+    private static final String[] DICT_SUFFIXES = {".txt", ".dic"};
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final File pinyinFile_; //汉字拼音表文件
+    private final File t2sFile_; //繁体->简体的字符归一化表文件，与拼音表在同一目录，可以没有
+    private final File dictDir_; //词典目录
+    private final int threads_; //并行加载的线程数
+
+    /**
+     * @description 逐行处理文件内容，行内容是缓冲区的一段，处理完后缓冲区会被复用
+     */
+    interface LineHandler
+    {
+        void line(char[] buf, int off, int len);
+    }
+
+    /**
+     * constructors of the class，拼音表使用目录下的pinyin.txt，线程数为CPU个数
+     * @param dictDir 词典目录
+     */
+    public DirectoryConfigure(final String dictDir)
+    {
+        this(new File(dictDir, "pinyin.txt").getPath(), dictDir, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * constructors of the class
+     * @param pinyinFile 汉字拼音表文件，也可以是gzip压缩的（.gz后缀），在词典目录下时不会被当作词典
+     * @param dictDir 词典目录
+     * @param threads 并行加载的线程数
+     */
+    public DirectoryConfigure(final String pinyinFile, final String dictDir, final int threads)
+    {
+        pinyinFile_ = new File(pinyinFile);
+        t2sFile_ = new File(pinyinFile_.getAbsoluteFile().getParentFile(), "t2s.txt");
+        dictDir_ = new File(dictDir);
+        threads_ = Math.max(1, threads);
+    }
+
+    /**
+     * @description 读取汉字拼音配置表，每行是"汉字\t读音"，读音之后还有制表符时忽略后面的内容
+     * @author fengliangcheng
+     * @update 2026-10-22 下午5:14:36
+     * @return 汉字及其读音的映射表
+     */
+    public Map<Character, String> generatePyConfigSet()
+    {
+        final HashMap<Character, String> pyMap = new HashMap<Character, String>();
+        try
+        {
+            readLines(pinyinFile_, new LineHandler() {
+                public void line(char[] buf, int off, int len)
+                {
+                    int end = off + len;
+                    int tab = indexOf(buf, off, end, '\t');
+                    if(tab <= off || tab + 1 >= end) //没有读音，或者行首就是制表符
+                    {
+                        return;
+                    }
+                    int next = indexOf(buf, tab + 1, end, '\t');
+                    pyMap.put(buf[off], new String(buf, tab + 1, next - tab - 1));
+                }
+            });
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return pyMap;
+    }
+
+    /**
+     * @description 读取繁体->简体的字符归一化表，每行是"繁体字\t简体字"
+     * @author fengliangcheng
+     * @update 2026-10-25 上午10:17:52
+     * @return 繁体字->简体字，没有归一化表文件时返回null
+     */
+    public Map<Character, Character> generateCharNormalization()
+    {
+        if(!t2sFile_.isFile())
+        {
+            return null;
+        }
+        final HashMap<Character, Character> t2sMap = new HashMap<Character, Character>();
+        try
+        {
+            readLines(t2sFile_, new LineHandler() {
+                public void line(char[] buf, int off, int len)
+                {
+                    if(3 <= len && '\t' == buf[off + 1])
+                    {
+                        t2sMap.put(buf[off], buf[off + 2]);
+                    }
+                }
+            });
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return t2sMap;
+    }
+
+    /**
+     * @description 并行读取目录下的所有词典，空行忽略，空词典不返回
+     * @author fengliangcheng
+     * @update 2026-10-22 下午5:18:02
+     * @return 词典名称->词语集合
+     */
+    public Map<String, HashSet<String>> generateDictSets()
+    {
+        List<File> files = dictFiles();
+        Map<String, HashSet<String>> dictGroups = new HashMap<String, HashSet<String>>();
+        if(files.isEmpty())
+        {
+            return dictGroups;
+        }
+        List<Callable<HashSet<String>>> tasks = new ArrayList<Callable<HashSet<String>>>();
+        for(final File file: files)
+        {
+            tasks.add(new Callable<HashSet<String>>() {
+                public HashSet<String> call() throws IOException
+                {
+                    return read_dict(file);
+                }
+            });
+        }
+        ExecutorService loadPool = Executors.newFixedThreadPool(Math.min(threads_, files.size()));
+        try
+        {
+            List<Future<HashSet<String>>> futures = loadPool.invokeAll(tasks);
+            for(int i = 0; i < files.size(); i++)
+            {
+                HashSet<String> dict = futures.get(i).get();
+                if(dict.isEmpty())
+                {
+                    continue;
+                }
+                String dictName = dictName(files.get(i).getName());
+                HashSet<String> existing = dictGroups.get(dictName);
+                if(null == existing)
+                {
+                    dictGroups.put(dictName, dict);
+                }
+                else
+                {
+                    existing.addAll(dict);
+                }
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch(ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            loadPool.shutdown();
+        }
+        return dictGroups;
+    }
+
+    /**
+     * @description 列出目录下的词典文件，按文件名排序，拼音表文件、归一化表文件和隐藏文件除外
+     * @return 词典文件
+     */
+    List<File> dictFiles()
+    {
+        File[] children = dictDir_.listFiles();
+        if(null == children)
+        {
+            throw new RuntimeException("dict directory " + dictDir_ + " can not be listed");
+        }
+        Arrays.sort(children);
+        List<File> files = new ArrayList<File>();
+        for(File file: children)
+        {
+            if(file.isFile() && !file.isHidden() && null != dictName(file.getName())
+               && !file.getAbsoluteFile().equals(pinyinFile_.getAbsoluteFile()) && !file.getAbsoluteFile().equals(t2sFile_))
+            {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @description 由文件名得到词典名称
+     * @param fileName 文件名，比如"cha.txt"、"cha.txt.gz"
+     * @return 词典名称，不是词典文件时返回null
+     */
+    static String dictName(final String fileName)
+    {
+        String name = fileName.endsWith(GZIP_SUFFIX) ? fileName.substring(0, fileName.length() - GZIP_SUFFIX.length()) : fileName;
+        for(String suffix: DICT_SUFFIXES)
+        {
+            if(name.endsWith(suffix) && name.length() > suffix.length())
+            {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @description 读取一个词典文件，行尾的\r会被去掉，空行忽略
+     * @author fengliangcheng
+     * @update 2026-10-22 下午5:21:40
+     * @param file 词典文件，.gz结尾时按gzip解压
+     * @return 存放了词语的Set
+     * @throws IOException
+     */
+    static HashSet<String> read_dict(final File file) throws IOException
+    {
+        //按文件大小预估容量，避免加载大词典时反复扩容；压缩文件按压缩后的大小估算，偏小也没有关系
+        final HashSet<String> words = new HashSet<String>((int)Math.min(1 << 24, file.length() / BYTES_PER_WORD * 4 / 3 + 16));
+        readLines(file, new LineHandler() {
+            public void line(char[] buf, int off, int len)
+            {
+                if(0 != len)
+                {
+                    words.add(new String(buf, off, len));
+                }
+            }
+        });
+        return words;
+    }
+
+    /**
+     * @description 按UTF-8逐行读取文件，非法的字节序列替换为U+FFFD（与InputStreamReader相同），文件开头的BOM会被去掉
+     * @author fengliangcheng
+     * @update 2026-10-22 下午5:25:12
+     * @param file 文件，.gz结尾时按gzip解压
+     * @param handler 每行的处理，不包括换行符
+     * @throws IOException
+     */
+    static void readLines(final File file, final LineHandler handler) throws IOException
+    {
+        ReadableByteChannel channel;
+        if(file.getName().endsWith(GZIP_SUFFIX))
+        {
+            InputStream in = new FileInputStream(file);
+            try
+            {
+                channel = Channels.newChannel(new GZIPInputStream(in, BUFFER_SIZE));
+            }
+            catch(IOException e)
+            {
+                in.close();
+                throw e;
+            }
+        }
+        else
+        {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        try
+        {
+            readLines(channel, handler);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * @description 逐行读取，字节按块读入后解码到字符缓冲区，在缓冲区中查找换行；
+     *              不完整的行留在缓冲区开头等待下一块，一行比缓冲区还长时缓冲区加倍
+     * @param channel 数据来源
+     * @param handler 每行的处理
+     * @throws IOException
+     */
+    static void readLines(final ReadableByteChannel channel, final LineHandler handler) throws IOException
+    {
+        CharsetDecoder decoder = UTF8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                                     .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        boolean eof = false;
+        boolean start = true; //是否还没有处理过任何字符，用于去掉BOM
+        while(!eof)
+        {
+            eof = (channel.read(bytes) < 0);
+            bytes.flip();
+            while(decoder.decode(bytes, chars, eof).isOverflow())
+            {
+                start = drainLines(chars, handler, start, false);
+                chars = ensureSpace(chars);
+            }
+            bytes.compact();
+            start = drainLines(chars, handler, start, false);
+        }
+        while(decoder.flush(chars).isOverflow())
+        {
+            start = drainLines(chars, handler, start, false);
+            chars = ensureSpace(chars);
+        }
+        drainLines(chars, handler, start, true);
+    }
+
+    /**
+     * @description 处理缓冲区中所有完整的行，剩下的不完整的行移到缓冲区开头
+     * @param chars 写模式的字符缓冲区，[0, position)是已解码的内容
+     * @param handler 每行的处理
+     * @param start 缓冲区开头是否是文件开头
+     * @param last 是否已经读到文件结尾，此时剩下的内容也作为一行
+     * @return 处理后缓冲区开头是否仍是文件开头
+     */
+    private static boolean drainLines(final CharBuffer chars, final LineHandler handler, final boolean start, final boolean last)
+    {
+        char[] buf = chars.array();
+        int end = chars.position();
+        int from = 0;
+        if(start)
+        {
+            if(0 == end)
+            {
+                return true;
+            }
+            if('\uFEFF' == buf[0])
+            {
+                from = 1;
+            }
+        }
+        for(int i = indexOf(buf, from, end, '\n'); i < end; i = indexOf(buf, from, end, '\n'))
+        {
+            emit(buf, from, i, handler);
+            from = i + 1;
+        }
+        if(last)
+        {
+            if(from < end)
+            {
+                emit(buf, from, end, handler);
+            }
+            from = end;
+        }
+        System.arraycopy(buf, from, buf, 0, end - from);
+        chars.position(end - from);
+        return false;
+    }
+
+    private static void emit(final char[] buf, final int from, final int to, final LineHandler handler)
+    {
+        int end = (to > from && '\r' == buf[to - 1]) ? to - 1 : to;
+        handler.line(buf, from, end - from);
+    }
+
+    /**
+     * @description 缓冲区被一个不完整的行占满时加倍
+     */
+    private static CharBuffer ensureSpace(final CharBuffer chars)
+    {
+        if(chars.hasRemaining())
+        {
+            return chars;
+        }
+        CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+        chars.flip();
+        larger.put(chars);
+        return larger;
+    }
+
+    /**
+     * @description 查找字符
+     * @return 第一次出现的位置，没有时返回end
+     */
+    private static int indexOf(final char[] buf, final int from, final int end, final char c)
+    {
+        for(int i = from; i < end; i++)
+        {
+            if(c == buf[i])
+            {
+                return i;
+            }
+        }
+        return end;
+    }
+}
@@ -0,0 +1,359 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * @description 拼音串->词语记录的外部排序：内存中最多缓存固定条数，超出后排序写入临时文件，
+ *              最后对所有临时文件做多路归并（临时文件过多时分多遍归并，限制同时打开的文件数），
+ *              按(拼音串, 词语)的顺序逐条输出，构建过程的内存与词典大小无关
+ * @author fengliangcheng
+ * @update 2026-10-19 下午5:35:12 
+ */
+
+final class ExternalKeySorter implements Closeable {
+
+    /**
+     * @description 一条拼音串->词语记录
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:35:40 
+     */
+    static final class Record
+    {
+        final String key; //拼音串
+        final String word; //对应的词语
+        Record(final String k, final String w)
+        {
+            key = k;
+            word = w;
+        }
+    }
+
+    private static final Comparator<Record> RECORD_ORDER = new Comparator<Record>() {
+        public int compare(Record a, Record b)
+        {
+            int ret = a.key.compareTo(b.key);
+            return (0 != ret) ? ret : a.word.compareTo(b.word);
+        }
+    };
+
+    /**
+     * @description 归并时某一路输入的当前位置
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:38:02 
+     */
+    private static final class RunCursor
+    {
+        private final DataInputStream in; //临时文件，为null时表示内存中的最后一段
+        private final List<Record> memory; //内存中已排序的最后一段
+        private int remaining; //剩余记录条数
+        private int memoryIndex;
+        Record current; //当前记录
+
+        RunCursor(DataInputStream input, int count)
+        {
+            in = input;
+            memory = null;
+            remaining = count;
+        }
+
+        RunCursor(List<Record> sorted)
+        {
+            in = null;
+            memory = sorted;
+            remaining = sorted.size();
+        }
+
+        boolean advance() throws IOException
+        {
+            if(0 == remaining)
+            {
+                current = null;
+                return false;
+            }
+            remaining--;
+            if(null == in)
+            {
+                current = memory.set(memoryIndex++, null); //已经输出的记录不再引用，归并过程中逐步释放
+            }
+            else
+            {
+                current = new Record(in.readUTF(), in.readUTF());
+            }
+            return true;
+        }
+
+        void close() throws IOException
+        {
+            if(null != in)
+            {
+                in.close();
+            }
+        }
+    }
+
+    private static final int MAX_FAN_IN = 64; //一次归并最多同时打开的临时文件个数
+
+    private final int maxBuffered_; //内存中最多缓存的记录条数
+    private ArrayList<Record> buffer_; //还没有写入临时文件的记录
+    private final List<File> runFiles_; //已经写入的临时文件
+    private final List<Integer> runSizes_; //每个临时文件中的记录条数
+    private PriorityQueue<RunCursor> merger_; //多路归并的优先队列，finish之后才有效
+
+    /**
+     * constructors of the class
+     * @param maxBuffered 内存中最多缓存的记录条数
+     */
+    ExternalKeySorter(final int maxBuffered)
+    {
+        maxBuffered_ = maxBuffered;
+        buffer_ = new ArrayList<Record>();
+        runFiles_ = new ArrayList<File>();
+        runSizes_ = new ArrayList<Integer>();
+    }
+
+    /**
+     * @description 添加一条记录，缓存满了则排序后写入临时文件
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:40:26
+     * @param key 拼音串
+     * @param word 对应的词语
+     * @throws IOException 写临时文件失败
+     */
+    void add(final String key, final String word) throws IOException
+    {
+        buffer_.add(new Record(key, word));
+        if(buffer_.size() >= maxBuffered_)
+        {
+            spill();
+        }
+    }
+
+    /**
+     * @description 将缓存的记录排序后写入临时文件
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:41:13
+     * @throws IOException 写临时文件失败
+     */
+    private void spill() throws IOException
+    {
+        Collections.sort(buffer_, RECORD_ORDER);
+        File file = File.createTempFile("spell-sort-", ".run"); //不用deleteOnExit，它登记的路径直到JVM退出都不会释放；写入成功后由close删除
+        boolean written = false;
+        try
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            try
+            {
+                for(Record record: buffer_)
+                {
+                    out.writeUTF(record.key);
+                    out.writeUTF(record.word);
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            written = true;
+        }
+        finally
+        {
+            if(!written) //写入失败的临时文件还没有登记，close删不到，这里直接删除
+            {
+                file.delete();
+            }
+        }
+        runFiles_.add(file);
+        runSizes_.add(buffer_.size());
+        buffer_ = new ArrayList<Record>(); //释放旧的缓存
+    }
+
+    /**
+     * @description 输入结束，准备多路归并；临时文件超过MAX_FAN_IN个时，先把最早的MAX_FAN_IN个归并成一个新的临时文件，
+     *              直到剩下的临时文件可以一次打开，归并过程同时打开的文件数不超过MAX_FAN_IN
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:42:50
+     * @throws IOException 读写临时文件失败
+     */
+    void finish() throws IOException
+    {
+        while(runFiles_.size() > MAX_FAN_IN)
+        {
+            mergeRuns(MAX_FAN_IN);
+        }
+        merger_ = newMerger(runFiles_.size() + 1);
+        openRuns(runFiles_.size(), merger_);
+        Collections.sort(buffer_, RECORD_ORDER);
+        RunCursor memoryCursor = new RunCursor(buffer_);
+        buffer_ = new ArrayList<Record>(); //最后一段只由归并引用
+        if(memoryCursor.advance())
+        {
+            merger_.add(memoryCursor);
+        }
+    }
+
+    private static PriorityQueue<RunCursor> newMerger(final int capacity)
+    {
+        return new PriorityQueue<RunCursor>(Math.max(1, capacity), new Comparator<RunCursor>() {
+            public int compare(RunCursor a, RunCursor b)
+            {
+                return RECORD_ORDER.compare(a.current, b.current);
+            }
+        });
+    }
+
+    /**
+     * @description 打开最早的若干个临时文件，非空的加入归并队列
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:12:36
+     * @param count 打开的临时文件个数
+     * @param merger 归并队列
+     * @throws IOException 读临时文件失败
+     */
+    private void openRuns(final int count, PriorityQueue<RunCursor> merger) throws IOException
+    {
+        for(int i = 0; i < count; i++)
+        {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFiles_.get(i)), 1 << 16));
+            RunCursor cursor = new RunCursor(in, runSizes_.get(i));
+            if(cursor.advance())
+            {
+                merger.add(cursor);
+            }
+            else
+            {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * @description 把最早的若干个临时文件归并成一个新的临时文件，放到列表末尾，原来的临时文件随即删除
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:14:05
+     * @param count 归并的临时文件个数
+     * @throws IOException 读写临时文件失败
+     */
+    private void mergeRuns(final int count) throws IOException
+    {
+        PriorityQueue<RunCursor> merger = newMerger(count);
+        File file = null;
+        boolean written = false;
+        try
+        {
+            openRuns(count, merger);
+            file = File.createTempFile("spell-sort-", ".run");
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            try
+            {
+                RunCursor cursor;
+                while(null != (cursor = merger.poll()))
+                {
+                    out.writeUTF(cursor.current.key);
+                    out.writeUTF(cursor.current.word);
+                    if(cursor.advance())
+                    {
+                        merger.add(cursor);
+                    }
+                    else
+                    {
+                        cursor.close();
+                    }
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            written = true;
+        }
+        finally
+        {
+            for(RunCursor cursor: merger)
+            {
+                cursor.close();
+            }
+            if(!written && null != file) //新文件还没有登记，close删不到，这里直接删除；原来的临时文件仍由close删除
+            {
+                file.delete();
+            }
+        }
+        int size = 0;
+        for(int i = 0; i < count; i++)
+        {
+            runFiles_.get(i).delete();
+            size += runSizes_.get(i);
+        }
+        runFiles_.subList(0, count).clear();
+        runSizes_.subList(0, count).clear();
+        runFiles_.add(file);
+        runSizes_.add(size);
+    }
+
+    /**
+     * @description 取出下一条有序记录
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:44:31
+     * @return 下一条记录，没有则返回null
+     * @throws IOException 读临时文件失败
+     */
+    Record next() throws IOException
+    {
+        RunCursor cursor = merger_.poll();
+        if(null == cursor)
+        {
+            return null;
+        }
+        Record record = cursor.current;
+        if(cursor.advance())
+        {
+            merger_.add(cursor);
+        }
+        else
+        {
+            cursor.close();
+        }
+        return record;
+    }
+
+    /**
+     * @description 关闭所有输入并删除临时文件
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:45:02
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            if(null != merger_)
+            {
+                for(RunCursor cursor: merger_)
+                {
+                    cursor.close();
+                }
+                merger_.clear();
+            }
+        }
+        finally //关闭输入失败也要删除临时文件
+        {
+            for(File file: runFiles_)
+            {
+                file.delete();
+            }
+            runFiles_.clear();
+            buffer_ = new ArrayList<Record>();
+        }
+    }
+}
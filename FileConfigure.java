@@ -1,5 +1,6 @@
 package com.tcgroup.common.spell;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -54,6 +55,47 @@ public class FileConfigure implements ConfigureData{
         return initChinesePyMap; 
     }
     
+    /**
+     * @description 从文件读取繁体->简体的字符归一化表，每行是"繁体字\t简体字"
+     * @author fengliangcheng
+     * @update 2026-10-25 上午10:15:40
+     * @return 繁体字->简体字，没有t2s.txt时返回null
+     */
+    public Map<Character, Character> generateCharNormalization()
+    {
+        String t2sFilePath = "t2s.txt";
+        if(!new File(t2sFilePath).isFile())
+        {
+            return null;
+        }
+        String record;
+        HashMap<Character, Character> t2sMap = new HashMap<Character, Character>();
+        try
+        {
+            BufferedReader t2sReader = new BufferedReader(new FileReader(t2sFilePath));
+            try
+            {
+                while((record = t2sReader.readLine()) != null)
+                {
+                    String[] array = record.split("\t");
+                    if(array.length >= 2 && 1 == array[0].length() && 1 == array[1].length())
+                    {
+                        t2sMap.put(array[0].charAt(0), array[1].charAt(0));
+                    }
+                }
+            }
+            finally
+            {
+                t2sReader.close();
+            }
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return t2sMap;
+    }
+
 	 /**
      * @description 从文件读取各种词典
      * @author fengliangcheng
@@ -81,7 +123,7 @@ public class FileConfigure implements ConfigureData{
      * @param dictFilePath 词典文件的绝对路径
      * @return 存放了词语的Set
      */
-    private HashSet<String> read_dict(final String dictFilePath)
+    static HashSet<String> read_dict(final String dictFilePath)
     {
     	HashSet<String> initDictWords = new HashSet<String>();
         String record;
@@ -126,6 +168,8 @@ public class FileConfigure implements ConfigureData{
         System.out.println("initing consumed:" + (end - begin) + " ms.");
 
         BufferedReader stdIn = new BufferedReader(new InputStreamReader(System.in));
+        DictReloadService reloadService = null; //输入watch命令后才启动
+
 
         //命令行测试匹配、词典reload过程
         String input;
@@ -135,8 +179,25 @@ public class FileConfigure implements ConfigureData{
             
             if(input.equals("exit"))
             {
+                if(null != reloadService)
+                {
+                    reloadService.stop();
+                }
                 break; //终止测试过程
             }
+            else if(input.startsWith("watch"))
+            {
+                String[] array = input.split(" ");
+                if(array.length >= 3)
+                {
+                    if(null == reloadService)
+                    {
+                        reloadService = new DictReloadService(smarter, 500);
+                        reloadService.start();
+                    }
+                    reloadService.watch(array[1], array[2]); //文件修改后在后台自动reload
+                }
+            }
             else if(input.startsWith("reload"))
             {
                 String[] array = input.split(" ");
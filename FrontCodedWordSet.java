@@ -0,0 +1,406 @@
+package com.tcgroup.common.spell;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @description 前缀压缩的词语存储：有序词语每BLOCK_SIZE个分为一块，块内第一个词完整保存，其余词只保存与前一个词相同的
+ *              字节数和不同的后缀，全部以UTF-8写入一个字节数组；按编号访问时从块首解码，最近解码的词语放在一个小的
+ *              直接映射缓存中，热门结果不用重复解码。编号顺序与SortedWordSet相同，可以直接替换
+ * @author fengliangcheng
+ * @update 2026-10-21 下午4:08:12
+ */
+
+final class FrontCodedWordSet extends WordStore {
+    static final int BLOCK_SIZE = 16; //每块的词语个数，越大越省内存，随机访问越慢
+    private static final int CACHE_SIZE = 1 << 10; //解码缓存的槽数，按编号直接映射
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final byte[] arena; //所有块的编码
+    private final int[] blockOffsets; //每块在arena中的起始位置
+    private final int size; //词语个数
+    private final int maxBytes; //最长词语的UTF-8字节数，解码缓冲区的大小
+    private final AtomicReferenceArray<Decoded> cache; //最近解码的词语，并发读写只会多解码一次，不会读到错误的词语
+
+    /**
+     * @description 解码缓存中的一项，编号和词语一起替换
+     */
+    private static final class Decoded
+    {
+        final int id;
+        final String word;
+
+        Decoded(final int i, final String w)
+        {
+            id = i;
+            word = w;
+        }
+    }
+
+    private FrontCodedWordSet(final byte[] data, final int[] offsets, final int count, final int maxLen)
+    {
+        arena = data;
+        blockOffsets = offsets;
+        size = count;
+        maxBytes = maxLen;
+        cache = new AtomicReferenceArray<Decoded>(CACHE_SIZE);
+    }
+
+    /**
+     * @description 按原有的顺序压缩一个有序的词语集合
+     * @author fengliangcheng
+     * @update 2026-10-21 下午4:12:40
+     * @param sorted 有序、去重的词语
+     * @return 压缩后的集合，有词语无法用UTF-8无损表示（比如不成对的代理字符）时返回null
+     */
+    static FrontCodedWordSet encode(final WordStore sorted)
+    {
+        int n = sorted.size();
+        int[] offsets = new int[(n + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        byte[] data = new byte[Math.max(64, n * 8)];
+        int length = 0;
+        int maxLen = 0;
+        byte[] prev = null;
+        int i = 0;
+        for(String word: sorted)
+        {
+            byte[] bytes = word.getBytes(UTF8);
+            if(!word.equals(new String(bytes, UTF8)))
+            {
+                return null;
+            }
+            maxLen = Math.max(maxLen, bytes.length);
+            if(length + bytes.length + 10 > data.length)
+            {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes.length + 10));
+            }
+            int shared = 0;
+            if(0 == i % BLOCK_SIZE)
+            {
+                offsets[i / BLOCK_SIZE] = length;
+            }
+            else
+            {
+                int limit = Math.min(prev.length, bytes.length);
+                while(shared < limit && prev[shared] == bytes[shared])
+                {
+                    shared++;
+                }
+                length = writeVarint(data, length, shared);
+            }
+            length = writeVarint(data, length, bytes.length - shared);
+            System.arraycopy(bytes, shared, data, length, bytes.length - shared);
+            length += bytes.length - shared;
+            prev = bytes;
+            i++;
+        }
+        return new FrontCodedWordSet(Arrays.copyOf(data, length), offsets, n, maxLen);
+    }
+
+    private static int writeVarint(byte[] data, int pos, int value)
+    {
+        while(value >= 0x80)
+        {
+            data[pos++] = (byte)(value | 0x80);
+            value >>>= 7;
+        }
+        data[pos++] = (byte)value;
+        return pos;
+    }
+
+    /**
+     * @description 读取一个变长整数
+     * @param pos pos[0]是读取位置，读取后前进
+     */
+    private int readVarint(final int[] pos)
+    {
+        int value = 0;
+        int shift = 0;
+        while(true)
+        {
+            int b = arena[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if(b >= 0)
+            {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    /**
+     * @description 从当前位置解码块内的下一个词语到缓冲区，缓冲区中原有的是前一个词语
+     * @param pos 读取位置
+     * @param buf 解码缓冲区
+     * @param first 是否块内的第一个词
+     * @return 词语的字节数
+     */
+    private int decodeNext(final int[] pos, final byte[] buf, final boolean first)
+    {
+        int shared = first ? 0 : readVarint(pos);
+        int suffix = readVarint(pos);
+        System.arraycopy(arena, pos[0], buf, shared, suffix);
+        pos[0] += suffix;
+        return shared + suffix;
+    }
+
+    @Override
+    String wordAt(final int id)
+    {
+        int slot = id & (CACHE_SIZE - 1);
+        Decoded cached = cache.get(slot);
+        if(null != cached && cached.id == id)
+        {
+            return cached.word;
+        }
+        if(id < 0 || id >= size)
+        {
+            throw new IndexOutOfBoundsException(String.valueOf(id));
+        }
+        byte[] buf = new byte[maxBytes];
+        int[] pos = new int[] {blockOffsets[id / BLOCK_SIZE]};
+        int len = 0;
+        for(int k = 0; k <= id % BLOCK_SIZE; k++)
+        {
+            len = decodeNext(pos, buf, 0 == k);
+        }
+        String word = new String(buf, 0, len, UTF8);
+        cache.set(slot, new Decoded(id, word));
+        return word;
+    }
+
+    @Override
+    int idOf(final String word)
+    {
+        //先按块首词二分查找所在的块
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int[] pos = new int[1];
+        while(low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            pos[0] = blockOffsets[mid];
+            int len = readVarint(pos);
+            int cmp = compare(arena, pos[0], len, word);
+            if(cmp < 0)
+            {
+                low = mid + 1;
+            }
+            else if(cmp > 0)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return mid * BLOCK_SIZE;
+            }
+        }
+        int block = high; //块首词小于word的最后一块
+        if(block < 0)
+        {
+            return -1;
+        }
+        //再在块内顺序查找
+        byte[] buf = new byte[maxBytes];
+        pos[0] = blockOffsets[block];
+        int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+        for(int id = block * BLOCK_SIZE; id < end; id++)
+        {
+            int len = decodeNext(pos, buf, id == block * BLOCK_SIZE);
+            int cmp = compare(buf, 0, len, word);
+            if(0 == cmp)
+            {
+                return id;
+            }
+            if(cmp > 0)
+            {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @description 与idOf相同，先按块首词二分查找，再在块内顺序解码，不经过解码缓存
+     * @author fengliangcheng
+     * @update 2026-10-22 下午3:20:16
+     * @param word 字符串
+     * @return 第一个不小于word的词语编号，所有词语都小于它时返回size()
+     */
+    @Override
+    int ceiling(final String word)
+    {
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int[] pos = new int[1];
+        while(low <= high) //找到块首词不小于word的第一块
+        {
+            int mid = (low + high) >>> 1;
+            pos[0] = blockOffsets[mid];
+            int len = readVarint(pos);
+            if(compare(arena, pos[0], len, word) < 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        int block = low - 1; //块首词小于word的最后一块，结果在该块中或者是下一块的块首
+        if(block < 0)
+        {
+            return 0;
+        }
+        byte[] buf = new byte[maxBytes];
+        pos[0] = blockOffsets[block];
+        int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+        for(int id = block * BLOCK_SIZE; id < end; id++)
+        {
+            int len = decodeNext(pos, buf, id == block * BLOCK_SIZE);
+            if(compare(buf, 0, len, word) >= 0)
+            {
+                return id;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @description 不解码成String，直接按UTF-16的顺序比较UTF-8字节和字符串，结果与String.compareTo的符号相同
+     * @author fengliangcheng
+     * @update 2026-10-21 下午4:20:36
+     * @param bytes UTF-8字节
+     * @param off 起始位置
+     * @param len 字节数
+     * @param s 字符串
+     * @return 负数-字节表示的词语在前 0-相等 正数-在后
+     */
+    static int compare(final byte[] bytes, final int off, final int len, final String s)
+    {
+        int i = off;
+        int end = off + len;
+        int k = 0;
+        char pending = 0; //补充平面字符的低位代理，等待下一次比较
+        while(true)
+        {
+            char c;
+            if(0 != pending)
+            {
+                c = pending;
+                pending = 0;
+            }
+            else if(i < end)
+            {
+                int b = bytes[i] & 0xFF;
+                int cp;
+                if(b < 0x80)
+                {
+                    cp = b;
+                    i += 1;
+                }
+                else if(b < 0xE0)
+                {
+                    cp = ((b & 0x1F) << 6) | (bytes[i + 1] & 0x3F);
+                    i += 2;
+                }
+                else if(b < 0xF0)
+                {
+                    cp = ((b & 0x0F) << 12) | ((bytes[i + 1] & 0x3F) << 6) | (bytes[i + 2] & 0x3F);
+                    i += 3;
+                }
+                else
+                {
+                    cp = ((b & 0x07) << 18) | ((bytes[i + 1] & 0x3F) << 12) | ((bytes[i + 2] & 0x3F) << 6) | (bytes[i + 3] & 0x3F);
+                    i += 4;
+                }
+                if(cp >= 0x10000)
+                {
+                    c = Character.highSurrogate(cp);
+                    pending = Character.lowSurrogate(cp);
+                }
+                else
+                {
+                    c = (char)cp;
+                }
+            }
+            else
+            {
+                return (k < s.length()) ? -1 : 0;
+            }
+            if(k >= s.length())
+            {
+                return 1;
+            }
+            char t = s.charAt(k++);
+            if(c != t)
+            {
+                return c - t;
+            }
+        }
+    }
+
+    @Override
+    long estimateBytes()
+    {
+        long bytes = MemoryEstimator.align(MemoryEstimator.HEADER + 5 * MemoryEstimator.REF)
+                     + MemoryEstimator.array(arena.length, 1) + MemoryEstimator.array(blockOffsets.length, 4)
+                     + MemoryEstimator.array(CACHE_SIZE, MemoryEstimator.REF);
+        for(int i = 0; i < CACHE_SIZE; i++)
+        {
+            Decoded cached = cache.get(i);
+            if(null != cached)
+            {
+                bytes += MemoryEstimator.align(MemoryEstimator.HEADER + 2 * MemoryEstimator.REF) + MemoryEstimator.string(cached.word);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @description 顺序解码，不经过缓存
+     */
+    @Override
+    public Iterator<String> iterator()
+    {
+        return new Iterator<String>() {
+            private final byte[] buf = new byte[maxBytes];
+            private final int[] pos = new int[1];
+            private int next = 0;
+
+            public boolean hasNext()
+            {
+                return next < size;
+            }
+
+            public String next()
+            {
+                if(next >= size)
+                {
+                    throw new NoSuchElementException();
+                }
+                boolean first = (0 == next % BLOCK_SIZE);
+                if(first)
+                {
+                    pos[0] = blockOffsets[next / BLOCK_SIZE];
+                }
+                int len = decodeNext(pos, buf, first);
+                next++;
+                return new String(buf, 0, len, UTF8);
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.tcgroup.common.spell;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * @description 测量一段时间内堆内存的使用峰值：开始时重置各堆内存池的峰值，结束时累加各池的峰值。
+ *              各池的峰值不一定出现在同一时刻，累加结果略大于真实峰值，GC回收的垃圾不计入；
+ *              其他线程同时分配的内存也会计入，只用于比较不同reload方式的内存压力
+ * @author fengliangcheng
+ * @update 2026-10-22 下午2:15:36
+ */
+
+final class HeapMeter {
+    private final long usedBefore_; //开始时已经使用的堆内存
+
+    /**
+     * constructors of the class
+     * 开始测量：重置各堆内存池的峰值，记录当前的使用量
+     */
+    HeapMeter()
+    {
+        for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if(MemoryType.HEAP == pool.getType() && pool.isValid())
+            {
+                pool.resetPeakUsage();
+            }
+        }
+        usedBefore_ = usedBytes();
+    }
+
+    long usedBefore()
+    {
+        return usedBefore_;
+    }
+
+    /**
+     * @description 开始测量以来堆内存的使用峰值
+     * @return 字节数
+     */
+    long peakBytes()
+    {
+        long peak = 0;
+        for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if(MemoryType.HEAP == pool.getType() && pool.isValid())
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return Math.max(peak, usedBefore_);
+    }
+
+    /**
+     * @description 当前使用的堆内存
+     * @return 字节数
+     */
+    static long usedBytes()
+    {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * @description 以MB为单位显示
+     */
+    static String toMB(final long bytes)
+    {
+        return (bytes >> 20) + "MB";
+    }
+}
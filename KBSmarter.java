@@ -1,14 +1,30 @@
 package com.tcgroup.common.spell;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Vector;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * @description 键盘精灵功能的主类,支持多词典
@@ -17,13 +33,44 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 
 public class KBSmarter {
-    private Map<Character, List<String>> mapPyTable_; //存储汉字-->拼音关系
-    private Map<String, HashSet<String>> mapDictWords_ ; //存储词典中的所有词
-    private Map<String, AtomicReference<Trie>> mapAtomicRefer_; //切换前缀匹配trie树的原子操作对象
-    private Map<String, AtomicReference<Trie>> mapSubAtomicRefer_; //切换子串匹配trie树的原子操作对象
+    private volatile Map<Character, List<String>> mapPyTable_; //存储汉字-->拼音关系，构建完成后整体发布
+    static final int MAX_DELTA_RATIO = 4; //新增和删除的词语不超过词典的1/4时才增量reload，否则重建更快
+    private static final int PINYIN_CACHE_SIZE = 100000; //缓存展开结果的词语个数
+    static final int DEFAULT_SORTED_ARRAY_MAX_WORDS = 5000; //默认不超过这么多词的词典使用有序数组索引，更大时单字母前缀按长度优先的扫描慢于trie树，见SortedArrayBench
+    private static final int LOW_PEAK_MAX_BUFFERED = 1 << 16; //低峰值reload时排序缓存最多保存的记录条数，其余写入临时文件
+    private static final long DRAIN_WAIT_MILLIS = 5000; //reload发布后最多等待旧快照上的查询结束的时间
+    private static final long RESTORE_WAIT_MILLIS = 10000; //同步查询被淘汰的词典时最多等待恢复的时间，恢复失败或者过慢时返回空结果
+    private final DictRegistry registry_; //所有词典的快照（前缀trie树、子串trie树、词语集合），读无锁、支持多词典原子切换
+    private final PinyinCache pinyinCache_; //增量reload时词语展开结果的缓存
+    private final ReaderEpochs epochs_; //查询的读纪元，reload发布后据此等待旧快照上的查询结束
+    private volatile boolean lowPeakReload_; //reload是否直接构建压缩的DAWG、多个词典逐个发布，降低reload时的内存峰值
+    private final LowPeakMetrics lowPeakMetrics_; //低峰值reload的堆内存峰值和旧快照的释放情况
     private ConfigureData configureData_; //该对象用于获取汉字拼音配置表和词典
     private boolean enableShortSubMatched_; //是否需要支持简拼子串匹配
-    private static KBSmarter smarter_; //采用单件模式，实现资源共享
+    private volatile boolean shortestFirst_; //是否按长度优先、字典序稳定的顺序返回匹配结果
+    private volatile boolean compressWords_; //流式加载的词典是否使用前缀压缩的UTF-8词语存储
+    private volatile int sortedArrayMaxWords_ = DEFAULT_SORTED_ARRAY_MAX_WORDS; //不超过这么多词的词典构建有序数组索引
+    private final Map<String, ShardedIndex.Spec> shardSpecs_; //需要分片的词典->分片方式
+    private final Map<String, Map<String, Long>> categories_; //词典名称->词语的类别，构建索引时计算子树的类别并集，没有类别的词典不在其中
+    private ExecutorService shardPool_; //分片词典构建和查询的线程池，其中的任务不会再等待该线程池，第一次使用时创建
+    private ExecutorService federatedPool_; //多词典联合查询的线程池，其中的任务会等待分片任务，所以与shardPool_分开，第一次使用时创建
+    private ExecutorService asyncPool_; //异步查询的线程池，与shardPool_分开，避免异步查询占满线程后等待分片任务，第一次使用时创建
+    private volatile PopularityTracker popularity_; //统计用户选中的词语，未启用热度学习时为null
+    private volatile Map<String, PopularityTracker.PopularSet> popularSets_; //每个词典当前的热门词语，由后台线程整体替换
+    private ScheduledExecutorService popularityService_; //周期性衰减计数并重新估算热门词语的后台线程
+    private volatile DictWarmer warmer_; //构建尚未就绪的词典和恢复被淘汰的词典，第一次需要时创建
+    private volatile long warmWaitMillis_; //查询尚未就绪的词典时最多等待的时间
+    private volatile long memoryBudget_; //所有词典估算的堆内存上限，不大于0表示不限制
+    private volatile File spillDir_; //被淘汰的词典保存的目录，为null时使用系统临时目录
+    private volatile boolean warm_; //查询预热是否已经完成，负载均衡据此决定是否转发流量
+    private volatile long warmupMillis_; //最近一次查询预热的耗时
+    private final Object evictLock_ = new Object(); //串行化内存预算的检查和淘汰
+    public static final int DICT_ABSENT = 0; //词典不存在
+    public static final int DICT_READY = 1; //词典已经可以查询
+    public static final int DICT_WARMING = 2; //词典正在后台构建或者排队等待构建
+    public static final int DICT_LAZY = 3; //词典第一次查询时才构建，尚未开始
+    public static final int DICT_EVICTED = 4; //词典因内存预算被淘汰到磁盘，下次查询时恢复
+    private static volatile KBSmarter smarter_; //采用单件模式，实现资源共享
 
     /**
      * constructors of the class
@@ -32,19 +79,24 @@ public class KBSmarter {
     {
     	configureData_ = data;
     	enableShortSubMatched_ = enableShortSubMatched;
-    	mapAtomicRefer_ = new HashMap<String, AtomicReference<Trie>>();
-        mapSubAtomicRefer_ = new HashMap<String, AtomicReference<Trie>>();
+    	registry_ = new DictRegistry();
+    	epochs_ = new ReaderEpochs();
+    	lowPeakMetrics_ = new LowPeakMetrics();
+    	pinyinCache_ = new PinyinCache(PINYIN_CACHE_SIZE, enableShortSubMatched);
+    	shardSpecs_ = new ConcurrentHashMap<String, ShardedIndex.Spec>();
+    	categories_ = new ConcurrentHashMap<String, Map<String, Long>>();
+    	popularSets_ = Collections.emptyMap();
     } 
     
     /**
-     * @description 获取单个实例对象,注意调用本方法需要在并发操作之前
+     * @description 获取单个实例对象,可以并发调用
      * @author fengliangcheng
-     * @update 2013-7-3 下午7:50:37
+     * @update 2026-10-19 下午3:20:14
      * @data 实现了ConfigureData接口的类对象
      * @enableShortSubMatched 是否支持简拼子串匹配
      * @return 单个实例对象，用于前缀匹配
      */
-    public static KBSmarter getInstance(ConfigureData data, boolean enableShortSubMatched)
+    public static synchronized KBSmarter getInstance(ConfigureData data, boolean enableShortSubMatched)
     {
     	if(null == smarter_)
     	{
@@ -55,9 +107,253 @@ public class KBSmarter {
     }
 
     /**
-     * @description 初始化的模板方法,用户必须实现两个抽象方法
+     * @description 以后台方式获取单个实例对象：读音表同步加载，词典立即注册后按优先级在后台并发构建，
+     *              构建完成前查询该词典时按options等待一段时间或者直接返回空结果
      * @author fengliangcheng
-     * @update 2013-7-3 下午5:26:28
+     * @update 2026-10-21 上午11:15:02
+     * @data 实现了ConfigureData接口的类对象
+     * @enableShortSubMatched 是否支持简拼子串匹配
+     * @param options 后台启动的参数
+     * @return 单个实例对象，用于前缀匹配
+     */
+    public static synchronized KBSmarter getInstance(ConfigureData data, boolean enableShortSubMatched, StartupOptions options)
+    {
+    	if(null == smarter_)
+    	{
+	    	smarter_ = new KBSmarter(data, enableShortSubMatched);
+	    	smarter_.init_background(options);
+    	}
+    	return smarter_;
+    }
+
+    /**
+     * @description 设置匹配结果的排序方式
+     * @author fengliangcheng
+     * @update 2026-10-19 下午2:25:10
+     * @param shortestFirst true-短的匹配结果优先，同长度按字典序，同一前缀在任何JVM上结果一致；false-按trie树的遍历顺序返回
+     */
+    public void setShortestFirst(boolean shortestFirst)
+    {
+    	shortestFirst_ = shortestFirst;
+    }
+
+    /**
+     * @description 设置reload的方式。默认方式先把词典展开为拼音串->词语的HashMap，再插入trie树，旧快照、新词语集合、
+     *              中间HashMap和新trie树同时存在，峰值约为稳定时的3倍；低峰值方式不生成中间HashMap，展开的拼音串经过
+     *              缓存固定条数的外部排序直接构建DAWG，词语前缀压缩保存，每个阶段结束后立即释放该阶段的缓存，
+     *              多个词典逐个构建、发布，并等待旧快照上的查询结束后再构建下一个。变化较少时仍然优先增量reload，
+     *              分片词典仍按分片方式构建
+     * @author fengliangcheng
+     * @update 2026-10-22 下午2:30:12
+     * @param lowPeak true-低峰值方式，查询略慢、dictionaries_reLoad不再原子切换，每次reload测量堆内存峰值并等待旧快照释放，
+     *                结果见getLowPeakMetrics() false-默认方式
+     */
+    public void setLowPeakReload(boolean lowPeak)
+    {
+    	lowPeakReload_ = lowPeak;
+    }
+
+    /**
+     * @description 设置之后流式加载（DAWG）的词典是否压缩词语：有序词语按块前缀压缩后以UTF-8保存在一个字节数组中，
+     *              每个词省去String对象和UTF-16的开销，返回结果时按编号解码，热门结果有解码缓存
+     * @author fengliangcheng
+     * @update 2026-10-21 下午4:30:15
+     * @param compressWords true-压缩 false-每个词一个String
+     */
+    public void setCompressWords(boolean compressWords)
+    {
+    	compressWords_ = compressWords;
+    }
+
+    /**
+     * @description 设置小词典使用有序数组索引的阈值：不超过这么多词的词典不再构建trie树，所有拼音串有序地首尾相接保存在
+     *              一个字符数组中，前缀匹配用两次二分查找得到区间后顺序扫描；之后构建（初始化、reload）的词典生效。
+     *              有序数组索引不支持增量reload，小词典重建本身很快
+     * @author fengliangcheng
+     * @update 2026-10-24 下午2:40:16
+     * @param maxWords 词语个数上限，不大于0表示总是使用trie树
+     */
+    public void setSortedArrayThreshold(int maxWords)
+    {
+    	sortedArrayMaxWords_ = maxWords;
+    }
+
+    /**
+     * @description 启用热度学习：用户选中的词语被计数，后台线程周期性地按半衰期衰减计数并重新估算每个词典的热门词语，
+     *              之后匹配到的热门词语排在其他匹配结果之前；重复调用时按新的参数重新开始
+     * @author fengliangcheng
+     * @update 2026-10-21 上午10:05:36
+     * @param periodMillis 重新估算热门词语的间隔
+     * @param halfLifeMillis 计数衰减一半的时间
+     */
+    public synchronized void enablePopularity(final long periodMillis, final long halfLifeMillis)
+    {
+        disablePopularity();
+        final PopularityTracker tracker = new PopularityTracker();
+        final double factor = Math.pow(0.5, (double)periodMillis / halfLifeMillis); //每个周期的衰减系数
+        popularityService_ = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "spell-popularity");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY); //不与查询线程争抢CPU
+                return t;
+            }
+        });
+        popularityService_.scheduleWithFixedDelay(new Runnable() {
+            public void run()
+            {
+                try
+                {
+                    tracker.decay(factor);
+                    popularSets_ = tracker.rebuild(mapPyTable_, enableShortSubMatched_); //整体替换，查询线程看到的总是完整的结果
+                }
+                catch(RuntimeException e)
+                {
+                    System.out.println("rebuilding popular words failed: " + e);
+                }
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        popularity_ = tracker;
+    }
+
+    /**
+     * @description 停用热度学习，匹配结果恢复为词典本身的顺序
+     * @author fengliangcheng
+     * @update 2026-10-21 上午10:07:12
+     */
+    public synchronized void disablePopularity()
+    {
+        if(null != popularityService_)
+        {
+            popularityService_.shutdownNow();
+            popularityService_ = null;
+        }
+        popularity_ = null;
+        popularSets_ = Collections.emptyMap();
+    }
+
+    /**
+     * @description 报告用户选中了某个联想结果，只做几次原子加，可以在请求线程上直接调用；未启用热度学习时忽略
+     * @author fengliangcheng
+     * @update 2026-10-21 上午10:08:40
+     * @param dictName 词典名称
+     * @param word 被选中的词语
+     */
+    public void recordPick(final String dictName, final String word)
+    {
+        PopularityTracker tracker = popularity_;
+        if(null != tracker && null != dictName && null != word)
+        {
+            tracker.record(dictName, word);
+        }
+    }
+
+    /**
+     * @description 设置词典的分片方式，词典已经加载时立即按新的方式重建并切换，否则在加载时生效；
+     *              大词典分片后各分片并行构建，查询时并发查询各分片后归并
+     * @author fengliangcheng
+     * @update 2026-10-20 下午5:02:18
+     * @param dictName 词典名称
+     * @param shardCount 分片个数，不大于1表示不分片
+     * @param byPinyinRange true-按拼音串首字母的范围分片，查询只访问一个分片 false-按词语的hash分片，查询访问所有分片
+     * @return 0-词典未加载或者分片方式没有变化 1-已经按新的方式重建
+     */
+    public int setSharding(final String dictName, final int shardCount, final boolean byPinyinRange)
+    {
+        ShardedIndex.Spec spec = (shardCount > 1) ? new ShardedIndex.Spec(shardCount, byPinyinRange) : null;
+        ShardedIndex.Spec old = (null == spec) ? shardSpecs_.remove(dictName) : shardSpecs_.put(dictName, spec);
+        if((null == spec && null == old) || (null != spec && spec.sameAs(old)))
+        {
+            return 0;
+        }
+        DictSnapshot existing = registry_.get(dictName);
+        if(null == existing)
+        {
+            return 0;
+        }
+        registry_.publish(init_dict(dictName, new HashSet<String>(existing.words)));
+        afterPublish(Collections.singleton(dictName));
+        return 1;
+    }
+
+    /**
+     * @description 获取分片词典构建和查询的线程池
+     * @author fengliangcheng
+     * @update 2026-10-20 下午5:04:40
+     * @return 线程池
+     */
+    private synchronized ExecutorService shardPool()
+    {
+        if(null == shardPool_)
+        {
+            shardPool_ = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private int index = 0;
+
+                public synchronized Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "spell-shard-" + (index++));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return shardPool_;
+    }
+
+    /**
+     * @description 获取多词典联合查询的线程池：联合查询的子查询遇到分片词典时会提交分片任务并等待，
+     *              如果也在shardPool_中运行，线程全部被子查询占用时分片任务永远得不到执行
+     * @author fengliangcheng
+     * @update 2026-10-25 下午3:10:20
+     * @return 线程池
+     */
+    private synchronized ExecutorService federatedPool()
+    {
+        if(null == federatedPool_)
+        {
+            federatedPool_ = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private int index = 0;
+
+                public synchronized Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "spell-federated-" + (index++));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return federatedPool_;
+    }
+
+    /**
+     * @description 获取异步查询的线程池
+     * @author fengliangcheng
+     * @update 2026-10-21 下午7:20:12
+     * @return 线程池
+     */
+    private synchronized ExecutorService asyncPool()
+    {
+        if(null == asyncPool_)
+        {
+            asyncPool_ = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private int index = 0;
+
+                public synchronized Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "spell-async-" + (index++));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return asyncPool_;
+    }
+
+    /**
+     * @description 初始化的模板方法,用户必须实现两个抽象方法；所有词典构建完成后一次性发布
+     * @author fengliangcheng
+     * @update 2026-10-19 下午3:22:40
      * @return 0-失败 1-成功
      */
     public int init()
@@ -68,422 +364,1546 @@ public class KBSmarter {
     		return 0;
     	}
     	
-    	mapDictWords_ = configureData_.generateDictSets();
-    	Iterator<Map.Entry<String, HashSet<String>>> iter = mapDictWords_.entrySet().iterator();
+    	init_categories();
+    	init_normalization(); //构建词典之前设置，trie树按归一化后的汉字记录剪枝标记
+    	Map<String, HashSet<String>> dictGroups = configureData_.generateDictSets();
+    	Map<String, DictSnapshot> snapshots = new HashMap<String, DictSnapshot>();
+    	Iterator<Map.Entry<String, HashSet<String>>> iter = dictGroups.entrySet().iterator();
     	while(iter.hasNext())
     	{
     		Map.Entry<String, HashSet<String>> entry = iter.next();
     		String dictName = entry.getKey(); //词典名称
     		HashSet<String> dictSet = entry.getValue(); //存储词典词语的HashSet
-    		if(0 == init_dict(dictName, dictSet))
+    		snapshots.put(dictName, init_dict(dictName, dictSet));
+    	}
+    	registry_.publishAll(snapshots);
+    	afterPublish(snapshots.keySet());
+    	
+    	return 1;
+    }
+
+    /**
+     * @description 从配置中读取词语的类别，在构建词典之前调用
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:52:12
+     */
+    private void init_categories()
+    {
+    	Map<String, Map<String, Long>> dictCategories = configureData_.generateDictCategories();
+    	if(null == dictCategories)
+    	{
+    		return;
+    	}
+    	for(Map.Entry<String, Map<String, Long>> entry: dictCategories.entrySet())
+    	{
+    		if(null != entry.getValue())
     		{
-    			return 0;
+    			categories_.put(entry.getKey(), new HashMap<String, Long>(entry.getValue()));
     		}
     	}
-    	
+    }
+
+    /**
+     * @description 按当前的读音表设置繁体->简体的字符归一化表，读音不一致的字不归一化
+     * @author fengliangcheng
+     * @update 2026-10-27 上午10:22:05
+     */
+    private void init_normalization()
+    {
+    	List<Character> rejected = PrefixConstraint.setNormalization(configureData_.generateCharNormalization(), mapPyTable_);
+    	if(!rejected.isEmpty())
+    	{
+    		System.out.println(rejected.size() + " traditional chars not normalized, readings differ: " + rejected);
+    	}
+    }
+
+    /**
+     * @description 后台初始化：读音表同步加载，优先级列表中的词典按顺序排在前面，其余词典按名称排序，
+     *              依次交给后台线程构建，构建完成的词典单独发布；延迟构建的词典只注册
+     * @author fengliangcheng
+     * @update 2026-10-21 上午11:18:26
+     * @param options 后台启动的参数
+     * @return 0-失败 1-成功
+     */
+    private int init_background(final StartupOptions options)
+    {
+    	Map<Character, String> pyTable = configureData_.generatePyConfigSet();
+    	if(0 == init_pinyin(pyTable))
+    	{
+    		return 0;
+    	}
+
+    	init_categories();
+    	init_normalization(); //构建词典之前设置，trie树按归一化后的汉字记录剪枝标记
+    	Map<String, HashSet<String>> dictGroups = configureData_.generateDictSets();
+    	List<String> order = new ArrayList<String>();
+    	for(String dictName: options.getPriority())
+    	{
+    		if(dictGroups.containsKey(dictName) && !order.contains(dictName))
+    		{
+    			order.add(dictName);
+    		}
+    	}
+    	List<String> rest = new ArrayList<String>(dictGroups.keySet());
+    	rest.removeAll(order);
+    	Collections.sort(rest);
+    	order.addAll(rest);
+
+    	warmWaitMillis_ = options.getWaitMillis();
+    	DictWarmer warmer = warmer(options.getBuildThreads());
+    	for(String dictName: order)
+    	{
+    		warmer.register(dictName, dictGroups.get(dictName), options.getLazyDicts().contains(dictName));
+    	}
     	return 1;
     }
-      
+
+    /**
+     * @description 获取词典的状态，可用于在查询结果为空时区分词典没有匹配和词典尚未就绪
+     * @author fengliangcheng
+     * @update 2026-10-21 上午11:21:40
+     * @param dictName 词典名称
+     * @return DICT_ABSENT、DICT_READY、DICT_WARMING、DICT_LAZY或者DICT_EVICTED
+     */
+    public int getDictStatus(final String dictName)
+    {
+    	if(null != registry_.get(dictName))
+    	{
+    		return DICT_READY;
+    	}
+    	DictWarmer warmer = warmer_;
+    	int status = (null == warmer) ? DictWarmer.STATUS_NONE : warmer.status(dictName);
+    	if(DictWarmer.STATUS_LAZY == status)
+    	{
+    		return DICT_LAZY;
+    	}
+    	if(DictWarmer.STATUS_EVICTED == status)
+    	{
+    		return DICT_EVICTED;
+    	}
+    	return (DictWarmer.STATUS_WARMING == status) ? DICT_WARMING : DICT_ABSENT;
+    }
+
+    /**
+     * @description 等待后台启动时所有非延迟构建的词典就绪，同步启动时立即返回
+     * @author fengliangcheng
+     * @update 2026-10-21 上午11:23:15
+     * @param timeoutMillis 最多等待的毫秒数
+     * @return 0-超时 1-都已就绪
+     */
+    public int awaitReady(final long timeoutMillis)
+    {
+    	DictWarmer warmer = warmer_;
+    	return (null == warmer || warmer.awaitEager(timeoutMillis)) ? 1 : 0;
+    }
+
+    /**
+     * @description 查询预热：回放查询日志或者合成的前缀，对所有已加载的词典查询直到延迟稳定，完成后isWarm()返回true；
+     *              超出最长预热时间时同样标记为已预热，避免一直不接收流量
+     * @author fengliangcheng
+     * @update 2026-10-24 上午10:40:18
+     * @param queryLogPath 查询日志，每行一个前缀或者"词典名\t前缀"，为null时由词典合成前缀
+     * @param maxMillis 最长预热时间
+     * @return 预热的结果
+     */
+    public QueryWarmup.Report warmUp(final String queryLogPath, final long maxMillis)
+    {
+        QueryWarmup.Report report = new QueryWarmup(this, queryLogPath).run(maxMillis);
+        warmupMillis_ = report.getDurationMillis();
+        warm_ = true;
+        System.out.println(report);
+        return report;
+    }
+
+    /**
+     * @description 是否已经完成查询预热，可以接收流量
+     * @return true-已预热
+     */
+    public boolean isWarm()
+    {
+        return warm_;
+    }
+
+    /**
+     * @description 获取最近一次查询预热的耗时
+     * @return 毫秒数，尚未预热时为0
+     */
+    public long getWarmupMillis()
+    {
+        return warmupMillis_;
+    }
+
+    /**
+     * @description 获取词典快照，词典尚未就绪时触发延迟构建，并按启动参数最多等待一段时间
+     * @author fengliangcheng
+     * @update 2026-10-21 上午11:25:02
+     * @param dictName 词典名称
+     * @param waitMillis 等待构建最多的毫秒数，0表示不等待
+     * @param restoreWaitMillis 等待被淘汰的词典恢复最多的毫秒数，0表示不等待
+     * @return 词典快照，不存在或者尚未就绪时返回null
+     */
+    private DictSnapshot readySnapshot(final String dictName, final long waitMillis, final long restoreWaitMillis)
+    {
+    	DictSnapshot snapshot = registry_.get(dictName);
+    	DictWarmer warmer = warmer_;
+    	if(null != snapshot || null == warmer)
+    	{
+    		return snapshot;
+    	}
+    	warmer.await(dictName, waitMillis, restoreWaitMillis);
+    	return registry_.get(dictName);
+    }
+
+    /**
+     * @description 获取构建尚未就绪词典的后台线程池，第一次需要时创建
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:50:18
+     * @param threads 构建线程数，只在创建时使用
+     * @return 后台构建器
+     */
+    private synchronized DictWarmer warmer(final int threads)
+    {
+    	if(null == warmer_)
+    	{
+    		warmer_ = new DictWarmer(registry_, new DictWarmer.SnapshotFactory() {
+    			public DictSnapshot build(String dictName, HashSet<String> words)
+    			{
+    				return init_dict(dictName, words);
+    			}
+
+    			public DictSnapshot restore(String dictName, File spill, boolean compact)
+    			{
+    				return restore_dict(dictName, spill, compact);
+    			}
+
+    			public void published(DictSnapshot snapshot)
+    			{
+    				enforceMemoryBudget(Collections.singleton(snapshot.dictName));
+    			}
+    		}, threads);
+    	}
+    	return warmer_;
+    }
+
+    /**
+     * @description 单个词典估算的内存占用
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:52:40
+     */
+    public static final class DictMemory
+    {
+        private final String dictName_; //词典名称
+        private final long prefixIndexBytes_; //前缀索引估算的字节数
+        private final long subIndexBytes_; //简拼子串索引估算的字节数
+        private final long wordSetBytes_; //词语集合估算的字节数，包括词语字符串本身
+        private final boolean evicted_; //是否已淘汰到磁盘
+        private final long spillBytes_; //淘汰到磁盘的文件大小
+        private final long lastAccessTime_; //最近一次被查询的时间，被淘汰时为0
+
+        DictMemory(final String dictName, final long[] bytes, final boolean evicted, final long spillBytes, final long lastAccessTime)
+        {
+            dictName_ = dictName;
+            prefixIndexBytes_ = bytes[0];
+            subIndexBytes_ = bytes[1];
+            wordSetBytes_ = bytes[2];
+            evicted_ = evicted;
+            spillBytes_ = spillBytes;
+            lastAccessTime_ = lastAccessTime;
+        }
+
+        public String getDictName() { return dictName_; }
+        public long getPrefixIndexBytes() { return prefixIndexBytes_; }
+        public long getSubIndexBytes() { return subIndexBytes_; }
+        public long getWordSetBytes() { return wordSetBytes_; }
+        public long getTotalBytes() { return prefixIndexBytes_ + subIndexBytes_ + wordSetBytes_; }
+        public boolean isEvicted() { return evicted_; }
+        public long getSpillBytes() { return spillBytes_; }
+        public long getLastAccessTime() { return lastAccessTime_; }
+
+        @Override
+        public String toString()
+        {
+            if(evicted_)
+            {
+                return dictName_ + " evicted spill=" + (spillBytes_ >> 10) + "KB";
+            }
+            return dictName_ + " total=" + (getTotalBytes() >> 10) + "KB prefix=" + (prefixIndexBytes_ >> 10) + "KB sub="
+                   + (subIndexBytes_ >> 10) + "KB words=" + (wordSetBytes_ >> 10) + "KB lastAccess=" + lastAccessTime_;
+        }
+    }
+
+    /**
+     * @description 获取单个词典估算的内存占用
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:55:06
+     * @param dictName 词典名称
+     * @return 内存占用，词典不存在或者尚未构建时返回null
+     */
+    public DictMemory getDictMemory(final String dictName)
+    {
+    	return getMemoryUsage().get(dictName);
+    }
+
+    /**
+     * @description 获取所有词典估算的内存占用，包括已淘汰到磁盘的词典；每个快照只估算一次
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:56:30
+     * @return 词典名称->内存占用，按名称排序
+     */
+    public Map<String, DictMemory> getMemoryUsage()
+    {
+    	Map<String, DictMemory> usage = new TreeMap<String, DictMemory>();
+    	DictWarmer warmer = warmer_;
+    	if(null != warmer)
+    	{
+    		for(Map.Entry<String, File> entry: warmer.spilled().entrySet())
+    		{
+    			usage.put(entry.getKey(), new DictMemory(entry.getKey(), new long[3], true, entry.getValue().length(), 0));
+    		}
+    	}
+    	for(DictSnapshot snapshot: registry_.snapshot().values())
+    	{
+    		usage.put(snapshot.dictName, new DictMemory(snapshot.dictName, snapshot.memoryBytes(), false, 0, snapshot.lastAccess()));
+    	}
+    	return usage;
+    }
+
+    /**
+     * @description 低峰值reload的统计：每次reload的堆内存峰值，以及发布后旧快照上的查询结束所需的时间
+     * @author fengliangcheng
+     * @update 2026-10-26 下午2:20:48
+     */
+    public static final class LowPeakMetrics
+    {
+        private volatile long lastHeapBeforeBytes; //最近一次reload开始时使用的堆内存（字节）
+        private volatile long lastPeakHeapBytes; //最近一次reload过程中堆内存的峰值（字节）
+        private volatile long lastDrainMicros; //最近一次发布后旧快照上的查询全部结束的耗时（微秒），超时时为-1
+        private volatile long reloadCount; //测量过的reload次数
+        private volatile long drainTimeoutCount; //等待旧快照释放超时的次数
+
+        public long getLastHeapBeforeBytes() { return lastHeapBeforeBytes; }
+        public long getLastPeakHeapBytes() { return lastPeakHeapBytes; }
+        public long getLastDrainMicros() { return lastDrainMicros; }
+        public long getReloadCount() { return reloadCount; }
+        public long getDrainTimeoutCount() { return drainTimeoutCount; }
+
+        synchronized void record(final long heapBefore, final long peakHeap, final long drainMicros)
+        {
+            lastHeapBeforeBytes = heapBefore;
+            lastPeakHeapBytes = peakHeap;
+            lastDrainMicros = drainMicros;
+            reloadCount++;
+            if(drainMicros < 0)
+            {
+                drainTimeoutCount++;
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return "heapBefore=" + (lastHeapBeforeBytes >> 20) + "MB peakHeap=" + (lastPeakHeapBytes >> 20) + "MB drain="
+                   + lastDrainMicros + "us reloads=" + reloadCount + " drainTimeouts=" + drainTimeoutCount;
+        }
+    }
+
+    /**
+     * @description 获取低峰值reload的统计，未启用低峰值方式时不再更新
+     * @author fengliangcheng
+     * @update 2026-10-26 下午2:22:10
+     * @return 统计
+     */
+    public LowPeakMetrics getLowPeakMetrics()
+    {
+    	return lowPeakMetrics_;
+    }
+
+    /**
+     * @description 获取所有可以查询的词典估算的内存占用之和
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:57:48
+     * @return 字节数
+     */
+    public long getTotalMemoryBytes()
+    {
+    	long total = 0;
+    	for(DictSnapshot snapshot: registry_.snapshot().values())
+    	{
+    		total += snapshot.totalBytes();
+    	}
+    	return total;
+    }
+
+    /**
+     * @description 设置所有词典的内存预算：估算的内存之和超过预算时，按最近被查询的时间从旧到新把词典淘汰到本地磁盘，
+     *              被淘汰的词典下次查询时从磁盘恢复，同步查询最多等待RESTORE_WAIT_MILLIS，异步查询不超过其超时，联合查询不等待；刚发布的词典不会被立即淘汰
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:59:20
+     * @param budgetBytes 内存预算的字节数，不大于0表示不限制
+     * @param spillDir 被淘汰的词典保存的目录，为null时使用系统临时目录
+     */
+    public void setMemoryBudget(final long budgetBytes, final String spillDir)
+    {
+    	File dir = null;
+    	if(null != spillDir)
+    	{
+    		dir = new File(spillDir);
+    		dir.mkdirs();
+    	}
+    	spillDir_ = dir;
+    	memoryBudget_ = budgetBytes;
+    	enforceMemoryBudget(Collections.<String>emptySet());
+    }
+
+    /**
+     * @description 新的快照发布之后：放弃这些词典尚未开始的后台构建或者恢复，然后执行内存预算
+     * @author fengliangcheng
+     * @update 2026-10-21 下午3:01:12
+     * @param dictNames 刚发布的词典
+     */
+    private void afterPublish(final Collection<String> dictNames)
+    {
+    	DictWarmer warmer = warmer_;
+    	if(null != warmer)
+    	{
+    		for(String dictName: dictNames)
+    		{
+    			warmer.discard(dictName);
+    		}
+    	}
+    	enforceMemoryBudget(dictNames);
+    }
+
+    /**
+     * @description 内存超过预算时按LRU淘汰词典，直到不超过预算或者只剩下需要保留的词典
+     * @author fengliangcheng
+     * @update 2026-10-21 下午3:03:36
+     * @param keep 不淘汰的词典，一般是刚发布的词典
+     */
+    private void enforceMemoryBudget(final Collection<String> keep)
+    {
+    	long budget = memoryBudget_;
+    	if(budget <= 0)
+    	{
+    		return;
+    	}
+    	synchronized(evictLock_)
+    	{
+    		List<DictSnapshot> snapshots = new ArrayList<DictSnapshot>(registry_.snapshot().values());
+    		long total = 0;
+    		final Map<DictSnapshot, Long> accessTimes = new HashMap<DictSnapshot, Long>(); //排序期间访问时间可能变化，先取出
+    		for(DictSnapshot snapshot: snapshots)
+    		{
+    			total += snapshot.totalBytes();
+    			accessTimes.put(snapshot, snapshot.lastAccess());
+    		}
+    		if(total <= budget)
+    		{
+    			return;
+    		}
+    		Collections.sort(snapshots, new Comparator<DictSnapshot>() {
+    			public int compare(DictSnapshot a, DictSnapshot b)
+    			{
+    				return accessTimes.get(a).compareTo(accessTimes.get(b));
+    			}
+    		});
+    		for(DictSnapshot snapshot: snapshots)
+    		{
+    			if(total <= budget)
+    			{
+    				break;
+    			}
+    			if(!keep.contains(snapshot.dictName) && evict(snapshot))
+    			{
+    				total -= snapshot.totalBytes();
+    			}
+    		}
+    		if(total > budget)
+    		{
+    			System.out.println("memory budget " + (budget >> 10) + "KB exceeded: " + (total >> 10) + "KB");
+    		}
+    	}
+    }
+
+    /**
+     * @description 把词典淘汰到磁盘：先写文件并登记恢复方式，再从注册表移除，期间被reload替换时放弃淘汰
+     * @author fengliangcheng
+     * @update 2026-10-21 下午3:06:02
+     * @param snapshot 需要淘汰的快照
+     * @return true-已淘汰 false-写文件失败或者词典已被替换
+     */
+    private boolean evict(final DictSnapshot snapshot)
+    {
+    	File spill;
+    	try
+    	{
+    		spill = DictSpill.write(spillDir_, snapshot.words);
+    	}
+    	catch(IOException e)
+    	{
+    		System.out.println("evicting dict " + snapshot.dictName + " failed: " + e.getMessage());
+    		return false;
+    	}
+    	DictWarmer warmer = warmer(Runtime.getRuntime().availableProcessors());
+    	warmer.registerSpilled(snapshot.dictName, spill, snapshot.prefixTrie instanceof Dawg);
+    	if(!registry_.remove(snapshot))
+    	{
+    		warmer.discard(snapshot.dictName);
+    		return false;
+    	}
+    	System.out.println("dict " + snapshot.dictName + " evicted to " + spill + ", freed about " + (snapshot.totalBytes() >> 10) + "KB");
+    	return true;
+    }
+
+    /**
+     * @description 从淘汰到磁盘的文件恢复词典，按淘汰前的方式重新构建
+     * @author fengliangcheng
+     * @update 2026-10-21 下午3:08:14
+     * @param dictName 词典名称
+     * @param spill 淘汰到磁盘的文件
+     * @param compact 淘汰前是否压缩的DAWG
+     * @return 词典快照
+     */
+    private DictSnapshot restore_dict(final String dictName, final File spill, final boolean compact)
+    {
+    	try
+    	{
+    		if(compact)
+    		{
+    			return withCategories(new DawgBuilder(mapPyTable_, DawgBuilder.DEFAULT_MAX_BUFFERED, enableShortSubMatched_, compressWords_).build(dictName, spill.getPath()));
+    		}
+    		return init_dict(dictName, DictSpill.read(spill));
+    	}
+    	catch(IOException e)
+    	{
+    		throw new RuntimeException(e);
+    	}
+    }
+      
+    /**
+     * @description 将词典转化为拼音并生成前缀匹配和子串匹配trie树，小词典生成有序数组索引
+     * @author fengliangcheng
+     * @update 2026-10-19 下午3:25:05
+     * @param dictName 词典简称
+     * @param initDictWords 词典，之后不能再被修改
+     * @return 该词典的快照
+     */
+    private DictSnapshot init_dict(final String dictName, final HashSet<String> initDictWords)
+    {   
+        Map<Character, List<String>> pyTable = mapPyTable_;
+        ShardedIndex.Spec spec = shardSpecs_.get(dictName);
+        if(null != spec) //分片词典并行构建
+        {
+            return withCategories(new ShardedBuilder(pyTable, spec, enableShortSubMatched_, shardPool()).build(dictName, initDictWords));
+        }
+        Map<String, HashSet<String>> dictPyChineseTable = new HashMap<String, HashSet<String>>();//存储该词典全拼和简拼读音与汉字映射关系
+        Map<String, HashSet<String>> dictSubPyChineseTable = null; //存储该词典简拼子串与汉字映射关系
+        if(enableShortSubMatched_)
+        {
+        	dictSubPyChineseTable = new HashMap<String, HashSet<String>>();    
+        }
+        dictionary_load(initDictWords, dictPyChineseTable, dictSubPyChineseTable); //将词典文件中每个词都生成对应的拼音
+
+        if(initDictWords.size() <= sortedArrayMaxWords_) //小词典使用有序数组索引，词语集合换成有序数组，编号即下标
+        {
+            String[] array = initDictWords.toArray(new String[initDictWords.size()]);
+            SortedWordSet wordSet = SortedWordSet.sortAndDedupe(array, array.length);
+            SpellIndex prefixIndex = SortedArrayIndex.build(dictPyChineseTable, wordSet, pyTable);
+            SpellIndex subIndex = enableShortSubMatched_ ? SortedArrayIndex.build(dictSubPyChineseTable, wordSet, pyTable) : null;
+            return withCategories(new DictSnapshot(dictName, prefixIndex, subIndex, wordSet));
+        }
+
+        //将词典转化出来的全拼和简拼添加到前缀匹配trie树
+        Trie prefixTrie = new Trie(pyTable, true);
+        Iterator<Map.Entry<String, HashSet<String>>> iter = dictPyChineseTable.entrySet().iterator();
+        while(iter.hasNext())
+        {
+            Map.Entry<String, HashSet<String>> entry = iter.next();
+            String py = entry.getKey(); //词语的拼音
+            prefixTrie.insertWord(py, entry.getValue()); //同时记录汉字读音的结束位置，用于混合输入剪枝
+        }
+
+        //将词典转化出来的简拼子串添加到子串匹配trie树
+        Trie subTrie = null;
+        if(enableShortSubMatched_)
+        {
+	        subTrie = new Trie(pyTable, false);
+	        iter = dictSubPyChineseTable.entrySet().iterator();
+	        while(iter.hasNext())
+	        {
+	            Map.Entry<String, HashSet<String>> entry = iter.next();
+	            String py = entry.getKey();
+	            subTrie.insertWord(py, entry.getValue());
+	        }
+        }
+
+        return withCategories(new DictSnapshot(dictName, prefixTrie, subTrie, initDictWords));
+    }
+
+    /**
+     * @description 新构建的快照发布之前，按词典当前的类别计算索引上子树的类别并集
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:55:40
+     * @param snapshot 新构建的快照
+     * @return 同一个快照
+     */
+    private DictSnapshot withCategories(final DictSnapshot snapshot)
+    {
+        Map<String, Long> categories = categories_.get(snapshot.dictName);
+        if(null != categories)
+        {
+            snapshot.prefixTrie.setCategories(categories);
+            if(null != snapshot.subTrie)
+            {
+                snapshot.subTrie.setCategories(categories);
+            }
+            snapshot.setCategories(categories);
+        }
+        return snapshot;
+    }
+    
+    /**
+     * @description 为reload生成新的快照：与当前发布的词典比较得到新增和删除的词语，变化较少时只把增量应用到旧的trie树上，
+     *              否则重新构建
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:52:36
+     * @param dictName 词典名称
+     * @param dict_set 新词典包含的词语
+     * @return 新的快照，词典没有变化或者为空时返回null
+     */
+    private DictSnapshot build_reLoad(final String dictName, final HashSet<String> dict_set)
+    {
+        if(0 == dict_set.size())
+        {
+            System.out.println("new dict " + dictName + " is empty!");
+            return null;
+        }
+        DictSnapshot existing = registry_.get(dictName); //获取旧的词典
+        if(null == existing)
+        {
+            return rebuild_dict(dictName, dict_set);
+        }
+
+        ArrayList<String> added = new ArrayList<String>();
+        for(String word: dict_set)
+        {
+            if(!existing.words.contains(word))
+            {
+                added.add(word);
+            }
+        }
+        if(existing.categories() != categories_.get(dictName)) //类别变化后所有节点的类别并集都要重新计算
+        {
+            return rebuild_dict(dictName, dict_set);
+        }
+        if(added.isEmpty() && existing.words.size() == dict_set.size())
+        {
+            System.out.println("dict " + dictName + " hasn't changed!");
+            return null; //新的词典与旧词典完全一致，无需reload
+        }
+        ArrayList<String> removed = new ArrayList<String>();
+        for(String word: existing.words)
+        {
+            if(!dict_set.contains(word))
+            {
+                removed.add(word);
+            }
+        }
+
+        if((added.size() + removed.size()) * MAX_DELTA_RATIO <= dict_set.size())
+        {
+            DictSnapshot snapshot = delta_reLoad(existing, dict_set, added, removed);
+            if(null != snapshot)
+            {
+                return snapshot;
+            }
+        }
+        return rebuild_dict(dictName, dict_set);
+    }
+
+    /**
+     * @description reload时重新构建词典：低峰值方式下不分片、且超过有序数组阈值的词典直接构建DAWG，否则与初始化相同
+     * @author fengliangcheng
+     * @update 2026-10-22 下午2:33:40
+     * @param dictName 词典名称
+     * @param dict_set 新词典包含的词语，低峰值方式构建的快照不引用它
+     * @return 新的快照
+     */
+    private DictSnapshot rebuild_dict(final String dictName, final HashSet<String> dict_set)
+    {
+        if(!lowPeakReload_ || null != shardSpecs_.get(dictName) || dict_set.size() <= sortedArrayMaxWords_)
+        {
+            return init_dict(dictName, dict_set);
+        }
+        try
+        {
+            return withCategories(new DawgBuilder(mapPyTable_, LOW_PEAK_MAX_BUFFERED, enableShortSubMatched_, true).build(dictName, dict_set));
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @description 把新增和删除的词语应用到旧快照的trie树上，生成新的快照；旧快照保持不变
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:55:10
+     * @param existing 当前发布的快照
+     * @param dict_set 新词典包含的词语
+     * @param added 新增的词语
+     * @param removed 删除的词语
+     * @return 新的快照，旧快照不是由trie树组成、读音表或者分片方式已经变化时返回null
+     */
+    private DictSnapshot delta_reLoad(final DictSnapshot existing, final HashSet<String> dict_set,
+                                      final List<String> added, final List<String> removed)
+    {
+        Map<Character, List<String>> pyTable = mapPyTable_;
+        if(!canApplyDelta(existing.prefixTrie, pyTable, shardSpecs_.get(existing.dictName))
+           || (null != existing.subTrie) != enableShortSubMatched_
+           || (null != existing.subTrie && !canApplyDelta(existing.subTrie, pyTable, shardSpecs_.get(existing.dictName))))
+        {
+            return null;
+        }
+
+        Map<String, List<String>> addedByKey = new HashMap<String, List<String>>();
+        Map<String, List<String>> addedBySubKey = new HashMap<String, List<String>>();
+        groupByKey(added, pyTable, addedByKey, addedBySubKey);
+        Map<String, List<String>> removedByKey = new HashMap<String, List<String>>();
+        Map<String, List<String>> removedBySubKey = new HashMap<String, List<String>>();
+        groupByKey(removed, pyTable, removedByKey, removedBySubKey);
+
+        SpellIndex prefixTrie = applyDelta(existing.prefixTrie, addedByKey, removedByKey);
+        SpellIndex subTrie = null;
+        if(null != existing.subTrie)
+        {
+            subTrie = applyDelta(existing.subTrie, addedBySubKey, removedBySubKey);
+        }
+        System.out.println("dict " + existing.dictName + " delta reloaded: +" + added.size() + " -" + removed.size());
+        DictSnapshot snapshot = existing.withDelta(prefixTrie, subTrie, dict_set, added, removed); //有序存储和归一化计数也只应用增量
+        snapshot.setCategories(existing.categories()); //类别没有变化，trie树在复制的路径上已经重新计算
+        return snapshot;
+    }
+
+    /**
+     * @description 判断能否在索引上应用增量：必须是使用当前读音表的trie树（或者由这样的trie树组成的分片索引），
+     *              并且分片方式没有变化
+     * @author fengliangcheng
+     * @update 2026-10-20 下午5:08:32
+     * @param index 当前发布的索引
+     * @param pyTable 当前的读音表
+     * @param spec 当前设置的分片方式，不分片时为null
+     * @return true-可以 false-不可以
+     */
+    private static boolean canApplyDelta(final SpellIndex index, final Map<Character, List<String>> pyTable,
+                                         final ShardedIndex.Spec spec)
+    {
+        if(index instanceof ShardedIndex)
+        {
+            return ((ShardedIndex)index).spec().sameAs(spec) && ((ShardedIndex)index).canApplyDelta(pyTable);
+        }
+        return null == spec && index instanceof Trie && ((Trie)index).pinyinTable() == pyTable;
+    }
+
+    /**
+     * @description 在索引上应用增量，调用前需要用canApplyDelta检查
+     * @author fengliangcheng
+     * @update 2026-10-20 下午5:09:50
+     * @param index 当前发布的索引
+     * @param addedByKey 拼音串->新增的词语
+     * @param removedByKey 拼音串->删除的词语
+     * @return 新的索引
+     */
+    private static SpellIndex applyDelta(final SpellIndex index, final Map<String, List<String>> addedByKey,
+                                         final Map<String, List<String>> removedByKey)
+    {
+        if(index instanceof ShardedIndex)
+        {
+            return ((ShardedIndex)index).applyDelta(addedByKey, removedByKey);
+        }
+        return ((Trie)index).applyDelta(addedByKey, removedByKey);
+    }
+
+    /**
+     * @description 把词语按展开得到的拼音串分组，展开结果优先从缓存获取
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:57:42
+     * @param words 词语
+     * @param pyTable 读音表
+     * @param byKey 保存全拼和简拼->词语
+     * @param bySubKey 保存简拼子串->词语
+     */
+    private void groupByKey(final List<String> words, final Map<Character, List<String>> pyTable,
+                            Map<String, List<String>> byKey, Map<String, List<String>> bySubKey)
+    {
+        for(String word: words)
+        {
+            String[][] expanded = pinyinCache_.expand(word, pyTable);
+            for(int k = 0; k < 2; k++)
+            {
+                Map<String, List<String>> table = (0 == k) ? byKey : bySubKey;
+                for(String key: expanded[k])
+                {
+                    List<String> list = table.get(key);
+                    if(null == list)
+                    {
+                        list = new ArrayList<String>(2);
+                        table.put(key, list);
+                    }
+                    list.add(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * @description 更新已有的词典或者加载新的词典，变化较少时只应用增量
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:59:12
+     * @param dictName 词典名称
+     * @param dict_set 词典包含的词语，reload之后不能再被修改
+     * @return 0-失败 1-成功
+     */
+    public int dictionary_reLoad(final String dictName, HashSet<String> dict_set)
+    {
+        return dictionary_reLoad(dictName, dict_set, lowPeakReload_ ? new HeapMeter() : null);
+    }
+
+    /**
+     * @description 更新词典，使用调用方已经开始的堆内存测量：堆内存池的峰值是JVM全局的，嵌套测量会在外层的测量期间重置峰值，
+     *              所以调用方（比如DictReloadService）自己测量时把测量器传进来，低峰值方式下也用它记录统计
+     * @author fengliangcheng
+     * @update 2026-10-27 下午2:30:16
+     * @param dictName 词典名称
+     * @param dict_set 词典包含的词语，reload之后不能再被修改
+     * @param meter reload开始前创建的测量器，为null时不测量
+     * @return 0-失败 1-成功
+     */
+    int dictionary_reLoad(final String dictName, HashSet<String> dict_set, final HeapMeter meter)
+    {
+        boolean lowPeak = lowPeakReload_;
+        DictSnapshot snapshot = build_reLoad(dictName, dict_set);
+        if(null == snapshot)
+        {
+            return 0;
+        }
+        //旧快照可能还在被读线程使用，不能清空，切换后等这些查询结束即可被GC回收
+        registry_.publish(snapshot);
+        afterPublish(Collections.singleton(dictName));
+        if(lowPeak)
+        {
+            awaitOldGeneration(meter);
+        }
+        return 1;
+    }
+
+    /**
+     * @description 低峰值方式下，发布新快照后等待旧快照上的查询结束，之后旧快照不再被引用，下一次构建可以复用它的内存；
+     *              本次reload的堆内存峰值和等待时间记入getLowPeakMetrics()。默认方式不测量也不等待
+     * @author fengliangcheng
+     * @update 2026-10-26 下午2:24:36
+     * @param meter reload开始时创建的测量器，默认方式为null
+     */
+    private void awaitOldGeneration(final HeapMeter meter)
+    {
+        if(null == meter)
+        {
+            return;
+        }
+        long begin = System.nanoTime();
+        boolean drained = epochs_.awaitDrained(DRAIN_WAIT_MILLIS);
+        lowPeakMetrics_.record(meter.usedBefore(), meter.peakBytes(), drained ? (System.nanoTime() - begin) / 1000 : -1);
+    }
+
+    /**
+     * @description 更新词典及其词语的类别：类别没有变化时与dictionary_reLoad相同，变化时重新构建该词典
+     * @author fengliangcheng
+     * @update 2026-10-22 上午11:02:18
+     * @param dictName 词典名称
+     * @param dict_set 词典包含的词语，reload之后不能再被修改
+     * @param categories 词语->类别位（最多64个类别），为null时清除该词典的类别
+     * @return 0-失败或者词语和类别都没有变化 1-成功
+     */
+    public int dictionary_reLoad(final String dictName, HashSet<String> dict_set, final Map<String, Long> categories)
+    {
+        if(null == categories)
+        {
+            categories_.remove(dictName);
+        }
+        else if(!categories.equals(categories_.get(dictName)))
+        {
+            categories_.put(dictName, new HashMap<String, Long>(categories));
+        }
+        return dictionary_reLoad(dictName, dict_set);
+    }
+
+    /**
+     * @description 同时更新多个词典，所有词典构建完成后在一次切换中发布，读线程要么看到全部旧词典，要么看到全部新词典；
+     *              低峰值方式下逐个词典发布，不保证原子切换
+     * @author fengliangcheng
+     * @update 2026-10-19 下午3:31:48
+     * @param dictGroups 词典名称->词典包含的词语，reload之后不能再被修改
+     * @return 0-没有任何词典需要更新 1-成功
+     */
+    public int dictionaries_reLoad(final Map<String, HashSet<String>> dictGroups)
+    {
+        if(lowPeakReload_) //逐个构建和发布，同一时刻只有一个词典的新旧快照同时存在
+        {
+            int ret = 0;
+            for(Map.Entry<String, HashSet<String>> entry: dictGroups.entrySet())
+            {
+                ret |= dictionary_reLoad(entry.getKey(), entry.getValue());
+            }
+            return ret;
+        }
+        Map<String, DictSnapshot> snapshots = new HashMap<String, DictSnapshot>();
+        for(Map.Entry<String, HashSet<String>> entry: dictGroups.entrySet())
+        {
+            DictSnapshot snapshot = build_reLoad(entry.getKey(), entry.getValue());
+            if(null != snapshot)
+            {
+                snapshots.put(entry.getKey(), snapshot);
+            }
+        }
+        if(snapshots.isEmpty())
+        {
+            return 0;
+        }
+        registry_.publishAll(snapshots);
+        afterPublish(snapshots.keySet());
+        return 1;
+    }
+
+    /**
+     * @description 从词典文件流式构建词典：拼音串经过外部排序后生成压缩的DAWG，构建过程的内存与词典大小无关，
+     *              完成后原子切换；适合无法一次性装入HashSet的大词典
+     * @author fengliangcheng
+     * @update 2026-10-19 下午6:50:21
+     * @param dictName 词典名称
+     * @param dictFilePath 词典文件路径，UTF-8编码，每行一个词
+     * @return 0-失败 1-成功
+     */
+    public int dictionary_streamLoad(final String dictName, final String dictFilePath)
+    {
+        DawgBuilder builder = new DawgBuilder(mapPyTable_, DawgBuilder.DEFAULT_MAX_BUFFERED, enableShortSubMatched_, compressWords_);
+        DictSnapshot snapshot;
+        try
+        {
+            snapshot = withCategories(builder.build(dictName, dictFilePath));
+        }
+        catch(IOException e)
+        {
+            System.out.println("stream loading dict " + dictName + " failed: " + e.getMessage());
+            return 0;
+        }
+        if(0 == snapshot.words.size())
+        {
+            System.out.println("new dict " + dictName + " is empty!");
+            return 0;
+        }
+        registry_.publish(snapshot);
+        afterPublish(Collections.singleton(dictName));
+        return 1;
+    }
+
+    /**
+     * @description 将汉字-->拼音映射关系中的拼音串按照逗号分割后,存储为HashMap<Character, ArrayList<String>>
+     * @author fengliangcheng
+     * @update 2013-7-3 上午10:05:08
+     * @param pyTable 存储汉字-->拼音映射关系,例如:"乐\tyue,le"
+     * @return 0-失败 1-成功
+     */
+    private int init_pinyin(final Map<Character, String> pyTable)
+    {
+    	int ret = 1;
+    	Map<Character, List<String>> newPyTable = new HashMap<Character, List<String>>();
+        Iterator<Map.Entry<Character, String>> iter = pyTable.entrySet().iterator();
+        while(iter.hasNext())
+        {
+            Map.Entry<Character, String> entry = iter.next();
+            Character chineseWord = entry.getKey();
+            String pinYinStr = entry.getValue();
+            String[] pyArray = pinYinStr.split(","); //汉字经常会有多个读音
+
+            if(0 == pyArray.length)
+            {
+                continue;
+            }
+
+            List<String> tmpList = newPyTable.get(chineseWord);
+            if(null == tmpList)
+            {
+                newPyTable.put(chineseWord, Arrays.asList(pyArray));
+            }
+        }
+        
+        if(0 == newPyTable.size())
+        {
+        	ret = 0;
+        }
+        else
+        {
+        	mapPyTable_ = newPyTable; //构建完成后整体发布
+        }
+        return ret;
+    }
+
+    /**
+     * @description 将汉字词转化为全屏和简拼
+     * @author fengliangcheng
+     * @update 2013-7-3 上午10:12:40
+     * @param set_words 输入词典
+     * @param pyChineseTable 存储全拼和简拼与汉字词对应关系
+     * @param pySubChineseTable 存储简拼子串与汉字词对应关系
+     */
+    private void dictionary_load(Set<String> set_words,
+    		                            Map<String, HashSet<String>> pyChineseTable,
+                                        Map<String, HashSet<String>> pySubChineseTable)
+    {
+        PinyinExpander expander = new PinyinExpander(mapPyTable_); //整个加载过程使用同一份读音表
+        ArrayList<String> keys = new ArrayList<String>();
+        ArrayList<String> subKeys = enableShortSubMatched_ ? new ArrayList<String>() : null;
+        for(String word: set_words) //遍历每个词
+        {
+            expander.expand(word, keys, subKeys);
+            for(String str: keys)//将全拼和简拼读音,添加到拼音--词语映射关系表
+            {
+                HashSet<String> chineseWordsSet = pyChineseTable.get(str);
+                if(null == chineseWordsSet)
+                {
+                    chineseWordsSet = new HashSet<String>();
+                    pyChineseTable.put(str, chineseWordsSet);
+                }
+                chineseWordsSet.add(word);
+            }
+
+            if(null != subKeys)
+            {
+                for(String subShortPy: subKeys) //简拼子串,添加到简拼子串--词语映射关系表
+                {
+                    HashSet<String> wordsSet = pySubChineseTable.get(subShortPy);
+                    if(null == wordsSet)
+                    {
+                        wordsSet = new HashSet<String>();
+                        pySubChineseTable.put(subShortPy, wordsSet);
+                    }
+                    wordsSet.add(word);
+                }
+                subKeys.clear();
+            }
+            keys.clear(); //在下一次循环迭代前清空
+        }
+    }
+    
+    /**
+     * @description 找出前缀串在词典中匹配的所有词
+     * @author fengliangcheng
+     * @update 2013-7-3 上午10:48:26
+     * @param dictName 词典名称
+     * @param prefix  需要匹配的前缀
+     * @param maxCount 匹配结果的最多条数
+     * @return 匹配结果的集合
+     */
+    public ArrayList<String> findMatch(final String dictName, final String prefix, int maxCount)
+    {
+        maxCount = clampCount(maxCount);
+        int epoch = epochs_.enter(); //在获取快照之前登记，reload据此判断旧快照何时不再被使用
+        try
+        {
+            DictSnapshot snapshot = readySnapshot(dictName, warmWaitMillis_, RESTORE_WAIT_MILLIS); //尚未就绪的词典返回空结果，可用getDictStatus区分
+            if(null == snapshot)
+            {
+                return new ArrayList<String>();
+            }
+            return match(snapshot, popularSets_.get(dictName), PrefixConstraint.compile(prefix, mapPyTable_), maxCount, shortestFirst_, null);
+        }
+        finally
+        {
+            epochs_.exit(epoch);
+        }
+    }
+
+    /**
+     * @description 按类别过滤的查询：只返回属于categoryMask中任意一个类别的词语；索引上每个节点保存子树中词语类别的并集，
+     *              不含所要类别的子树整棵跳过，因此类别很少见时也能很快凑够一页结果
+     * @author fengliangcheng
+     * @update 2026-10-22 上午11:05:46
+     * @param dictName 词典名称
+     * @param prefix 需要匹配的前缀
+     * @param maxCount 匹配结果的最多条数
+     * @param categoryMask 类别位，0表示不过滤（与findMatch相同）
+     * @return 匹配结果的集合，词典没有设置类别时为空
+     */
+    public ArrayList<String> findMatch(final String dictName, final String prefix, int maxCount, final long categoryMask)
+    {
+        if(0 == categoryMask)
+        {
+            return findMatch(dictName, prefix, maxCount);
+        }
+        maxCount = clampCount(maxCount);
+        int epoch = epochs_.enter();
+        try
+        {
+            DictSnapshot snapshot = readySnapshot(dictName, warmWaitMillis_, RESTORE_WAIT_MILLIS);
+            if(null == snapshot)
+            {
+                return new ArrayList<String>();
+            }
+            PrefixConstraint constraint = PrefixConstraint.compile(prefix, mapPyTable_).withCategories(categoryMask, snapshot.categories());
+            return match(snapshot, popularSets_.get(dictName), constraint, maxCount, shortestFirst_, null);
+        }
+        finally
+        {
+            epochs_.exit(epoch);
+        }
+    }
+
     /**
-     * @description 将词典加载到内存并生成trie树
+     * @description 有代价上限的查询结果
      * @author fengliangcheng
-     * @update 2013-7-3 上午10:15:21
-     * @param dictName 词典简称
-     * @param initDictWords 词典
-     * @return 0-失败 1-成功
+     * @update 2026-10-21 下午7:22:36
      */
-    private int init_dict(final String dictName, final HashSet<String> initDictWords)
-    {   
-        Map<String, HashSet<String>> dictPyChineseTable = new HashMap<String, HashSet<String>>();//存储该词典全拼和简拼读音与汉字映射关系
-        Map<String, HashSet<String>> dictSubPyChineseTable = null; //存储该词典简拼子串与汉字映射关系
-        if(enableShortSubMatched_)
+    public static final class BoundedMatch
+    {
+        private final ArrayList<String> words_; //匹配结果
+        private final boolean truncated_; //是否因为超时、超出节点数或者取消而提前停止，此时结果可能不全
+        private final long visitedNodes_; //实际访问的节点数
+
+        BoundedMatch(final ArrayList<String> words, final boolean truncated, final long visitedNodes)
         {
-        	dictSubPyChineseTable = new HashMap<String, HashSet<String>>();    
+            words_ = words;
+            truncated_ = truncated;
+            visitedNodes_ = visitedNodes;
         }
-        dictionary_load(initDictWords, dictPyChineseTable, dictSubPyChineseTable); //将词典文件中每个词都生成对应的拼音
 
-        //将词典转化出来的全拼和简拼添加到前缀匹配trie树
-        Trie prefixTrie = new Trie(mapPyTable_, dictPyChineseTable);
-        Iterator<Map.Entry<String, HashSet<String>>> iter = dictPyChineseTable.entrySet().iterator();
-        while(iter.hasNext())
+        public ArrayList<String> getWords()
         {
-            Map.Entry<String, HashSet<String>> entry = iter.next();
-            String py = entry.getKey(); //词语的拼音
-            prefixTrie.insertWord(py); 
+            return words_;
         }
-        
-        //为前缀匹配trie树建立一个原子操作对象,支持切换
-        AtomicReference<Trie> ref = new AtomicReference<Trie>(prefixTrie);
-        mapAtomicRefer_.put(dictName, ref);
 
-        //将词典转化出来的简拼子串添加到子串匹配trie树
-        if(enableShortSubMatched_)
+        public boolean isTruncated()
         {
-	        Trie subTrie = new Trie(mapPyTable_, dictSubPyChineseTable);
-	        iter = dictSubPyChineseTable.entrySet().iterator();
-	        while(iter.hasNext())
-	        {
-	            Map.Entry<String, HashSet<String>> entry = iter.next();
-	            String py = entry.getKey();
-	            subTrie.insertWord(py);
-	        }
-	        
-	        //为子串匹配trie树建立一个原子操作对象,支持切换
-	        AtomicReference<Trie> subRef = new AtomicReference<Trie>(subTrie);
-	        mapSubAtomicRefer_.put(dictName, subRef);
+            return truncated_;
         }
 
-        return 1;
+        public long getVisitedNodes()
+        {
+            return visitedNodes_;
+        }
     }
-    
+
     /**
-     * @description 更新已有的词典或者加载新的词典
+     * @description 异步查询，限制截止时间和访问的节点数（trie树节点、DAWG状态和校验的词语各计一次），
+     *              任一上限达到时停止遍历，返回已经找到的结果并标记为不完整；取消返回的Future会让遍历尽快停止。
+     *              查询在单独的线程池中执行，排队超过截止时间的查询直接返回空的不完整结果
      * @author fengliangcheng
-     * @update 2013-7-3 上午10:51:08
+     * @update 2026-10-21 下午7:25:48
      * @param dictName 词典名称
-     * @param dict_set 词典包含的词语
-     * @return 0-失败 1-成功
+     * @param prefix 需要匹配的前缀
+     * @param maxCount 匹配结果的最多条数，规则与findMatch相同
+     * @param timeoutMillis 从调用开始计算的超时时间（毫秒）
+     * @param maxNodes 最多访问的节点数，不大于0时不限制
+     * @return 查询结果的Future
      */
-    public int dictionary_reLoad(final String dictName, HashSet<String> dict_set)
+    public CompletableFuture<BoundedMatch> findMatchAsync(final String dictName, final String prefix, final int maxCount,
+                                                          final long timeoutMillis, final long maxNodes)
     {
-        HashSet<String> exitingDict = mapDictWords_.get(dictName); //获取旧的词典
-        if(null != exitingDict && exitingDict.size() == dict_set.size() && exitingDict.containsAll(dict_set))
-        {
-            System.out.println("dict hasn't changed!");
-            return 0; //新的词典与旧词典完全一致，无需reload
-        }
-        else if(0 == dict_set.size())
-        {
-            System.out.println("new dict is empty!");
-            return 0;
-        }
-        else
-        {
-            Map<String, HashSet<String>> newPyChineseTable = new HashMap<String, HashSet<String>>();
-            Map<String, HashSet<String>> newSubPyChineseTable = null;//将词典文件中每个词都生成对应的拼音
-            if(enableShortSubMatched_)
+        final SearchBudget budget = new SearchBudget(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis)),
+                                                     (maxNodes <= 0) ? Long.MAX_VALUE : maxNodes);
+        final CompletableFuture<BoundedMatch> future = new CompletableFuture<BoundedMatch>();
+        future.whenComplete(new BiConsumer<BoundedMatch, Throwable>() {
+            public void accept(BoundedMatch result, Throwable error)
             {
-            	newSubPyChineseTable = new HashMap<String, HashSet<String>>();
+                if(future.isCancelled())
+                {
+                    budget.cancel(); //取消传递到正在进行的遍历，包括各分片的子预算
+                }
             }
-            dictionary_load( dict_set, newPyChineseTable, newSubPyChineseTable);
-            if(null != exitingDict)
+        });
+        asyncPool().execute(new Runnable() {
+            public void run()
             {
-                exitingDict.clear();
+                if(future.isDone()) //排队期间已经被取消
+                {
+                    return;
+                }
+                try
+                {
+                    future.complete(matchWithin(dictName, prefix, maxCount, Math.max(0, timeoutMillis), budget));
+                }
+                catch(RuntimeException e)
+                {
+                    future.completeExceptionally(e);
+                }
             }
-            mapDictWords_.put(dictName, dict_set);
+        });
+        return future;
+    }
 
-            //将词典转化出来的全拼和简拼添加到前缀匹配trie树
-            Trie newTrie = new Trie(mapPyTable_, newPyChineseTable);
-            Iterator<Map.Entry<String, HashSet<String>>> iter = newPyChineseTable.entrySet().iterator();
-            while(iter.hasNext())
+    /**
+     * @description 在代价上限内查询
+     * @author fengliangcheng
+     * @update 2026-10-21 下午7:28:10
+     * @param dictName 词典名称
+     * @param prefix 需要匹配的前缀
+     * @param maxCount 匹配结果的最多条数
+     * @param timeoutMillis 超时时间，同时限制等待尚未就绪的词典的时间
+     * @param budget 代价上限
+     * @return 查询结果
+     */
+    private BoundedMatch matchWithin(final String dictName, final String prefix, int maxCount,
+                                     final long timeoutMillis, final SearchBudget budget)
+    {
+        maxCount = clampCount(maxCount);
+        int epoch = epochs_.enter();
+        try
+        {
+            DictSnapshot snapshot = budget.alive() ? readySnapshot(dictName, Math.min(warmWaitMillis_, timeoutMillis),
+                                                                          Math.min(RESTORE_WAIT_MILLIS, timeoutMillis)) : null;
+            if(null == snapshot)
             {
-                Map.Entry<String, HashSet<String>> entry = (Map.Entry<String, HashSet<String>>)iter.next();
-                String py = entry.getKey();
-                newTrie.insertWord(py);
+                return new BoundedMatch(new ArrayList<String>(), !budget.alive(), budget.visited());
             }
+            ArrayList<String> words = match(snapshot, popularSets_.get(dictName), PrefixConstraint.compile(prefix, mapPyTable_),
+                                            maxCount, shortestFirst_, budget);
+            return new BoundedMatch(words, budget.exhausted() && words.size() < maxCount, budget.visited()); //已经够数时提前停止不影响结果
+        }
+        finally
+        {
+            epochs_.exit(epoch);
+        }
+    }
 
-            //将词典转化出来的简拼子串添加到trie树
-            Trie newSubTrie = null;
-            if(enableShortSubMatched_)
+    /**
+     * @description 多片段查询：输入按空白分割为多个片段（比如"gx ya"、"高血 yao"），返回同时匹配每个片段的词语，
+     *              短的在前；每个片段先解析为压缩的词语编号集合，从最小的集合开始求交集，很常见的片段改为对候选逐个校验。
+     *              只有一个片段时与findMatch相同
+     * @author fengliangcheng
+     * @update 2026-10-21 下午5:40:26
+     * @param dictName 词典名称
+     * @param input 用空白分隔的多个片段
+     * @param maxCount 匹配结果的最多条数
+     * @return 匹配结果的集合
+     */
+    public ArrayList<String> findMatchAllTokens(final String dictName, final String input, int maxCount)
+    {
+        List<String> tokens = MultiTokenMatcher.split(input);
+        if(tokens.size() <= 1)
+        {
+            return findMatch(dictName, tokens.isEmpty() ? "" : tokens.get(0), maxCount);
+        }
+        maxCount = clampCount(maxCount);
+        int epoch = epochs_.enter();
+        try
+        {
+            DictSnapshot snapshot = readySnapshot(dictName, warmWaitMillis_, RESTORE_WAIT_MILLIS);
+            if(null == snapshot)
             {
-	            newSubTrie = new Trie(mapPyTable_, newSubPyChineseTable);
-	            iter = newSubPyChineseTable.entrySet().iterator();
-	            while(iter.hasNext())
-	            {
-	                Map.Entry<String, HashSet<String>> entry = iter.next();
-	                String py = entry.getKey();
-	                newSubTrie.insertWord(py);
-	            }
+                return new ArrayList<String>();
             }
+            snapshot.touch();
+            return new MultiTokenMatcher(snapshot, mapPyTable_).match(tokens, maxCount);
+        }
+        finally
+        {
+            epochs_.exit(epoch);
+        }
+    }
 
-            //原子切换前缀匹配trie树
-            AtomicReference<Trie> atomicRefer = mapAtomicRefer_.get(dictName);
-            if(null == atomicRefer)
-            {
-                atomicRefer = new AtomicReference<Trie>(newTrie);
-                mapAtomicRefer_.put(dictName, atomicRefer);
-            }
-            else
-            {
-                atomicRefer.getAndSet(newTrie);
-            }
+    /**
+     * @description 获取词典当前的快照，供同一包内的基准测试直接比较不同的查询路径
+     * @param dictName 词典名称
+     * @return 快照，词典不存在或者尚未就绪时为null
+     */
+    DictSnapshot currentSnapshot(final String dictName)
+    {
+        return registry_.get(dictName);
+    }
 
-            //原子切换子串匹配trie树
-            if(enableShortSubMatched_)
-            {
-	            AtomicReference<Trie> atomicSubRefer = mapSubAtomicRefer_.get(dictName);
-	            if(null == atomicSubRefer)
-	            {
-	                atomicSubRefer =  new AtomicReference<Trie>(newSubTrie);
-	                mapSubAtomicRefer_.put(dictName, atomicSubRefer);
-	            }
-	            else
-	            {
-	                atomicSubRefer.getAndSet(newSubTrie);
-	            }
-            }
-            return 1;
+    /**
+     * @description 获取当前已经发布的词典名称
+     * @return 词典名称
+     */
+    Set<String> loadedDictNames()
+    {
+        return registry_.snapshot().keySet();
+    }
+
+    /**
+     * @description 获取当前的汉字读音表，复制快照时用它校验和重建索引
+     * @return 汉字->读音的映射表
+     */
+    Map<Character, List<String>> pinyinTable()
+    {
+        return mapPyTable_;
+    }
+
+    /**
+     * @description 发布在其他进程中构建好的快照（复制模式的副本），按本地的类别计算子树的类别并集后原子切换，不重新构建
+     * @author fengliangcheng
+     * @update 2026-10-23 上午11:05:20
+     * @param snapshot 解码得到的快照，索引必须使用pinyinTable()构建
+     * @return 0-失败（词典为空） 1-成功
+     */
+    int install_snapshot(final DictSnapshot snapshot)
+    {
+        if(0 == snapshot.words.size())
+        {
+            System.out.println("new dict " + snapshot.dictName + " is empty!");
+            return 0;
         }
-    }   
+        HeapMeter meter = lowPeakReload_ ? new HeapMeter() : null;
+        registry_.publish(withCategories(snapshot));
+        afterPublish(Collections.singleton(snapshot.dictName));
+        awaitOldGeneration(meter);
+        return 1;
+    }
+
     /**
-     * @description 将汉字-->拼音映射关系中的拼音串按照逗号分割后,存储为HashMap<Character, ArrayList<String>>
+     * @description 用当前的汉字读音表编译输入前缀
+     * @param prefix 输入前缀
+     * @return 编译后的前缀
+     */
+    PrefixConstraint compile(final String prefix)
+    {
+        return PrefixConstraint.compile(prefix, mapPyTable_);
+    }
+
+    /**
+     * @description 匹配结果条数的默认值和上限
      * @author fengliangcheng
-     * @update 2013-7-3 上午10:05:08
-     * @param pyTable 存储汉字-->拼音映射关系,例如:"乐\tyue,le"
-     * @return 0-失败 1-成功
+     * @update 2026-10-20 下午7:20:15
+     * @param maxCount 调用方要求的条数
+     * @return 实际使用的条数
      */
-    private int init_pinyin(final Map<Character, String> pyTable)
+    private static int clampCount(int maxCount)
     {
-    	int ret = 1;
-    	mapPyTable_ = new HashMap<Character, List<String>>();
-        Iterator<Map.Entry<Character, String>> iter = pyTable.entrySet().iterator();
-        while(iter.hasNext())
+        maxCount = (maxCount <= 0)?10:maxCount;
+        maxCount = (maxCount > 30)?30:maxCount;
+        return maxCount;
+    }
+
+    /**
+     * @description 在一个词典快照上匹配编译好的前缀：先前缀匹配（全汉字前缀直接在有序词语中查找），条数不够时再进行简拼子串匹配；
+     *              匹配到的热门词语排在最前面
+     * @author fengliangcheng
+     * @update 2026-10-20 下午7:21:40
+     * @param snapshot 词典快照，前缀和子串trie树来自同一个快照
+     * @param popular 该词典的热门词语，可以为null
+     * @param constraint 编译后的输入前缀
+     * @param maxCount 匹配结果的最多条数
+     * @param shortestFirst 是否按长度优先的顺序返回
+     * @param budget 代价上限，为null时不限制；超出上限后不再进行简拼子串匹配
+     * @return 匹配结果
+     */
+    private static ArrayList<String> match(final DictSnapshot snapshot, final PopularityTracker.PopularSet popular,
+                                           final PrefixConstraint constraint, final int maxCount, final boolean shortestFirst,
+                                           final SearchBudget budget)
+    {
+        snapshot.touch();
+        LinkedHashSet<String> prefixMatchResults = new LinkedHashSet<String>(); //保持插入顺序，按长度优先时结果有序
+        ArrayList<String> matchResults = new ArrayList<String>();
+
+        //优先进行前缀匹配
+        boolean direct = constraint.bFullChinese && !constraint.bFullAscii //全汉字前缀（不含空串）不用遍历同音词
+                         && snapshot.wordsNormalized() //有繁体词语时它们不在归一化前缀的区间内
+                         && new ChinesePrefixMatcher(snapshot.wordIds()).findPrefix(constraint, maxCount, prefixMatchResults, shortestFirst, budget);
+        if(!direct)
         {
-            Map.Entry<Character, String> entry = iter.next();
-            Character chineseWord = entry.getKey();
-            String pinYinStr = entry.getValue();
-            String[] pyArray = pinYinStr.split(","); //汉字经常会有多个读音
+            snapshot.prefixTrie.findPrefix(constraint, maxCount, prefixMatchResults, shortestFirst, budget); //read_
+        }
+        matchResults.addAll(prefixMatchResults);
 
-            if(0 == pyArray.length)
-            {
-                continue;
-            }
+        //如果输入是字母数字且启用了简拼子串匹配功能,则需要进行简拼子串匹配
+        if(matchResults.size() < maxCount && null != snapshot.subTrie && (null == budget || !budget.exhausted()))
+        {
+            LinkedHashSet<String> subMatchResults = new LinkedHashSet<String>();
+            snapshot.subTrie.findSubPrefix(constraint, maxCount - matchResults.size(), subMatchResults, shortestFirst, budget);
+            subMatchResults.removeAll(prefixMatchResults);
+            matchResults.addAll(subMatchResults);
+        }
 
-            List<String> tmpList = mapPyTable_.get(chineseWord);
-            if(null == tmpList)
+        if(null != popular)
+        {
+            LinkedHashSet<String> ranked = new LinkedHashSet<String>(); //热门词语按热度在前，其余保持原来的顺序
+            popular.collect(constraint, snapshot.words, null != snapshot.subTrie, maxCount, ranked);
+            if(!ranked.isEmpty())
             {
-                mapPyTable_.put(chineseWord, Arrays.asList(pyArray));
+                for(int i = 0; i < matchResults.size() && ranked.size() < maxCount; i++)
+                {
+                    ranked.add(matchResults.get(i));
+                }
+                return new ArrayList<String>(ranked);
             }
         }
-        
-        if(0 == mapPyTable_.size())
-        {
-        	ret = 0;
-        }
-        return ret;
+        return matchResults;
     }
 
     /**
-     * @description 对常见字符进行全角到半角的转换
+     * @description 联合查询的一条匹配结果
      * @author fengliangcheng
-     * @update 2013-7-2 下午8:45:49
-     * @param rawCh 原始字符
-     * @return 返回对应的半角字符
+     * @update 2026-10-20 下午7:24:02
      */
-    private static final char fullToHalf(final char rawCh)
+    public static final class FederatedMatch
     {
-        switch(rawCh)
+        private final String dictName_; //来自哪个词典
+        private final String word_; //匹配到的词语
+        private final double score_; //排序分值：词典权重/(1+该词在本词典结果中的位置)
+
+        FederatedMatch(final String dictName, final String word, final double score)
+        {
+            dictName_ = dictName;
+            word_ = word;
+            score_ = score;
+        }
+
+        public String getDictName()
+        {
+            return dictName_;
+        }
+
+        public String getWord()
+        {
+            return word_;
+        }
+
+        public double getScore()
         {
-            case '（': return '(';
-            case '）': return ')';
-            case '、': return '.';
-            case '，': return ',';
-            case '。': return '.';
-            default: return rawCh;
+            return score_;
         }
     }
-    
+
     /**
-     * @description 将汉字词转化为全屏和简拼
+     * @description 同一前缀一次查询多个词典：前缀只编译一次，所有词典来自同一个一致的视图，
+     *              根节点没有前缀首字母分支的词典直接跳过，其余词典并发查询，结果按分值合并为一个列表
      * @author fengliangcheng
-     * @update 2013-7-3 上午10:12:40
-     * @param set_words 输入词典
-     * @param pyChineseTable 存储全拼和简拼与汉字词对应关系
-     * @param pySubChineseTable 存储简拼子串与汉字词对应关系
+     * @update 2026-10-20 下午7:26:38
+     * @param prefix 需要匹配的前缀
+     * @param dictNames 词典名称
+     * @param quotas 每个词典最多返回的条数，规则与findMatch的maxCount相同
+     * @param weights 每个词典的权重，为null时都是1
+     * @param maxCount 合并后最多返回的条数，不大于0时为各词典条数之和
+     * @return 按分值从高到低排列的匹配结果，分值相同时按词典的顺序和词典内的顺序
      */
-    private void dictionary_load(Set<String> set_words,
-    		                            Map<String, HashSet<String>> pyChineseTable,
-                                        Map<String, HashSet<String>> pySubChineseTable)
+    public ArrayList<FederatedMatch> findMatchFederated(final String prefix, final String[] dictNames,
+                                                        final int[] quotas, final double[] weights, int maxCount)
     {
-        Vector<StringBuilder> pyVec = new Vector<StringBuilder>(); //保存一个词的所有全拼读音（汉字常有多个读音）
-        Vector<StringBuilder> tmpPyVec = new Vector<StringBuilder>();
-        Vector<StringBuilder> pyShortVec = new Vector<StringBuilder>(); //保存一个词的所有简拼读音（汉字常有多个读音）
-        Vector<StringBuilder> tmpShortVec = new Vector<StringBuilder>();
-        for(String word: set_words) //遍历每个词
+        final boolean shortestFirst = shortestFirst_;
+        final PrefixConstraint constraint = PrefixConstraint.compile(prefix, mapPyTable_); //所有词典共用
+        int epoch = epochs_.enter();
+        try
         {
-            for(int i = 0; i < word.length(); i++)//遍历该词的每个字
+            Map<String, DictSnapshot> snapshots = registry_.snapshot();
+            final Map<String, PopularityTracker.PopularSet> popularSets = popularSets_;
+
+            final List<Integer> targets = new ArrayList<Integer>(); //需要查询的词典序号
+            final int[] counts = new int[dictNames.length];
+            final DictSnapshot[] resolved = new DictSnapshot[dictNames.length]; //每个词典本次查询使用的快照
+            int totalCount = 0;
+            for(int i = 0; i < dictNames.length; i++)
             {
-                char rawCh = word.charAt(i);
-                char ch = fullToHalf(rawCh); //全角转化为半角
-                List<String> pyList = mapPyTable_.get((Character)ch);
-                if(null == pyList || 0 == pyList.size()) //该字不是汉字
+                counts[i] = clampCount(i < quotas.length ? quotas[i] : 0);
+                totalCount += counts[i];
+                DictSnapshot snapshot = snapshots.get(dictNames[i]);
+                if(null == snapshot && null != warmer_)
                 {
-                    if(ch >= 'A' && ch <= 'Z')
-                    {
-                        ch = (char)(ch + 32);
-                    }
-
-                    if(0 == pyShortVec.size())
-                    {
-                        StringBuilder sb = new StringBuilder();
-                        sb.append(ch);
-                        pyVec.add(sb); //全拼字符串
-
-                        StringBuilder ssb = new StringBuilder();
-                        ssb.append(ch);
-                        pyShortVec.add(ssb); //简拼字符串
-                    }
-                    else
-                    {
-                        for(int k = 0; k < pyVec.size(); k++)
-                        {
-                            StringBuilder strBuilder = pyVec.get(k);
-                            strBuilder.append(ch);
-                        }
-
-                        for(int k = 0; k < pyShortVec.size(); k++)
-                        {
-                            StringBuilder strBuilder = pyShortVec.get(k);
-                            strBuilder.append(ch);
-                        }
-                    }
+                    snapshot = readySnapshot(dictNames[i], 0, 0); //触发延迟构建和恢复但不等待，本次跳过尚未就绪的词典
                 }
-                else //该字是汉字
+                resolved[i] = snapshot;
+                if(null != snapshot && mayMatch(snapshot, constraint))
                 {
-                    if(0 == pyShortVec.size())
-                    {
-                        for(String pinYin: pyList) //多个读音都要存储，支持多音字匹配
-                        {
-                            pyVec.add(new StringBuilder(pinYin));
-
-                            char firstCh = pinYin.charAt(0);
-                            StringBuilder sb = new StringBuilder();
-                            sb.append(firstCh);
-                            pyShortVec.add(sb);
-                        }
-                    }
-                    else
-                    {
-                        for(int index = 0; index < pyList.size(); index++) //遍历多个读音
-                        {
-                            String pinYin = pyList.get(index);
-                            for(StringBuilder sb: pyVec)
-                            {
-                                if(pyList.size() > (index + 1)) //前面pyList.size()-1个读音，都必须得生成新的StringBuilder对象
-                                {//因为多个读音，导致数组的元素个数必须增加
-                                    StringBuilder nsb = new StringBuilder(sb);
-                                    nsb.append(pinYin);
-                                    tmpPyVec.add(nsb);
-                                }
-                                else //对于最后一个读音，重复利用之前的StringBuilder对象
-                                {
-                                    sb.append(pinYin);
-                                    tmpPyVec.add(sb);
-                                }
-                            }
-
-                            for(StringBuilder tsb: pyShortVec)
-                            {
-                                if(pyList.size() > (index + 1)) //前面pyList.size()-1个读音，都必须得生成新的StringBuilder对象
-                                {
-                                    StringBuilder nsb = new StringBuilder(tsb);
-                                    nsb.append(pinYin.charAt(0));
-                                    tmpShortVec.add(nsb);
-                                }
-                                else //对于最后一个读音，重复利用之前的StringBuilder对象
-                                {
-                                    tsb.append(pinYin.charAt(0));
-                                    tmpShortVec.add(tsb);
-                                }
-                            }
-                        }
-                        pyVec.clear();
-                        for(StringBuilder sb: tmpPyVec)
-                        {
-                            pyVec.add(sb);
-                        }
-                        tmpPyVec.clear();
+                    targets.add(i);
+                }
+            }
+            maxCount = (maxCount <= 0) ? totalCount : maxCount;
 
-                        pyShortVec.clear();
-                        for(StringBuilder sb: tmpShortVec)
+            List<ArrayList<String>> results = new ArrayList<ArrayList<String>>();
+            List<Future<ArrayList<String>>> futures = new ArrayList<Future<ArrayList<String>>>();
+            try
+            {
+                for(int t = 1; t < targets.size(); t++) //第一个词典在当前线程查询
+                {
+                    final DictSnapshot snapshot = resolved[targets.get(t)];
+                    final int count = counts[targets.get(t)];
+                    final PopularityTracker.PopularSet popular = popularSets.get(dictNames[targets.get(t)]);
+                    futures.add(federatedPool().submit(new Callable<ArrayList<String>>() {
+                        public ArrayList<String> call()
                         {
-                            pyShortVec.add(sb);
+                            return match(snapshot, popular, constraint, count, shortestFirst, null);
                         }
-                        tmpShortVec.clear();
-                    }
+                    }));
+                }
+                if(!targets.isEmpty())
+                {
+                    String dictName = dictNames[targets.get(0)];
+                    results.add(match(resolved[targets.get(0)], popularSets.get(dictName), constraint, counts[targets.get(0)], shortestFirst, null));
+                }
+                for(Future<ArrayList<String>> future: futures)
+                {
+                    results.add(future.get());
                 }
             }
-
-            for(StringBuilder sb: pyVec)//将全拼读音,添加到拼音--词语映射关系表
+            catch(InterruptedException e)
             {
-                String str = sb.toString();
-                HashSet<String> chineseWordsSet = pyChineseTable.get(str);
-                if(null == chineseWordsSet)
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            catch(ExecutionException e)
+            {
+                throw new RuntimeException(e.getCause());
+            }
+            finally
+            {
+                for(Future<ArrayList<String>> future: futures)
                 {
-                    chineseWordsSet = new HashSet<String>();
-                    pyChineseTable.put(str, chineseWordsSet);
+                    future.cancel(false);
                 }
-                chineseWordsSet.add(word);
             }
 
-            for(StringBuilder sb: pyShortVec)//简拼读音,添加到拼音--词语映射关系表
+            ArrayList<FederatedMatch> merged = new ArrayList<FederatedMatch>();
+            for(int t = 0; t < results.size(); t++)
             {
-                String str = sb.toString();
-                HashSet<String> chineseWordsSet = pyChineseTable.get(str);
-                if(null == chineseWordsSet)
+                int d = targets.get(t);
+                double weight = (null != weights && d < weights.length) ? weights[d] : 1.0;
+                List<String> words = results.get(t);
+                for(int i = 0; i < words.size(); i++)
                 {
-                    chineseWordsSet = new HashSet<String>();
-                    pyChineseTable.put(str, chineseWordsSet);
+                    merged.add(new FederatedMatch(dictNames[d], words.get(i), weight / (1 + i)));
                 }
-                chineseWordsSet.add(word);
-
-                if(enableShortSubMatched_)
+            }
+            Collections.sort(merged, new Comparator<FederatedMatch>() { //稳定排序，分值相同时保持词典和位置的顺序
+                public int compare(FederatedMatch a, FederatedMatch b)
                 {
-	                for(int i = 1; i < str.length(); i++) //获取所有简拼子串,添加到简拼子串--词语映射关系表
-	                {
-	                    String subShortPy = str.substring(i);
-	                    HashSet<String> wordsSet = pySubChineseTable.get(subShortPy);
-	                    if(null == wordsSet)
-	                    {
-	                        wordsSet = new HashSet<String>();
-	                        pySubChineseTable.put(subShortPy, wordsSet);
-	                    }
-	                    wordsSet.add(word);
-	                }
+                    return Double.compare(b.score_, a.score_);
                 }
+            });
+            while(merged.size() > maxCount)
+            {
+                merged.remove(merged.size() - 1);
             }
-            pyVec.clear(); //在下一次循环迭代前清空
-            pyShortVec.clear(); //在下一次循环迭代前清空
+            return merged;
+        }
+        finally
+        {
+            epochs_.exit(epoch);
         }
-    }    
+    }
+
     /**
-     * @description 找出前缀串在词典中匹配的所有词
+     * @description 词典是否可能有匹配结果：前缀索引或者简拼子串索引的根节点有前缀首字母的分支
      * @author fengliangcheng
-     * @update 2013-7-3 上午10:48:26
-     * @param dictName 词典名称
-     * @param prefix  需要匹配的前缀
-     * @param maxCount 匹配结果的最多条数
-     * @return 匹配结果的集合
+     * @update 2026-10-20 下午7:30:10
+     * @param snapshot 词典快照
+     * @param constraint 编译后的输入前缀
+     * @return true-需要查询 false-一定没有匹配结果
      */
-    public ArrayList<String> findMatch(final String dictName, final String prefix, int maxCount)
+    private static boolean mayMatch(final DictSnapshot snapshot, final PrefixConstraint constraint)
     {
-        maxCount = (maxCount <= 0)?10:maxCount;
-        maxCount = (maxCount > 30)?30:maxCount;
-
-        HashSet<String> prefixMatchResults = new HashSet<String>();
-        HashSet<String> subMatchResults = new HashSet<String>();
-        ArrayList<String> matchResults = new ArrayList<String>();
-
-        //优先进行前缀匹配
-        AtomicReference<Trie> ref = mapAtomicRefer_.get(dictName);
-        if(null != ref)
-        {
-            (ref.get()).findPrefix(prefix, maxCount, prefixMatchResults); //read_
-        }
-        matchResults.addAll(prefixMatchResults);
-
-        //如果输入是字母数字且启用了简拼子串匹配功能,则需要进行简拼子串匹配
-        if(matchResults.size() < maxCount && enableShortSubMatched_)
+        if(0 == constraint.prefixPy.length() || 0 == constraint.prefix.length())
         {
-            AtomicReference<Trie> subRef = mapSubAtomicRefer_.get(dictName);
-            if(null != subRef)
-            {
-                (subRef.get()).findSubPrefix(prefix, maxCount - matchResults.size(), subMatchResults);
-                subMatchResults.removeAll(prefixMatchResults);
-                matchResults.addAll(subMatchResults);
-            }
+            return true; //空前缀匹配所有词语
         }
-
-        return matchResults;
+        return snapshot.prefixTrie.mayMatch(constraint.prefixPy.charAt(0))
+               || (null != snapshot.subTrie && snapshot.subTrie.mayMatch(constraint.prefix.charAt(0)));
     }
 }
@@ -0,0 +1,606 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @description 闭环压测和浸泡测试：多个读线程按固定速率回放前缀（Zipf分布或者采集的查询日志），
+ *              后台线程周期性地在两个版本的词典之间reload，统计吞吐量、经过coordinated omission修正的延迟分位数、
+ *              GC次数和停顿时间，同时校验每次查询的结果都完整地来自同一个版本的词典（不能看到切换到一半的状态），
+ *              出现异常或者校验失败时以非0值退出
+ *              用法：LoadGenerator [读线程数] [秒数] [每个线程每秒查询数] [reload间隔毫秒] [查询日志文件]
+ * @author fengliangcheng
+ * @update 2026-10-20 下午2:10:36
+ */
+
+public class LoadGenerator {
+    private static final String DICT_NAME = "cha"; //压测的词典
+    private static final int MAX_COUNT = 20; //每次查询的结果条数
+    private static final double ZIPF_EXPONENT = 1.0; //Zipf分布的指数，越大热点越集中
+    private static final int MAX_PREFIX_CHARS = 4; //由词典生成前缀时最多取前几个汉字
+    private static final long SEED = 20131019L; //随机数种子，保证每次压测的请求序列相同
+    private static final long SPIN_NANOS = 50000; //距离计划时间不足该值时不再休眠，让出CPU直到计划时间，休眠的超时不会计入修正后的延迟
+
+    /**
+     * @description 对数线性分桶的延迟直方图（单位微秒），每个2的幂区间分成64个桶，相对误差不超过1.6%，
+     *              每个线程独占一个实例，结束后合并
+     * @author fengliangcheng
+     * @update 2026-10-20 下午2:12:50
+     */
+    static final class LatencyHistogram
+    {
+        private static final int SUB_BITS = 7;
+        private static final int HALF = 1 << (SUB_BITS - 1);
+        private final long[] counts = new long[64 * HALF + (1 << SUB_BITS)];
+        private long total = 0;
+        private long max = 0;
+
+        void record(long micros)
+        {
+            if(micros < 0)
+            {
+                micros = 0;
+            }
+            counts[indexOf(micros)]++;
+            total++;
+            if(micros > max)
+            {
+                max = micros;
+            }
+        }
+
+        void merge(final LatencyHistogram other)
+        {
+            for(int i = 0; i < counts.length; i++)
+            {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        long count()
+        {
+            return total;
+        }
+
+        long max()
+        {
+            return max;
+        }
+
+        /**
+         * @description 获取分位数，返回所在桶的上界
+         * @param ratio 分位，比如0.99
+         * @return 延迟（微秒）
+         */
+        long percentile(final double ratio)
+        {
+            if(0 == total)
+            {
+                return 0;
+            }
+            long target = (long)Math.ceil(ratio * total);
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if(seen >= target && counts[i] > 0)
+                {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        private static int indexOf(final long value)
+        {
+            if(value < (1L << SUB_BITS))
+            {
+                return (int)value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1; //使value >>> shift落在[HALF, 2*HALF)
+            return (shift * HALF) + (int)(value >>> shift);
+        }
+
+        private static long upperBoundOf(final int index)
+        {
+            if(index < (1 << SUB_BITS))
+            {
+                return index;
+            }
+            int shift = index / HALF - 1;
+            long sub = index - (long)shift * HALF;
+            return ((sub + 1) << shift) - 1;
+        }
+    }
+
+    /**
+     * @description 一个读线程：按固定间隔计划每个请求的发出时间，延迟从计划时间算起，
+     *              因此前面的请求变慢时后面排队等待的时间也会计入（coordinated omission修正）
+     * @author fengliangcheng
+     * @update 2026-10-20 下午2:20:11
+     */
+    private static final class Reader implements Runnable
+    {
+        final LatencyHistogram corrected = new LatencyHistogram(); //从计划发出时间算起的延迟
+        final LatencyHistogram service = new LatencyHistogram(); //从实际发出时间算起的延迟
+        private final KBSmarter smarter;
+        private final PrefixSource source;
+        private final Random random;
+        private final long intervalNanos; //两次请求的计划间隔，0表示不限速
+        private final long recordFromNanos; //预热结束的时间
+        private final long endNanos;
+        private final CountDownLatch startLatch;
+        private final CountDownLatch doneLatch;
+        private final Verifier verifier;
+
+        Reader(KBSmarter s, PrefixSource src, long seed, long interval, long recordFrom, long end,
+               CountDownLatch start, CountDownLatch done, Verifier verify)
+        {
+            smarter = s;
+            source = src;
+            random = new Random(seed);
+            intervalNanos = interval;
+            recordFromNanos = recordFrom;
+            endNanos = end;
+            startLatch = start;
+            doneLatch = done;
+            verifier = verify;
+        }
+
+        public void run()
+        {
+            try
+            {
+                startLatch.await();
+                long intended = System.nanoTime();
+                while(intended < endNanos)
+                {
+                    long now = System.nanoTime();
+                    while(now < intended) //还没到计划时间
+                    {
+                        long waitNanos = intended - now;
+                        if(waitNanos > SPIN_NANOS)
+                        {
+                            LockSupport.parkNanos(waitNanos - SPIN_NANOS); //Thread.sleep会把纳秒部分向上取整到毫秒
+                        }
+                        else
+                        {
+                            Thread.yield();
+                        }
+                        now = System.nanoTime();
+                    }
+
+                    String prefix = source.next(random);
+                    long begin = System.nanoTime();
+                    ArrayList<String> result = smarter.findMatch(DICT_NAME, prefix, MAX_COUNT);
+                    long end = System.nanoTime();
+                    verifier.check(prefix, result);
+
+                    if(begin >= recordFromNanos)
+                    {
+                        long scheduled = (intervalNanos > 0) ? intended : begin;
+                        corrected.record((end - scheduled) / 1000);
+                        service.record((end - begin) / 1000);
+                    }
+                    intended = (intervalNanos > 0) ? (intended + intervalNanos) : end;
+                }
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch(RuntimeException e)
+            {
+                verifier.fail("reader exception: " + e);
+            }
+            finally
+            {
+                doneLatch.countDown();
+            }
+        }
+    }
+
+    /**
+     * @description 前缀的来源：查询日志时均匀地抽取日志中的行（即按日志中的真实频率回放），否则按Zipf分布抽取
+     * @author fengliangcheng
+     * @update 2026-10-20 下午2:26:48
+     */
+    private static final class PrefixSource
+    {
+        private final String[] prefixes; //日志回放时为日志的每一行，否则按热度从高到低排列
+        private final double[] cdf; //Zipf分布的累积概率，日志回放时为null
+
+        PrefixSource(String[] array, boolean zipf)
+        {
+            prefixes = array;
+            if(!zipf)
+            {
+                cdf = null;
+                return;
+            }
+            cdf = new double[array.length];
+            double sum = 0;
+            for(int i = 0; i < array.length; i++)
+            {
+                sum += 1.0 / Math.pow(i + 1, ZIPF_EXPONENT);
+                cdf[i] = sum;
+            }
+            for(int i = 0; i < cdf.length; i++)
+            {
+                cdf[i] /= sum;
+            }
+        }
+
+        int size()
+        {
+            return prefixes.length;
+        }
+
+        String next(final Random random)
+        {
+            if(null == cdf)
+            {
+                return prefixes[random.nextInt(prefixes.length)];
+            }
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cdf.length - 1;
+            while(low < high) //二分查找第一个累积概率不小于u的位置
+            {
+                int mid = (low + high) >>> 1;
+                if(cdf[mid] < u)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return prefixes[low];
+        }
+    }
+
+    /**
+     * @description 校验查询结果：两个版本的词典各自删掉了一组互不相交的词语，
+     *              一次查询的结果同时包含只属于版本A和只属于版本B的词语，说明看到了切换到一半的状态
+     * @author fengliangcheng
+     * @update 2026-10-20 下午2:31:05
+     */
+    private static final class Verifier
+    {
+        private final HashSet<String> allWords; //两个版本的并集
+        private final HashSet<String> onlyA; //只在版本A中的词语
+        private final HashSet<String> onlyB; //只在版本B中的词语
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicReference<String> firstFailure = new AtomicReference<String>();
+
+        Verifier(HashSet<String> all, HashSet<String> a, HashSet<String> b)
+        {
+            allWords = all;
+            onlyA = a;
+            onlyB = b;
+        }
+
+        void check(final String prefix, final List<String> result)
+        {
+            boolean seenA = false;
+            boolean seenB = false;
+            for(String word: result)
+            {
+                if(!allWords.contains(word))
+                {
+                    fail("unknown word " + word + " for prefix " + prefix);
+                    return;
+                }
+                seenA |= onlyA.contains(word);
+                seenB |= onlyB.contains(word);
+            }
+            if(seenA && seenB)
+            {
+                fail("mixed versions for prefix " + prefix + ": " + result);
+            }
+            if(new HashSet<String>(result).size() != result.size())
+            {
+                fail("duplicated words for prefix " + prefix + ": " + result);
+            }
+        }
+
+        void fail(final String message)
+        {
+            failures.incrementAndGet();
+            firstFailure.compareAndSet(null, message);
+        }
+    }
+
+    /**
+     * @description 由词典生成候选前缀：每个词前1~4个字的汉字前缀、全拼前缀、简拼前缀，以及汉字和拼音混合的前缀，
+     *              打乱后的顺序即为Zipf分布的热度排名
+     * @author fengliangcheng
+     * @update 2026-10-20 下午2:36:22
+     * @param words 词典
+     * @param pyConfig 汉字->读音配置（多个读音用逗号分隔，只取第一个）
+     * @return 候选前缀
+     */
+    private static String[] generatePrefixes(final HashSet<String> words, final Map<Character, String> pyConfig)
+    {
+        ArrayList<String> sortedWords = new ArrayList<String>(words);
+        Collections.sort(sortedWords); //HashSet的顺序不稳定，先排序保证请求序列可重复
+        LinkedHashSet<String> prefixes = new LinkedHashSet<String>();
+        for(String word: sortedWords)
+        {
+            StringBuilder full = new StringBuilder();
+            StringBuilder jianpin = new StringBuilder();
+            int firstPyLen = 0; //第一个字拼音的长度
+            for(int i = 0; i < word.length() && i < MAX_PREFIX_CHARS; i++)
+            {
+                char ch = word.charAt(i);
+                String pyStr = pyConfig.get(ch);
+                if(null == pyStr || 0 == pyStr.length())
+                {
+                    break;
+                }
+                String py = pyStr.split(",")[0];
+                prefixes.add(word.substring(0, i + 1)); //汉字前缀
+                if(i > 0)
+                {
+                    prefixes.add(word.substring(0, 1) + full.substring(firstPyLen) + py); //首字汉字，其余拼音
+                }
+                else
+                {
+                    firstPyLen = py.length();
+                }
+                full.append(py);
+                jianpin.append(py.charAt(0));
+                prefixes.add(full.toString());
+                prefixes.add(jianpin.toString());
+                if(py.length() > 1)
+                {
+                    prefixes.add(full.substring(0, full.length() - py.length() + 1)); //最后一个字只输入了声母
+                }
+            }
+        }
+        ArrayList<String> list = new ArrayList<String>(prefixes);
+        Collections.shuffle(list, new Random(SEED));
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * @description 读取采集的查询日志，每行一个前缀，或者"词典名\t前缀"
+     * @author fengliangcheng
+     * @update 2026-10-20 下午2:40:15
+     * @param logFilePath 日志文件
+     * @return 日志中的前缀
+     */
+    private static String[] readQueryLog(final String logFilePath)
+    {
+        ArrayList<String> list = new ArrayList<String>();
+        try
+        {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFilePath), "UTF-8"));
+            try
+            {
+                String record;
+                while((record = reader.readLine()) != null)
+                {
+                    String[] array = record.split("\t");
+                    String prefix = (array.length >= 2) ? array[1] : array[0];
+                    if(prefix.length() > 0)
+                    {
+                        list.add(prefix);
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return list.toArray(new String[list.size()]);
+    }
+
+    private static long gcCount()
+    {
+        long count = 0;
+        for(GarbageCollectorMXBean bean: ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis()
+    {
+        long millis = 0;
+        for(GarbageCollectorMXBean bean: ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static void printHistogram(final String title, final LatencyHistogram histogram)
+    {
+        System.out.println(title + ": p50=" + histogram.percentile(0.5) + "us p90=" + histogram.percentile(0.9)
+                           + "us p99=" + histogram.percentile(0.99) + "us p99.9=" + histogram.percentile(0.999)
+                           + "us p99.99=" + histogram.percentile(0.9999) + "us max=" + histogram.max() + "us");
+    }
+
+    /**
+     * @description 执行压测
+     * @author fengliangcheng
+     * @update 2026-10-20 下午2:45:30
+     * @param args [读线程数] [秒数] [每个线程每秒查询数，0表示不限速] [reload间隔毫秒] [查询日志文件]
+     * @throws InterruptedException 等待时被中断
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int threads = (args.length >= 1) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int seconds = (args.length >= 2) ? Integer.parseInt(args[1]) : 60;
+        int ratePerThread = (args.length >= 3) ? Integer.parseInt(args[2]) : 1000;
+        final long reloadMillis = (args.length >= 4) ? Long.parseLong(args[3]) : 1000;
+        String logFilePath = (args.length >= 5) ? args[4] : null;
+
+        FileConfigure configure = new FileConfigure();
+        final KBSmarter smarter = KBSmarter.getInstance(configure, true);
+
+        //两个版本各自删掉一组互不相交的词语
+        HashSet<String> base = configure.generateDictSets().get(DICT_NAME);
+        ArrayList<String> sortedBase = new ArrayList<String>(base);
+        Collections.sort(sortedBase);
+        final HashSet<String> versionA = new HashSet<String>(base);
+        final HashSet<String> versionB = new HashSet<String>(base);
+        HashSet<String> onlyA = new HashSet<String>();
+        HashSet<String> onlyB = new HashSet<String>();
+        for(int i = 0; i < sortedBase.size(); i++)
+        {
+            if(0 == i % 10)
+            {
+                versionA.remove(sortedBase.get(i));
+                onlyB.add(sortedBase.get(i));
+            }
+            else if(5 == i % 10)
+            {
+                versionB.remove(sortedBase.get(i));
+                onlyA.add(sortedBase.get(i));
+            }
+        }
+        final Verifier verifier = new Verifier(base, onlyA, onlyB);
+        smarter.dictionary_reLoad(DICT_NAME, new HashSet<String>(versionA));
+
+        PrefixSource source = (null != logFilePath) ? new PrefixSource(readQueryLog(logFilePath), false)
+                                                    : new PrefixSource(generatePrefixes(base, configure.generatePyConfigSet()), true);
+        System.out.println("threads=" + threads + " seconds=" + seconds + " rate/thread=" + ratePerThread
+                           + " reload every " + reloadMillis + "ms, " + source.size() + " distinct prefixes"
+                           + ((null != logFilePath) ? " from " + logFilePath : " (zipf)"));
+
+        long warmupNanos = Math.min(5, seconds / 6) * 1000000000L;
+        final long startNanos = System.nanoTime() + 100000000L;
+        final long endNanos = startNanos + seconds * 1000000000L;
+        long intervalNanos = (ratePerThread > 0) ? (1000000000L / ratePerThread) : 0;
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(threads);
+        List<Reader> readers = new ArrayList<Reader>();
+        for(int i = 0; i < threads; i++)
+        {
+            Reader reader = new Reader(smarter, source, SEED + i, intervalNanos, startNanos + warmupNanos, endNanos,
+                                       startLatch, doneLatch, verifier);
+            readers.add(reader);
+            Thread t = new Thread(reader, "load-reader-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        //后台周期性reload，两个版本交替
+        final LatencyHistogram reloadHistogram = new LatencyHistogram();
+        Thread reloader = new Thread(new Runnable() {
+            public void run()
+            {
+                boolean useB = true;
+                while(System.nanoTime() < endNanos)
+                {
+                    try
+                    {
+                        Thread.sleep(reloadMillis);
+                    }
+                    catch(InterruptedException e)
+                    {
+                        return;
+                    }
+                    long begin = System.nanoTime();
+                    try
+                    {
+                        smarter.dictionary_reLoad(DICT_NAME, new HashSet<String>(useB ? versionB : versionA));
+                    }
+                    catch(RuntimeException e)
+                    {
+                        verifier.fail("reload exception: " + e);
+                    }
+                    reloadHistogram.record((System.nanoTime() - begin) / 1000);
+                    useB = !useB;
+                }
+            }
+        }, "load-reloader");
+        reloader.setDaemon(true);
+
+        //停顿检测：线程每次睡眠1ms，超出的部分即为该时刻整个进程的停顿（GC、safepoint等）
+        final LatencyHistogram hiccups = new LatencyHistogram();
+        Thread hiccupMeter = new Thread(new Runnable() {
+            public void run()
+            {
+                while(System.nanoTime() < endNanos)
+                {
+                    long begin = System.nanoTime();
+                    try
+                    {
+                        Thread.sleep(1);
+                    }
+                    catch(InterruptedException e)
+                    {
+                        return;
+                    }
+                    hiccups.record((System.nanoTime() - begin) / 1000 - 1000);
+                }
+            }
+        }, "load-hiccup");
+        hiccupMeter.setDaemon(true);
+
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        while(System.nanoTime() < startNanos)
+        {
+            Thread.yield();
+        }
+        startLatch.countDown();
+        reloader.start();
+        hiccupMeter.start();
+        doneLatch.await();
+        long elapsedNanos = System.nanoTime() - startNanos - warmupNanos;
+        reloader.join();
+        hiccupMeter.join();
+
+        LatencyHistogram corrected = new LatencyHistogram();
+        LatencyHistogram service = new LatencyHistogram();
+        for(Reader reader: readers)
+        {
+            corrected.merge(reader.corrected);
+            service.merge(reader.service);
+        }
+
+        System.out.println("queries=" + corrected.count() + " throughput=" + (corrected.count() * 1000000000L / Math.max(1, elapsedNanos)) + " qps");
+        printHistogram("latency (corrected)", corrected);
+        printHistogram("latency (service)", service);
+        System.out.println("reloads=" + reloadHistogram.count() + " p50=" + reloadHistogram.percentile(0.5) / 1000
+                           + "ms max=" + reloadHistogram.max() / 1000 + "ms");
+        System.out.println("gc count=" + (gcCount() - gcCountBefore) + " time=" + (gcMillis() - gcMillisBefore) + "ms");
+        printHistogram("pauses", hiccups);
+
+        long failures = verifier.failures.get();
+        if(failures > 0)
+        {
+            System.out.println("FAILED: " + failures + " errors, first: " + verifier.firstFailure.get());
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+}
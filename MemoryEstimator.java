@@ -0,0 +1,103 @@
+package com.tcgroup.common.spell;
+import java.util.Set;
+
+/**
+ * @description 估算词典占用的堆内存：按64位JVM开启压缩指针时的对象布局（12字节对象头、4字节引用、8字节对齐）计算，
+ *              只用于比较各词典的大小和执行内存预算，不追求精确
+ * @author fengliangcheng
+ * @update 2026-10-21 下午2:10:36
+ */
+
+final class MemoryEstimator {
+    static final int HEADER = 12; //对象头
+    static final int REF = 4; //引用
+    static final int ARRAY_HEADER = 16; //数组对象头，含长度
+    static final int HASHMAP = 48; //HashMap对象本身
+    static final int HASHMAP_ENTRY = 32; //HashMap的一个节点
+    static final int HASHSET = 16; //HashSet对象本身，不含内部的HashMap
+    static final int STRING = 24; //String对象本身，不含字符数组
+
+    private MemoryEstimator()
+    {
+    }
+
+    /**
+     * @description 按8字节对齐
+     */
+    static long align(final long bytes)
+    {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * @description 数组占用的字节数
+     * @param length 数组长度
+     * @param elementBytes 每个元素的字节数
+     */
+    static long array(final int length, final int elementBytes)
+    {
+        return align(ARRAY_HEADER + (long)length * elementBytes);
+    }
+
+    /**
+     * @description 字符串占用的字节数，全部是Latin1字符时每个字符1字节，否则2字节
+     */
+    static long string(final String s)
+    {
+        int bytesPerChar = 1;
+        for(int i = 0; i < s.length(); i++)
+        {
+            if(s.charAt(i) > 0xFF)
+            {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING + array(s.length(), bytesPerChar);
+    }
+
+    /**
+     * @description HashMap占用的字节数，不含键和值对象；空的HashMap还没有分配桶数组
+     * @param size 元素个数
+     */
+    static long hashMap(final int size)
+    {
+        if(0 == size)
+        {
+            return HASHMAP;
+        }
+        int capacity = 16;
+        while(capacity * 3 / 4 < size)
+        {
+            capacity <<= 1;
+        }
+        return HASHMAP + array(capacity, REF) + (long)HASHMAP_ENTRY * size;
+    }
+
+    /**
+     * @description HashSet占用的字节数，不含元素对象
+     * @param size 元素个数
+     */
+    static long hashSet(final int size)
+    {
+        return HASHSET + hashMap(size);
+    }
+
+    /**
+     * @description 词语集合占用的字节数，包括词语字符串本身
+     * @param words 词语集合，WordStore按自身的实现计算，其他按HashSet计算
+     */
+    static long wordSet(final Set<String> words)
+    {
+        if(words instanceof WordStore)
+        {
+            return ((WordStore)words).estimateBytes();
+        }
+        long bytes = hashSet(words.size());
+        for(String word: words)
+        {
+            bytes += string(word);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,267 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @description 多片段查询：输入按空白分割为多个片段（比如"gx ya"、"高血 yao"），返回同时匹配所有片段的词语。
+ *              一个词语匹配某个片段是指：前缀匹配（全拼、简拼或者混合输入）、简拼子串匹配（片段只有字母数字时），
+ *              或者词语包含该片段（片段都是汉字时）。
+ *              每个片段先通过前缀索引和简拼子串索引解析为词语编号集合，最多MAX_TOKEN_WORDS个，没有超出的是完整集合；
+ *              完整集合按从小到大求交集，得到候选，超出上限的片段（以及没有索引可用的汉字子串）不参与求交，
+ *              改为对候选逐个校验，因此一个很常见的片段不会导致扫描整个词典。
+ *              所有片段都超出上限（或者都是汉字片段）时，以各片段集合的并集为候选，以任意一个片段开头的词语都能找到，
+ *              只是包含而不以任何片段开头的词语可能遗漏；并集最多为片段数乘以MAX_TOKEN_WORDS个
+ * @author fengliangcheng
+ * @update 2026-10-27 下午3:10:24
+ */
+
+final class MultiTokenMatcher {
+    static final int MAX_TOKEN_WORDS = 4096; //每个片段最多通过索引解析出的词语个数
+
+    private static final Comparator<String> SHORTEST_FIRST = new Comparator<String>() {
+        public int compare(String a, String b)
+        {
+            return (a.length() != b.length()) ? a.length() - b.length() : a.compareTo(b);
+        }
+    };
+
+    /**
+     * @description 一个片段及其解析结果
+     */
+    private static final class Token
+    {
+        final PrefixConstraint constraint; //编译后的片段
+        final WordBitmap ids; //通过索引解析出的词语编号
+        final boolean complete; //ids是否包含所有匹配该片段的词语
+
+        Token(final PrefixConstraint c, final WordBitmap bitmap, final boolean isComplete)
+        {
+            constraint = c;
+            ids = bitmap;
+            complete = isComplete;
+        }
+    }
+
+    private final DictSnapshot snapshot_; //查询的词典
+    private final Map<Character, List<String>> pinyinTable_; //存储汉字->读音的映射表
+
+    /**
+     * constructors of the class
+     * @param snapshot 查询的词典快照
+     * @param pyTable 存储汉字->读音的映射表
+     */
+    MultiTokenMatcher(final DictSnapshot snapshot, final Map<Character, List<String>> pyTable)
+    {
+        snapshot_ = snapshot;
+        pinyinTable_ = pyTable;
+    }
+
+    /**
+     * @description 按空白（包括全角空格）分割输入，去掉重复的片段
+     * @author fengliangcheng
+     * @update 2026-10-21 下午5:27:12
+     * @param input 输入
+     * @return 片段，保持输入的顺序
+     */
+    static List<String> split(final String input)
+    {
+        List<String> tokens = new ArrayList<String>();
+        for(String token: input.replace('　', ' ').trim().split("\\s+"))
+        {
+            if(0 != token.length() && !tokens.contains(token))
+            {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @description 查询同时匹配所有片段的词语
+     * @author fengliangcheng
+     * @update 2026-10-21 下午5:29:50
+     * @param tokens 片段
+     * @param maxCount 匹配结果的最多条数
+     * @return 匹配结果，短的在前，同长度按字典序
+     */
+    ArrayList<String> match(final List<String> tokens, final int maxCount)
+    {
+        WordStore store = snapshot_.wordIds();
+        List<Token> resolved = new ArrayList<Token>();
+        for(String text: tokens)
+        {
+            Token token = resolve(PrefixConstraint.compile(text, pinyinTable_), store);
+            if(token.complete && 0 == token.ids.cardinality())
+            {
+                return new ArrayList<String>(); //有片段一定没有匹配
+            }
+            resolved.add(token);
+        }
+        Collections.sort(resolved, new Comparator<Token>() {
+            public int compare(Token a, Token b)
+            {
+                if(a.complete != b.complete)
+                {
+                    return a.complete ? -1 : 1;
+                }
+                return a.ids.cardinality() - b.ids.cardinality();
+            }
+        });
+
+        //完整集合从小到大求交集；没有完整集合时用各片段集合的并集作为候选，只取最小的集合会漏掉以其他片段开头的词语
+        WordBitmap candidates = resolved.get(0).ids;
+        if(resolved.get(0).complete)
+        {
+            for(int i = 1; i < resolved.size() && resolved.get(i).complete && candidates.cardinality() > 0; i++)
+            {
+                candidates = candidates.and(resolved.get(i).ids);
+            }
+        }
+        else if(resolved.size() > 1)
+        {
+            int total = 0;
+            for(Token token: resolved)
+            {
+                total += token.ids.cardinality();
+            }
+            int[] ids = new int[total];
+            int n = 0;
+            for(Token token: resolved)
+            {
+                int[] tokenIds = token.ids.toArray();
+                System.arraycopy(tokenIds, 0, ids, n, tokenIds.length);
+                n += tokenIds.length;
+            }
+            candidates = WordBitmap.of(ids, n);
+        }
+
+        //对候选逐个校验没有参与求交的片段
+        List<Token> filters = new ArrayList<Token>();
+        for(Token token: resolved)
+        {
+            if(!token.complete)
+            {
+                filters.add(token);
+            }
+        }
+        ArrayList<String> results = new ArrayList<String>();
+        PinyinExpander expander = filters.isEmpty() ? null : new PinyinExpander(pinyinTable_);
+        ArrayList<String> keys = new ArrayList<String>();
+        ArrayList<String> subKeys = (null != snapshot_.subTrie) ? new ArrayList<String>() : null; //未启用简拼子串匹配时不按子串校验
+        for(int id: candidates.toArray())
+        {
+            String word = store.wordAt(id);
+            boolean expanded = false;
+            boolean accepted = true;
+            for(Token token: filters)
+            {
+                if(token.ids == candidates || token.ids.contains(id))
+                {
+                    continue; //索引已经确认匹配
+                }
+                if(!expanded)
+                {
+                    keys.clear();
+                    if(null != subKeys)
+                    {
+                        subKeys.clear();
+                    }
+                    expander.expand(word, keys, subKeys);
+                    expanded = true;
+                }
+                if(!accepts(token.constraint, word, keys, subKeys))
+                {
+                    accepted = false;
+                    break;
+                }
+            }
+            if(accepted)
+            {
+                results.add(word);
+            }
+        }
+        Collections.sort(results, SHORTEST_FIRST);
+        while(results.size() > maxCount)
+        {
+            results.remove(results.size() - 1);
+        }
+        return results;
+    }
+
+    /**
+     * @description 通过前缀索引和简拼子串索引把片段解析为词语编号
+     * @author fengliangcheng
+     * @update 2026-10-21 下午5:33:18
+     * @param constraint 编译后的片段
+     * @param store 词语编号
+     * @return 解析结果
+     */
+    private Token resolve(final PrefixConstraint constraint, final WordStore store)
+    {
+        Set<String> words = new HashSet<String>();
+        snapshot_.prefixTrie.findPrefix(constraint, MAX_TOKEN_WORDS + 1, words, false);
+        boolean complete = words.size() <= MAX_TOKEN_WORDS;
+        if(constraint.bFullAscii && null != snapshot_.subTrie && complete)
+        {
+            Set<String> subWords = new HashSet<String>();
+            snapshot_.subTrie.findSubPrefix(constraint.prefix, MAX_TOKEN_WORDS + 1, subWords, false);
+            words.addAll(subWords);
+            complete = subWords.size() <= MAX_TOKEN_WORDS && words.size() <= MAX_TOKEN_WORDS;
+        }
+        if(constraint.bFullChinese)
+        {
+            complete = false; //包含汉字片段的词语没有索引可查，只能逐个校验
+        }
+        int[] ids = new int[words.size()];
+        int n = 0;
+        for(String word: words)
+        {
+            int id = store.idOf(word);
+            if(id >= 0)
+            {
+                ids[n++] = id;
+            }
+        }
+        return new Token(constraint, WordBitmap.of(ids, n), complete);
+    }
+
+    /**
+     * @description 校验词语是否匹配片段
+     * @param constraint 编译后的片段
+     * @param word 词语
+     * @param keys 词语的全拼和简拼
+     * @param subKeys 词语的简拼子串，未启用简拼子串匹配时为null
+     * @return true-匹配 false-不匹配
+     */
+    private static boolean accepts(final PrefixConstraint constraint, final String word,
+                                   final List<String> keys, final List<String> subKeys)
+    {
+        if(constraint.bFullChinese && PrefixConstraint.normalize(word).contains(constraint.prefix)) //片段已经归一化
+        {
+            return true;
+        }
+        for(String key: keys)
+        {
+            if(key.startsWith(constraint.prefixPy) && constraint.accept(word))
+            {
+                return true;
+            }
+        }
+        if(constraint.bFullAscii && null != subKeys)
+        {
+            for(String key: subKeys)
+            {
+                if(key.startsWith(constraint.prefix))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
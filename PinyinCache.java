@@ -0,0 +1,70 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @description 词语展开结果（全拼、简拼和简拼子串）的LRU缓存，增量reload时新增词语的展开结果被缓存，
+ *              之后这些词语被删除时无需重新展开；读音表变化时缓存自动失效
+ * @author fengliangcheng
+ * @update 2026-10-19 下午7:45:18 
+ */
+
+final class PinyinCache {
+    private final LinkedHashMap<String, String[][]> entries_; //词语->{全拼和简拼, 简拼子串}，按访问顺序淘汰
+    private Map<Character, List<String>> pinyinTable_; //缓存结果所对应的读音表
+    private PinyinExpander expander_; //与读音表对应的展开器
+    private final boolean withSub_; //是否需要简拼子串
+
+    /**
+     * constructors of the class
+     * @param capacity 最多缓存的词语个数
+     * @param withSub 是否需要简拼子串
+     */
+    PinyinCache(final int capacity, final boolean withSub)
+    {
+        withSub_ = withSub;
+        entries_ = new LinkedHashMap<String, String[][]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String[][]> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @description 获取词语的展开结果，没有缓存则展开后缓存
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:47:02
+     * @param word 词语
+     * @param pyTable 当前使用的读音表
+     * @return {全拼和简拼, 简拼子串}，不需要简拼子串时第二个元素为空数组
+     */
+    synchronized String[][] expand(final String word, final Map<Character, List<String>> pyTable)
+    {
+        if(pyTable != pinyinTable_) //读音表变化，之前的展开结果全部作废
+        {
+            entries_.clear();
+            pinyinTable_ = pyTable;
+            expander_ = new PinyinExpander(pyTable);
+        }
+        String[][] cached = entries_.get(word);
+        if(null != cached)
+        {
+            return cached;
+        }
+
+        ArrayList<String> keys = new ArrayList<String>();
+        ArrayList<String> subKeys = withSub_ ? new ArrayList<String>() : null;
+        expander_.expand(word, keys, subKeys);
+        String[][] result = new String[2][];
+        result[0] = keys.toArray(new String[keys.size()]);
+        result[1] = withSub_ ? subKeys.toArray(new String[subKeys.size()]) : new String[0];
+        entries_.put(word, result);
+        return result;
+    }
+}
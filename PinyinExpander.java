@@ -0,0 +1,302 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * @description 将词语展开为全拼、简拼以及简拼子串（汉字常有多个读音，每个读音组合都要展开），
+ *              内部复用StringBuilder，非线程安全，每个构建过程使用一个实例
+ * @author fengliangcheng
+ * @update 2026-10-19 下午5:02:44 
+ */
+
+class PinyinExpander {
+    private final Map<Character, List<String>> pinyinTable; //存储汉字->读音的映射表
+    private final Vector<StringBuilder> pyVec = new Vector<StringBuilder>(); //保存一个词的所有全拼读音（汉字常有多个读音）
+    private final Vector<StringBuilder> tmpPyVec = new Vector<StringBuilder>();
+    private final Vector<StringBuilder> pyShortVec = new Vector<StringBuilder>(); //保存一个词的所有简拼读音（汉字常有多个读音）
+    private final Vector<StringBuilder> tmpShortVec = new Vector<StringBuilder>();
+
+    /**
+     * constructors of the class
+     * @param pyTable 存储汉字->读音的映射表
+     */
+    PinyinExpander(final Map<Character, List<String>> pyTable)
+    {
+        pinyinTable = pyTable;
+    }
+
+    /**
+     * @description 将一个词展开为所有读音组合的全拼和简拼，以及简拼子串
+     * @author fengliangcheng
+     * @update 2013-7-3 上午10:12:40
+     * @param word 需要展开的词语
+     * @param keys 保存全拼和简拼（先全拼后简拼，可能有重复）
+     * @param subKeys 保存简拼去掉开头若干个字符后的子串，为null时不生成
+     */
+    void expand(final String word, List<String> keys, List<String> subKeys)
+    {
+        for(int i = 0; i < word.length(); i++)//遍历该词的每个字
+        {
+            char rawCh = word.charAt(i);
+            char ch = PrefixConstraint.fullToHalf(rawCh); //全角转化为半角
+            List<String> pyList = pinyinTable.get((Character)ch);
+            if(null == pyList || 0 == pyList.size()) //该字不是汉字
+            {
+                if(ch >= 'A' && ch <= 'Z')
+                {
+                    ch = (char)(ch + 32);
+                }
+
+                if(0 == pyShortVec.size())
+                {
+                    StringBuilder sb = new StringBuilder();
+                    sb.append(ch);
+                    pyVec.add(sb); //全拼字符串
+
+                    StringBuilder ssb = new StringBuilder();
+                    ssb.append(ch);
+                    pyShortVec.add(ssb); //简拼字符串
+                }
+                else
+                {
+                    for(int k = 0; k < pyVec.size(); k++)
+                    {
+                        StringBuilder strBuilder = pyVec.get(k);
+                        strBuilder.append(ch);
+                    }
+
+                    for(int k = 0; k < pyShortVec.size(); k++)
+                    {
+                        StringBuilder strBuilder = pyShortVec.get(k);
+                        strBuilder.append(ch);
+                    }
+                }
+            }
+            else //该字是汉字
+            {
+                if(0 == pyShortVec.size())
+                {
+                    for(String pinYin: pyList) //多个读音都要存储，支持多音字匹配
+                    {
+                        pyVec.add(new StringBuilder(pinYin));
+
+                        char firstCh = pinYin.charAt(0);
+                        StringBuilder sb = new StringBuilder();
+                        sb.append(firstCh);
+                        pyShortVec.add(sb);
+                    }
+                }
+                else
+                {
+                    for(int index = 0; index < pyList.size(); index++) //遍历多个读音
+                    {
+                        String pinYin = pyList.get(index);
+                        for(StringBuilder sb: pyVec)
+                        {
+                            if(pyList.size() > (index + 1)) //前面pyList.size()-1个读音，都必须得生成新的StringBuilder对象
+                            {//因为多个读音，导致数组的元素个数必须增加
+                                StringBuilder nsb = new StringBuilder(sb);
+                                nsb.append(pinYin);
+                                tmpPyVec.add(nsb);
+                            }
+                            else //对于最后一个读音，重复利用之前的StringBuilder对象
+                            {
+                                sb.append(pinYin);
+                                tmpPyVec.add(sb);
+                            }
+                        }
+
+                        for(StringBuilder tsb: pyShortVec)
+                        {
+                            if(pyList.size() > (index + 1)) //前面pyList.size()-1个读音，都必须得生成新的StringBuilder对象
+                            {
+                                StringBuilder nsb = new StringBuilder(tsb);
+                                nsb.append(pinYin.charAt(0));
+                                tmpShortVec.add(nsb);
+                            }
+                            else //对于最后一个读音，重复利用之前的StringBuilder对象
+                            {
+                                tsb.append(pinYin.charAt(0));
+                                tmpShortVec.add(tsb);
+                            }
+                        }
+                    }
+                    pyVec.clear();
+                    for(StringBuilder sb: tmpPyVec)
+                    {
+                        pyVec.add(sb);
+                    }
+                    tmpPyVec.clear();
+
+                    pyShortVec.clear();
+                    for(StringBuilder sb: tmpShortVec)
+                    {
+                        pyShortVec.add(sb);
+                    }
+                    tmpShortVec.clear();
+                }
+            }
+        }
+
+        for(StringBuilder sb: pyVec)//全拼读音
+        {
+            keys.add(sb.toString());
+        }
+
+        for(StringBuilder sb: pyShortVec)//简拼读音
+        {
+            String str = sb.toString();
+            keys.add(str);
+            if(null != subKeys)
+            {
+                for(int i = 1; i < str.length(); i++) //获取所有简拼子串
+                {
+                    subKeys.add(str.substring(i));
+                }
+            }
+        }
+        pyVec.clear(); //在下一次展开前清空
+        pyShortVec.clear(); //在下一次展开前清空
+    }
+
+    /**
+     * @description 词语在按长度优先遍历中第一次出现的拼音串：所有以查询拼音串开头的拼音串中最短、同长度字典序最小的那个
+     * @author fengliangcheng
+     * @update 2026-10-21 下午8:08:30
+     * @param word 词语
+     * @param py 查询的拼音串
+     * @param keys 展开全拼和简拼的缓冲区
+     * @param subKeys 不为null时在简拼子串中查找（简拼子串索引）
+     * @return 拼音串，没有以py开头的返回空串
+     */
+    String firstKey(final String word, final String py, List<String> keys, List<String> subKeys)
+    {
+        if(null == subKeys)
+        {
+            return shortestKey(word, py); //不用展开所有读音组合
+        }
+        keys.clear();
+        subKeys.clear();
+        expand(word, keys, subKeys);
+        String best = null;
+        for(String key: subKeys)
+        {
+            if(key.startsWith(py) && (null == best || key.length() < best.length()
+                                      || (key.length() == best.length() && key.compareTo(best) < 0)))
+            {
+                best = key;
+            }
+        }
+        return (null == best) ? "" : best;
+    }
+
+    /**
+     * @description 不展开所有读音组合，直接求词语以py开头的最短（同长度字典序最小）的全拼或简拼：
+     *              简拼不比全拼长，长度相同时全拼也是一个简拼，所以简拼能以py开头时取每个位置最小的首字母即可；
+     *              否则只枚举与py一致的前几个字的读音，py匹配完之后每个字取最短、同长度字典序最小的读音
+     * @author fengliangcheng
+     * @update 2026-10-21 下午8:40:16
+     * @param word 词语
+     * @param py 查询的拼音串
+     * @return 拼音串，没有以py开头的返回空串，与展开后逐个比较的结果相同
+     */
+    private String shortestKey(final String word, final String py)
+    {
+        int n = word.length();
+        List<List<String>> readings = new ArrayList<List<String>>(n);
+        for(int i = 0; i < n; i++)
+        {
+            char ch = PrefixConstraint.fullToHalf(word.charAt(i));
+            List<String> pyList = pinyinTable.get((Character)ch);
+            if(null == pyList || 0 == pyList.size()) //不是汉字，全拼和简拼都是字符本身
+            {
+                ch = (ch >= 'A' && ch <= 'Z') ? (char)(ch + 32) : ch;
+                pyList = Collections.singletonList(String.valueOf(ch));
+            }
+            readings.add(pyList);
+        }
+
+        if(py.length() <= n)
+        {
+            StringBuilder initials = new StringBuilder(n);
+            for(int i = 0; i < n; i++)
+            {
+                char best = 0;
+                for(String pinYin: readings.get(i))
+                {
+                    char first = pinYin.charAt(0);
+                    if((i < py.length()) ? (first == py.charAt(i)) : (0 == best || first < best))
+                    {
+                        best = first;
+                    }
+                }
+                if(0 == best)
+                {
+                    break; //简拼无法以py开头
+                }
+                initials.append(best);
+            }
+            if(initials.length() == n)
+            {
+                return initials.toString();
+            }
+        }
+
+        String best = null;
+        List<String> partials = Collections.singletonList(""); //前几个字的全拼，都是py的真前缀
+        for(int i = 0; i < n && !partials.isEmpty(); i++)
+        {
+            List<String> next = new ArrayList<String>();
+            for(String partial: partials)
+            {
+                for(String pinYin: readings.get(i))
+                {
+                    String head = partial + pinYin;
+                    if(head.length() < py.length())
+                    {
+                        if(py.startsWith(head))
+                        {
+                            next.add(head);
+                        }
+                    }
+                    else if(head.startsWith(py))
+                    {
+                        String key = head + shortestTail(readings, i + 1);
+                        if(null == best || key.length() < best.length()
+                           || (key.length() == best.length() && key.compareTo(best) < 0))
+                        {
+                            best = key;
+                        }
+                    }
+                }
+            }
+            partials = next;
+        }
+        return (null == best) ? "" : best;
+    }
+
+    /**
+     * @description 从某个字开始，每个字取最短、同长度字典序最小的读音；各字读音的长度固定，逐字取最小即是整体最小
+     */
+    private static String shortestTail(final List<List<String>> readings, final int from)
+    {
+        StringBuilder tail = new StringBuilder();
+        for(int i = from; i < readings.size(); i++)
+        {
+            String best = null;
+            for(String pinYin: readings.get(i))
+            {
+                if(null == best || pinYin.length() < best.length()
+                   || (pinYin.length() == best.length() && pinYin.compareTo(best) < 0))
+                {
+                    best = pinYin;
+                }
+            }
+            tail.append(best);
+        }
+        return tail.toString();
+    }
+}
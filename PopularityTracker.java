@@ -0,0 +1,306 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @description 在线学习词语的热度：用户选中的联想结果计入分条带的count-min sketch，记录时只做几次原子加，不加锁、不分配对象；
+ *              后台周期性地对计数按半衰期衰减，并从最近被选中的词语和上一轮的热门词语中估算出每个词典的热门词语，
+ *              生成不可变的PopularSet供查询时使用
+ * @author fengliangcheng
+ * @update 2026-10-26 下午3:40:15
+ */
+
+final class PopularityTracker {
+    private static final int DEPTH = 4; //sketch的行数（哈希函数个数）
+    private static final int WIDTH = 1 << 12; //每行的计数器个数
+    private static final int STRIPES = 4; //条带个数，不同线程写不同的条带，减少缓存行争用
+    private static final long SCALE = 1 << 10; //一次选中计为SCALE，衰减时保留小数部分
+    private static final int RECENT_SIZE = 1 << 11; //每个条带最近被选中词语的环形缓冲区大小
+    private static final int PADDING = 8; //相邻写入位置间隔的long个数，使每个条带的写入位置独占一个64字节的缓存行
+    static final int TOP_K = 128; //每个词典最多保留的热门词语个数
+    static final double MIN_SCORE = 2.0; //衰减后的选中次数不少于该值才算热门
+
+    private final AtomicLongArray counters_; //STRIPES * DEPTH * WIDTH个计数器
+    private final AtomicReferenceArray<String> recent_; //每个条带一个环形缓冲区，最近被选中的词典名和词语交替存放，作为热门词语的候选
+    private final AtomicLongArray recentWrite_; //每个条带的环形缓冲区下一个写入位置
+    private final long[] recentRead_; //后台线程上次读到的每个条带的位置，只在后台线程访问
+    private Set<String> candidates_; //上一轮的热门候选，只在后台线程访问
+
+    /**
+     * @description 某个词典的热门词语及其每个拼音串，构建后不可变
+     * @author fengliangcheng
+     * @update 2026-10-21 上午9:42:30
+     */
+    static final class PopularSet
+    {
+        private final String[] words_; //按热度从高到低
+        private final double[] scores_;
+        private final String[][] keys_; //每个词语的全拼和简拼
+        private final String[][] subKeys_; //每个词语的简拼子串
+
+        PopularSet(final String[] words, final double[] scores, final String[][] keys, final String[][] subKeys)
+        {
+            words_ = words;
+            scores_ = scores;
+            keys_ = keys;
+            subKeys_ = subKeys;
+        }
+
+        /**
+         * @description 按热度从高到低找出匹配前缀且仍在词典中的热门词语
+         * @author fengliangcheng
+         * @update 2026-10-21 上午9:45:18
+         * @param constraint 编译后的输入前缀
+         * @param dictWords 当前词典的所有词语
+         * @param withSub 是否也按简拼子串匹配
+         * @param count 最多条数
+         * @param set_result 匹配结果保存的地方
+         */
+        void collect(final PrefixConstraint constraint, final Set<String> dictWords, final boolean withSub,
+                     final int count, Set<String> set_result)
+        {
+            for(int i = 0; i < words_.length && set_result.size() < count; i++)
+            {
+                String word = words_[i];
+                if(!dictWords.contains(word))
+                {
+                    continue; //词典reload后已经删除
+                }
+                if(startsWithAny(keys_[i], constraint.prefixPy) && constraint.accept(word))
+                {
+                    set_result.add(word);
+                }
+                else if(withSub && startsWithAny(subKeys_[i], constraint.prefix) && constraint.inCategory(word))
+                {
+                    set_result.add(word);
+                }
+            }
+        }
+
+        private static boolean startsWithAny(final String[] keys, final String prefix)
+        {
+            for(String key: keys)
+            {
+                if(key.startsWith(prefix))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @description 一个热门候选
+     */
+    private static final class Candidate
+    {
+        final String key; //"词典名\0词语"
+        final String word;
+        final double score; //衰减后的选中次数
+
+        Candidate(final String k, final String w, final double s)
+        {
+            key = k;
+            word = w;
+            score = s;
+        }
+    }
+
+    /**
+     * constructors of the class
+     */
+    PopularityTracker()
+    {
+        counters_ = new AtomicLongArray(STRIPES * DEPTH * WIDTH);
+        recent_ = new AtomicReferenceArray<String>(STRIPES * RECENT_SIZE * 2);
+        recentWrite_ = new AtomicLongArray(STRIPES * PADDING);
+        recentRead_ = new long[STRIPES];
+        candidates_ = new HashSet<String>();
+    }
+
+    /**
+     * @description 记录一次选中，只做DEPTH+1次原子加和两次写入，都在当前线程的条带中，可以在请求线程上调用
+     * @author fengliangcheng
+     * @update 2026-10-26 下午3:42:30
+     * @param dictName 词典名称
+     * @param word 被选中的词语
+     */
+    void record(final String dictName, final String word)
+    {
+        int h = hash(dictName, word);
+        int stripe = (int)(Thread.currentThread().getId() & (STRIPES - 1));
+        for(int row = 0; row < DEPTH; row++)
+        {
+            counters_.getAndAdd(indexOf(stripe, row, h), SCALE);
+        }
+        //词典名和词语分两次写入，与后台读取并发时可能配错，配错的组合估算的次数达不到MIN_SCORE，会被筛掉
+        int slot = (stripe * RECENT_SIZE + (int)(recentWrite_.getAndIncrement(stripe * PADDING) & (RECENT_SIZE - 1))) * 2;
+        recent_.set(slot, dictName);
+        recent_.set(slot + 1, word);
+    }
+
+    /**
+     * @description 词典名和词语组合的哈希值，不拼接字符串
+     */
+    private static int hash(final String dictName, final String word)
+    {
+        return dictName.hashCode() * 0x9E3779B9 + word.hashCode();
+    }
+
+    /**
+     * @description 估算某个词语衰减后的选中次数：各行取最小值，每行是所有条带之和
+     * @author fengliangcheng
+     * @update 2026-10-26 下午3:44:08
+     * @param dictName 词典名称
+     * @param word 词语
+     * @return 衰减后的选中次数
+     */
+    double estimate(final String dictName, final String word)
+    {
+        int h = hash(dictName, word);
+        long min = Long.MAX_VALUE;
+        for(int row = 0; row < DEPTH; row++)
+        {
+            long sum = 0;
+            for(int stripe = 0; stripe < STRIPES; stripe++)
+            {
+                sum += counters_.get(indexOf(stripe, row, h));
+            }
+            min = Math.min(min, sum);
+        }
+        return (double)min / SCALE;
+    }
+
+    /**
+     * @description 第row行的哈希位置：由两个哈希值组合出DEPTH个哈希函数
+     */
+    private static int indexOf(final int stripe, final int row, final int hash)
+    {
+        int h1 = hash ^ (hash >>> 16);
+        int h2 = (hash * 0x9E3779B9) | 1;
+        int column = (h1 + row * h2) & (WIDTH - 1);
+        return (stripe * DEPTH + row) * WIDTH + column;
+    }
+
+    /**
+     * @description 所有计数乘以衰减系数，与记录线程并发时用CAS保证不丢失计数；只在后台线程调用
+     * @author fengliangcheng
+     * @update 2026-10-21 上午9:53:20
+     * @param factor 衰减系数，(0,1]
+     */
+    void decay(final double factor)
+    {
+        if(factor >= 1.0)
+        {
+            return;
+        }
+        for(int i = 0; i < counters_.length(); i++)
+        {
+            while(true)
+            {
+                long old = counters_.get(i);
+                if(0 == old || counters_.compareAndSet(i, old, (long)(old * factor)))
+                {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @description 重新估算热门词语，为每个词典生成新的PopularSet；只在后台线程调用
+     * @author fengliangcheng
+     * @update 2026-10-21 上午9:56:41
+     * @param pyTable 当前的读音表，用于展开热门词语的拼音串
+     * @param withSub 是否需要简拼子串
+     * @return 词典名称->热门词语
+     */
+    Map<String, PopularSet> rebuild(final Map<Character, List<String>> pyTable, final boolean withSub)
+    {
+        for(int stripe = 0; stripe < STRIPES; stripe++)
+        {
+            long write = recentWrite_.get(stripe * PADDING);
+            long from = Math.max(recentRead_[stripe], write - RECENT_SIZE); //落后太多时只看最近的部分
+            for(long i = from; i < write; i++)
+            {
+                int slot = (stripe * RECENT_SIZE + (int)(i & (RECENT_SIZE - 1))) * 2;
+                String dictName = recent_.get(slot);
+                String word = recent_.get(slot + 1);
+                if(null != dictName && null != word)
+                {
+                    candidates_.add(dictName + '\0' + word);
+                }
+            }
+            recentRead_[stripe] = write;
+        }
+
+        //按词典分组，估算并筛掉不够热门的候选
+        Map<String, List<Candidate>> byDict = new HashMap<String, List<Candidate>>();
+        Set<String> kept = new HashSet<String>();
+        for(String key: candidates_)
+        {
+            int sep = key.indexOf('\0');
+            String dictName = key.substring(0, sep);
+            double score = estimate(dictName, key.substring(sep + 1));
+            if(score < MIN_SCORE)
+            {
+                continue;
+            }
+            List<Candidate> list = byDict.get(dictName);
+            if(null == list)
+            {
+                list = new ArrayList<Candidate>();
+                byDict.put(dictName, list);
+            }
+            list.add(new Candidate(key, key.substring(sep + 1), score));
+        }
+
+        Map<String, PopularSet> result = new HashMap<String, PopularSet>();
+        PinyinExpander expander = new PinyinExpander(pyTable);
+        ArrayList<String> keys = new ArrayList<String>();
+        ArrayList<String> subKeys = withSub ? new ArrayList<String>() : null;
+        for(Map.Entry<String, List<Candidate>> entry: byDict.entrySet())
+        {
+            List<Candidate> list = entry.getValue();
+            Collections.sort(list, new Comparator<Candidate>() {
+                public int compare(Candidate a, Candidate b)
+                {
+                    int cmp = Double.compare(b.score, a.score);
+                    return (0 != cmp) ? cmp : a.word.compareTo(b.word);
+                }
+            });
+            int n = Math.min(list.size(), TOP_K);
+            String[] words = new String[n];
+            double[] scores = new double[n];
+            String[][] wordKeys = new String[n][];
+            String[][] wordSubKeys = new String[n][];
+            for(int i = 0; i < n; i++)
+            {
+                Candidate item = list.get(i);
+                kept.add(item.key);
+                words[i] = item.word;
+                scores[i] = item.score;
+                keys.clear();
+                if(null != subKeys)
+                {
+                    subKeys.clear();
+                }
+                expander.expand(words[i], keys, subKeys);
+                wordKeys[i] = keys.toArray(new String[keys.size()]);
+                wordSubKeys[i] = (null == subKeys) ? new String[0] : subKeys.toArray(new String[subKeys.size()]);
+            }
+            result.put(entry.getKey(), new PopularSet(words, scores, wordKeys, wordSubKeys));
+        }
+        candidates_ = kept; //下一轮只需要在这些词语和新被选中的词语中挑选
+        return result;
+    }
+}
@@ -0,0 +1,510 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * @description 编译后的输入前缀：一次性完成拼音转换和汉字/拼音分割，并记录拼音串中每个汉字读音结束的位置，
+ *              供trie树在遍历时按位置剪枝，以及对匹配词语进行无需重复分割的校验
+ * @author fengliangcheng
+ * @update 2026-10-19 上午10:12:30
+ */
+
+class PrefixConstraint {
+    private static volatile char[] normalTable; //字符归一化表（繁体->简体），按字符编码直接下标，为null时不归一化
+
+    final String prefix; //输入前缀，繁体字已经归一化为简体
+    final String prefixPy; //输入前缀按第一个读音转化得到的拼音串
+    final boolean bFullAscii; //该前缀的所有字符都是ascii吗?若是，则无需对匹配结果进行校验
+    final boolean bFullChinese; //该前缀的所有字符都是非ascii吗？若是，则只需要简单地比较输入前缀是否为匹配结果的子串
+    private final Vector<String> elements; //混合输入按照汉字和连续拼音分割后的约束，比如：pufa银hang分割成:pufa 银 hang三个元素
+    private final char[] boundaryMarks; //boundaryMarks[i]不为0表示拼音串第i个位置是该汉字读音的结束位置
+    private final Map<Character, List<String>> pinyinTable; //存储汉字->读音的映射表
+    final long categoryMask; //只返回属于这些类别（任意一个）的词语，0表示不按类别过滤
+    final long markSignature; //所有(读音结束位置, 汉字)约束的签名，trie树据此跳过不可能满足的子树，0表示没有约束
+    private final Map<String, Long> categories; //词语->类别，不在其中的词语不属于任何类别
+
+    private PrefixConstraint(final String rawPrefix, final String py, final boolean fullAscii,
+                             final boolean fullChinese, Vector<String> elems, char[] marks,
+                             final Map<Character, List<String>> pyTable, final long mask,
+                             final Map<String, Long> wordCategories)
+    {
+        categoryMask = mask;
+        categories = wordCategories;
+        pinyinTable = pyTable;
+        prefix = rawPrefix;
+        prefixPy = py;
+        bFullAscii = fullAscii;
+        bFullChinese = fullChinese;
+        elements = elems;
+        boundaryMarks = marks;
+        long signature = 0;
+        for(int i = 0; null != marks && i < marks.length; i++)
+        {
+            if(0 != marks[i])
+            {
+                signature |= markBit(i, marks[i]);
+            }
+        }
+        markSignature = signature;
+    }
+
+    /**
+     * @description 编译输入前缀
+     * @author fengliangcheng
+     * @update 2026-10-19 上午10:15:02
+     * @param rawPrefix 输入前缀
+     * @param pinyinTable 汉字->读音的映射表
+     * @return 编译后的前缀约束
+     */
+    static PrefixConstraint compile(final String rawPrefix, final Map<Character, List<String>> pinyinTable)
+    {
+        String prefix = normalize(rawPrefix); //繁体输入按简体匹配，直接匹配和子串匹配也使用归一化后的前缀
+        int ascii_count = 0; //前缀中包含的ascii字符个数
+        for(int i = 0; i < prefix.length(); i++)
+        {
+            char ch = prefix.charAt(i);
+            if(ch > 0 && ch < 128)
+            {
+                ascii_count++;
+            }
+        }
+        boolean fullAscii = (prefix.length() == ascii_count);
+        boolean fullChinese = (0 == ascii_count);
+
+        char[] marks = null;
+        if(!fullAscii)
+        {
+            marks = new char[prefix.length() * 8 + 1]; //单个汉字读音不超过6个字母，足够容纳
+        }
+        String py = convertSentenceToPy(prefix, pinyinTable, marks); //将前缀转化为拼音串
+
+        Vector<String> elems = null;
+        if(!fullAscii && !fullChinese) //混合输入，预先分割好，避免对每个匹配词语重复分割
+        {
+            elems = new Vector<String>();
+            separateEngChi(prefix.toLowerCase(), pinyinTable, elems);
+        }
+        return new PrefixConstraint(prefix, py, fullAscii, fullChinese, elems, marks, pinyinTable, 0, null);
+    }
+
+    /**
+     * @description 在该前缀的基础上增加类别过滤
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:12:40
+     * @param mask 类别位，词语属于其中任意一个即可，0表示不过滤
+     * @param wordCategories 词典中词语->类别
+     * @return 新的前缀约束
+     */
+    PrefixConstraint withCategories(final long mask, final Map<String, Long> wordCategories)
+    {
+        return new PrefixConstraint(prefix, prefixPy, bFullAscii, bFullChinese, elements, boundaryMarks,
+                                    pinyinTable, mask, wordCategories);
+    }
+
+    /**
+     * @description 简拼子串匹配的结果无需校验拼音，只按类别过滤
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:14:02
+     * @return 只校验类别的约束，没有类别过滤时返回null
+     */
+    PrefixConstraint categoryFilter()
+    {
+        if(0 == categoryMask)
+        {
+            return null;
+        }
+        return new PrefixConstraint(prefix, prefix, true, false, null, null, pinyinTable, categoryMask, categories);
+    }
+
+    /**
+     * @description 词语是否属于要求的类别
+     * @param word 词语
+     * @return true-属于或者不按类别过滤 false-不属于
+     */
+    boolean inCategory(final String word)
+    {
+        if(0 == categoryMask)
+        {
+            return true;
+        }
+        Long flags = (null == categories) ? null : categories.get(word);
+        return null != flags && 0 != (flags.longValue() & categoryMask);
+    }
+
+    /**
+     * @description 根据子树所有词语类别的并集判断子树中是否可能有满足要求的词语
+     * @param subtreeMask 子树中所有词语类别的并集
+     * @return true-可能有 false-一定没有，整棵子树都可以跳过
+     */
+    boolean mayContain(final long subtreeMask)
+    {
+        return 0 == categoryMask || 0 != (subtreeMask & categoryMask);
+    }
+
+    /**
+     * @description 编译时使用的汉字->读音映射表
+     */
+    Map<Character, List<String>> pinyinTable()
+    {
+        return pinyinTable;
+    }
+
+    /**
+     * @description 某个(读音结束位置, 汉字)在签名中的位
+     * @param pyIndex 读音在拼音串中的结束位置
+     * @param ch 归一化后的汉字
+     * @return 只有一位为1的长整数
+     */
+    static long markBit(final int pyIndex, final char ch)
+    {
+        int hash = (ch * 0x9E3779B1) ^ (pyIndex * 0x85EBCA6B);
+        return 1L << ((hash ^ (hash >>> 15)) >>> 26);
+    }
+
+    /**
+     * @description 获取拼音串某个位置上结束读音的汉字
+     * @author fengliangcheng
+     * @update 2026-10-19 上午10:20:41
+     * @param pyIndex 拼音串中的位置（已匹配的字符个数）
+     * @return 该位置结束读音的汉字，没有则返回0
+     */
+    char markAt(final int pyIndex)
+    {
+        if(null == boundaryMarks || pyIndex >= boundaryMarks.length)
+        {
+            return 0;
+        }
+        return boundaryMarks[pyIndex];
+    }
+
+    /**
+     * @description 校验在trie树上匹配到的词语是否满足该前缀
+     * @author fengliangcheng
+     * @update 2026-10-19 上午10:22:17
+     * @param word 匹配到的词语
+     * @return true-通过校验 false-校验失败
+     */
+    boolean accept(final String word)
+    {
+        if(!inCategory(word))
+        {
+            return false;
+        }
+        if(bFullAscii) //输入前缀没有汉字，无需校验
+        {
+            return true;
+        }
+        else if(bFullChinese) //输入前缀都是汉字，检查匹配词语是否以它为前缀即可
+        {
+            return filter(prefix, word);
+        }
+        return doVerify(elements, word.toLowerCase()); //一个一个字符进行校验
+    }
+
+    /**
+     * @description 对常见字符进行全角到半角的转换
+     * @author fengliangcheng
+     * @update 2013-7-2 下午8:45:49
+     * @param rawCh 原始字符
+     * @return 返回对应的半角字符
+     */
+    static final char fullToHalf(final char rawCh)
+    {
+        switch(rawCh)
+        {
+            case '（': return '(';
+            case '）': return ')';
+            case '、': return '.';
+            case '，': return ',';
+            case '。': return '.';
+            default: return rawCh;
+        }
+    }
+
+    /**
+     * @description 设置字符归一化表，之后编译的前缀和校验的词语都按归一化后的字符比较，索引中只需要保存简体词语。
+     *              前缀按归一化后汉字的第一个读音编译，而繁体词语按繁体字的读音展开，简体字的第一个读音不是繁体字的读音时
+     *              （如脚=jue,jiao而腳=jiao），归一化后反而匹配不到繁体词语，这样的字不归一化
+     * @author fengliangcheng
+     * @update 2026-10-27 上午10:15:40
+     * @param mapping 字符->归一化后的字符（繁体->简体），为null或者空时不归一化
+     * @param pinyinTable 汉字->读音，用于排除读音不一致的字
+     * @return 因读音不一致而没有归一化的字
+     */
+    static List<Character> setNormalization(final Map<Character, Character> mapping, final Map<Character, List<String>> pinyinTable)
+    {
+        List<Character> rejected = new ArrayList<Character>();
+        if(null == mapping || mapping.isEmpty())
+        {
+            normalTable = null;
+            return rejected;
+        }
+        char[] table = new char[Character.MAX_VALUE + 1];
+        for(int i = 0; i < table.length; i++)
+        {
+            table[i] = (char)i;
+        }
+        for(Map.Entry<Character, Character> entry: mapping.entrySet())
+        {
+            List<String> from = pinyinTable.get(entry.getKey());
+            List<String> to = pinyinTable.get(entry.getValue());
+            if(null != from && (null == to || !from.contains(to.get(0))))
+            {
+                rejected.add(entry.getKey());
+                continue;
+            }
+            table[entry.getKey().charValue()] = entry.getValue().charValue();
+        }
+        normalTable = table;
+        return rejected;
+    }
+
+    /**
+     * @description 字符归一化，直接按字符编码查表
+     * @param ch 原始字符
+     * @return 归一化后的字符，没有归一化表时返回原始字符
+     */
+    static final char normalize(final char ch)
+    {
+        char[] table = normalTable;
+        return (null == table) ? ch : table[ch];
+    }
+
+    /**
+     * @description 字符串归一化
+     * @param word 原始字符串
+     * @return 归一化后的字符串，没有字符需要归一化时返回原对象，不分配内存
+     */
+    static String normalize(final String word)
+    {
+        char[] table = normalTable;
+        if(null == table)
+        {
+            return word;
+        }
+        int i = 0;
+        while(i < word.length() && table[word.charAt(i)] == word.charAt(i))
+        {
+            i++;
+        }
+        if(i == word.length())
+        {
+            return word;
+        }
+        char[] chars = word.toCharArray();
+        for(; i < chars.length; i++)
+        {
+            chars[i] = table[chars[i]];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @description 将执行前缀匹配的字符串转化为拼音串（trie树上插入的都是拼音串），同时记录每个汉字读音的结束位置
+     * @author fengliangcheng
+     * @update 2013-7-2 下午8:46:51
+     * @param word 执行前缀匹配的字符串
+     * @param pinyinTable 汉字->读音的映射表
+     * @param marks 保存汉字读音结束位置的数组，可以为null
+     * @return 对应的拼音字符串
+     */
+    private static String convertSentenceToPy(final String word, final Map<Character, List<String>> pinyinTable, char[] marks)
+    {
+        StringBuilder strBuilder = new StringBuilder();
+        for(int i = 0; i < word.length(); i++)
+        {
+            char ch = normalize(fullToHalf(word.charAt(i)));
+            List<String> pyList = pinyinTable.get((Character)ch);
+            if(null == pyList)
+            {
+                if(ch >= 'A' && ch <= 'Z') //大写转化为小写
+                {
+                    ch += 32;
+                }
+                strBuilder.append(ch);
+            }
+            else
+            {
+                String pinYin = pyList.get(0);
+                strBuilder.append(pinYin);
+                if(null != marks && strBuilder.length() < marks.length)
+                {
+                    marks[strBuilder.length()] = ch; //记录该汉字读音的结束位置
+                }
+            }
+        }
+        return strBuilder.toString();
+    }
+
+    /**
+     * @description 将输入前缀串按照连续拼音和汉字分割开，比如：pufa银hang分割成:pufa 银 hang三个元素
+     * @author fengliangcheng
+     * @update 2013-7-2 下午8:49:34
+     * @param word 输入前缀
+     * @param pinyinTable 汉字->读音的映射表
+     * @param vec_result 保存分割结果
+     */
+    private static void separateEngChi(final String word, final Map<Character, List<String>> pinyinTable, Vector<String> vec_result)
+    {
+        StringBuilder tmpPy = new StringBuilder();
+
+        for(int i = 0; i < word.length(); i++)
+        {
+            char ch = normalize(fullToHalf(word.charAt(i)));
+            List<String> pyList = pinyinTable.get((Character)ch);
+            if(null == pyList) //当前也是一个ASCII字符
+            {
+                tmpPy.append(ch);
+            }
+            else
+            {
+                if(tmpPy.length() > 0) //连续的ASCII字符
+                {
+                    vec_result.add(tmpPy.toString());
+                    tmpPy.delete(0, tmpPy.length());
+                }
+                vec_result.add(String.valueOf(ch)); //一个汉字，归一化后的
+            }
+        }
+
+        if(tmpPy.length() > 0)
+        {
+            vec_result.add(tmpPy.toString());
+        }
+    }
+
+    /**
+     * @description 将匹配结果和输入的前缀进行校验，通过校验的匹配词语才有效
+     * @author fengliangcheng
+     * @update 2013-7-2 下午8:56:32
+     * @param inputWord 输入的前缀，按照汉字和连续拼音分割后得到的数组，比如：pufa银hang分割成:pufa 银 hang三个元素
+     * @param sampleWords 匹配到的某个词语
+     * @return true-通过校验,false-校验失败
+     */
+    private boolean doVerify(Vector<String> inputWord, final String sampleWords)
+    {
+        int j = 0; //当前匹配到数组中第几个元素
+        int start = 0;
+        int len = sampleWords.length();
+        for(int i = 0; i < len && j < inputWord.size() && start < (inputWord.elementAt(j)).length();)
+        {
+            String inputElement = inputWord.elementAt(j);
+            if((inputWord.size() == (j + 1)) && (inputElement.charAt(0) > 0 && inputElement.charAt(0) < 128))
+            {
+                return true;
+            }
+            char sample_curr = sampleWords.charAt(i);
+            char input_curr = inputElement.charAt(start);
+            if(sample_curr > 0 && sample_curr < 128) //匹配词语当前校验位置的字符是ASCII字符
+            {
+                if(input_curr != sample_curr)
+                {
+                    return false;
+                }
+                else
+                {
+                    i++;
+                    if(start < inputElement.length() - 1)
+                    {
+                        start++;
+                    }
+                    else
+                    {
+                        j++; //指向下一个元素，比如"银"
+                        start = 0;
+                    }
+                }
+            }
+            else //匹配词语当前校验位置的字符是汉字
+            {
+                if(input_curr > 0 && input_curr < 128) //输入前缀当前校验位置的字符是拼音
+                {
+                    char currChineseWord = normalize(sampleWords.charAt(i));
+                    List<String> pyList = pinyinTable.get((Character)currChineseWord);
+                    if(null == pyList)
+                    {
+                        return false;
+                    }
+                    int currInputLeftLen = inputElement.length() - start;
+                    int index = 0;
+                    for(; index < pyList.size(); index++)
+                    {
+                        String pinYin = pyList.get(index);
+                        int pyLen = pinYin.length();
+                        if(currInputLeftLen >= pyLen && inputElement.startsWith(pinYin, start))
+                        {
+                            i += 1;
+                            if(inputElement.length() == (pyLen + start))
+                            {
+                                j++;
+                                start = 0;
+                            }
+                            else
+                            {
+                                start += pyLen;
+                            }
+                            break;
+                        }
+                    }
+                    if(pyList.size() == index)
+                    {
+                        return false;
+                    }
+                }
+                else //输入前缀当前校验位置的字符是汉字
+                {
+                    int currChineseLen = inputElement.length();
+                    if(startsWith(sampleWords, i, inputElement))
+                    {
+                        j++;
+                        start = 0;
+                        i += currChineseLen;
+                    }
+                    else
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @description 输入前缀全部是汉字，验证匹配词是否以它为前缀
+     * @author fengliangcheng
+     * @update 2013-7-3 上午9:07:36
+     * @param prefix 输入前缀（全部是汉字）
+     * @param dest 在trie树上匹配到的词语
+     * @return true-校验通过 false-校验不通过
+     */
+    private static boolean filter(final String prefix, final String dest)
+    {
+        return dest.length() >= prefix.length() && startsWith(dest, 0, prefix);
+    }
+
+    /**
+     * @description 词语从某个位置开始是否以归一化后的前缀开头，词语中的字符逐个归一化后比较，词典中的繁体词语也能匹配
+     * @param dest 匹配到的词语
+     * @param offset 词语中开始比较的位置
+     * @param prefix 已经归一化的前缀
+     * @return true-是 false-不是
+     */
+    private static boolean startsWith(final String dest, final int offset, final String prefix)
+    {
+        if(offset + prefix.length() > dest.length())
+        {
+            return false;
+        }
+        for(int i = 0; i < prefix.length(); i++)
+        {
+            if(normalize(dest.charAt(offset + i)) != prefix.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,290 @@
+package com.tcgroup.common.spell;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @description 接收流量之前的查询预热：回放查询日志中采集的真实前缀，没有日志时由每个词典的词语合成全拼、简拼、汉字、
+ *              汉字拼音混合以及简拼子串前缀，对所有已加载的词典逐轮查询，直到相邻几轮的中位数和p90延迟都稳定
+ *              （JIT已经编译了匹配的热点路径，缓存也已经填充），或者超出最长预热时间
+ * @author fengliangcheng
+ * @update 2026-10-24 上午10:15:20
+ */
+
+public class QueryWarmup {
+    private static final int SAMPLE_WORDS = 2000; //每个词典最多取多少个词语合成前缀
+    private static final int MAX_PREFIX_CHARS = 4; //合成前缀最多覆盖词语的前几个字
+    private static final int MAX_ROUND_QUERIES = 20000; //每轮最多查询的次数，日志很大时按步长抽取
+    private static final int MIN_ROUND_QUERIES = 1000; //每轮最少查询的次数，前缀很少时重复查询，否则单个查询的抖动就会影响分位数
+    private static final int MIN_ROUNDS = 3; //至少查询的轮数，前几轮还在解释执行
+    private static final int STABLE_ROUNDS = 2; //连续多少轮延迟变化都在容差之内才认为已经稳定
+    private static final double TOLERANCE = 0.1; //相邻两轮的中位数和p90延迟允许的相对变化
+    private static final int MAX_COUNT = 10; //每次查询的结果条数，与服务的默认条数相同
+
+    /**
+     * @description 预热的结果
+     */
+    public static final class Report
+    {
+        private final long durationMillis_; //预热耗时
+        private final int rounds_; //查询的轮数
+        private final long queries_; //查询的总次数
+        private final boolean stable_; //延迟是否已经稳定，为false表示超出最长预热时间后停止
+        private final long medianNanos_; //最后一轮的中位数延迟
+        private final long p90Nanos_; //最后一轮的p90延迟
+
+        Report(long durationMillis, int rounds, long queries, boolean stable, long medianNanos, long p90Nanos)
+        {
+            durationMillis_ = durationMillis;
+            rounds_ = rounds;
+            queries_ = queries;
+            stable_ = stable;
+            medianNanos_ = medianNanos;
+            p90Nanos_ = p90Nanos;
+        }
+
+        public long getDurationMillis() { return durationMillis_; }
+        public int getRounds() { return rounds_; }
+        public long getQueries() { return queries_; }
+        public boolean isStable() { return stable_; }
+        public long getMedianNanos() { return medianNanos_; }
+        public long getP90Nanos() { return p90Nanos_; }
+
+        public String toString()
+        {
+            return "warmup " + (stable_ ? "stabilized" : "timed out") + " after " + durationMillis_ + "ms, " + rounds_ + " rounds, "
+                   + queries_ + " queries, median " + medianNanos_ / 1000 + "us, p90 " + p90Nanos_ / 1000 + "us";
+        }
+    }
+
+    private final KBSmarter smarter_; //需要预热的实例
+    private final String[] dicts_; //每次查询的词典，与prefixes_一一对应
+    private final String[] prefixes_; //每次查询的前缀
+
+    /**
+     * constructors of the class
+     * @param smarter 需要预热的实例，词典应该已经加载
+     * @param queryLogPath 查询日志，每行一个前缀或者"词典名\t前缀"，没有词典名（或者词典未加载）时对所有词典查询；
+     *                     为null时合成前缀
+     */
+    public QueryWarmup(final KBSmarter smarter, final String queryLogPath)
+    {
+        smarter_ = smarter;
+        List<String> dicts = new ArrayList<String>();
+        List<String> prefixes = new ArrayList<String>();
+        Set<String> dictNames = smarter.loadedDictNames();
+        if(null != queryLogPath)
+        {
+            readQueryLog(queryLogPath, dictNames, dicts, prefixes);
+        }
+        else
+        {
+            for(String dictName: dictNames)
+            {
+                DictSnapshot snapshot = smarter.currentSnapshot(dictName);
+                if(null != snapshot)
+                {
+                    for(String prefix: synthesize(snapshot.words, smarter.pinyinTable()))
+                    {
+                        dicts.add(dictName);
+                        prefixes.add(prefix);
+                    }
+                }
+            }
+        }
+
+        //按步长抽取，保证每轮的耗时有上限，同时仍然覆盖日志的各个部分
+        int step = Math.max(1, (prefixes.size() + MAX_ROUND_QUERIES - 1) / MAX_ROUND_QUERIES);
+        int n = (prefixes.size() + step - 1) / step;
+        int repeat = (0 == n) ? 0 : (MIN_ROUND_QUERIES + n - 1) / n;
+        dicts_ = new String[n * repeat];
+        prefixes_ = new String[n * repeat];
+        for(int i = 0; i < dicts_.length; i++)
+        {
+            dicts_[i] = dicts.get(i % n * step);
+            prefixes_[i] = prefixes.get(i % n * step);
+        }
+    }
+
+    /**
+     * @description 读取查询日志，指定了已加载词典的行只查询该词典，其余的行对每个已加载的词典都查询一次
+     */
+    private static void readQueryLog(final String queryLogPath, final Set<String> dictNames, final List<String> dicts,
+                                     final List<String> prefixes)
+    {
+        final List<String[]> records = new ArrayList<String[]>();
+        try
+        {
+            DirectoryConfigure.readLines(new File(queryLogPath), new DirectoryConfigure.LineHandler() {
+                public void line(char[] buf, int off, int len)
+                {
+                    String record = new String(buf, off, len);
+                    int tab = record.indexOf('\t');
+                    String dictName = (tab < 0) ? null : record.substring(0, tab);
+                    String prefix = (tab < 0) ? record : record.substring(tab + 1);
+                    int end = prefix.indexOf('\t'); //可能还记录了条数等字段
+                    prefix = (end < 0) ? prefix : prefix.substring(0, end);
+                    if(prefix.length() > 0)
+                    {
+                        records.add(new String[] { dictName, prefix });
+                    }
+                }
+            });
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        for(String[] record: records)
+        {
+            if(null != record[0] && dictNames.contains(record[0]))
+            {
+                dicts.add(record[0]);
+                prefixes.add(record[1]);
+                continue;
+            }
+            for(String dictName: dictNames)
+            {
+                dicts.add(dictName);
+                prefixes.add(record[1]);
+            }
+        }
+    }
+
+    /**
+     * @description 由词典的部分词语合成前缀：每个词前1~MAX_PREFIX_CHARS个字的汉字前缀、全拼前缀、简拼前缀、
+     *              首字汉字其余拼音的混合前缀、最后一个字只输入声母的前缀，以及从第二个字开始的简拼子串
+     * @author fengliangcheng
+     * @update 2026-10-24 上午10:22:36
+     * @param words 词典的词语
+     * @param pyTable 汉字->读音的映射表
+     * @return 合成的前缀，保持生成顺序以便不同类型的查询交替出现
+     */
+    static Set<String> synthesize(final Set<String> words, final Map<Character, List<String>> pyTable)
+    {
+        LinkedHashSet<String> prefixes = new LinkedHashSet<String>();
+        int step = Math.max(1, words.size() / SAMPLE_WORDS);
+        Iterator<String> iter = words.iterator();
+        for(int i = 0; iter.hasNext(); i++)
+        {
+            String word = iter.next();
+            if(0 != i % step)
+            {
+                continue;
+            }
+            StringBuilder full = new StringBuilder();
+            StringBuilder jianpin = new StringBuilder();
+            int firstPyLen = 0; //第一个字拼音的长度
+            for(int j = 0; j < word.length() && j < MAX_PREFIX_CHARS; j++)
+            {
+                List<String> pys = pyTable.get(word.charAt(j));
+                if(null == pys || pys.isEmpty() || 0 == pys.get(0).length())
+                {
+                    if(0 == j)
+                    {
+                        prefixes.add(word.substring(0, Math.min(word.length(), MAX_PREFIX_CHARS))); //英文、数字等非汉字词语
+                    }
+                    break;
+                }
+                String py = pys.get(0);
+                prefixes.add(word.substring(0, j + 1));
+                if(j > 0)
+                {
+                    prefixes.add(word.substring(0, 1) + full.substring(firstPyLen) + py);
+                    prefixes.add(jianpin.substring(1) + py.charAt(0)); //简拼子串，走子串匹配
+                }
+                else
+                {
+                    firstPyLen = py.length();
+                }
+                full.append(py);
+                jianpin.append(py.charAt(0));
+                prefixes.add(full.toString());
+                prefixes.add(jianpin.toString());
+                if(py.length() > 1)
+                {
+                    prefixes.add(full.substring(0, full.length() - py.length() + 1));
+                }
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * @description 逐轮查询直到延迟稳定或者超出最长预热时间
+     * @author fengliangcheng
+     * @update 2026-10-24 上午10:30:12
+     * @param maxMillis 最长预热时间
+     * @return 预热的结果
+     */
+    public Report run(final long maxMillis)
+    {
+        long begin = System.nanoTime();
+        long deadline = begin + maxMillis * 1000000L;
+        long[] latencies = new long[prefixes_.length];
+        long lastMedian = 0;
+        long lastP90 = 0;
+        long median = 0;
+        long p90 = 0;
+        long queries = 0;
+        int rounds = 0;
+        int stableRounds = 0;
+        long sink = 0; //使用查询结果，避免被JIT当作无用代码消除
+        while(prefixes_.length > 0)
+        {
+            int n = 0;
+            for(; n < prefixes_.length && (0 != (n & 0xff) || System.nanoTime() < deadline); n++)
+            {
+                long start = System.nanoTime();
+                sink += smarter_.findMatch(dicts_[n], prefixes_[n], MAX_COUNT).size();
+                latencies[n] = System.nanoTime() - start;
+            }
+            queries += n;
+            if(n < prefixes_.length) //超时，这一轮不完整
+            {
+                break;
+            }
+            rounds++;
+            Arrays.sort(latencies);
+            median = latencies[n / 2];
+            p90 = latencies[(int)(n * 0.9)];
+            boolean stable = rounds > 1 && Math.abs(median - lastMedian) <= lastMedian * TOLERANCE
+                             && Math.abs(p90 - lastP90) <= lastP90 * TOLERANCE;
+            stableRounds = stable ? stableRounds + 1 : 0;
+            lastMedian = median;
+            lastP90 = p90;
+            if(rounds >= MIN_ROUNDS && stableRounds >= STABLE_ROUNDS)
+            {
+                break;
+            }
+        }
+        boolean stable = 0 == prefixes_.length || (rounds >= MIN_ROUNDS && stableRounds >= STABLE_ROUNDS);
+        if(sink < 0)
+        {
+            System.out.println(sink);
+        }
+        return new Report((System.nanoTime() - begin) / 1000000, rounds, queries, stable, median, p90);
+    }
+
+    /**
+     * @description 预热后查询：QueryWarmup [查询日志] [最长预热毫秒]，查询日志为"-"时合成前缀
+     * @author fengliangcheng
+     * @update 2026-10-24 上午10:36:48
+     * @param args 命令行参数
+     */
+    public static void main(String[] args)
+    {
+        String queryLog = (args.length >= 1 && !"-".equals(args[0])) ? args[0] : null;
+        long maxMillis = (args.length >= 2) ? Long.parseLong(args[1]) : 60000;
+        KBSmarter smarter = KBSmarter.getInstance(new FileConfigure(), true);
+        System.out.println("warm: " + smarter.isWarm());
+        smarter.warmUp(queryLog, maxMillis);
+        System.out.println("warm: " + smarter.isWarm());
+    }
+}
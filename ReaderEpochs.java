@@ -0,0 +1,134 @@
+package com.tcgroup.common.spell;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @description 查询的读纪元：每个查询开始时登记到当前纪元，结束时注销；reload发布新快照后切换纪元，
+ *              等旧纪元的查询全部结束，旧快照就不再被任何查询引用，可以被GC回收，下一次构建可以复用这部分内存。
+ *              查询只做一次volatile读和两次原子加减，不加锁；计数按线程分散到多个缓存行，避免所有查询线程争用同一个计数
+ * @author fengliangcheng
+ * @update 2026-10-26 下午2:10:35
+ */
+
+final class ReaderEpochs {
+    private static final int PADDING = 8; //相邻计数间隔的long个数，使每个计数独占一个64字节的缓存行
+    private final int stripes_; //每个纪元的计数个数，2的幂
+    private final AtomicLongArray readers_; //两个纪元各自正在进行的查询数，每个纪元stripes_个计数，总和为该纪元的查询数
+    private volatile int current_; //新开始的查询登记到的纪元
+    private int stale_ = -1; //上次等待超时、还有查询未结束的旧纪元，-1表示没有；只在awaitDrained中访问
+
+    ReaderEpochs()
+    {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        stripes_ = Math.min(n, 64);
+        readers_ = new AtomicLongArray(2 * stripes_ * PADDING);
+    }
+
+    private int slot(final int epoch, final int stripe)
+    {
+        return (epoch * stripes_ + stripe) * PADDING;
+    }
+
+    /**
+     * @description 查询开始时调用，必须在获取快照之前
+     * @author fengliangcheng
+     * @update 2026-10-22 下午2:06:40
+     * @return 登记的纪元和计数位置，查询结束时传给exit
+     */
+    int enter()
+    {
+        int stripe = (int)Thread.currentThread().getId() & (stripes_ - 1); //线程id连续分配，同时运行的线程大多落在不同的计数上
+        while(true)
+        {
+            int epoch = current_;
+            readers_.incrementAndGet(slot(epoch, stripe));
+            if(epoch == current_)
+            {
+                return (stripe << 1) | epoch;
+            }
+            readers_.decrementAndGet(slot(epoch, stripe)); //登记的同时纪元已经切换，改为登记到新纪元
+        }
+    }
+
+    /**
+     * @description 查询结束时调用
+     * @param token enter的返回值
+     */
+    void exit(final int token)
+    {
+        readers_.decrementAndGet(slot(token & 1, token >>> 1));
+    }
+
+    /**
+     * @description 某个纪元正在进行的查询数；各计数不是同时读取的，但纪元切换后旧纪元的计数只减不增（登记后立即撤销的除外），
+     *              读到0的计数之后不会再变为正数，因此总和为0说明旧纪元的查询已经全部结束
+     */
+    private long readers(final int epoch)
+    {
+        long sum = 0;
+        for(int i = 0; i < stripes_; i++)
+        {
+            sum += readers_.get(slot(epoch, i));
+        }
+        return sum;
+    }
+
+    /**
+     * @description 切换纪元并等待切换前开始的查询全部结束；在发布新快照之后调用，之后开始的查询只会看到新快照。
+     *              上一次等待超时时，旧纪元中还有查询，这时再切换会让新查询登记到这个纪元，因此先等它清空再切换
+     * @author fengliangcheng
+     * @update 2026-10-27 下午2:05:10
+     * @param timeoutMillis 最多等待的毫秒数
+     * @return true-旧纪元的查询已经全部结束 false-超时或者被中断
+     */
+    synchronized boolean awaitDrained(final long timeoutMillis)
+    {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if(stale_ >= 0)
+        {
+            if(!awaitEmpty(stale_, deadline)) //仍未清空，不能切换
+            {
+                return false;
+            }
+            stale_ = -1;
+        }
+        int old = current_;
+        current_ = 1 - old;
+        if(!awaitEmpty(old, deadline))
+        {
+            stale_ = old;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @description 等待某个纪元的查询全部结束，该纪元不能是当前纪元
+     * @return true-已经全部结束 false-超时或者被中断
+     */
+    private boolean awaitEmpty(final int epoch, final long deadline)
+    {
+        for(int spins = 0; 0 != readers(epoch); spins++)
+        {
+            if(System.nanoTime() - deadline >= 0)
+            {
+                return false;
+            }
+            if(spins < 100) //查询通常在微秒级结束，先让出CPU，再改为休眠
+            {
+                Thread.yield();
+                continue;
+            }
+            try
+            {
+                Thread.sleep(1);
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,152 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @description 比较两种reload方式的堆内存峰值：词典复制多份，每一代加上不同的后缀，保证每次reload都是整体重建；
+ *              每种方式连续reload若干次，reload期间另一个线程不停查询，记录reload前GC之后的堆内存（旧快照和新词语集合）、
+ *              reload过程中的峰值及其超出reload前的部分、reload之后GC的堆内存（新快照），以及两种快照的查询耗时。
+ *              峰值包含新生代中尚未回收的垃圾，建议用较小的新生代运行（比如-Xmn32m），差别主要体现在老年代
+ *              用法：ReloadMemoryBench [词典文件] [复制份数] [每种方式reload的次数]
+ * @author fengliangcheng
+ * @update 2026-10-22 下午3:02:40
+ */
+
+public class ReloadMemoryBench {
+    private static final String DICT = "bench-reload";
+
+    public static void main(String[] args) throws Exception
+    {
+        String dictFile = (args.length > 0) ? args[0] : "charge.txt";
+        int copies = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+        int reloads = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+
+        List<String> base = readWords(dictFile);
+        final KBSmarter smarter = KBSmarter.getInstance(new FileConfigure(), true);
+        smarter.dictionary_reLoad(DICT, generation(base, copies, 0));
+
+        //reload期间不停查询，旧快照要等这些查询结束才能释放
+        final List<String> prefixes = new ArrayList<String>();
+        for(String word: base)
+        {
+            prefixes.add(word.substring(0, 1));
+        }
+        final long[] queries = new long[1];
+        final AtomicBoolean stop = new AtomicBoolean();
+        Thread reader = new Thread(new Runnable() {
+            public void run()
+            {
+                for(int i = 0; !stop.get(); i++)
+                {
+                    smarter.findMatch(DICT, prefixes.get(i % prefixes.size()), 30);
+                    queries[0]++;
+                }
+            }
+        }, "bench-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        int gen = 1;
+        for(int mode = 0; mode < 2; mode++)
+        {
+            boolean lowPeak = (1 == mode);
+            smarter.setLowPeakReload(lowPeak);
+            for(int r = 0; r < reloads; r++)
+            {
+                HashSet<String> words = generation(base, copies, gen++);
+                long before = settledHeap();
+                HeapMeter meter = new HeapMeter();
+                long begin = System.nanoTime();
+                smarter.dictionary_reLoad(DICT, words);
+                long millis = (System.nanoTime() - begin) / 1000000;
+                long peak = meter.peakBytes();
+                words = null;
+                long after = settledHeap();
+                System.out.println((lowPeak ? "low-peak" : "default ") + " reload " + r + ": " + millis + "ms, heap before "
+                                   + HeapMeter.toMB(before) + ", peak " + HeapMeter.toMB(peak) + " (+" + HeapMeter.toMB(peak - before)
+                                   + " during reload), steady after " + HeapMeter.toMB(after));
+            }
+            System.out.println((lowPeak ? "low-peak" : "default ") + " query: " + measure(smarter, prefixes) + " us/query");
+            if(lowPeak)
+            {
+                System.out.println("low-peak metrics: " + smarter.getLowPeakMetrics());
+            }
+        }
+        stop.set(true);
+        reader.join();
+        System.out.println("queries during reloads: " + queries[0]);
+    }
+
+    /**
+     * @description 生成某一代的词典，每个词加上代数和份数的后缀
+     */
+    private static HashSet<String> generation(final List<String> base, final int copies, final int gen)
+    {
+        HashSet<String> words = new HashSet<String>();
+        for(int c = 0; c < copies; c++)
+        {
+            for(String word: base)
+            {
+                words.add(word + gen + "x" + c);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @description 多次GC后的堆内存使用量，近似于存活对象的大小
+     */
+    private static long settledHeap() throws InterruptedException
+    {
+        for(int i = 0; i < 3; i++)
+        {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return HeapMeter.usedBytes();
+    }
+
+    private static long measure(final KBSmarter smarter, final List<String> prefixes)
+    {
+        for(String prefix: prefixes) //预热
+        {
+            smarter.findMatch(DICT, prefix, 30);
+        }
+        long begin = System.nanoTime();
+        for(int r = 0; r < 20; r++)
+        {
+            for(String prefix: prefixes)
+            {
+                smarter.findMatch(DICT, prefix, 30);
+            }
+        }
+        return (System.nanoTime() - begin) / 1000 / (20L * prefixes.size());
+    }
+
+    private static List<String> readWords(final String path) throws IOException
+    {
+        List<String> words = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(path));
+        try
+        {
+            String record;
+            while((record = reader.readLine()) != null)
+            {
+                if(0 != record.length())
+                {
+                    words.add(record);
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return words;
+    }
+}
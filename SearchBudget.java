@@ -0,0 +1,134 @@
+package com.tcgroup.common.spell;
+
+/**
+ * @description 一次查询的代价上限：最多访问的节点数（遍历的trie树节点、DAWG状态和校验的词语各计一次）和截止时间，
+ *              以及外部的取消标记。每访问一个节点调用一次spend，计数是普通字段，时间和取消标记每CHECK_INTERVAL次才检查一次，
+ *              不限制的查询传入null，只多一次判空。同一个对象只在一个线程中使用，分片查询时每个分片使用一个子预算
+ * @author fengliangcheng
+ * @update 2026-10-21 下午7:05:18
+ */
+
+final class SearchBudget {
+    private static final int CHECK_INTERVAL = 256; //检查时间和取消标记的间隔（节点数），必须是2的幂
+    private static final long UNLIMITED_NANOS = Long.MAX_VALUE >> 1; //不限时间的预算距离截止时间的纳秒数，加上当前时间不会溢出
+
+    private final SearchBudget parent_; //分片查询时的总预算，取消标记以它为准
+    private final long deadlineNanos_; //截止时间（System.nanoTime）
+    private final long maxNodes_; //最多访问的节点数
+    private long visited_; //已经访问的节点数
+    private boolean exhausted_; //是否已经超出上限或者被取消
+    private volatile boolean cancelled_; //外部的取消标记
+
+    /**
+     * constructors of the class
+     * @param deadlineNanos 截止时间（System.nanoTime）
+     * @param maxNodes 最多访问的节点数
+     */
+    SearchBudget(final long deadlineNanos, final long maxNodes)
+    {
+        this(null, deadlineNanos, maxNodes);
+    }
+
+    private SearchBudget(final SearchBudget parent, final long deadlineNanos, final long maxNodes)
+    {
+        parent_ = parent;
+        deadlineNanos_ = deadlineNanos;
+        maxNodes_ = maxNodes;
+    }
+
+    /**
+     * @description 不限节点数和时间、只能被取消的预算，用于调用方没有预算时仍然可以停止不再需要的分片查询
+     * @author fengliangcheng
+     * @update 2026-10-26 下午3:10:22
+     * @return 预算
+     */
+    static SearchBudget unlimited()
+    {
+        return new SearchBudget(null, System.nanoTime() + UNLIMITED_NANOS, Long.MAX_VALUE);
+    }
+
+    /**
+     * @description 访问一个节点
+     * @author fengliangcheng
+     * @update 2026-10-21 下午7:08:40
+     * @return true-可以继续 false-超出上限、超时或者已经取消，调用方应该停止遍历
+     */
+    boolean spend()
+    {
+        if(exhausted_)
+        {
+            return false;
+        }
+        if(++visited_ > maxNodes_ || (0 == (visited_ & (CHECK_INTERVAL - 1)) && expired()))
+        {
+            exhausted_ = true;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean expired()
+    {
+        return isCancelled() || System.nanoTime() - deadlineNanos_ >= 0;
+    }
+
+    /**
+     * @description 查询开始前检查，已经超时或者取消的查询不再开始
+     * @return true-可以开始 false-不用再查
+     */
+    boolean alive()
+    {
+        if(!exhausted_ && expired())
+        {
+            exhausted_ = true;
+        }
+        return !exhausted_;
+    }
+
+    /**
+     * @description 是否因为超出上限、超时或者取消而提前停止过，此时结果可能不全
+     */
+    boolean exhausted()
+    {
+        return exhausted_;
+    }
+
+    long visited()
+    {
+        return visited_;
+    }
+
+    /**
+     * @description 取消查询，可以在其他线程调用，遍历线程最多再访问CHECK_INTERVAL个节点后停止
+     */
+    void cancel()
+    {
+        cancelled_ = true;
+    }
+
+    boolean isCancelled()
+    {
+        return cancelled_ || (null != parent_ && parent_.isCancelled());
+    }
+
+    /**
+     * @description 分出一个子预算给另一个线程的分片查询，节点数为当前剩余的份额
+     * @param shares 分成几份
+     * @return 子预算
+     */
+    SearchBudget split(final int shares)
+    {
+        long remaining = Math.max(0, maxNodes_ - visited_);
+        return new SearchBudget(this, deadlineNanos_, remaining / Math.max(1, shares));
+    }
+
+    /**
+     * @description 子预算用完后合并回来，在等待分片结果的线程中调用
+     * @param child split得到的子预算
+     */
+    void merge(final SearchBudget child)
+    {
+        visited_ += child.visited_;
+        exhausted_ |= child.exhausted_;
+    }
+}
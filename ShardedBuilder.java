@@ -0,0 +1,291 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @description 并行构建分片词典：词语先按hash分块并发展开为拼音串，按hash分片时每块直接构建一个分片；
+ *              按拼音范围分片时先统计拼音串首字母的分布确定各分片的范围，再把各块的拼音串拆分到分片中并发构建
+ * @author fengliangcheng
+ * @update 2026-10-20 下午4:45:10
+ */
+
+final class ShardedBuilder {
+    private final Map<Character, List<String>> pinyinTable_; //存储汉字->读音的映射表
+    private final ShardedIndex.Spec spec_; //分片方式
+    private final boolean enableShortSubMatched_; //是否需要生成简拼子串索引
+    private final ExecutorService queryPool_; //构建出的索引查询时使用的共享线程池
+
+    /**
+     * @description 一块词语展开的结果
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:46:32
+     */
+    private static final class Expanded
+    {
+        final HashMap<String, HashSet<String>> keys = new HashMap<String, HashSet<String>>(); //全拼和简拼->词语
+        final HashMap<String, HashSet<String>> subKeys = new HashMap<String, HashSet<String>>(); //简拼子串->词语
+        final long[] keyFirstCounts = new long[129]; //全拼和简拼首字母的分布
+        final long[] subFirstCounts = new long[129]; //简拼子串首字母的分布
+    }
+
+    /**
+     * constructors of the class
+     * @param pyTable 存储汉字->读音的映射表
+     * @param spec 分片方式
+     * @param enableShortSubMatched 是否需要生成简拼子串索引
+     * @param queryPool 查询各个分片的共享线程池
+     */
+    ShardedBuilder(final Map<Character, List<String>> pyTable, final ShardedIndex.Spec spec,
+                   final boolean enableShortSubMatched, final ExecutorService queryPool)
+    {
+        pinyinTable_ = pyTable;
+        spec_ = spec;
+        enableShortSubMatched_ = enableShortSubMatched;
+        queryPool_ = queryPool;
+    }
+
+    /**
+     * @description 构建分片词典的快照，构建使用临时线程池，不占用查询线程池
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:48:20
+     * @param dictName 词典名称
+     * @param words 词典，之后不能再被修改
+     * @return 词典快照
+     */
+    DictSnapshot build(final String dictName, final HashSet<String> words)
+    {
+        final int n = spec_.shardCount;
+        List<HashSet<String>> chunks = new ArrayList<HashSet<String>>();
+        for(int i = 0; i < n; i++)
+        {
+            chunks.add(new HashSet<String>());
+        }
+        for(String word: words)
+        {
+            chunks.get(ShardedIndex.shardOfWord(word, n)).add(word);
+        }
+
+        ExecutorService buildPool = Executors.newFixedThreadPool(Math.min(n, Runtime.getRuntime().availableProcessors()));
+        try
+        {
+            List<Callable<Expanded>> expandTasks = new ArrayList<Callable<Expanded>>();
+            for(final HashSet<String> chunk: chunks)
+            {
+                expandTasks.add(new Callable<Expanded>() {
+                    public Expanded call()
+                    {
+                        return expand(chunk);
+                    }
+                });
+            }
+            final List<Expanded> expanded = invokeAll(buildPool, expandTasks);
+
+            ShardedIndex prefixIndex;
+            ShardedIndex subIndex = null;
+            if(!spec_.byRange) //每块词语就是一个分片
+            {
+                List<Callable<Trie[]>> buildTasks = new ArrayList<Callable<Trie[]>>();
+                for(final Expanded e: expanded)
+                {
+                    buildTasks.add(new Callable<Trie[]>() {
+                        public Trie[] call()
+                        {
+                            return new Trie[] {buildTrie(e.keys, true),
+                                               enableShortSubMatched_ ? buildTrie(e.subKeys, false) : null};
+                        }
+                    });
+                }
+                List<Trie[]> tries = invokeAll(buildPool, buildTasks);
+                SpellIndex[] prefixShards = new SpellIndex[n];
+                SpellIndex[] subShards = new SpellIndex[n];
+                for(int i = 0; i < n; i++)
+                {
+                    prefixShards[i] = tries.get(i)[0];
+                    subShards[i] = tries.get(i)[1];
+                }
+                prefixIndex = new ShardedIndex(spec_, prefixShards, null, pinyinTable_, false, queryPool_);
+                if(enableShortSubMatched_)
+                {
+                    subIndex = new ShardedIndex(spec_, subShards, null, pinyinTable_, true, queryPool_);
+                }
+            }
+            else
+            {
+                prefixIndex = buildByRange(buildPool, expanded, false);
+                if(enableShortSubMatched_)
+                {
+                    subIndex = buildByRange(buildPool, expanded, true);
+                }
+            }
+            System.out.println("dict " + dictName + " built in " + n + (spec_.byRange ? " range" : " hash") + " shards");
+            return new DictSnapshot(dictName, prefixIndex, subIndex, words);
+        }
+        finally
+        {
+            buildPool.shutdown();
+        }
+    }
+
+    /**
+     * @description 按拼音串首字母的范围构建分片索引
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:52:36
+     * @param buildPool 构建线程池
+     * @param expanded 各块词语展开的结果
+     * @param sub 是否构建简拼子串索引
+     * @return 分片索引
+     */
+    private ShardedIndex buildByRange(final ExecutorService buildPool, final List<Expanded> expanded, final boolean sub)
+    {
+        final int n = spec_.shardCount;
+        long[] firstCounts = new long[129];
+        for(Expanded e: expanded)
+        {
+            long[] counts = sub ? e.subFirstCounts : e.keyFirstCounts;
+            for(int i = 0; i < counts.length; i++)
+            {
+                firstCounts[i] += counts[i];
+            }
+        }
+        final char[] rangeStarts = ShardedIndex.computeRangeStarts(firstCounts, n);
+
+        //把每块的拼音串拆分到各个分片
+        List<Callable<List<Map<String, HashSet<String>>>>> splitTasks = new ArrayList<Callable<List<Map<String, HashSet<String>>>>>();
+        for(final Expanded e: expanded)
+        {
+            splitTasks.add(new Callable<List<Map<String, HashSet<String>>>>() {
+                public List<Map<String, HashSet<String>>> call()
+                {
+                    List<Map<String, HashSet<String>>> split = new ArrayList<Map<String, HashSet<String>>>();
+                    for(int i = 0; i < n; i++)
+                    {
+                        split.add(new HashMap<String, HashSet<String>>());
+                    }
+                    for(Map.Entry<String, HashSet<String>> entry: (sub ? e.subKeys : e.keys).entrySet())
+                    {
+                        split.get(ShardedIndex.shardOfKey(entry.getKey().charAt(0), rangeStarts)).put(entry.getKey(), entry.getValue());
+                    }
+                    return split;
+                }
+            });
+        }
+        final List<List<Map<String, HashSet<String>>>> splits = invokeAll(buildPool, splitTasks);
+
+        //合并各块中属于同一分片的拼音串（同一拼音串的词语可能来自不同的块）后构建
+        List<Callable<Trie>> buildTasks = new ArrayList<Callable<Trie>>();
+        for(int i = 0; i < n; i++)
+        {
+            final int shard = i;
+            buildTasks.add(new Callable<Trie>() {
+                public Trie call()
+                {
+                    HashMap<String, HashSet<String>> merged = new HashMap<String, HashSet<String>>();
+                    for(List<Map<String, HashSet<String>>> split: splits)
+                    {
+                        for(Map.Entry<String, HashSet<String>> entry: split.get(shard).entrySet())
+                        {
+                            HashSet<String> set = merged.get(entry.getKey());
+                            if(null == set)
+                            {
+                                merged.put(entry.getKey(), entry.getValue());
+                            }
+                            else
+                            {
+                                set.addAll(entry.getValue()); //每个块的集合只属于本次构建，可以直接合并
+                            }
+                        }
+                    }
+                    return buildTrie(merged, !sub);
+                }
+            });
+        }
+        List<Trie> tries = invokeAll(buildPool, buildTasks);
+        return new ShardedIndex(spec_, tries.toArray(new SpellIndex[n]), rangeStarts, pinyinTable_, sub, queryPool_);
+    }
+
+    /**
+     * @description 把一块词语展开为全拼、简拼和简拼子串
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:55:02
+     * @param chunk 一块词语
+     * @return 展开结果
+     */
+    private Expanded expand(final HashSet<String> chunk)
+    {
+        Expanded result = new Expanded();
+        PinyinExpander expander = new PinyinExpander(pinyinTable_); //非线程安全，每块使用一个
+        ArrayList<String> keys = new ArrayList<String>();
+        ArrayList<String> subKeys = enableShortSubMatched_ ? new ArrayList<String>() : null;
+        for(String word: chunk)
+        {
+            expander.expand(word, keys, subKeys);
+            addAll(keys, word, result.keys, result.keyFirstCounts);
+            keys.clear();
+            if(null != subKeys)
+            {
+                addAll(subKeys, word, result.subKeys, result.subFirstCounts);
+                subKeys.clear();
+            }
+        }
+        return result;
+    }
+
+    private static void addAll(final List<String> keys, final String word, Map<String, HashSet<String>> table, long[] firstCounts)
+    {
+        for(String key: keys)
+        {
+            if(0 == key.length())
+            {
+                continue;
+            }
+            HashSet<String> set = table.get(key);
+            if(null == set)
+            {
+                set = new HashSet<String>();
+                table.put(key, set);
+                firstCounts[Math.min(key.charAt(0), 128)]++;
+            }
+            set.add(word);
+        }
+    }
+
+    private Trie buildTrie(final Map<String, HashSet<String>> table, final boolean markChars)
+    {
+        Trie trie = new Trie(pinyinTable_, markChars);
+        for(Map.Entry<String, HashSet<String>> entry: table.entrySet())
+        {
+            trie.insertWord(entry.getKey(), entry.getValue());
+        }
+        return trie;
+    }
+
+    private static <T> List<T> invokeAll(final ExecutorService pool, final List<Callable<T>> tasks)
+    {
+        List<T> results = new ArrayList<T>();
+        try
+        {
+            for(Future<T> future: pool.invokeAll(tasks))
+            {
+                results.add(future.get());
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch(ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,485 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * @description 分片的词典索引：一个词典按词语的hash或者拼音串首字母的范围拆分为多个分片，每个分片是独立的索引，
+ *              查询时在共享线程池上并发查询各个分片，再把各分片的前K个结果归并；
+ *              按拼音范围分片时同一前缀的拼音串都在一个分片中，查询只访问该分片。
+ *              分片只通过SpellIndex接口访问，其他进程中的分片只要实现该接口即可接入
+ * @author fengliangcheng
+ * @update 2026-10-20 下午4:05:12
+ */
+
+final class ShardedIndex implements SpellIndex {
+    /**
+     * @description 分片方式
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:06:30
+     */
+    static final class Spec
+    {
+        final int shardCount; //分片个数
+        final boolean byRange; //true-按拼音串首字母的范围分片 false-按词语的hash分片
+
+        Spec(final int count, final boolean range)
+        {
+            shardCount = count;
+            byRange = range;
+        }
+
+        boolean sameAs(final Spec other)
+        {
+            return null != other && shardCount == other.shardCount && byRange == other.byRange;
+        }
+    }
+
+    private final Spec spec_; //分片方式
+    private final SpellIndex[] shards_; //各个分片
+    private final char[] rangeStarts_; //按范围分片时每个分片的首字母下界（非递减），按hash分片时为null
+    private final Map<Character, List<String>> pinyinTable_; //存储汉字->读音的映射表
+    private final boolean sub_; //是否简拼子串索引
+    private final ExecutorService pool_; //查询各个分片的共享线程池
+
+    /**
+     * constructors of the class
+     * @param spec 分片方式
+     * @param shards 各个分片
+     * @param rangeStarts 按范围分片时每个分片的首字母下界，按hash分片时为null
+     * @param pyTable 存储汉字->读音的映射表
+     * @param sub 是否简拼子串索引
+     * @param pool 查询各个分片的共享线程池
+     */
+    ShardedIndex(final Spec spec, final SpellIndex[] shards, final char[] rangeStarts,
+                 final Map<Character, List<String>> pyTable, final boolean sub, final ExecutorService pool)
+    {
+        spec_ = spec;
+        shards_ = shards;
+        rangeStarts_ = rangeStarts;
+        pinyinTable_ = pyTable;
+        sub_ = sub;
+        pool_ = pool;
+    }
+
+    Spec spec()
+    {
+        return spec_;
+    }
+
+    /**
+     * @description 词语按hash分片时所在的分片
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:10:02
+     * @param word 词语
+     * @param shardCount 分片个数
+     * @return 分片序号
+     */
+    static int shardOfWord(final String word, final int shardCount)
+    {
+        return (word.hashCode() & 0x7fffffff) % shardCount;
+    }
+
+    /**
+     * @description 拼音串按范围分片时所在的分片
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:10:40
+     * @param first 拼音串的首字母
+     * @param rangeStarts 每个分片的首字母下界
+     * @return 分片序号
+     */
+    static int shardOfKey(final char first, final char[] rangeStarts)
+    {
+        int low = 0;
+        int high = rangeStarts.length - 1;
+        while(low < high) //找到下界不大于first的最后一个分片
+        {
+            int mid = (low + high + 1) >>> 1;
+            if(rangeStarts[mid] <= first)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public void findPrefix(final String prefix, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        findPrefix(PrefixConstraint.compile(prefix, pinyinTable_), count, set_result, shortestFirst);
+    }
+
+    public void findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        find(constraint.prefix, constraint, constraint.prefixPy, count, set_result, shortestFirst, null); //各分片共用编译结果
+    }
+
+    public void findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                           final boolean shortestFirst, final SearchBudget budget)
+    {
+        find(constraint.prefix, constraint, constraint.prefixPy, count, set_result, shortestFirst, budget);
+    }
+
+    public void findSubPrefix(final String prefix, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        findSubPrefix(PrefixConstraint.compile(prefix, pinyinTable_), count, set_result, shortestFirst, null); //编译后分片查询才能被取消
+    }
+
+    public void findSubPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                              final boolean shortestFirst, final SearchBudget budget)
+    {
+        find(constraint.prefix, constraint, constraint.prefix, count, set_result, shortestFirst, budget);
+    }
+
+    public void setCategories(final Map<String, Long> categories)
+    {
+        for(SpellIndex shard: shards_)
+        {
+            shard.setCategories(categories);
+        }
+    }
+
+    public boolean mayMatch(final char first)
+    {
+        if(null != rangeStarts_)
+        {
+            return shards_[shardOfKey(first, rangeStarts_)].mayMatch(first);
+        }
+        for(SpellIndex shard: shards_)
+        {
+            if(shard.mayMatch(first))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long estimateBytes()
+    {
+        long bytes = MemoryEstimator.array(shards_.length, MemoryEstimator.REF);
+        for(SpellIndex shard: shards_)
+        {
+            bytes += shard.estimateBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @description 查询相关的分片并归并结果
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:15:26
+     * @param prefix 输入前缀
+     * @param constraint 编译后的输入前缀，简拼子串索引不按类别过滤时为null
+     * @param py 前缀对应的拼音串，用于按范围路由和归并
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按长度优先归并
+     * @param budget 代价上限，为null时不限制；并行查询时各分片平分剩余的节点数，全部完成后合并回来；
+     *               为null时各分片使用只能被取消的预算，结果够数后仍在运行的分片尽快停止
+     */
+    private void find(final String prefix, final PrefixConstraint constraint, final String py, final int count,
+                      Set<String> set_result, final boolean shortestFirst, final SearchBudget budget)
+    {
+        if(null != rangeStarts_ && py.length() > 0) //同一前缀的拼音串都在一个分片中
+        {
+            search(shards_[shardOfKey(py.charAt(0), rangeStarts_)], prefix, constraint, count, set_result, shortestFirst, budget);
+            return;
+        }
+
+        final SearchBudget[] budgets = new SearchBudget[shards_.length]; //每个分片一个子预算，不在线程间共享计数
+        for(int i = 0; i < shards_.length; i++)
+        {
+            budgets[i] = (null != budget) ? budget.split(shards_.length) : SearchBudget.unlimited();
+        }
+        boolean waitedAll = false; //是否等到了所有分片完成，只有这时子预算才能合并
+        List<Future<LinkedHashSet<String>>> futures = new ArrayList<Future<LinkedHashSet<String>>>();
+        CompletionService<LinkedHashSet<String>> completion = new ExecutorCompletionService<LinkedHashSet<String>>(pool_);
+        for(int i = 1; i < shards_.length; i++) //第一个分片在当前线程查询
+        {
+            final SpellIndex shard = shards_[i];
+            final SearchBudget shardBudget = budgets[i];
+            futures.add(completion.submit(new Callable<LinkedHashSet<String>>() {
+                public LinkedHashSet<String> call()
+                {
+                    LinkedHashSet<String> result = new LinkedHashSet<String>();
+                    search(shard, prefix, constraint, count, result, shortestFirst, shardBudget);
+                    return result;
+                }
+            }));
+        }
+        LinkedHashSet<String> first = new LinkedHashSet<String>();
+        search(shards_[0], prefix, constraint, count, first, shortestFirst, budgets[0]);
+
+        try
+        {
+            if(!shortestFirst) //结果没有顺序要求，先完成的分片先合并，够数后取消其余分片
+            {
+                addUpTo(first, count, set_result);
+                int taken = 0;
+                for(; taken < futures.size() && set_result.size() < count; taken++)
+                {
+                    addUpTo(completion.take().get(), count, set_result);
+                }
+                waitedAll = (taken == futures.size());
+                return;
+            }
+
+            List<LinkedHashSet<String>> results = new ArrayList<LinkedHashSet<String>>();
+            results.add(first);
+            for(Future<LinkedHashSet<String>> future: futures)
+            {
+                results.add(future.get());
+            }
+            waitedAll = true;
+            mergeShortestFirst(results, py, count, set_result);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch(ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            for(Future<LinkedHashSet<String>> future: futures)
+            {
+                future.cancel(false);
+            }
+            for(int i = 0; i < budgets.length; i++)
+            {
+                if(!waitedAll)
+                {
+                    budgets[i].cancel(); //结果已经够数，还在运行的分片尽快停止；future.cancel(false)不会中断已经开始的分片
+                }
+                else if(null != budget)
+                {
+                    budget.merge(budgets[i]);
+                }
+            }
+        }
+    }
+
+    private void search(final SpellIndex shard, final String prefix, final PrefixConstraint constraint, final int count,
+                        Set<String> result, final boolean shortestFirst, final SearchBudget budget)
+    {
+        if(sub_ && null == constraint)
+        {
+            shard.findSubPrefix(prefix, count, result, shortestFirst);
+        }
+        else if(sub_)
+        {
+            shard.findSubPrefix(constraint, count, result, shortestFirst, budget);
+        }
+        else
+        {
+            shard.findPrefix(constraint, count, result, shortestFirst, budget);
+        }
+    }
+
+    private static void addUpTo(final Set<String> from, final int count, Set<String> set_result)
+    {
+        for(String word: from)
+        {
+            if(set_result.size() >= count)
+            {
+                return;
+            }
+            set_result.add(word);
+        }
+    }
+
+    /**
+     * @description 某个匹配结果在按长度优先遍历中的位置：词语所有以查询拼音串开头的拼音串中最短（同长度字典序最小）的那个，
+     *              与分片内部按层遍历时第一次遇到该词语的位置一致，因此可以对各分片有序的结果进行归并
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:22:48
+     */
+    static final class Ranked implements Comparable<Ranked>
+    {
+        final String key;
+        final String word;
+        final int shard;
+
+        Ranked(final String k, final String w, final int s)
+        {
+            key = k;
+            word = w;
+            shard = s;
+        }
+
+        public int compareTo(final Ranked other)
+        {
+            if(key.length() != other.key.length())
+            {
+                return (key.length() < other.key.length()) ? -1 : 1;
+            }
+            int cmp = key.compareTo(other.key);
+            return (0 != cmp) ? cmp : word.compareTo(other.word);
+        }
+    }
+
+    /**
+     * @description 各分片的结果都按长度优先有序，多路归并，输出够数后停止，剩余的结果无需计算位置
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:25:30
+     * @param results 各分片的结果
+     * @param py 查询的拼音串
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     */
+    private void mergeShortestFirst(final List<LinkedHashSet<String>> results, final String py, final int count,
+                                    Set<String> set_result)
+    {
+        PinyinExpander expander = new PinyinExpander(pinyinTable_); //非线程安全，每次归并使用一个
+        ArrayList<String> keys = new ArrayList<String>();
+        ArrayList<String> subKeys = sub_ ? new ArrayList<String>() : null;
+        List<Iterator<String>> cursors = new ArrayList<Iterator<String>>();
+        PriorityQueue<Ranked> heads = new PriorityQueue<Ranked>();
+        for(int i = 0; i < results.size(); i++)
+        {
+            cursors.add(results.get(i).iterator());
+            advance(cursors, i, py, expander, keys, subKeys, heads);
+        }
+        while(!heads.isEmpty() && set_result.size() < count)
+        {
+            Ranked head = heads.poll();
+            set_result.add(head.word); //按范围分片时同一词语可能来自多个分片，Set去重
+            advance(cursors, head.shard, py, expander, keys, subKeys, heads);
+        }
+    }
+
+    private void advance(final List<Iterator<String>> cursors, final int shard, final String py,
+                         final PinyinExpander expander, ArrayList<String> keys, ArrayList<String> subKeys,
+                         PriorityQueue<Ranked> heads)
+    {
+        Iterator<String> cursor = cursors.get(shard);
+        if(!cursor.hasNext())
+        {
+            return;
+        }
+        String word = cursor.next();
+        heads.add(new Ranked(expander.firstKey(word, py, keys, subKeys), word, shard));
+    }
+
+    /**
+     * @description 是否可以在当前索引上应用增量：所有分片都是trie树，且使用当前的读音表
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:30:12
+     * @param pyTable 当前的读音表
+     * @return true-可以 false-不可以
+     */
+    boolean canApplyDelta(final Map<Character, List<String>> pyTable)
+    {
+        for(SpellIndex shard: shards_)
+        {
+            if(!(shard instanceof Trie) || ((Trie)shard).pinyinTable() != pyTable)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @description 把增量按分片拆开，只在有变化的分片上应用，生成新的分片索引，没有变化的分片与旧索引共享
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:32:41
+     * @param addedByKey 拼音串->新增的词语
+     * @param removedByKey 拼音串->删除的词语
+     * @return 新的分片索引，调用前需要用canApplyDelta检查
+     */
+    ShardedIndex applyDelta(final Map<String, ? extends Collection<String>> addedByKey,
+                            final Map<String, ? extends Collection<String>> removedByKey)
+    {
+        List<Map<String, List<String>>> added = splitByShard(addedByKey);
+        List<Map<String, List<String>>> removed = splitByShard(removedByKey);
+        SpellIndex[] next = shards_.clone();
+        for(int i = 0; i < next.length; i++)
+        {
+            if(!added.get(i).isEmpty() || !removed.get(i).isEmpty())
+            {
+                next[i] = ((Trie)shards_[i]).applyDelta(added.get(i), removed.get(i));
+            }
+        }
+        return new ShardedIndex(spec_, next, rangeStarts_, pinyinTable_, sub_, pool_);
+    }
+
+    private List<Map<String, List<String>>> splitByShard(final Map<String, ? extends Collection<String>> byKey)
+    {
+        List<Map<String, List<String>>> split = new ArrayList<Map<String, List<String>>>();
+        for(int i = 0; i < shards_.length; i++)
+        {
+            split.add(new HashMap<String, List<String>>());
+        }
+        for(Map.Entry<String, ? extends Collection<String>> entry: byKey.entrySet())
+        {
+            String key = entry.getKey();
+            for(String word: entry.getValue())
+            {
+                int shard = (null != rangeStarts_) ? shardOfKey(key.charAt(0), rangeStarts_)
+                                                   : shardOfWord(word, shards_.length);
+                List<String> list = split.get(shard).get(key);
+                if(null == list)
+                {
+                    list = new ArrayList<String>(2);
+                    split.get(shard).put(key, list);
+                }
+                list.add(word);
+            }
+        }
+        return split;
+    }
+
+    /**
+     * @description 按范围分片时根据各首字母的拼音串个数计算每个分片的首字母下界，使各分片的拼音串个数大致相同；
+     *              非ASCII首字母统一计入一个桶
+     * @author fengliangcheng
+     * @update 2026-10-20 下午4:36:20
+     * @param firstCharCounts 首字母->拼音串个数，下标128为所有非ASCII首字母
+     * @param shardCount 分片个数
+     * @return 每个分片的首字母下界
+     */
+    static char[] computeRangeStarts(final long[] firstCharCounts, final int shardCount)
+    {
+        long total = 0;
+        for(long c: firstCharCounts)
+        {
+            total += c;
+        }
+        char[] starts = new char[shardCount];
+        int shard = 1;
+        long seen = 0;
+        for(int ch = 0; ch < firstCharCounts.length && shard < shardCount; ch++)
+        {
+            if(seen > 0 && seen * shardCount >= total * shard) //前面的分片已经够数，从该字母开始下一个分片
+            {
+                starts[shard++] = (char)ch;
+            }
+            seen += firstCharCounts[ch];
+        }
+        for(; shard < shardCount; shard++) //首字母种类少于分片个数，剩余分片为空
+        {
+            starts[shard] = Character.MAX_VALUE;
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,418 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * @description 复制用的快照文件格式：文件头（魔数、格式版本、类型、词典名称、数据版本、基础版本、读音表指纹）之后是内容，
+ *              最后8字节是之前所有字节的CRC32。全量快照保存词语表和编译好的索引（trie树、DAWG或者有序数组），接收方直接还原，
+ *              不需要展开拼音；分片词典只保存词语，由接收方构建。增量快照只保存相对基础版本新增和删除的词语。
+ *              文件先写到同目录下的临时文件，同步到磁盘后原子改名，读取时先校验CRC再解码
+ * @author fengliangcheng
+ * @update 2026-10-23 上午10:02:48
+ */
+
+final class SnapshotCodec {
+    static final byte FULL = 1; //全量快照
+    static final byte DELTA = 2; //增量快照
+    static final byte INDEX_TRIE = 1; //索引是trie树
+    static final byte INDEX_DAWG = 2; //索引是DAWG
+    static final byte INDEX_WORDS = 3; //只有词语，由接收方构建索引
+    static final byte INDEX_ARRAY = 4; //索引是有序数组
+
+    private static final int MAGIC = 0x53504C53; //"SPLS"
+    private static final int FORMAT = 2; //格式版本，不兼容的修改时增加；2-trie树节点增加汉字签名
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * @description 解码得到的快照文件
+     */
+    static final class Payload
+    {
+        byte kind; //FULL或者DELTA
+        String dictName; //词典名称
+        long version; //数据版本
+        long baseVersion; //增量快照的基础版本，全量快照为0
+        DictSnapshot snapshot; //全量快照中编译好的索引，只有词语时为null
+        HashSet<String> words; //只有词语的全量快照
+        List<String> added; //增量快照新增的词语
+        List<String> removed; //增量快照删除的词语
+    }
+
+    /**
+     * @description 写出文件内容（文件头之后的部分）
+     */
+    private interface Body
+    {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private SnapshotCodec()
+    {
+    }
+
+    /**
+     * @description 写出全量快照
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:30:12
+     * @param file 目标文件，写完后才出现
+     * @param snapshot 词典快照
+     * @param version 数据版本
+     * @param pyTable 构建索引使用的读音表
+     * @throws IOException
+     */
+    static void writeFull(final File file, final DictSnapshot snapshot, final long version,
+                          final Map<Character, List<String>> pyTable) throws IOException
+    {
+        write(file, FULL, snapshot.dictName, version, 0, fingerprint(pyTable), new Body() {
+            public void write(DataOutputStream out) throws IOException
+            {
+                Map<String, Integer> wordIds = writeWords(out, snapshot.words);
+                if(snapshot.prefixTrie instanceof Trie)
+                {
+                    out.writeByte(INDEX_TRIE);
+                    ((Trie)snapshot.prefixTrie).writeTo(out, wordIds);
+                    out.writeBoolean(null != snapshot.subTrie);
+                    if(null != snapshot.subTrie)
+                    {
+                        ((Trie)snapshot.subTrie).writeTo(out, wordIds);
+                    }
+                }
+                else if(snapshot.prefixTrie instanceof Dawg) //DAWG的词语编号就是词语表中的顺序
+                {
+                    out.writeByte(INDEX_DAWG);
+                    out.writeBoolean(((Dawg)snapshot.prefixTrie).words() instanceof FrontCodedWordSet);
+                    ((Dawg)snapshot.prefixTrie).writeTo(out);
+                    out.writeBoolean(null != snapshot.subTrie);
+                    if(null != snapshot.subTrie)
+                    {
+                        ((Dawg)snapshot.subTrie).writeTo(out);
+                    }
+                }
+                else if(snapshot.prefixTrie instanceof SortedArrayIndex) //词语是有序数组，编号就是词语表中的顺序
+                {
+                    out.writeByte(INDEX_ARRAY);
+                    ((SortedArrayIndex)snapshot.prefixTrie).writeTo(out);
+                    out.writeBoolean(null != snapshot.subTrie);
+                    if(null != snapshot.subTrie)
+                    {
+                        ((SortedArrayIndex)snapshot.subTrie).writeTo(out);
+                    }
+                }
+                else
+                {
+                    out.writeByte(INDEX_WORDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * @description 写出增量快照
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:33:40
+     * @param file 目标文件，写完后才出现
+     * @param dictName 词典名称
+     * @param version 数据版本
+     * @param baseVersion 基础版本
+     * @param added 新增的词语
+     * @param removed 删除的词语
+     * @throws IOException
+     */
+    static void writeDelta(final File file, final String dictName, final long version, final long baseVersion,
+                           final Collection<String> added, final Collection<String> removed) throws IOException
+    {
+        write(file, DELTA, dictName, version, baseVersion, 0, new Body() {
+            public void write(DataOutputStream out) throws IOException
+            {
+                writeWords(out, added);
+                writeWords(out, removed);
+            }
+        });
+    }
+
+    private static void write(final File file, final byte kind, final String dictName, final long version, final long baseVersion,
+                              final long pyFingerprint, final Body body) throws IOException
+    {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(tmp);
+        boolean done = false;
+        try
+        {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeByte(kind);
+            out.writeUTF(dictName);
+            out.writeLong(version);
+            out.writeLong(baseVersion);
+            out.writeLong(pyFingerprint);
+            body.write(out);
+            out.flush();
+            new DataOutputStream(fileOut).writeLong(crc.getValue()); //校验和本身不计入
+            fileOut.getFD().sync();
+            done = true;
+        }
+        finally
+        {
+            fileOut.close();
+            if(!done)
+            {
+                tmp.delete();
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE); //接收方不会看到写了一半的文件
+    }
+
+    /**
+     * @description 读取快照文件：先校验CRC，通过后再解码
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:40:06
+     * @param file 快照文件
+     * @param pyTable 接收方的读音表，还原的索引使用它；与写出方的指纹不同时拒绝编译好的索引
+     * @return 解码结果
+     * @throws IOException 读取失败、校验失败或者格式不兼容
+     */
+    static Payload read(final File file, final Map<Character, List<String>> pyTable) throws IOException
+    {
+        verifyChecksum(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try
+        {
+            if(MAGIC != in.readInt() || FORMAT != in.readInt())
+            {
+                throw new IOException(file + " is not a snapshot of format " + FORMAT);
+            }
+            Payload payload = new Payload();
+            payload.kind = in.readByte();
+            payload.dictName = in.readUTF();
+            payload.version = in.readLong();
+            payload.baseVersion = in.readLong();
+            long pyFingerprint = in.readLong();
+            if(DELTA == payload.kind)
+            {
+                payload.added = readWords(in);
+                payload.removed = readWords(in);
+                return payload;
+            }
+            String[] words = readWordArray(in);
+            byte index = in.readByte();
+            if(INDEX_WORDS != index && pyFingerprint != fingerprint(pyTable))
+            {
+                throw new IOException(file + " was built with a different pinyin table");
+            }
+            if(INDEX_TRIE == index)
+            {
+                Trie prefix = Trie.readFrom(in, pyTable, words);
+                Trie sub = in.readBoolean() ? Trie.readFrom(in, pyTable, words) : null;
+                HashSet<String> wordSet = new HashSet<String>(words.length * 4 / 3 + 1);
+                for(String word: words)
+                {
+                    wordSet.add(word);
+                }
+                payload.snapshot = new DictSnapshot(payload.dictName, prefix, sub, wordSet);
+            }
+            else if(INDEX_DAWG == index)
+            {
+                WordStore store = new SortedWordSet(words);
+                if(in.readBoolean())
+                {
+                    WordStore compressed = FrontCodedWordSet.encode(store);
+                    if(null != compressed)
+                    {
+                        store = compressed;
+                    }
+                }
+                Dawg prefix = Dawg.readFrom(in, store, pyTable);
+                Dawg sub = in.readBoolean() ? Dawg.readFrom(in, store, pyTable) : null;
+                payload.snapshot = new DictSnapshot(payload.dictName, prefix, sub, store);
+            }
+            else if(INDEX_ARRAY == index)
+            {
+                WordStore store = new SortedWordSet(words);
+                SortedArrayIndex prefix = SortedArrayIndex.readFrom(in, store, pyTable);
+                SortedArrayIndex sub = in.readBoolean() ? SortedArrayIndex.readFrom(in, store, pyTable) : null;
+                payload.snapshot = new DictSnapshot(payload.dictName, prefix, sub, store);
+            }
+            else
+            {
+                payload.words = new HashSet<String>(words.length * 4 / 3 + 1);
+                for(String word: words)
+                {
+                    payload.words.add(word);
+                }
+            }
+            return payload;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * @description 计算除最后8字节以外所有字节的CRC32，与最后8字节比较
+     */
+    private static void verifyChecksum(final File file) throws IOException
+    {
+        long length = file.length();
+        if(length < 8)
+        {
+            throw new IOException(file + " is truncated");
+        }
+        CRC32 crc = new CRC32();
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            byte[] buf = new byte[1 << 16];
+            long remaining = length - 8;
+            while(remaining > 0)
+            {
+                int n = in.read(buf, 0, (int)Math.min(buf.length, remaining));
+                if(n < 0)
+                {
+                    throw new IOException(file + " is truncated");
+                }
+                crc.update(buf, 0, n);
+                remaining -= n;
+            }
+            if(crc.getValue() != new DataInputStream(in).readLong())
+            {
+                throw new IOException(file + " checksum mismatch");
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * @description 读音表的指纹，按汉字排序后计算，与HashMap的遍历顺序无关
+     * @param pyTable 汉字->读音的映射表
+     * @return 指纹
+     */
+    static long fingerprint(final Map<Character, List<String>> pyTable)
+    {
+        long hash = 1125899906842597L;
+        for(Map.Entry<Character, List<String>> entry: new TreeMap<Character, List<String>>(pyTable).entrySet())
+        {
+            hash = 31 * hash + entry.getKey().charValue();
+            for(String py: entry.getValue())
+            {
+                hash = 31 * hash + py.hashCode();
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @description 写出词语表，按遍历顺序编号
+     * @return 词语->编号
+     */
+    private static Map<String, Integer> writeWords(final DataOutput out, final Collection<String> words) throws IOException
+    {
+        Map<String, Integer> ids = new HashMap<String, Integer>(words.size() * 4 / 3 + 1);
+        writeVarint(out, words.size());
+        for(String word: words)
+        {
+            byte[] bytes = word.getBytes(UTF8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+            ids.put(word, ids.size());
+        }
+        return ids;
+    }
+
+    private static String[] readWordArray(final DataInput in) throws IOException
+    {
+        String[] words = new String[readVarint(in)];
+        byte[] buf = new byte[64];
+        for(int i = 0; i < words.length; i++)
+        {
+            int len = readVarint(in);
+            if(len > buf.length)
+            {
+                buf = new byte[Math.max(len, buf.length * 2)];
+            }
+            in.readFully(buf, 0, len);
+            words[i] = new String(buf, 0, len, UTF8);
+        }
+        return words;
+    }
+
+    private static List<String> readWords(final DataInput in) throws IOException
+    {
+        List<String> words = new ArrayList<String>();
+        for(String word: readWordArray(in))
+        {
+            words.add(word);
+        }
+        return words;
+    }
+
+    static void writeVarint(final DataOutput out, int value) throws IOException
+    {
+        while(0 != (value & ~0x7F))
+        {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(final DataInput in) throws IOException
+    {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if(b < 0x80)
+            {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    static void writeInts(final DataOutput out, final int[] values) throws IOException
+    {
+        writeVarint(out, values.length);
+        for(int value: values)
+        {
+            out.writeInt(value);
+        }
+    }
+
+    static int[] readInts(final DataInput in) throws IOException
+    {
+        int[] values = new int[readVarint(in)];
+        for(int i = 0; i < values.length; i++)
+        {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+}
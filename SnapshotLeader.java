@@ -0,0 +1,245 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @description 复制模式的主节点：词典只在主节点构建一次，每个新版本编译为快照文件写入共享目录，副本（SnapshotReplica）
+ *              直接还原，不再各自展开拼音构建。目录结构是"共享目录/词典名称/版本号.full|.delta"，版本号逐次加1；
+ *              相对上一次发布的变化较少、且主节点的索引是trie树（副本上同样只需路径复制）或者小词典的有序数组（副本上重建很快）
+ *              时只写增量，连续MAX_DELTA_CHAIN个增量之后强制写一次全量，保证新加入的副本不用回放太多增量。最新的全量及其之后的文件总是保留，
+ *              更早的文件只保留最近keepVersions个版本
+ *              用法：SnapshotLeader 共享目录 [词典目录]，之后从标准输入读取"reload 词典名称 词典文件"命令
+ * @author fengliangcheng
+ * @update 2026-10-23 上午11:20:36
+ */
+
+public class SnapshotLeader {
+    static final String FULL_SUFFIX = ".full";
+    static final String DELTA_SUFFIX = ".delta";
+    private static final int MAX_DELTA_CHAIN = 16; //连续增量的最大个数
+
+    /**
+     * @description 某个词典最近一次发布的版本
+     */
+    private static final class Published
+    {
+        final long version;
+        final DictSnapshot snapshot; //发布时的快照，下一次发布时与之比较得到增量
+        final int chain; //这个版本之前连续的增量个数（含自身）
+
+        Published(final long v, final DictSnapshot s, final int c)
+        {
+            version = v;
+            snapshot = s;
+            chain = c;
+        }
+    }
+
+    private final KBSmarter smarter_; //构建词典的实例
+    private final File dir_; //共享目录
+    private final int keepVersions_; //最新全量之前最多保留的版本个数
+    private final Map<String, Published> published_ = new HashMap<String, Published>();
+
+    /**
+     * constructors of the class
+     * @param smarter 构建词典的实例
+     * @param dir 共享目录，不存在时创建
+     * @param keepVersions 最新全量之前最多保留的版本个数，给落后的副本回放增量用
+     */
+    public SnapshotLeader(final KBSmarter smarter, final String dir, final int keepVersions)
+    {
+        smarter_ = smarter;
+        dir_ = new File(dir);
+        dir_.mkdirs();
+        keepVersions_ = Math.max(1, keepVersions);
+    }
+
+    /**
+     * @description reload词典后发布新版本
+     * @author fengliangcheng
+     * @update 2026-10-23 上午11:24:50
+     * @param dictName 词典名称
+     * @param dict_set 词典包含的词语，reload之后不能再被修改
+     * @return 发布的版本号，词典没有变化时返回当前版本号
+     * @throws IOException 写快照文件失败，本地的词典已经更新
+     */
+    public long publish(final String dictName, final HashSet<String> dict_set) throws IOException
+    {
+        smarter_.dictionary_reLoad(dictName, dict_set);
+        return publish(dictName);
+    }
+
+    /**
+     * @description 把词典当前的快照发布为新版本
+     * @author fengliangcheng
+     * @update 2026-10-23 上午11:27:16
+     * @param dictName 词典名称
+     * @return 发布的版本号，快照与上一次发布的相同时不写文件，返回原来的版本号
+     * @throws IOException 写快照文件失败
+     */
+    public synchronized long publish(final String dictName) throws IOException
+    {
+        DictSnapshot current = smarter_.currentSnapshot(dictName);
+        if(null == current)
+        {
+            throw new IllegalArgumentException("dict " + dictName + " is not loaded");
+        }
+        Published last = published_.get(dictName);
+        if(null != last && last.snapshot == current)
+        {
+            return last.version;
+        }
+        File dictDir = dictDir(dir_, dictName);
+        dictDir.mkdirs();
+        long version = (null != last) ? last.version + 1 : latestVersion(dictDir) + 1; //重启后接着目录中的版本号
+
+        long begin = System.nanoTime();
+        int chain = 0;
+        File file = null;
+        if(null != last && (current.prefixTrie instanceof Trie || current.prefixTrie instanceof SortedArrayIndex)
+           && last.chain < MAX_DELTA_CHAIN)
+        {
+            List<String> added = new ArrayList<String>();
+            for(String word: current.words)
+            {
+                if(!last.snapshot.words.contains(word))
+                {
+                    added.add(word);
+                }
+            }
+            List<String> removed = new ArrayList<String>();
+            for(String word: last.snapshot.words)
+            {
+                if(!current.words.contains(word))
+                {
+                    removed.add(word);
+                }
+            }
+            if((added.size() + removed.size()) * KBSmarter.MAX_DELTA_RATIO <= current.words.size())
+            {
+                file = versionFile(dictDir, version, DELTA_SUFFIX);
+                SnapshotCodec.writeDelta(file, dictName, version, last.version, added, removed);
+                chain = last.chain + 1;
+            }
+        }
+        if(null == file)
+        {
+            file = versionFile(dictDir, version, FULL_SUFFIX);
+            SnapshotCodec.writeFull(file, current, version, smarter_.pinyinTable());
+        }
+        published_.put(dictName, new Published(version, current, chain));
+        System.out.println("dict " + dictName + " version " + version + " published to " + file.getName() + " ("
+                           + (file.length() >> 10) + "KB, " + (System.nanoTime() - begin) / 1000000 + "ms)");
+        prune(dictDir, version);
+        return version;
+    }
+
+    /**
+     * @description 删除不再需要的旧版本：最新全量之前、且不在最近keepVersions个版本之内的文件
+     */
+    private void prune(final File dictDir, final long latest)
+    {
+        long latestFull = 0;
+        File[] files = dictDir.listFiles();
+        for(File file: files)
+        {
+            if(file.getName().endsWith(FULL_SUFFIX))
+            {
+                latestFull = Math.max(latestFull, versionOf(file));
+            }
+        }
+        for(File file: files)
+        {
+            long version = versionOf(file);
+            if(version > 0 && version < latestFull && version <= latest - keepVersions_)
+            {
+                file.delete();
+            }
+        }
+    }
+
+    static File dictDir(final File dir, final String dictName)
+    {
+        if(dictName.isEmpty() || dictName.startsWith(".") || dictName.indexOf('/') >= 0 || dictName.indexOf(File.separatorChar) >= 0)
+        {
+            throw new IllegalArgumentException("dict name " + dictName + " can not be used as a directory name");
+        }
+        return new File(dir, dictName);
+    }
+
+    static File versionFile(final File dictDir, final long version, final String suffix)
+    {
+        return new File(dictDir, String.format("%019d", version) + suffix);
+    }
+
+    /**
+     * @description 由文件名得到版本号
+     * @return 版本号，不是快照文件（比如写了一半的临时文件）时返回-1
+     */
+    static long versionOf(final File file)
+    {
+        String name = file.getName();
+        int dot = name.indexOf('.');
+        String suffix = (dot > 0) ? name.substring(dot) : "";
+        if(!FULL_SUFFIX.equals(suffix) && !DELTA_SUFFIX.equals(suffix))
+        {
+            return -1;
+        }
+        try
+        {
+            return Long.parseLong(name.substring(0, dot));
+        }
+        catch(NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    static long latestVersion(final File dictDir)
+    {
+        long latest = 0;
+        File[] files = dictDir.listFiles();
+        if(null != files)
+        {
+            for(File file: files)
+            {
+                latest = Math.max(latest, versionOf(file));
+            }
+        }
+        return latest;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1)
+        {
+            System.out.println("usage: SnapshotLeader sharedDir [dictDir]");
+            System.exit(1);
+        }
+        ConfigureData configure = (args.length >= 2) ? new DirectoryConfigure(args[1]) : new FileConfigure();
+        KBSmarter smarter = KBSmarter.getInstance(configure, true);
+        SnapshotLeader leader = new SnapshotLeader(smarter, args[0], 32);
+        for(String dictName: smarter.loadedDictNames())
+        {
+            leader.publish(dictName);
+        }
+
+        BufferedReader stdIn = new BufferedReader(new InputStreamReader(System.in));
+        String input;
+        while(null != (input = stdIn.readLine()) && !input.equals("exit"))
+        {
+            String[] array = input.split(" ");
+            if(array.length >= 3 && array[0].equals("reload"))
+            {
+                leader.publish(array[1], DirectoryConfigure.read_dict(new File(array[2])));
+            }
+        }
+    }
+}
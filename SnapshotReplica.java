@@ -0,0 +1,321 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description 复制模式的副本：定期扫描共享目录，发现比本地新的版本时，能从本地版本连续回放增量就逐个应用增量
+ *              （本地是trie树时只复制受影响的路径），否则还原最新的全量快照再回放其后的增量；每个文件先校验CRC，
+ *              失败时停在已经应用的版本，下一轮重试。本地词典被其他方式reload过时视为没有版本，从全量开始
+ *              用法：SnapshotReplica 共享目录 [扫描间隔毫秒]，之后从标准输入读取"词典名称 前缀"查询，"versions"打印版本
+ * @author fengliangcheng
+ * @update 2026-10-23 下午2:05:12
+ */
+
+public class SnapshotReplica {
+    /**
+     * @description 某个词典本地应用到的版本
+     */
+    private static final class Applied
+    {
+        final long version;
+        final DictSnapshot snapshot; //应用后发布的快照，用于发现本地被其他方式修改
+
+        Applied(final long v, final DictSnapshot s)
+        {
+            version = v;
+            snapshot = s;
+        }
+    }
+
+    private final KBSmarter smarter_; //接收快照的实例
+    private final File dir_; //共享目录
+    private final Map<String, Applied> applied_ = new ConcurrentHashMap<String, Applied>();
+    private final Map<String, String> failures_ = new HashMap<String, String>(); //词典名称->最近一次失败的原因，同样的失败只打印一次
+    private ScheduledExecutorService poller_; //定期扫描的后台线程，start之后才有
+
+    /**
+     * constructors of the class
+     * @param smarter 接收快照的实例，读音表必须与主节点相同才能直接还原索引
+     * @param dir 共享目录
+     */
+    public SnapshotReplica(final KBSmarter smarter, final String dir)
+    {
+        smarter_ = smarter;
+        dir_ = new File(dir);
+    }
+
+    /**
+     * @description 扫描一次共享目录，应用所有新版本
+     * @author fengliangcheng
+     * @update 2026-10-23 下午2:08:40
+     * @return 本次应用的文件个数
+     */
+    public synchronized int poll()
+    {
+        File[] dictDirs = dir_.listFiles();
+        if(null == dictDirs)
+        {
+            return 0;
+        }
+        int applied = 0;
+        for(File dictDir: dictDirs)
+        {
+            if(!dictDir.isDirectory() || dictDir.getName().startsWith("."))
+            {
+                continue;
+            }
+            String dictName = dictDir.getName();
+            try
+            {
+                applied += sync(dictName, dictDir);
+                failures_.remove(dictName);
+            }
+            catch(IOException e) //文件损坏或者被主节点清理，下一轮重试
+            {
+                if(!String.valueOf(e.getMessage()).equals(failures_.put(dictName, String.valueOf(e.getMessage()))))
+                {
+                    System.out.println("replicating dict " + dictName + " failed: " + e.getMessage());
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * @description 获取词典本地应用到的版本
+     * @param dictName 词典名称
+     * @return 版本号，没有应用过时返回0
+     */
+    public long version(final String dictName)
+    {
+        Applied applied = applied_.get(dictName);
+        return (null == applied) ? 0 : applied.version;
+    }
+
+    /**
+     * @description 同步一个词典
+     * @return 应用的文件个数
+     */
+    private int sync(final String dictName, final File dictDir) throws IOException
+    {
+        File[] files = dictDir.listFiles();
+        if(null == files)
+        {
+            return 0;
+        }
+        HashMap<Long, File> fulls = new HashMap<Long, File>();
+        HashMap<Long, File> deltas = new HashMap<Long, File>();
+        long latest = 0;
+        for(File file: files)
+        {
+            long version = SnapshotLeader.versionOf(file);
+            if(version > 0)
+            {
+                (file.getName().endsWith(SnapshotLeader.FULL_SUFFIX) ? fulls : deltas).put(version, file);
+                latest = Math.max(latest, version);
+            }
+        }
+        Applied applied = applied_.get(dictName);
+        long from = (null != applied && applied.snapshot == smarter_.currentSnapshot(dictName)) ? applied.version : 0;
+        if(latest <= from)
+        {
+            return 0;
+        }
+
+        //能从本地版本连续回放增量时不读全量；中间有全量时直接从最新的全量开始
+        long start = from;
+        for(long v = from + 1; v <= latest; v++)
+        {
+            if(fulls.containsKey(v))
+            {
+                start = v;
+            }
+            else if(!deltas.containsKey(v))
+            {
+                start = -1;
+            }
+        }
+        if(start < 0 || 0 == start) //缺少中间的增量，或者本地没有版本
+        {
+            start = 0;
+            for(long v: fulls.keySet())
+            {
+                start = Math.max(start, v);
+            }
+            if(0 == start)
+            {
+                return 0; //只有增量，等主节点写出全量
+            }
+        }
+
+        int count = 0;
+        if(start > from)
+        {
+            applyFull(dictName, fulls.get(start));
+            count++;
+        }
+        for(long v = start + 1; v <= latest; v++)
+        {
+            File delta = deltas.get(v);
+            if(null == delta)
+            {
+                break;
+            }
+            applyDelta(dictName, delta, v - 1);
+            count++;
+        }
+        return count;
+    }
+
+    private void applyFull(final String dictName, final File file) throws IOException
+    {
+        long begin = System.nanoTime();
+        SnapshotCodec.Payload payload = SnapshotCodec.read(file, smarter_.pinyinTable());
+        check(payload, dictName, file);
+        if(null != payload.snapshot)
+        {
+            smarter_.install_snapshot(payload.snapshot);
+        }
+        else
+        {
+            smarter_.dictionary_reLoad(dictName, payload.words); //分片词典只有词语，在本地构建
+        }
+        applied_.put(dictName, new Applied(payload.version, smarter_.currentSnapshot(dictName)));
+        System.out.println("dict " + dictName + " version " + payload.version + " installed from " + file.getName()
+                           + " in " + (System.nanoTime() - begin) / 1000000 + "ms");
+    }
+
+    private void applyDelta(final String dictName, final File file, final long baseVersion) throws IOException
+    {
+        long begin = System.nanoTime();
+        SnapshotCodec.Payload payload = SnapshotCodec.read(file, smarter_.pinyinTable());
+        check(payload, dictName, file);
+        DictSnapshot current = smarter_.currentSnapshot(dictName);
+        if(payload.baseVersion != baseVersion || null == current)
+        {
+            throw new IOException(file + " is based on version " + payload.baseVersion + ", local version is " + baseVersion);
+        }
+        HashSet<String> words = new HashSet<String>(current.words);
+        for(String word: payload.removed)
+        {
+            words.remove(word);
+        }
+        words.addAll(payload.added);
+        smarter_.dictionary_reLoad(dictName, words); //变化较少，本地是trie树时走增量reload
+        applied_.put(dictName, new Applied(payload.version, smarter_.currentSnapshot(dictName)));
+        System.out.println("dict " + dictName + " version " + payload.version + " applied from " + file.getName() + " (+"
+                           + payload.added.size() + " -" + payload.removed.size() + ") in " + (System.nanoTime() - begin) / 1000000 + "ms");
+    }
+
+    private static void check(final SnapshotCodec.Payload payload, final String dictName, final File file) throws IOException
+    {
+        if(!dictName.equals(payload.dictName) || payload.version != SnapshotLeader.versionOf(file))
+        {
+            throw new IOException(file + " contains dict " + payload.dictName + " version " + payload.version);
+        }
+    }
+
+    /**
+     * @description 启动后台线程定期扫描
+     * @author fengliangcheng
+     * @update 2026-10-23 下午2:15:30
+     * @param periodMillis 扫描间隔
+     */
+    public synchronized void start(final long periodMillis)
+    {
+        if(null != poller_)
+        {
+            return;
+        }
+        poller_ = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "spell-replica");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        poller_.scheduleWithFixedDelay(new Runnable() {
+            public void run()
+            {
+                try
+                {
+                    poll();
+                }
+                catch(RuntimeException e) //不让一次失败终止定期扫描
+                {
+                    System.out.println("replica poll failed: " + e);
+                }
+            }
+        }, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop()
+    {
+        if(null != poller_)
+        {
+            poller_.shutdownNow();
+            poller_ = null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1)
+        {
+            System.out.println("usage: SnapshotReplica sharedDir [pollMillis]");
+            System.exit(1);
+        }
+        long pollMillis = (args.length >= 2) ? Long.parseLong(args[1]) : 500;
+        final FileConfigure pinyin = new FileConfigure();
+        ConfigureData configure = new ConfigureData() { //副本只需要读音表和归一化表，词典全部来自主节点
+            public Map<Character, String> generatePyConfigSet()
+            {
+                return pinyin.generatePyConfigSet();
+            }
+
+            public Map<String, HashSet<String>> generateDictSets()
+            {
+                return new HashMap<String, HashSet<String>>();
+            }
+
+            public Map<Character, Character> generateCharNormalization()
+            {
+                return pinyin.generateCharNormalization();
+            }
+        };
+        KBSmarter smarter = KBSmarter.getInstance(configure, true);
+        SnapshotReplica replica = new SnapshotReplica(smarter, args[0]);
+        replica.start(pollMillis);
+
+        BufferedReader stdIn = new BufferedReader(new InputStreamReader(System.in));
+        String input;
+        while(null != (input = stdIn.readLine()) && !input.equals("exit"))
+        {
+            String[] array = input.split(" ");
+            if(input.equals("versions"))
+            {
+                for(String dictName: new TreeSet<String>(replica.applied_.keySet()))
+                {
+                    System.out.println(dictName + " " + replica.version(dictName));
+                }
+            }
+            else if(array.length >= 2)
+            {
+                System.out.println(array[0] + "@" + replica.version(array[0]) + " " + smarter.findMatch(array[0], array[1], 20));
+            }
+        }
+        replica.stop();
+    }
+}
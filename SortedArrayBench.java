@@ -0,0 +1,115 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @description 比较trie树和有序数组索引在不同词典大小下的构建耗时、索引内存和查询耗时（默认顺序和长度优先两种），
+ *              用于确定KBSmarter.DEFAULT_SORTED_ARRAY_MAX_WORDS：有序数组的查询是两次二分查找加区间扫描，
+ *              区间随词典变大而变长，短前缀、长度优先时尤其明显，查询耗时超过trie树的大小就是交叉点
+ *              用法：SortedArrayBench [词典大小,...] [查询轮数]
+ * @author fengliangcheng
+ * @update 2026-10-24 下午3:05:40
+ */
+
+public class SortedArrayBench {
+    private static final long SEED = 20131019L; //随机数种子，保证每次生成的词典相同
+    private static final int MAX_PREFIXES = 5000; //每个词典最多查询的前缀个数
+
+    public static void main(String[] args)
+    {
+        String[] sizes = ((args.length > 0) ? args[0] : "500,1000,2000,5000,10000,20000,50000,100000").split(",");
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+        KBSmarter smarter = KBSmarter.getInstance(new FileConfigure(), true);
+        List<Character> chars = new ArrayList<Character>();
+        for(Map.Entry<Character, List<String>> entry: smarter.pinyinTable().entrySet())
+        {
+            if(1 == entry.getValue().size()) //只用单音字，避免多音字组合展开出过多拼音串
+            {
+                chars.add(entry.getKey());
+            }
+        }
+
+        List<String> letters = new ArrayList<String>(); //单字母前缀，区间最长，是有序数组最不利的情况
+        for(char ch = 'a'; ch <= 'z'; ch++)
+        {
+            letters.add(String.valueOf(ch));
+        }
+        System.out.println("words\tengine\tbuild ms\tindex KB\tns/query\tns/query(shortest)\tns/letter\tns/letter(shortest)");
+        for(String size: sizes)
+        {
+            int n = Integer.parseInt(size.trim());
+            HashSet<String> words = generate(chars, n);
+            List<String> prefixes = new ArrayList<String>(QueryWarmup.synthesize(words, smarter.pinyinTable()));
+            prefixes = prefixes.subList(0, Math.min(MAX_PREFIXES, prefixes.size()));
+            for(int engine = 0; engine < 2; engine++)
+            {
+                String dictName = ((0 == engine) ? "trie-" : "array-") + n;
+                smarter.setSortedArrayThreshold((0 == engine) ? 0 : Integer.MAX_VALUE);
+                long begin = System.nanoTime();
+                smarter.dictionary_reLoad(dictName, new HashSet<String>(words));
+                long buildMillis = (System.nanoTime() - begin) / 1000000;
+                KBSmarter.DictMemory memory = smarter.getDictMemory(dictName);
+                smarter.setShortestFirst(false);
+                long plain = measure(smarter, dictName, prefixes, rounds);
+                smarter.setShortestFirst(true);
+                long shortest = measure(smarter, dictName, prefixes, rounds);
+                long letterShortest = measure(smarter, dictName, letters, rounds * 20);
+                smarter.setShortestFirst(false);
+                long letterPlain = measure(smarter, dictName, letters, rounds * 20);
+                System.out.println(n + "\t" + ((0 == engine) ? "trie" : "array") + "\t" + buildMillis + "\t"
+                                   + (memory.getPrefixIndexBytes() + memory.getSubIndexBytes()) / 1024 + "\t" + plain + "\t" + shortest
+                                   + "\t" + letterPlain + "\t" + letterShortest);
+            }
+        }
+        smarter.setSortedArrayThreshold(KBSmarter.DEFAULT_SORTED_ARRAY_MAX_WORDS);
+    }
+
+    /**
+     * @description 用单音字随机组成2~4个字的词语
+     */
+    private static HashSet<String> generate(final List<Character> chars, final int n)
+    {
+        Random random = new Random(SEED);
+        HashSet<String> words = new HashSet<String>();
+        while(words.size() < n)
+        {
+            int len = 2 + random.nextInt(3);
+            StringBuilder word = new StringBuilder();
+            for(int i = 0; i < len; i++)
+            {
+                word.append(chars.get(random.nextInt(chars.size())).charValue());
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * @description 预热后多轮查询所有前缀
+     * @return 每次查询的平均纳秒数
+     */
+    private static long measure(final KBSmarter smarter, final String dictName, final List<String> prefixes, final int rounds)
+    {
+        long sink = 0;
+        for(int r = 0; r < rounds; r++)
+        {
+            for(String prefix: prefixes)
+            {
+                sink += smarter.findMatch(dictName, prefix, 10).size();
+            }
+        }
+        long begin = System.nanoTime();
+        for(int r = 0; r < rounds; r++)
+        {
+            for(String prefix: prefixes)
+            {
+                sink += smarter.findMatch(dictName, prefix, 10).size();
+            }
+        }
+        return (sink < 0) ? -1 : (System.nanoTime() - begin) / ((long)rounds * prefixes.size());
+    }
+}
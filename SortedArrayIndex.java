@@ -0,0 +1,357 @@
+package com.tcgroup.common.spell;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @description 小词典使用的有序数组索引：所有拼音串按字典序首尾相接保存在一个字符数组中，与之平行的数组保存每个拼音串的
+ *              词语编号；前缀匹配用两次二分查找得到以前缀开头的拼音串区间，再顺序扫描该区间。没有节点对象，
+ *              几千个词的词典只占几个连续数组，比trie树省内存、缓存友好；混合输入不能按汉字位置剪枝，对匹配词语逐个校验
+ * @author fengliangcheng
+ * @update 2026-10-24 下午2:10:36
+ */
+
+final class SortedArrayIndex implements SpellIndex {
+    private final char[] keyChars; //所有拼音串按字典序首尾相接
+    private final int[] keyStart; //keyStart[k]~keyStart[k+1]是第k个拼音串在keyChars中的位置
+    private final int[] postingStart; //postingStart[k]~postingStart[k+1]是第k个拼音串对应的词语编号
+    private final int[] postingWord; //词语编号，同一拼音串下升序
+    private final WordStore words; //所有词语，编号即下标
+    private final Map<Character, List<String>> pinyinTable; //存储汉字->读音的映射表
+    private long[] keyMasks; //第k个拼音串所有词语类别的并集，为null时不剪枝
+
+    private SortedArrayIndex(char[] chars, int[] kStart, int[] pStart, int[] pWord, WordStore wordSet,
+                             Map<Character, List<String>> pyTable)
+    {
+        keyChars = chars;
+        keyStart = kStart;
+        postingStart = pStart;
+        postingWord = pWord;
+        words = wordSet;
+        pinyinTable = pyTable;
+    }
+
+    /**
+     * @description 由拼音串->词语的映射构建索引
+     * @author fengliangcheng
+     * @update 2026-10-24 下午2:14:02
+     * @param keyWords 拼音串->对应的词语
+     * @param wordSet 所有词语，编号即下标，必须包含keyWords中的所有词语
+     * @param pyTable 存储汉字->读音的映射表
+     * @return 构建好的索引
+     */
+    static SortedArrayIndex build(final Map<String, ? extends Collection<String>> keyWords, final SortedWordSet wordSet,
+                                  final Map<Character, List<String>> pyTable)
+    {
+        String[] keys = keyWords.keySet().toArray(new String[keyWords.size()]);
+        Arrays.sort(keys);
+        int charTotal = 0;
+        int postingTotal = 0;
+        for(String key: keys)
+        {
+            charTotal += key.length();
+            postingTotal += keyWords.get(key).size();
+        }
+
+        char[] chars = new char[charTotal];
+        int[] kStart = new int[keys.length + 1];
+        int[] pStart = new int[keys.length + 1];
+        int[] pWord = new int[postingTotal];
+        int charPos = 0;
+        int postingPos = 0;
+        for(int k = 0; k < keys.length; k++)
+        {
+            kStart[k] = charPos;
+            keys[k].getChars(0, keys[k].length(), chars, charPos);
+            charPos += keys[k].length();
+
+            pStart[k] = postingPos;
+            for(String word: keyWords.get(keys[k]))
+            {
+                pWord[postingPos++] = wordSet.idOf(word);
+            }
+            Arrays.sort(pWord, pStart[k], postingPos);
+        }
+        kStart[keys.length] = charPos;
+        pStart[keys.length] = postingPos;
+        return new SortedArrayIndex(chars, kStart, pStart, pWord, wordSet, pyTable);
+    }
+
+    /**
+     * @description 写出索引的所有数组，用于快照复制；词语集合和类别不写，由调用方另外处理
+     * @author fengliangcheng
+     * @update 2026-10-24 下午2:16:48
+     * @param out 输出
+     * @throws IOException
+     */
+    void writeTo(final DataOutput out) throws IOException
+    {
+        SnapshotCodec.writeVarint(out, keyChars.length);
+        for(char ch: keyChars)
+        {
+            out.writeChar(ch);
+        }
+        SnapshotCodec.writeInts(out, keyStart);
+        SnapshotCodec.writeInts(out, postingStart);
+        SnapshotCodec.writeInts(out, postingWord);
+    }
+
+    /**
+     * @description 读取writeTo写出的索引
+     * @author fengliangcheng
+     * @update 2026-10-24 下午2:17:30
+     * @param in 输入
+     * @param wordSet 所有词语，编号与写出方相同
+     * @param pyTable 存储汉字->读音的映射表，必须与写出方的相同
+     * @return 索引
+     * @throws IOException
+     */
+    static SortedArrayIndex readFrom(final DataInput in, final WordStore wordSet, final Map<Character, List<String>> pyTable) throws IOException
+    {
+        char[] chars = new char[SnapshotCodec.readVarint(in)];
+        for(int i = 0; i < chars.length; i++)
+        {
+            chars[i] = in.readChar();
+        }
+        int[] kStart = SnapshotCodec.readInts(in);
+        int[] pStart = SnapshotCodec.readInts(in);
+        int[] pWord = SnapshotCodec.readInts(in);
+        return new SortedArrayIndex(chars, kStart, pStart, pWord, wordSet, pyTable);
+    }
+
+    /**
+     * @description 获取拼音串个数
+     * @return 拼音串个数
+     */
+    int keyCount()
+    {
+        return keyStart.length - 1;
+    }
+
+    public void findPrefix(final String prefix, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        findPrefix(PrefixConstraint.compile(prefix, pinyinTable), count, set_result, shortestFirst);
+    }
+
+    public void findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        find(constraint.prefixPy, count, constraint, set_result, shortestFirst, null);
+    }
+
+    public void findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                           final boolean shortestFirst, final SearchBudget budget)
+    {
+        find(constraint.prefixPy, count, constraint, set_result, shortestFirst, budget);
+    }
+
+    public void findSubPrefix(final String prefix, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        find(prefix, count, null, set_result, shortestFirst, null);
+    }
+
+    public void findSubPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                              final boolean shortestFirst, final SearchBudget budget)
+    {
+        find(constraint.prefix, count, constraint.categoryFilter(), set_result, shortestFirst, budget);
+    }
+
+    /**
+     * @description 是否有以该字符开头的拼音串
+     * @param first 拼音串的首字符
+     * @return true-有 false-没有
+     */
+    public boolean mayMatch(final char first)
+    {
+        int k = search(String.valueOf(first), false);
+        return k < keyCount() && keyStart[k] < keyStart[k + 1] && keyChars[keyStart[k]] == first;
+    }
+
+    /**
+     * @description 设置词语的类别，每个拼音串保存其所有词语类别的并集，扫描时跳过没有要求类别的拼音串
+     * @author fengliangcheng
+     * @update 2026-10-24 下午2:20:05
+     * @param categories 词语->类别
+     */
+    public void setCategories(final Map<String, Long> categories)
+    {
+        long[] masks = new long[keyCount()];
+        for(int k = 0; k < masks.length; k++)
+        {
+            for(int p = postingStart[k]; p < postingStart[k + 1]; p++)
+            {
+                Long flags = categories.get(words.wordAt(postingWord[p]));
+                if(null != flags)
+                {
+                    masks[k] |= flags.longValue();
+                }
+            }
+        }
+        keyMasks = masks;
+    }
+
+    /**
+     * @description 估算索引占用的堆内存，词语集合与快照共享，不计算在内
+     * @return 估算的字节数
+     */
+    public long estimateBytes()
+    {
+        return MemoryEstimator.array(keyChars.length, 2) + MemoryEstimator.array(keyStart.length, 4)
+               + MemoryEstimator.array(postingStart.length, 4) + MemoryEstimator.array(postingWord.length, 4)
+               + ((null == keyMasks) ? 0 : MemoryEstimator.array(keyMasks.length, 8));
+    }
+
+    /**
+     * @description 比较第k个拼音串与py
+     * @param k 拼音串编号
+     * @param py 需要比较的拼音串
+     * @param prefixOnly true-只比较拼音串的前py.length()个字符，以py开头的拼音串视为相等
+     * @return 小于0、等于0、大于0分别表示拼音串小于、等于、大于py
+     */
+    private int compare(final int k, final String py, final boolean prefixOnly)
+    {
+        int from = keyStart[k];
+        int len = keyStart[k + 1] - from;
+        int n = Math.min(len, py.length());
+        for(int i = 0; i < n; i++)
+        {
+            int diff = keyChars[from + i] - py.charAt(i);
+            if(0 != diff)
+            {
+                return diff;
+            }
+        }
+        return prefixOnly ? Math.min(0, len - py.length()) : len - py.length();
+    }
+
+    /**
+     * @description 二分查找
+     * @param py 需要查找的拼音串
+     * @param prefixOnly false-查找第一个不小于py的拼音串 true-查找第一个不以py开头且大于py的拼音串
+     * @return 拼音串编号，没有则返回拼音串个数
+     */
+    private int search(final String py, final boolean prefixOnly)
+    {
+        int low = 0;
+        int high = keyCount();
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, py, prefixOnly);
+            if(cmp < 0 || (prefixOnly && 0 == cmp))
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @description 以py开头的拼音串是编号连续的一段，两次二分查找得到这一段后顺序扫描
+     * @author fengliangcheng
+     * @update 2026-10-24 下午2:24:40
+     * @param py 需要匹配的拼音串
+     * @param count 匹配结果最大条数
+     * @param constraint 编译后的输入前缀，为null时不校验
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     * @param budget 代价上限，为null时不限制
+     */
+    private void find(final String py, final int count, final PrefixConstraint constraint,
+                      Set<String> set_result, final boolean shortestFirst, final SearchBudget budget)
+    {
+        int from = search(py, false);
+        int to = search(py, true);
+        if(from >= to)
+        {
+            return;
+        }
+        if(!shortestFirst)
+        {
+            for(int k = from; k < to; k++)
+            {
+                if(!visit(k, count, constraint, set_result, budget))
+                {
+                    return;
+                }
+            }
+            return;
+        }
+
+        //按长度计数排序，同长度保持字典序
+        int minLen = py.length();
+        int maxLen = minLen;
+        for(int k = from; k < to; k++)
+        {
+            maxLen = Math.max(maxLen, keyStart[k + 1] - keyStart[k]);
+        }
+        int[] offset = new int[maxLen - minLen + 2];
+        for(int k = from; k < to; k++)
+        {
+            offset[keyStart[k + 1] - keyStart[k] - minLen + 1]++;
+        }
+        for(int i = 1; i < offset.length; i++)
+        {
+            offset[i] += offset[i - 1];
+        }
+        int[] order = new int[to - from];
+        for(int k = from; k < to; k++)
+        {
+            order[offset[keyStart[k + 1] - keyStart[k] - minLen]++] = k;
+        }
+        for(int k: order)
+        {
+            if(!visit(k, count, constraint, set_result, budget))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @description 把某个拼音串对应的词语加入结果
+     * @param k 拼音串编号
+     * @param count 匹配结果最大条数
+     * @param constraint 编译后的输入前缀，为null时不校验
+     * @param set_result 匹配结果保存的地方
+     * @param budget 代价上限，为null时不限制，只有需要校验的词语才额外计数
+     * @return false-结果条数已经满足或者超出代价上限
+     */
+    private boolean visit(final int k, final int count, final PrefixConstraint constraint, Set<String> set_result,
+                          final SearchBudget budget)
+    {
+        if(null != budget && !budget.spend())
+        {
+            return false;
+        }
+        if(null != constraint && 0 != constraint.categoryMask && null != keyMasks && !constraint.mayContain(keyMasks[k]))
+        {
+            return true; //没有要求类别的词语
+        }
+        for(int p = postingStart[k]; p < postingStart[k + 1]; p++)
+        {
+            if(set_result.size() >= count)
+            {
+                return false;
+            }
+            if(null != constraint && null != budget && !budget.spend())
+            {
+                return false;
+            }
+            String word = words.wordAt(postingWord[p]);
+            if(null == constraint || constraint.accept(word))
+            {
+                set_result.add(word);
+            }
+        }
+        return set_result.size() < count;
+    }
+}
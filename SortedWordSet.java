@@ -0,0 +1,186 @@
+package com.tcgroup.common.spell;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @description 有序、去重后的词语数组，作为只读Set使用；词语在数组中的下标就是它的编号
+ * @author fengliangcheng
+ * @update 2026-10-19 下午5:26:40 
+ */
+
+final class SortedWordSet extends WordStore {
+    private final String[] words; //按字典序排列且无重复的词语
+
+    /**
+     * constructors of the class
+     * @param sortedWords 按字典序排列且无重复的词语，调用方不能再修改
+     */
+    SortedWordSet(final String[] sortedWords)
+    {
+        words = sortedWords;
+    }
+
+    /**
+     * @description 对词语数组排序并去重
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:28:03
+     * @param rawWords 原始词语，可能无序、有重复
+     * @param len 有效元素个数
+     * @return 有序去重后的Set
+     */
+    static SortedWordSet sortAndDedupe(String[] rawWords, int len)
+    {
+        Arrays.sort(rawWords, 0, len);
+        int n = 0;
+        for(int i = 0; i < len; i++)
+        {
+            if(0 == n || !rawWords[n - 1].equals(rawWords[i]))
+            {
+                rawWords[n++] = rawWords[i];
+            }
+        }
+        return new SortedWordSet(Arrays.copyOf(rawWords, n));
+    }
+
+    /**
+     * @description 在当前数组的基础上加入和删除少量词语，生成新的有序数组；只对变化的词语排序和二分查找，
+     *              其余词语分段整体复制，不重新排序，当前对象保持不变
+     * @author fengliangcheng
+     * @update 2026-10-27 上午11:30:18
+     * @param added 新增的词语，已经存在的忽略
+     * @param removed 删除的词语，不存在的忽略
+     * @return 新的有序去重后的Set
+     */
+    SortedWordSet withDelta(final Collection<String> added, final Collection<String> removed)
+    {
+        String[] add = added.toArray(new String[added.size()]);
+        Arrays.sort(add);
+        int addCount = 0;
+        for(int i = 0; i < add.length; i++)
+        {
+            if((0 == addCount || !add[addCount - 1].equals(add[i])) && idOf(add[i]) < 0)
+            {
+                add[addCount++] = add[i];
+            }
+        }
+        int[] del = new int[removed.size()];
+        int delCount = 0;
+        for(String word: removed)
+        {
+            int id = idOf(word);
+            if(id >= 0)
+            {
+                del[delCount++] = id;
+            }
+        }
+        Arrays.sort(del, 0, delCount);
+
+        String[] result = new String[words.length + addCount - delCount];
+        int src = 0; //下一个待复制的原词语
+        int out = 0;
+        int ai = 0;
+        int di = 0;
+        while(ai < addCount || di < delCount)
+        {
+            int insertAt = (ai < addCount) ? -idOf(add[ai]) - 1 : words.length;
+            int deleteAt = (di < delCount) ? del[di] : words.length;
+            if(deleteAt < insertAt)
+            {
+                if(deleteAt >= src) //重复删除同一个词语时跳过
+                {
+                    System.arraycopy(words, src, result, out, deleteAt - src);
+                    out += deleteAt - src;
+                    src = deleteAt + 1;
+                }
+                di++;
+            }
+            else
+            {
+                System.arraycopy(words, src, result, out, insertAt - src);
+                out += insertAt - src;
+                src = insertAt;
+                result[out++] = add[ai++];
+            }
+        }
+        System.arraycopy(words, src, result, out, words.length - src);
+        out += words.length - src;
+        return new SortedWordSet((out == result.length) ? result : Arrays.copyOf(result, out));
+    }
+
+    /**
+     * @description 获取词语的编号
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:29:10
+     * @param word 词语
+     * @return 编号，不存在则返回负数
+     */
+    int idOf(final String word)
+    {
+        return Arrays.binarySearch(words, word);
+    }
+
+    @Override
+    int ceiling(final String word)
+    {
+        int id = Arrays.binarySearch(words, word);
+        return (id >= 0) ? id : -id - 1;
+    }
+
+    /**
+     * @description 根据编号获取词语
+     * @author fengliangcheng
+     * @update 2026-10-19 下午5:29:32
+     * @param id 词语编号
+     * @return 词语
+     */
+    String wordAt(final int id)
+    {
+        return words[id];
+    }
+
+    long estimateBytes()
+    {
+        long bytes = MemoryEstimator.align(MemoryEstimator.HEADER + MemoryEstimator.REF)
+                     + MemoryEstimator.array(words.length, MemoryEstimator.REF);
+        for(String word: words)
+        {
+            bytes += MemoryEstimator.string(word);
+        }
+        return bytes;
+    }
+
+    @Override
+    public int size()
+    {
+        return words.length;
+    }
+
+    @Override
+    public Iterator<String> iterator()
+    {
+        return new Iterator<String>() {
+            private int next = 0;
+
+            public boolean hasNext()
+            {
+                return next < words.length;
+            }
+
+            public String next()
+            {
+                if(next >= words.length)
+                {
+                    throw new NoSuchElementException();
+                }
+                return words[next++];
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
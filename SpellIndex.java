@@ -0,0 +1,77 @@
+package com.tcgroup.common.spell;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @description 词典索引的查询接口，trie树和压缩的DAWG等不同实现都通过它被KBSmarter调用
+ * @author fengliangcheng
+ * @update 2026-10-19 下午5:20:18 
+ */
+
+interface SpellIndex {
+    /**
+     * @description 前缀匹配
+     * @param prefix 前缀字符串
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     */
+    void findPrefix(String prefix, int count, Set<String> set_result, boolean shortestFirst);
+
+    /**
+     * @description 使用已经编译好的前缀进行前缀匹配，同一前缀查询多个词典时只需编译一次
+     * @param constraint 编译后的输入前缀
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     */
+    void findPrefix(PrefixConstraint constraint, int count, Set<String> set_result, boolean shortestFirst);
+
+    /**
+     * @description 有代价上限的前缀匹配，超出节点数、超时或者被取消时停止遍历，已经找到的结果保留
+     * @param constraint 编译后的输入前缀
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     * @param budget 代价上限，为null时不限制；是否提前停止通过budget.exhausted()判断
+     */
+    void findPrefix(PrefixConstraint constraint, int count, Set<String> set_result, boolean shortestFirst, SearchBudget budget);
+
+    /**
+     * @description 是否有以该字符开头的拼音串，没有则无需查询
+     * @param first 拼音串的首字符
+     * @return true-可能有匹配结果 false-一定没有匹配结果
+     */
+    boolean mayMatch(char first);
+
+    /**
+     * @description 简拼子串匹配
+     * @param prefix 子串的前缀（所有字符一定是拼音或者数字）
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     */
+    void findSubPrefix(String prefix, int count, Set<String> set_result, boolean shortestFirst);
+
+    /**
+     * @description 有代价上限、可以按类别过滤的简拼子串匹配
+     * @param constraint 编译后的输入前缀，prefix为子串的前缀（所有字符一定是拼音或者数字），只校验类别
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     * @param budget 代价上限，为null时不限制
+     */
+    void findSubPrefix(PrefixConstraint constraint, int count, Set<String> set_result, boolean shortestFirst, SearchBudget budget);
+
+    /**
+     * @description 设置词语的类别，索引据此保存子树的类别并集，按类别查询时跳过没有要求类别的子树；在构建完成、发布之前调用
+     * @param categories 词语->类别（最多64个类别，每个类别一位）
+     */
+    void setCategories(Map<String, Long> categories);
+
+    /**
+     * @description 估算索引占用的堆内存，词语字符串本身计入词典的词语集合，这里只计算对它们的引用
+     * @return 估算的字节数
+     */
+    long estimateBytes();
+}
@@ -0,0 +1,854 @@
+package com.tcgroup.common.spell;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @description 内嵌的轻量级联想服务，基于java.nio的Selector实现：
+ *              每个CPU核一个事件循环线程负责网络读写，匹配查询交给虚拟线程（JDK不支持时使用固定线程池）执行；
+ *              同一连接上可以连续发送多个请求（pipelining），响应按请求顺序批量写出，写缓冲区来自堆外缓冲区池。
+ *              支持两种协议：
+ *              1.行协议：每行"词典名\t前缀[\t条数]"，响应为"OK\t结果1\t结果2...\n"或者"ERR\t原因\n"
+ *              2.HTTP/1.1：GET /match?dict=词典名&prefix=前缀&count=条数，响应体每行一个结果；
+ *                GET /ready在查询预热完成后返回200，之前返回503，供负载均衡判断是否转发流量；未配置预热时启动即返回200
+ * @author fengliangcheng
+ * @update 2026-10-20 上午10:30:08
+ */
+
+public class SpellServer {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 16 * 1024; //读写缓冲区大小，也是单个请求行的最大长度
+    private static final int MAX_POOLED_BUFFERS = 1024; //缓冲区池中最多保留的缓冲区个数
+    private static final int MAX_IN_FLIGHT = 256; //单个连接上最多同时执行的请求数，超出后暂停读取
+    private static final int DEFAULT_COUNT = 10; //未指定条数时返回的结果条数
+    private static final String READY = "warm"; //GET /ready的响应体：已预热
+    private static final String NOT_READY = "warming"; //GET /ready的响应体：尚未预热
+
+    private final KBSmarter smarter_; //执行匹配的实例
+    private final int port_; //监听端口，0表示由系统分配
+    private final boolean requireWarmup_; //是否要等查询预热完成才就绪，未配置预热时启动即就绪
+    private final DirectBufferPool pool_; //读写使用的堆外缓冲区池
+    private final ExecutorService queryExecutor_; //执行匹配查询的线程池
+    private final EventLoop[] loops_; //事件循环
+    private ServerSocketChannel serverChannel_;
+    private Thread acceptor_; //接受连接并分配给事件循环的线程
+    private volatile boolean running_;
+
+    /**
+     * constructors of the class
+     * @param smarter 执行匹配的实例
+     * @param port 监听端口，0表示由系统分配
+     * @param loopCount 事件循环线程数，不大于0时使用CPU核数
+     * @throws IOException 无法创建Selector
+     */
+    public SpellServer(KBSmarter smarter, int port, int loopCount) throws IOException
+    {
+        this(smarter, port, loopCount, false);
+    }
+
+    /**
+     * constructors of the class
+     * @param smarter 执行匹配的实例
+     * @param port 监听端口，0表示由系统分配
+     * @param loopCount 事件循环线程数，不大于0时使用CPU核数
+     * @param requireWarmup 是否要等smarter完成查询预热，GET /ready才返回200
+     * @throws IOException 无法创建Selector
+     */
+    public SpellServer(KBSmarter smarter, int port, int loopCount, boolean requireWarmup) throws IOException
+    {
+        smarter_ = smarter;
+        port_ = port;
+        requireWarmup_ = requireWarmup;
+        pool_ = new DirectBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+        queryExecutor_ = newQueryExecutor();
+        int n = (loopCount > 0) ? loopCount : Runtime.getRuntime().availableProcessors();
+        loops_ = new EventLoop[n];
+        for(int i = 0; i < n; i++)
+        {
+            loops_[i] = new EventLoop(i);
+        }
+    }
+
+    /**
+     * @description 创建执行查询的线程池：JDK支持虚拟线程时每个查询一个虚拟线程，否则使用固定大小的守护线程池
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:32:44
+     * @return 线程池
+     */
+    static ExecutorService newQueryExecutor()
+    {
+        try
+        {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)method.invoke(null);
+        }
+        catch(Exception e) //JDK 21以前没有虚拟线程
+        {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2, new ThreadFactory() {
+                private int index = 0;
+
+                public synchronized Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "spell-query-" + (index++));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+    }
+
+    /**
+     * @description 启动服务
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:34:10
+     * @throws IOException 无法监听端口
+     */
+    public void start() throws IOException
+    {
+        serverChannel_ = ServerSocketChannel.open();
+        serverChannel_.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel_.bind(new InetSocketAddress(port_), 1024);
+        running_ = true;
+        for(EventLoop loop: loops_)
+        {
+            loop.thread.start();
+        }
+        acceptor_ = new Thread(new Runnable() {
+            public void run()
+            {
+                acceptLoop();
+            }
+        }, "spell-acceptor");
+        acceptor_.setDaemon(true);
+        acceptor_.start();
+        System.out.println("spell server listening on " + getPort() + " with " + loops_.length + " event loops");
+    }
+
+    /**
+     * @description 停止服务，关闭所有连接
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:34:52
+     */
+    public void stop()
+    {
+        running_ = false;
+        try
+        {
+            serverChannel_.close();
+        }
+        catch(IOException e)
+        {
+            System.out.println("closing server channel failed: " + e.getMessage());
+        }
+        for(EventLoop loop: loops_)
+        {
+            loop.selector.wakeup();
+        }
+        queryExecutor_.shutdown();
+    }
+
+    /**
+     * @description 获取实际监听的端口
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:35:20
+     * @return 端口
+     */
+    public int getPort()
+    {
+        try
+        {
+            return ((InetSocketAddress)serverChannel_.getLocalAddress()).getPort();
+        }
+        catch(IOException e)
+        {
+            return port_;
+        }
+    }
+
+    /**
+     * @description 是否可以接收流量：未配置预热时总是就绪，否则要等查询预热完成
+     * @author fengliangcheng
+     * @update 2026-10-26 上午10:20:36
+     * @return true-就绪
+     */
+    public boolean isReady()
+    {
+        return !requireWarmup_ || smarter_.isWarm();
+    }
+
+    /**
+     * @description 接受连接，轮流分配给各个事件循环
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:36:41
+     */
+    private void acceptLoop()
+    {
+        int next = 0;
+        while(running_)
+        {
+            try
+            {
+                final SocketChannel channel = serverChannel_.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                final EventLoop loop = loops_[next];
+                next = (next + 1) % loops_.length;
+                loop.execute(new Runnable() {
+                    public void run()
+                    {
+                        loop.register(channel);
+                    }
+                });
+            }
+            catch(ClosedChannelException e)
+            {
+                return;
+            }
+            catch(IOException e)
+            {
+                System.out.println("accepting connection failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @description 一个查询请求
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:38:15
+     */
+    private static final class Request
+    {
+        static final int MATCH = 0; //匹配查询
+        static final int ERROR = 1; //格式错误的请求，直接返回错误原因
+        static final int READY_PROBE = 2; //GET /ready，返回是否就绪
+
+        final int kind; //请求类型
+        final String dictName; //词典名称，为null表示请求格式错误
+        final String prefix; //前缀
+        final int count; //结果条数
+        final boolean http; //是否HTTP请求
+        final boolean keepAlive; //HTTP请求响应后是否保持连接
+        final String error; //请求格式错误的原因
+
+        Request(String dict, String pre, int cnt, boolean isHttp, boolean alive, String err)
+        {
+            this((null == err) ? MATCH : ERROR, dict, pre, cnt, isHttp, alive, err);
+        }
+
+        Request(int type, String dict, String pre, int cnt, boolean isHttp, boolean alive, String err)
+        {
+            kind = type;
+            dictName = dict;
+            prefix = pre;
+            count = cnt;
+            http = isHttp;
+            keepAlive = alive;
+            error = err;
+        }
+    }
+
+    /**
+     * @description 事件循环：一个线程、一个Selector，负责分配给它的所有连接的读写
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:40:02
+     */
+    private final class EventLoop implements Runnable
+    {
+        final Selector selector;
+        final Thread thread;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>(); //其他线程提交给本循环执行的任务
+        private final ArrayList<Connection> dirty = new ArrayList<Connection>(); //本轮有新响应需要写出的连接
+
+        EventLoop(int index) throws IOException
+        {
+            selector = Selector.open();
+            thread = new Thread(this, "spell-loop-" + index);
+            thread.setDaemon(true);
+        }
+
+        void execute(Runnable task)
+        {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(SocketChannel channel)
+        {
+            try
+            {
+                Connection conn = new Connection(channel, this);
+                conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+            }
+            catch(IOException e)
+            {
+                try
+                {
+                    channel.close();
+                }
+                catch(IOException ignore)
+                {
+                }
+            }
+        }
+
+        void markDirty(Connection conn)
+        {
+            if(!conn.dirty)
+            {
+                conn.dirty = true;
+                dirty.add(conn);
+            }
+        }
+
+        public void run()
+        {
+            while(running_)
+            {
+                try
+                {
+                    selector.select();
+                }
+                catch(IOException e)
+                {
+                    System.out.println("select failed: " + e.getMessage());
+                    continue;
+                }
+
+                Runnable task;
+                while((task = tasks.poll()) != null) //查询完成后的回调、新连接的注册
+                {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+                while(iter.hasNext())
+                {
+                    SelectionKey key = iter.next();
+                    iter.remove();
+                    Connection conn = (Connection)key.attachment();
+                    if(key.isValid() && key.isReadable())
+                    {
+                        conn.onReadable();
+                    }
+                    if(key.isValid() && key.isWritable())
+                    {
+                        conn.flush();
+                    }
+                }
+
+                for(Connection conn: dirty) //同一轮产生的所有响应一次写出
+                {
+                    conn.dirty = false;
+                    conn.flush();
+                }
+                dirty.clear();
+            }
+
+            for(SelectionKey key: selector.keys())
+            {
+                ((Connection)key.attachment()).close();
+            }
+            try
+            {
+                selector.close();
+            }
+            catch(IOException e)
+            {
+                System.out.println("closing selector failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @description 一个客户端连接，所有状态只在所属事件循环的线程中访问
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:45:30
+     */
+    private final class Connection
+    {
+        final SocketChannel channel;
+        final EventLoop loop;
+        SelectionKey key;
+        boolean dirty; //是否已经在事件循环的待写列表中
+        private ByteBuffer readBuf; //读缓冲区（写模式）
+        private final byte[] lineBytes = new byte[BUFFER_SIZE]; //复制请求行的临时数组
+        private long nextSeq = 0; //下一个请求的序号
+        private long writeSeq = 0; //下一个应该写出的响应序号
+        private final HashMap<Long, byte[]> ready = new HashMap<Long, byte[]>(); //已经完成但前面还有请求未完成的响应
+        private final HashMap<Long, Boolean> closeAfter = new HashMap<Long, Boolean>(); //写出该响应后是否关闭连接
+        private final ArrayDeque<ByteBuffer> outQueue = new ArrayDeque<ByteBuffer>(); //等待写出的缓冲区（读模式）
+        private ByteBuffer fillBuf; //正在填充的写缓冲区（写模式）
+        private int inFlight = 0; //已经接收但还没写出响应的请求数
+        private String httpTarget; //正在读取头部的HTTP请求的目标，没有则为null
+        private boolean httpKeepAlive;
+        private boolean closing = false; //写完已有响应后关闭
+        private boolean closed = false;
+
+        Connection(SocketChannel ch, EventLoop eventLoop)
+        {
+            channel = ch;
+            loop = eventLoop;
+            readBuf = pool_.acquire();
+        }
+
+        void onReadable()
+        {
+            int n;
+            try
+            {
+                n = channel.read(readBuf);
+            }
+            catch(IOException e)
+            {
+                close();
+                return;
+            }
+            if(n < 0)
+            {
+                closing = true; //客户端关闭了写端，写完已有响应后关闭
+                updateInterest();
+                return;
+            }
+
+            readBuf.flip();
+            int lineStart = readBuf.position();
+            for(int i = readBuf.position(); i < readBuf.limit(); i++)
+            {
+                if('\n' == readBuf.get(i))
+                {
+                    int len = i - lineStart;
+                    if(len > 0 && '\r' == readBuf.get(i - 1))
+                    {
+                        len--;
+                    }
+                    readBuf.position(lineStart);
+                    readBuf.get(lineBytes, 0, len);
+                    handleLine(new String(lineBytes, 0, len, UTF8));
+                    lineStart = i + 1;
+                }
+            }
+            readBuf.position(lineStart);
+            readBuf.compact();
+            if(!readBuf.hasRemaining()) //整个缓冲区都没有换行符，请求行过长
+            {
+                close();
+                return;
+            }
+            updateInterest();
+        }
+
+        private void handleLine(final String line)
+        {
+            if(null != httpTarget) //正在读取HTTP头部
+            {
+                if(0 == line.length())
+                {
+                    String target = httpTarget;
+                    httpTarget = null;
+                    dispatch(parseHttp(target, httpKeepAlive));
+                }
+                else if(line.regionMatches(true, 0, "Connection:", 0, 11))
+                {
+                    String value = line.substring(11).trim();
+                    httpKeepAlive = !"close".equalsIgnoreCase(value) && (httpKeepAlive || "keep-alive".equalsIgnoreCase(value));
+                }
+                return;
+            }
+            if(line.startsWith("GET "))
+            {
+                int end = line.indexOf(' ', 4);
+                httpTarget = (end < 0) ? line.substring(4) : line.substring(4, end);
+                httpKeepAlive = (end < 0) || !line.endsWith("HTTP/1.0"); //HTTP/1.1默认保持连接
+                return;
+            }
+            if(0 == line.length())
+            {
+                return;
+            }
+
+            String[] array = line.split("\t");
+            if(array.length < 2)
+            {
+                dispatch(new Request(null, null, 0, false, true, "expected dict<TAB>prefix[<TAB>count]"));
+                return;
+            }
+            int count = DEFAULT_COUNT;
+            if(array.length >= 3)
+            {
+                try
+                {
+                    count = Integer.parseInt(array[2].trim());
+                }
+                catch(NumberFormatException e)
+                {
+                    dispatch(new Request(null, null, 0, false, true, "bad count " + array[2]));
+                    return;
+                }
+            }
+            dispatch(new Request(array[0], array[1], count, false, true, null));
+        }
+
+        private Request parseHttp(final String target, final boolean keepAlive)
+        {
+            int q = target.indexOf('?');
+            String path = (q < 0) ? target : target.substring(0, q);
+            if("/ready".equals(path))
+            {
+                return new Request(Request.READY_PROBE, null, null, 0, true, keepAlive, null);
+            }
+            if(!"/match".equals(path))
+            {
+                return new Request(null, null, 0, true, keepAlive, "404");
+            }
+            String dict = null;
+            String prefix = null;
+            int count = DEFAULT_COUNT;
+            if(q >= 0)
+            {
+                for(String param: target.substring(q + 1).split("&"))
+                {
+                    int eq = param.indexOf('=');
+                    if(eq <= 0)
+                    {
+                        continue;
+                    }
+                    String name = param.substring(0, eq);
+                    String value;
+                    try
+                    {
+                        value = URLDecoder.decode(param.substring(eq + 1), "UTF-8");
+                    }
+                    catch(UnsupportedEncodingException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    catch(IllegalArgumentException e)
+                    {
+                        return new Request(null, null, 0, true, keepAlive, "bad encoding of " + name);
+                    }
+                    if("dict".equals(name))
+                    {
+                        dict = value;
+                    }
+                    else if("prefix".equals(name))
+                    {
+                        prefix = value;
+                    }
+                    else if("count".equals(name))
+                    {
+                        try
+                        {
+                            count = Integer.parseInt(value);
+                        }
+                        catch(NumberFormatException e)
+                        {
+                            return new Request(null, null, 0, true, keepAlive, "bad count " + value);
+                        }
+                    }
+                }
+            }
+            if(null == dict || null == prefix)
+            {
+                return new Request(null, null, 0, true, keepAlive, "dict and prefix are required");
+            }
+            return new Request(dict, prefix, count, true, keepAlive, null);
+        }
+
+        /**
+         * @description 分配序号后把请求交给查询线程池，完成后回到事件循环按序号写出
+         */
+        private void dispatch(final Request request)
+        {
+            final long seq = nextSeq++;
+            inFlight++;
+            if(Request.READY_PROBE == request.kind)
+            {
+                complete(seq, encodeReady(request, isReady()), !request.keepAlive);
+                return;
+            }
+            if(Request.ERROR == request.kind)
+            {
+                complete(seq, encode(request, null), request.http && !request.keepAlive);
+                return;
+            }
+            queryExecutor_.execute(new Runnable() {
+                public void run()
+                {
+                    byte[] response;
+                    try
+                    {
+                        response = encode(request, smarter_.findMatch(request.dictName, request.prefix, request.count));
+                    }
+                    catch(RuntimeException e)
+                    {
+                        response = encode(new Request(null, null, 0, request.http, request.keepAlive, String.valueOf(e.getMessage())), null);
+                    }
+                    final byte[] bytes = response;
+                    loop.execute(new Runnable() {
+                        public void run()
+                        {
+                            complete(seq, bytes, request.http && !request.keepAlive);
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * @description 响应完成：按请求顺序把可以写出的响应追加到写缓冲区
+         */
+        private void complete(final long seq, final byte[] response, final boolean close)
+        {
+            if(closed)
+            {
+                return;
+            }
+            ready.put(seq, response);
+            if(close)
+            {
+                closeAfter.put(seq, Boolean.TRUE);
+            }
+            byte[] bytes;
+            while((bytes = ready.remove(writeSeq)) != null)
+            {
+                append(bytes);
+                inFlight--;
+                if(null != closeAfter.remove(writeSeq))
+                {
+                    closing = true;
+                }
+                writeSeq++;
+            }
+            loop.markDirty(this);
+        }
+
+        private void append(final byte[] bytes)
+        {
+            int offset = 0;
+            while(offset < bytes.length)
+            {
+                if(null == fillBuf)
+                {
+                    fillBuf = pool_.acquire();
+                }
+                int len = Math.min(fillBuf.remaining(), bytes.length - offset);
+                fillBuf.put(bytes, offset, len);
+                offset += len;
+                if(!fillBuf.hasRemaining())
+                {
+                    fillBuf.flip();
+                    outQueue.add(fillBuf);
+                    fillBuf = null;
+                }
+            }
+        }
+
+        /**
+         * @description 用一次gathering write写出所有等待的缓冲区，写完的缓冲区归还到池中
+         */
+        void flush()
+        {
+            if(closed)
+            {
+                return;
+            }
+            if(null != fillBuf && fillBuf.position() > 0)
+            {
+                fillBuf.flip();
+                outQueue.add(fillBuf);
+                fillBuf = null;
+            }
+            if(!outQueue.isEmpty())
+            {
+                try
+                {
+                    channel.write(outQueue.toArray(new ByteBuffer[outQueue.size()]));
+                }
+                catch(IOException e)
+                {
+                    close();
+                    return;
+                }
+                while(!outQueue.isEmpty() && !outQueue.peek().hasRemaining())
+                {
+                    pool_.release(outQueue.poll());
+                }
+            }
+            updateInterest();
+        }
+
+        private void updateInterest()
+        {
+            if(closed)
+            {
+                return;
+            }
+            if(closing && outQueue.isEmpty() && null == fillBuf && 0 == inFlight)
+            {
+                close();
+                return;
+            }
+            int ops = 0;
+            if(!closing && inFlight < MAX_IN_FLIGHT) //请求太多时暂停读取，形成反压
+            {
+                ops |= SelectionKey.OP_READ;
+            }
+            if(!outQueue.isEmpty())
+            {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        void close()
+        {
+            if(closed)
+            {
+                return;
+            }
+            closed = true;
+            if(null != key)
+            {
+                key.cancel();
+            }
+            try
+            {
+                channel.close();
+            }
+            catch(IOException e)
+            {
+                System.out.println("closing connection failed: " + e.getMessage());
+            }
+            pool_.release(readBuf);
+            readBuf = null;
+            pool_.release(fillBuf);
+            fillBuf = null;
+            for(ByteBuffer buf: outQueue)
+            {
+                pool_.release(buf);
+            }
+            outQueue.clear();
+            ready.clear();
+        }
+    }
+
+    /**
+     * @description 把匹配结果编码为响应
+     * @author fengliangcheng
+     * @update 2026-10-20 上午10:52:18
+     * @param request 请求
+     * @param results 匹配结果，请求出错时为null
+     * @return 响应的字节
+     */
+    private static byte[] encode(final Request request, final List<String> results)
+    {
+        StringBuilder body = new StringBuilder();
+        if(!request.http)
+        {
+            if(null == results)
+            {
+                body.append("ERR\t").append(request.error);
+            }
+            else
+            {
+                body.append("OK");
+                for(String word: results)
+                {
+                    body.append('\t').append(word);
+                }
+            }
+            body.append('\n');
+            return body.toString().getBytes(UTF8);
+        }
+
+        String status = "200 OK";
+        if(null == results)
+        {
+            status = "404".equals(request.error) ? "404 Not Found" : "400 Bad Request";
+            body.append(request.error).append('\n');
+        }
+        else
+        {
+            for(String word: results)
+            {
+                body.append(word).append('\n');
+            }
+        }
+        return httpResponse(status, body.toString(), request.keepAlive);
+    }
+
+    /**
+     * @description 把GET /ready的结果编码为响应：就绪返回200，否则返回503
+     * @author fengliangcheng
+     * @update 2026-10-26 上午10:24:50
+     * @param request 请求
+     * @param ready 是否就绪
+     * @return 响应的字节
+     */
+    private static byte[] encodeReady(final Request request, final boolean ready)
+    {
+        return httpResponse(ready ? "200 OK" : "503 Service Unavailable", (ready ? READY : NOT_READY) + "\n", request.keepAlive);
+    }
+
+    /**
+     * @description 拼接HTTP响应
+     * @param status 状态行
+     * @param body 响应体
+     * @param keepAlive 响应后是否保持连接
+     * @return 响应的字节
+     */
+    private static byte[] httpResponse(final String status, final String body, final boolean keepAlive)
+    {
+        byte[] content = body.getBytes(UTF8);
+        String header = "HTTP/1.1 " + status + "\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: " + content.length
+                        + (keepAlive ? "" : "\r\nConnection: close") + "\r\n\r\n";
+        byte[] head = header.getBytes(UTF8);
+        byte[] bytes = new byte[head.length + content.length];
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        System.arraycopy(content, 0, bytes, head.length, content.length);
+        return bytes;
+    }
+
+    /**
+     * @description 启动服务：SpellServer 端口 [事件循环线程数] [预热用的查询日志，"-"表示合成前缀] [最长预热毫秒]，
+     *              先监听端口，指定了预热时预热期间GET /ready返回503，预热完成后返回200
+     * @author fengliangcheng
+     * @update 2026-10-24 上午10:48:30
+     * @param args 命令行参数
+     * @throws IOException 无法启动服务
+     * @throws InterruptedException 等待时被中断
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int port = (args.length >= 1) ? Integer.parseInt(args[0]) : 8080;
+        int loops = (args.length >= 2) ? Integer.parseInt(args[1]) : 0;
+        KBSmarter smarter = KBSmarter.getInstance(new FileConfigure(), true);
+        SpellServer server = new SpellServer(smarter, port, loops, args.length >= 3);
+        server.start();
+        if(args.length >= 3)
+        {
+            long warmupMillis = (args.length >= 4) ? Long.parseLong(args[3]) : 60000;
+            smarter.warmUp("-".equals(args[2]) ? null : args[2], warmupMillis);
+        }
+        Thread.currentThread().join(); //服务线程都是守护线程，主线程一直等待
+    }
+}
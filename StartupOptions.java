@@ -0,0 +1,71 @@
+package com.tcgroup.common.spell;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @description 后台启动方式的参数：词典立即注册、按优先级在后台并发构建，构建完成前查询该词典时等待一段时间或者直接返回空结果，
+ *              很少使用的词典可以等到第一次查询时才构建
+ * @author fengliangcheng
+ * @update 2026-10-21 上午10:50:31
+ */
+
+public class StartupOptions {
+    private List<String> priority_ = new ArrayList<String>(); //优先构建的词典，按顺序构建，其余词典排在后面
+    private Set<String> lazyDicts_ = new HashSet<String>(); //第一次查询时才构建的词典
+    private long waitMillis_ = 0; //查询构建中的词典时最多等待的时间，0表示直接返回空结果
+    private int buildThreads_ = Runtime.getRuntime().availableProcessors(); //后台构建的线程数
+
+    public List<String> getPriority()
+    {
+        return priority_;
+    }
+
+    /**
+     * @param priority 优先构建的词典名称，按顺序构建
+     */
+    public void setPriority(List<String> priority)
+    {
+        priority_ = new ArrayList<String>(priority);
+    }
+
+    public Set<String> getLazyDicts()
+    {
+        return lazyDicts_;
+    }
+
+    /**
+     * @param lazyDicts 第一次查询时才构建的词典名称
+     */
+    public void setLazyDicts(Set<String> lazyDicts)
+    {
+        lazyDicts_ = new HashSet<String>(lazyDicts);
+    }
+
+    public long getWaitMillis()
+    {
+        return waitMillis_;
+    }
+
+    /**
+     * @param waitMillis 查询构建中的词典时最多等待的毫秒数，0表示不等待，直接返回空结果
+     */
+    public void setWaitMillis(long waitMillis)
+    {
+        waitMillis_ = Math.max(0, waitMillis);
+    }
+
+    public int getBuildThreads()
+    {
+        return buildThreads_;
+    }
+
+    /**
+     * @param buildThreads 后台构建的线程数
+     */
+    public void setBuildThreads(int buildThreads)
+    {
+        buildThreads_ = Math.max(1, buildThreads);
+    }
+}
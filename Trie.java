@@ -1,11 +1,18 @@
 package com.tcgroup.common.spell;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Vector;
 
 /**
  * @description 用于前缀匹配的trie树
@@ -13,7 +20,7 @@ import java.util.Vector;
  * @update 2013-7-2 下午8:29:18 
  */
 
-class Trie {
+class Trie implements SpellIndex {
 	
     /**
      * @description trie树的节点类
@@ -25,16 +32,92 @@ class Trie {
     {
         HashMap<Character, CNode> childMap; //保存子节点的位置
         boolean isFinishState; //当前节点是否一个词的结束位置
+        Set<String> words; //以该节点结束的拼音串对应的词语，不是结束位置则为null
+        char[] charMarks; //读音在该节点结束的汉字集合，用于混合输入时剪枝，没有则为null
+        long markSignature; //子树中所有词语在不超过该节点深度的位置上(读音结束位置, 汉字)的签名，用于在子树中按汉字剪枝
+        long categoryMask; //子树（包括该节点）所有词语类别的并集，用于按类别查询时剪枝，未计算时为-1（不剪枝）
         public CNode()
         {
             childMap = new HashMap<Character, CNode>();
             isFinishState = false;
+            words = null;
+            charMarks = null;
+            markSignature = 0;
+            categoryMask = -1L;
+        }
+
+        /**
+         * @description 复制节点，子节点、词语集合和汉字集合都与原节点共享，用于增量更新时的路径复制
+         * @author fengliangcheng
+         * @update 2026-10-19 下午7:20:03
+         * @return 新节点
+         */
+        CNode copy()
+        {
+            CNode node = new CNode();
+            node.childMap = new HashMap<Character, CNode>(childMap);
+            node.isFinishState = isFinishState;
+            node.words = words;
+            node.charMarks = charMarks; //addMark总是生成新数组，可以共享
+            node.markSignature = markSignature;
+            node.categoryMask = categoryMask;
+            return node;
+        }
+
+        /**
+         * @description 记录一个读音在该节点结束的汉字
+         * @author fengliangcheng
+         * @update 2026-10-19 上午10:31:08
+         * @param ch 汉字
+         */
+        void addMark(final char ch)
+        {
+            if(hasMark(ch))
+            {
+                return;
+            }
+            if(null == charMarks)
+            {
+                charMarks = new char[]{ch};
+            }
+            else
+            {
+                char[] newMarks = new char[charMarks.length + 1];
+                System.arraycopy(charMarks, 0, newMarks, 0, charMarks.length);
+                newMarks[charMarks.length] = ch;
+                charMarks = newMarks;
+            }
+        }
+
+        /**
+         * @description 判断是否有某个汉字的读音在该节点结束
+         * @author fengliangcheng
+         * @update 2026-10-19 上午10:31:40
+         * @param ch 汉字
+         * @return true-有 false-没有
+         */
+        boolean hasMark(final char ch)
+        {
+            if(null == charMarks)
+            {
+                return false;
+            }
+            for(char mark: charMarks)
+            {
+                if(mark == ch)
+                {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
     private CNode rootNode; //trie树根节点
     private Map<Character, List<String>> pinyinTable; //存储汉字->读音的映射表
-    private Map<String, HashSet<String>> pinyinChineseTable; //存储拼音串->词语的映射表
+    private final boolean markChars; //是否在节点上记录汉字读音的结束位置，只有记录了才能在匹配时剪枝
+    private Map<String, Long> categories; //词语->类别，设置后节点上保存子树的类别并集，为null时不按类别剪枝
+    static final int MAX_FRONTIER = 4096; //按长度优先匹配时，每一层最多保留的节点个数
     private static Character[] commonAlphabet; //存储26个常用字母的Charactor对象，用于插入拼音串时共享，减少对象的生成
     private static Character[] commonDigit; //存储10个常用数字的Charactor对象，用于插入拼音串时共享，减少对象的生成
     static
@@ -57,28 +140,336 @@ class Trie {
     /**
      * constructors of the class
      * @param pyTable 存储汉字->读音的映射表
-     * @param pcTable 存储拼音串->词语的映射表
+     * @param bMarkChars 是否在节点上记录汉字读音的结束位置（前缀匹配trie树需要，简拼子串trie树不需要）
      */
-    public Trie(Map<Character, List<String>> pyTable, Map<String, HashSet<String>> pcTable)
+    public Trie(Map<Character, List<String>> pyTable, boolean bMarkChars)
     {
         rootNode = new CNode();
         pinyinTable = pyTable;
-        pinyinChineseTable = pcTable;
+        markChars = bMarkChars;
     }
-    
 
     /**
-     * @description 插入字符串到trie树的外部接口
+     * @description 获取构建该trie树时使用的读音表
      * @author fengliangcheng
-     * @update 2013-7-2 下午8:15:09
-     * @param word 需要插入到trie树的字符串
+     * @update 2026-10-19 下午7:22:41
+     * @return 汉字->读音的映射表
      */
-    public void insertWord(final String word)
+    Map<Character, List<String>> pinyinTable()
+    {
+        return pinyinTable;
+    }
+
+    /**
+     * @description 按先序写出所有节点，用于快照复制；词语写为词语表中的编号，汉字签名需要对齐词语才能计算，一起写出；
+     *              节点上的类别并集不写，接收方发布前重新计算
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:12:30
+     * @param out 输出
+     * @param wordIds 词语->在词语表中的编号
+     * @throws IOException
+     */
+    void writeTo(final DataOutput out, final Map<String, Integer> wordIds) throws IOException
+    {
+        out.writeBoolean(markChars);
+        writeNode(rootNode, out, wordIds);
+    }
+
+    private static void writeNode(CNode curr, final DataOutput out, final Map<String, Integer> wordIds) throws IOException
+    {
+        out.writeByte((curr.isFinishState ? 1 : 0) | ((null != curr.words) ? 2 : 0) | ((null != curr.charMarks) ? 4 : 0)
+                      | ((0 != curr.markSignature) ? 8 : 0));
+        if(null != curr.words)
+        {
+            SnapshotCodec.writeVarint(out, curr.words.size());
+            for(String word: curr.words)
+            {
+                SnapshotCodec.writeVarint(out, wordIds.get(word));
+            }
+        }
+        if(null != curr.charMarks)
+        {
+            SnapshotCodec.writeVarint(out, curr.charMarks.length);
+            for(char mark: curr.charMarks)
+            {
+                out.writeChar(mark);
+            }
+        }
+        if(0 != curr.markSignature)
+        {
+            out.writeLong(curr.markSignature);
+        }
+        SnapshotCodec.writeVarint(out, curr.childMap.size());
+        for(Map.Entry<Character, CNode> entry: curr.childMap.entrySet())
+        {
+            out.writeChar(entry.getKey());
+            writeNode(entry.getValue(), out, wordIds);
+        }
+    }
+
+    /**
+     * @description 读取writeTo写出的trie树，不需要展开拼音，耗时只与节点个数有关
+     * @author fengliangcheng
+     * @update 2026-10-23 上午10:15:48
+     * @param in 输入
+     * @param pyTable 存储汉字->读音的映射表，必须与写出方的相同
+     * @param words 词语表，同一个词语在各节点上共享同一个String对象
+     * @return trie树
+     * @throws IOException
+     */
+    static Trie readFrom(final DataInput in, final Map<Character, List<String>> pyTable, final String[] words) throws IOException
+    {
+        Trie trie = new Trie(pyTable, in.readBoolean());
+        trie.rootNode = readNode(in, words);
+        return trie;
+    }
+
+    private static CNode readNode(final DataInput in, final String[] words) throws IOException
+    {
+        CNode node = new CNode();
+        int flags = in.readUnsignedByte();
+        node.isFinishState = (0 != (flags & 1));
+        if(0 != (flags & 2))
+        {
+            int n = SnapshotCodec.readVarint(in);
+            HashSet<String> set = new HashSet<String>(n * 4 / 3 + 1);
+            for(int i = 0; i < n; i++)
+            {
+                set.add(words[SnapshotCodec.readVarint(in)]);
+            }
+            node.words = set;
+        }
+        if(0 != (flags & 4))
+        {
+            char[] marks = new char[SnapshotCodec.readVarint(in)];
+            for(int i = 0; i < marks.length; i++)
+            {
+                marks[i] = in.readChar();
+            }
+            node.charMarks = marks;
+        }
+        if(0 != (flags & 8))
+        {
+            node.markSignature = in.readLong();
+        }
+        int children = SnapshotCodec.readVarint(in);
+        for(int i = 0; i < children; i++)
+        {
+            Character ch = toCharacter(in.readChar());
+            node.childMap.put(ch, readNode(in, words));
+        }
+        return node;
+    }
+
+    /**
+     * @description 设置词语的类别，并自底向上计算每个节点子树的类别并集；在构建完成、发布之前调用
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:20:36
+     * @param wordCategories 词语->类别
+     */
+    public void setCategories(final Map<String, Long> wordCategories)
+    {
+        categories = wordCategories;
+        computeMask(rootNode, null);
+    }
+
+    /**
+     * @description 后序计算节点的类别并集
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:22:18
+     * @param curr 当前节点
+     * @param owned 只重新计算其中的节点（增量更新时新复制的节点），其余节点沿用原值；为null时全部计算
+     * @return 当前节点子树的类别并集
+     */
+    private long computeMask(CNode curr, final Set<Object> owned)
+    {
+        long mask = 0;
+        if(null != curr.words)
+        {
+            for(String word: curr.words)
+            {
+                Long flags = categories.get(word);
+                if(null != flags)
+                {
+                    mask |= flags.longValue();
+                }
+            }
+        }
+        for(CNode child: curr.childMap.values())
+        {
+            mask |= (null == owned || owned.contains(child)) ? computeMask(child, owned) : child.categoryMask;
+        }
+        curr.categoryMask = mask;
+        return mask;
+    }
+
+    /**
+     * @description 插入拼音串到trie树的外部接口，词语集合保存在结束节点上；需要时在路径上记录每个汉字读音的结束位置
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:24:10
+     * @param word 需要插入到trie树的拼音串
+     * @param chineseWords 该拼音串对应的词语集合，插入后不能再被修改
+     */
+    public void insertWord(final String word, final Set<String> chineseWords)
     {
         if(word.length() > 0)
         {
-            insert(rootNode, word, 0);
+            CNode node = insert(rootNode, word, 0);
+            node.words = chineseWords;
+            if(markChars)
+            {
+                for(String chinese: chineseWords)
+                {
+                    markWord(rootNode, word, 0, chinese, 0, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * @description 在当前trie树的基础上应用增量，生成新的trie树：只复制受影响的拼音串路径上的节点，其余子树与旧树共享，
+     *              旧树保持不变，可以继续被读线程使用；删除词语后节点上记录的汉字和签名不回收，只会让剪枝变得保守
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:31:26
+     * @param addedByKey 拼音串->新增的词语
+     * @param removedByKey 拼音串->删除的词语
+     * @return 新的trie树
+     */
+    Trie applyDelta(final Map<String, ? extends Collection<String>> addedByKey,
+                    final Map<String, ? extends Collection<String>> removedByKey)
+    {
+        Trie next = new Trie(pinyinTable, markChars);
+        next.rootNode = rootNode.copy();
+        Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()); //本次增量新建的节点和词语集合，可以直接修改
+        owned.add(next.rootNode);
+
+        for(Map.Entry<String, ? extends Collection<String>> entry: removedByKey.entrySet())
+        {
+            CNode node = copyPath(next.rootNode, entry.getKey(), owned, false);
+            if(null != node && null != node.words)
+            {
+                ownWords(node, owned).removeAll(entry.getValue());
+            }
+        }
+
+        for(Map.Entry<String, ? extends Collection<String>> entry: addedByKey.entrySet())
+        {
+            String key = entry.getKey();
+            CNode node = copyPath(next.rootNode, key, owned, true);
+            node.isFinishState = true;
+            ownWords(node, owned).addAll(entry.getValue());
+            if(markChars)
+            {
+                for(String chinese: entry.getValue())
+                {
+                    next.markWord(next.rootNode, key, 0, chinese, 0, 0); //路径上的节点都是新复制的
+                }
+            }
+        }
+
+        for(String key: removedByKey.keySet()) //清理没有词语的结束位置和空的分支
+        {
+            prune(next.rootNode, next.rootNode, key, 0);
+        }
+        next.categories = categories;
+        if(null != categories) //词语的类别不变，只需重新计算复制过的路径
+        {
+            next.computeMask(next.rootNode, owned);
+        }
+        return next;
+    }
+
+    /**
+     * @description 沿拼音串复制路径上的节点（已经复制过的直接使用）
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:33:50
+     * @param root 新树的根节点
+     * @param key 拼音串
+     * @param owned 本次增量新建的对象
+     * @param create 拼音串不存在时是否创建新节点
+     * @return 拼音串结束位置的节点，不存在且不创建时返回null
+     */
+    private static CNode copyPath(CNode root, final String key, Set<Object> owned, final boolean create)
+    {
+        CNode curr = root;
+        for(int i = 0; i < key.length(); i++)
+        {
+            Character ch = toCharacter(key.charAt(i));
+            CNode child = curr.childMap.get(ch);
+            if(null == child)
+            {
+                if(!create)
+                {
+                    return null;
+                }
+                child = new CNode();
+                owned.add(child);
+                curr.childMap.put(ch, child);
+            }
+            else if(!owned.contains(child))
+            {
+                child = child.copy();
+                owned.add(child);
+                curr.childMap.put(ch, child);
+            }
+            curr = child;
+        }
+        return curr;
+    }
+
+    /**
+     * @description 获取节点上可以修改的词语集合，与旧树共享的集合先复制
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:35:12
+     * @param node 本次增量新建的节点
+     * @param owned 本次增量新建的对象
+     * @return 可以修改的词语集合
+     */
+    private static Set<String> ownWords(CNode node, Set<Object> owned)
+    {
+        if(null == node.words)
+        {
+            node.words = new HashSet<String>();
+            owned.add(node.words);
+        }
+        else if(!owned.contains(node.words))
+        {
+            node.words = new HashSet<String>(node.words);
+            owned.add(node.words);
+        }
+        return node.words;
+    }
+
+    /**
+     * @description 删除词语后，清理词语集合为空的结束位置，以及不再有任何词语的分支
+     * @author fengliangcheng
+     * @update 2026-10-19 下午7:37:40
+     * @param root 根节点
+     * @param curr 当前节点（本次增量新建）
+     * @param key 删除过词语的拼音串
+     * @param index 拼音串中的位置
+     * @return true-当前节点已经没有词语和子节点，可以从父节点删除
+     */
+    private static boolean prune(CNode root, CNode curr, final String key, final int index)
+    {
+        if(index == key.length())
+        {
+            if(null != curr.words && curr.words.isEmpty())
+            {
+                curr.words = null;
+                curr.isFinishState = false;
+            }
+        }
+        else
+        {
+            Character ch = toCharacter(key.charAt(index));
+            CNode child = curr.childMap.get(ch);
+            if(null != child && prune(root, child, key, index + 1))
+            {
+                curr.childMap.remove(ch);
+            }
         }
+        return curr != root && !curr.isFinishState && curr.childMap.isEmpty();
     }
 
     /**
@@ -91,19 +482,51 @@ class Trie {
      */
     public void findPrefix(final String prefix, final int count, Set<String> set_result)  
     {
-        int ascii_count = 0; //前缀中包含的ascii字符个数
-        for(int i = 0; i < prefix.length(); i++)
-        {
-            char ch = prefix.charAt(i);
-            if(ch > 0 && ch < 128)
-            {
-                ascii_count++;
-            }
-        }
-        boolean bFullAscii = (prefix.length() == ascii_count); //该前缀的所有字符都是ascii吗?若是，则无需对匹配结果进行校验
-        boolean bFullChinese = (0 == ascii_count); //该前缀的所有字符都是非ascii吗？若是，则只需要简单地比较输入前缀是否为匹配结果的子串
+        findPrefix(prefix, count, set_result, false);
+    }
 
-        String prefixPy = convertSentenceToPy(prefix); //将前缀转化为拼音串
+    /**
+     * @description 前缀匹配的外部调用接口，可以选择按长度优先的顺序返回结果
+     * @author fengliangcheng
+     * @update 2026-10-19 下午2:05:37
+     * @param prefix 前缀字符串
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方，按长度优先时应该传入保持插入顺序的Set
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回，结果与HashMap的遍历顺序无关
+     */
+    public void findPrefix(final String prefix, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        findPrefix(PrefixConstraint.compile(prefix, pinyinTable), count, set_result, shortestFirst); //将前缀编译为拼音串和汉字位置约束
+    }
+
+    /**
+     * @description 使用已经编译好的前缀进行前缀匹配
+     * @author fengliangcheng
+     * @update 2026-10-20 下午7:10:26
+     * @param constraint 编译后的输入前缀
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方，按长度优先时应该传入保持插入顺序的Set
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     */
+    public void findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        findPrefix(constraint, count, set_result, shortestFirst, null);
+    }
+
+    /**
+     * @description 有代价上限的前缀匹配，超出上限时停止遍历，已经找到的结果保留在set_result中
+     * @author fengliangcheng
+     * @update 2026-10-21 下午7:12:30
+     * @param constraint 编译后的输入前缀
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方，按长度优先时应该传入保持插入顺序的Set
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     * @param budget 代价上限，为null时不限制
+     */
+    public void findPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                           final boolean shortestFirst, final SearchBudget budget)
+    {
+        String prefixPy = constraint.prefixPy;
         CNode curr = rootNode; //从根节点开始，查看输入前缀是否能够匹配到trie树上
         int index = 0; //记录前缀的拼音字符串匹配的位置
 
@@ -111,49 +534,94 @@ class Trie {
         {
             char first = prefixPy.charAt(index);
             HashMap<Character, CNode> tempMap = curr.childMap;
-            boolean hasKey = tempMap.containsKey(first);
-            if(hasKey)
+            curr = tempMap.get(first);
+            if(null == curr)
             {
-                curr = tempMap.get(first);
-                index++; //继续匹配前缀拼音串的下一个字符
+                return; //trie树中无法匹配该前缀的拼音串
             }
-            else
+            index++; //继续匹配前缀拼音串的下一个字符
+
+            char mark = constraint.markAt(index);
+            if(markChars && 0 != mark && !curr.hasMark(mark))
             {
-                return; //trie树中无法匹配该前缀的拼音串
+                return; //没有任何词语在该位置是输入的汉字，整棵子树都无需遍历
             }
         }
 
-        if(null != curr && index == prefixPy.length()) //该前缀可以在trie树中进行匹配
+        if(null != curr && !constraint.mayContain(curr.categoryMask))
+        {
+            return; //子树中没有要求类别的词语
+        }
+        if(null != curr && !mayHaveMarks(curr, constraint))
+        {
+            return; //子树中没有词语在要求的位置上同时是所有输入的汉字
+        }
+        if(null != curr && index == prefixPy.length() && shortestFirst)
+        {
+            findShortestFirst(curr, count, constraint, set_result, budget); //按层遍历该节点的所有子树
+        }
+        else if(null != curr && index == prefixPy.length()) //该前缀可以在trie树中进行匹配
         {
             if(curr.isFinishState) //当前已经匹配到一个词的结束位置
             {
-                HashSet<String> chineseWordList = pinyinChineseTable.get(prefixPy); //获取该匹配拼音串的对应词语集合
+                Set<String> chineseWordList = curr.words; //获取该匹配拼音串的对应词语集合
                 for(String word: chineseWordList)
                 {
-                    if(bFullAscii) //输入前缀都是ASCII字符，无需校验
-                    {
-                        set_result.add(word);
-                    }
-                    else if(bFullChinese)
+                    if(null != budget && !budget.spend())
                     {
-                        if(filter(prefix, word))//输入前缀都是非ASCII字符，只需要判断输入前缀是当前匹配结果的子串
-                        {
-                            set_result.add(word);
-                        }
+                        return;
                     }
-                    else //输入的前缀既有拼音，又有汉字，需要对匹配到的词语和输入前缀进行一一校验
+                    if(constraint.accept(word))
                     {
-                        if(verifyWithPrefix(prefix, word))
-                        {
-                            set_result.add(word);
-                        }
+                        set_result.add(word);
                     }
                 }
             }
-            findPrefix(curr, count, prefix, prefixPy, bFullAscii, bFullChinese, set_result); //继续遍历该节点的所有子树
+            findPrefix(curr, count, constraint, set_result, budget); //继续遍历该节点的所有子树
         }
     }
 
+    /**
+     * @description 根节点是否有该字符的分支
+     * @author fengliangcheng
+     * @update 2026-10-20 下午7:12:03
+     * @param first 拼音串的首字符
+     * @return true-有 false-没有
+     */
+    public boolean mayMatch(final char first)
+    {
+        return rootNode.childMap.containsKey(first);
+    }
+
+    /**
+     * @description 估算trie树占用的堆内存：节点、子节点表、每个拼音串的词语集合和汉字集合
+     * @author fengliangcheng
+     * @update 2026-10-21 下午2:16:20
+     * @return 估算的字节数
+     */
+    public long estimateBytes()
+    {
+        final long nodeBytes = MemoryEstimator.align(MemoryEstimator.HEADER + 3 * MemoryEstimator.REF + 1 + 8 + 8);
+        long bytes = 0;
+        ArrayList<CNode> stack = new ArrayList<CNode>();
+        stack.add(rootNode);
+        while(!stack.isEmpty())
+        {
+            CNode node = stack.remove(stack.size() - 1);
+            bytes += nodeBytes + MemoryEstimator.hashMap(node.childMap.size());
+            if(null != node.words)
+            {
+                bytes += MemoryEstimator.hashSet(node.words.size());
+            }
+            if(null != node.charMarks)
+            {
+                bytes += MemoryEstimator.array(node.charMarks.length, 2);
+            }
+            stack.addAll(node.childMap.values());
+        }
+        return bytes;
+    }
+
     /**
      * @description 进行简拼子串匹配的外部调用接口，比如：通策医疗，其简拼为tcyl，用cyl或者yl进行匹配，就是简拼子串匹配
      * @author fengliangcheng
@@ -163,6 +631,53 @@ class Trie {
      * @param set_result 匹配结果保存的地方
      */
     public void findSubPrefix(final String prefix, final int count, Set<String> set_result)
+    {
+        findSubPrefix(prefix, count, set_result, false);
+    }
+
+    /**
+     * @description 进行简拼子串匹配的外部调用接口，可以选择按长度优先的顺序返回结果
+     * @author fengliangcheng
+     * @update 2026-10-19 下午2:07:12
+     * @param prefix 子串的前缀（所有字符一定是拼音或者数字）
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方，按长度优先时应该传入保持插入顺序的Set
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     */
+    public void findSubPrefix(final String prefix, final int count, Set<String> set_result, final boolean shortestFirst)
+    {
+        findSubPrefix(prefix, null, count, set_result, shortestFirst, null);
+    }
+
+    /**
+     * @description 有代价上限、可以按类别过滤的简拼子串匹配，超出上限时停止遍历，已经找到的结果保留在set_result中
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:31:14
+     * @param constraint 编译后的输入前缀，prefix为子串的前缀（所有字符一定是拼音或者数字），只校验类别
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方，按长度优先时应该传入保持插入顺序的Set
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     * @param budget 代价上限，为null时不限制
+     */
+    public void findSubPrefix(final PrefixConstraint constraint, final int count, Set<String> set_result,
+                              final boolean shortestFirst, final SearchBudget budget)
+    {
+        findSubPrefix(constraint.prefix, constraint.categoryFilter(), count, set_result, shortestFirst, budget);
+    }
+
+    /**
+     * @description 简拼子串匹配的实现
+     * @author fengliangcheng
+     * @update 2026-10-22 上午10:33:40
+     * @param prefix 子串的前缀（所有字符一定是拼音或者数字）
+     * @param filter 只校验类别的约束，为null时不过滤
+     * @param count 匹配结果最大条数
+     * @param set_result 匹配结果保存的地方
+     * @param shortestFirst true-按拼音串长度从短到长、同长度按字典序返回
+     * @param budget 代价上限，为null时不限制
+     */
+    private void findSubPrefix(final String prefix, final PrefixConstraint filter, final int count,
+                               Set<String> set_result, final boolean shortestFirst, final SearchBudget budget)
     {
         CNode curr = rootNode;
         int index = 0;//记录简拼子串（都是ASCII字符）前缀的匹配的位置
@@ -183,24 +698,55 @@ class Trie {
             }
         }
 
-        if(null != curr && index == prefix.length())
+        if(null != curr && null != filter && !filter.mayContain(curr.categoryMask))
+        {
+            return;
+        }
+        if(null != curr && index == prefix.length() && shortestFirst)
+        {
+            findShortestFirst(curr, count, filter, set_result, budget); //简拼子串前缀无需校验拼音，只按类别过滤
+        }
+        else if(null != curr && index == prefix.length())
         {
             if(curr.isFinishState) //遍历到一个结束位置
             {
-                HashSet<String> chineseWordList = pinyinChineseTable.get(prefix);
+                Set<String> chineseWordList = curr.words;
                 for(String word: chineseWordList)
                 {
                     if(set_result.size() >= count)
                     {
                         return;
                     }
-                    set_result.add(word);
+                    if(null == filter || filter.inCategory(word))
+                    {
+                        set_result.add(word);
+                    }
                 }
             }
-            findSubPrefix(curr, count, prefix, set_result);
+            findSubPrefix(curr, filter, count, set_result, budget);
         }
     }
 
+    /**
+     * @description 把字符转化为Character对象，字母和数字使用共享的对象，减少内存消耗
+     * @author fengliangcheng
+     * @update 2013-7-2 下午8:29:24
+     * @param first 字符
+     * @return Character对象
+     */
+    private static Character toCharacter(final char first)
+    {
+        if(first >= 'a' && first <= 'z') //是字母
+        {
+            return commonAlphabet[first - 'a']; //使用共享的Charactor对象，减少内存消耗
+        }
+        else if(first >= '0' && first <= '9') //是数字
+        {
+            return commonDigit[first - '0']; //使用共享的Charactor对象，减少内存消耗
+        }
+        return Character.valueOf(first);
+    }
+
     /**
      * @description 递归地将字符串插入到trie树上
      * @author fengliangcheng
@@ -218,20 +764,7 @@ class Trie {
             return curr;
         }
 
-        char first = word.charAt(currIndex);
-        Character firtCharer; //HashMap的key必须为对象类型，因此把char转化为Charactor
-        if(first >= 'a' && first <= 'z') //是字母
-        {
-            firtCharer = commonAlphabet[first - 'a']; //使用共享的Charactor对象，减少内存消耗
-        }
-        else if(first >= '0' && first <= '9') //是数字
-        {
-            firtCharer = commonDigit[first - '0']; //使用共享的Charactor对象，减少内存消耗
-        }
-        else
-        {
-            firtCharer = new Character(first);
-        }
+        Character firtCharer = toCharacter(word.charAt(currIndex)); //HashMap的key必须为对象类型，因此把char转化为Charactor
         HashMap<Character, CNode> tempMap = curr.childMap;
         boolean hasChar = tempMap.containsKey(firtCharer);
         if(hasChar)//当前节点已经有该字符作为后缀
@@ -253,283 +786,215 @@ class Trie {
      * @update 2013-7-2 下午8:37:46
      * @param curr 当前匹配的trie树节点
      * @param count 最大返回结果条数
-     * @param prefix 输入的前缀字符串，用于对匹配词语的校验
-     * @param prefixPy 输入前缀字符串的拼音串，用于匹配查找
-     * @param bFullAscii 输入的前缀字符串，是否全为ASCII字符
-     * @param bFullChinese 输入的前缀字符串，是否全为非ASCII字符
+     * @param constraint 编译后的输入前缀，用于对匹配词语的校验
      * @param set_result 保存匹配结果的地方
+     * @param budget 代价上限，为null时不限制
      */
     private void findPrefix(CNode curr, final int count,
-                            final String prefix, String prefixPy,
-                            final boolean bFullAscii, final boolean bFullChinese,
-                            Set<String> set_result)
+                            final PrefixConstraint constraint,
+                            Set<String> set_result, final SearchBudget budget)
     {
         if(null == curr || set_result.size() >= count) //匹配条数已经满足要求
         {
             return;
         }
 
-        StringBuilder tmpPrefixPy = new StringBuilder(); //循环体中需要
-        tmpPrefixPy.append(prefixPy);
-        HashMap<Character, CNode> tmap = curr.childMap;
-        Iterator<Map.Entry<Character, CNode>> iter = tmap.entrySet().iterator();
+        Iterator<CNode> iter = curr.childMap.values().iterator();
         while(iter.hasNext() && set_result.size() < count) //遍历当前节点的所有后继节点
         {
-            Map.Entry<Character, CNode> entry = iter.next();
-            Character key = entry.getKey(); //后继节点对应的字符
-            char ch = (char)(key);
-            if(tmpPrefixPy.length() > prefixPy.length())
+            CNode node = iter.next(); 
+            if(!constraint.mayContain(node.categoryMask))
             {
-                tmpPrefixPy.delete(prefixPy.length(), prefixPy.length() + 1); //删除上一个子节点插入的字符
+                continue; //子树中没有要求类别的词语
+            }
+            if(!mayHaveMarks(node, constraint))
+            {
+                continue; //子树中的词语都是输入汉字的同音字，无需逐个校验
+            }
+            if(null != budget && !budget.spend())
+            {
+                return; //超出代价上限，逐层返回
             }
-            tmpPrefixPy.append(ch);
-
-            CNode node = entry.getValue(); 
-            String strPrefixPy = tmpPrefixPy.toString();
             if(node.isFinishState) //匹配到一个词
             {
-                Set<String> wordList = pinyinChineseTable.get(strPrefixPy);
-                for(String word: wordList)
+                for(String word: node.words)
                 {
                     if(set_result.size() >= count) //结果条数已经达到
                     {
                         return;
                     }
-                    if(bFullAscii) //输入前缀没有汉字，无需校验
+                    if(null != budget && !budget.spend())
                     {
-                        set_result.add(word);
-                    }
-                    else if(bFullChinese) //输入前缀都是汉字，检查匹配词语是否以它为前缀即可
-                    {
-                        if(filter(prefix, word))
-                        {
-                            set_result.add(word);
-                        }
+                        return;
                     }
-                    else //一个一个字符进行校验
+                    if(constraint.accept(word)) //校验通过
                     {
-                        if(verifyWithPrefix(prefix, word)) //校验通过
-                        {
-                            set_result.add(word);
-                        }
+                        set_result.add(word);
                     }
                 }
             }
-            findPrefix(node, count, prefix, strPrefixPy, bFullAscii, bFullChinese, set_result);
+            findPrefix(node, count, constraint, set_result, budget);
         }
     }
 
     /**
-     * @description 对常见字符进行全角到半角的转换
+     * @description 从某个节点开始按层（拼音串长度）遍历子树，短的匹配结果优先，同一层内按拼音串和词语的字典序排列；
+     *              由于后面的层只会更长，结果条数一旦满足即可停止；每层最多保留MAX_FRONTIER个节点，超出部分按字典序舍弃
      * @author fengliangcheng
-     * @update 2013-7-2 下午8:45:49
-     * @param rawCh 原始字符
-     * @return 返回对应的半角字符
-     */
-    private static final char fullToHalf(final char rawCh)
-    {
-        switch(rawCh)
-        {
-            case '（': return '(';
-            case '）': return ')';
-            case '、': return '.';
-            case '，': return ',';
-            case '。': return '.';
-            default: return rawCh;
-        }
-    }
-
-    /**
-     * @description 将执行前缀匹配的字符串转化为拼音串（trie树上插入的都是拼音串）
-     * @author fengliangcheng
-     * @update 2013-7-2 下午8:46:51
-     * @param word 执行前缀匹配的字符串
-     * @return 对应的拼音字符串
-     */
-    private String convertSentenceToPy(final String word)
-    {
-        StringBuilder strBuilder = new StringBuilder();
-        for(int i = 0; i < word.length(); i++)
-        {
-            char ch = fullToHalf(word.charAt(i));
-            List<String> pyList = pinyinTable.get((Character)ch);
-            if(null == pyList)
-            {
-                if(ch >= 'A' && ch <= 'Z') //大写转化为小写
-                {
-                    ch += 32;
-                }
-                strBuilder.append(ch);
-            }
-            else
-            {
-                String pinYin = pyList.get(0);
-                strBuilder.append(pinYin);
-            }
-        }
-        return strBuilder.toString();
-    }
-    
-    /**
-     * @description 将输入前缀串按照连续拼音和汉字分割开，比如：pufa银hang分割成:pufa 银 hang三个元素
-     * @author fengliangcheng
-     * @update 2013-7-2 下午8:49:34
-     * @param word 输入前缀
-     * @param vec_result 保存分割结果
+     * @update 2026-10-19 下午2:16:44
+     * @param start 开始遍历的节点
+     * @param count 最大结果条数
+     * @param constraint 编译后的输入前缀，用于校验匹配词语，为null时不校验
+     * @param set_result 保存结果的地方
+     * @param budget 代价上限，为null时不限制
      */
-    private void separateEngChi(final String word, Vector<String> vec_result)
+    private void findShortestFirst(CNode start, final int count, final PrefixConstraint constraint,
+                                   Set<String> set_result, final SearchBudget budget)
     {
-        StringBuilder tmpPy = new StringBuilder();
+        ArrayList<CNode> level = new ArrayList<CNode>(); //当前层的节点，按拼音串字典序排列
+        level.add(start);
 
-        for(int i = 0; i < word.length(); i++)
+        while(!level.isEmpty() && set_result.size() < count)
         {
-            char ch = fullToHalf(word.charAt(i));
-            List<String> pyList = pinyinTable.get((Character)ch);
-            if(null == pyList) //当前也是一个ASCII字符
-            {
-                tmpPy.append(ch);
-            }
-            else
+            for(CNode node: level) //先收集本层所有结束位置上的词语
             {
-                if(tmpPy.length() > 0) //连续的ASCII字符
+                if(null != budget && !budget.spend())
                 {
-                    vec_result.add(tmpPy.toString());
-                    tmpPy.delete(0, tmpPy.length());
+                    return;
                 }
-                vec_result.add(word.substring(i, i + 1)); //一个汉字
-            }
-        }
-
-        if(tmpPy.length() > 0)
-        {
-            vec_result.add(tmpPy.toString());
-        }
-    }
-    
-    /**
-     * @description 将匹配结果和输入的前缀进行校验，通过校验的匹配词语才有效
-     * @author fengliangcheng
-     * @update 2013-7-2 下午8:56:32
-     * @param inputWord 输入的前缀，按照汉字和连续拼音分割后得到的数组，比如：pufa银hang分割成:pufa 银 hang三个元素
-     * @param sampleWords 匹配到的某个词语
-     * @return true-通过校验,false-校验失败
-     */
-    private boolean doVerify(Vector<String> inputWord, final String sampleWords)
-    {
-        int j = 0; //当前匹配到数组中第几个元素
-        int start = 0;
-        int len = sampleWords.length();
-        for(int i = 0; i < len && j < inputWord.size() && start < (inputWord.elementAt(j)).length();)
-        {
-            String inputElement = inputWord.elementAt(j);
-            if((inputWord.size() == (j + 1)) && (inputElement.charAt(0) > 0 && inputElement.charAt(0) < 128))
-            {
-                return true;
-            }
-            char sample_curr = sampleWords.charAt(i);
-            char input_curr = inputElement.charAt(start);
-            if(sample_curr > 0 && sample_curr < 128) //匹配词语当前校验位置的字符是ASCII字符
-            {
-                if(input_curr != sample_curr)
+                if(!node.isFinishState)
                 {
-                    return false;
+                    continue;
                 }
-                else
+                String[] words = node.words.toArray(new String[node.words.size()]);
+                Arrays.sort(words); //同一拼音串的词语按字典序，保证结果稳定
+                for(String word: words)
                 {
-                    i++;
-                    if(start < inputElement.length() - 1)
-                    {
-                        start++;
-                    }
-                    else
+                    if(set_result.size() >= count)
                     {
-                        j++; //指向下一个元素，比如"银"
-                        start = 0;
+                        return;
                     }
-                }
-            }
-            else //匹配词语当前校验位置的字符是汉字
-            {
-                if(input_curr > 0 && input_curr < 128) //输入前缀当前校验位置的字符是拼音
-                {
-                    char currChineseWord = sampleWords.charAt(i);
-                    List<String> pyList = pinyinTable.get((Character)currChineseWord);
-                    int currInputLeftLen = inputElement.length() - start;
-                    int index = 0;
-                    for(; index < pyList.size(); index++)
+                    if(null != constraint && null != budget && !budget.spend())
                     {
-                        String pinYin = pyList.get(index);
-                        int pyLen = pinYin.length();
-                        if(currInputLeftLen >= pyLen && (inputElement.substring(start, start + pyLen)).equals(pinYin))
-                        {
-                            i += 1;
-                            if(inputElement.length() == (pyLen + start))
-                            {
-                                j++;
-                                start = 0;
-                            }
-                            else
-                            {
-                                start += pyLen;
-                            }
-                            break;
-                        }
+                        return;
                     }
-                    if(pyList.size() == index)
+                    if(null == constraint || constraint.accept(word))
                     {
-                        return false;
+                        set_result.add(word);
                     }
                 }
-                else //输入前缀当前校验位置的字符是汉字
+            }
+
+            ArrayList<CNode> nextLevel = new ArrayList<CNode>();
+            for(int i = 0; i < level.size() && nextLevel.size() < MAX_FRONTIER; i++) //生成下一层，父节点有序且子节点按字符排序，下一层仍然有序
+            {
+                HashMap<Character, CNode> tmap = level.get(i).childMap;
+                Character[] keys = tmap.keySet().toArray(new Character[tmap.size()]);
+                Arrays.sort(keys);
+                for(Character key: keys)
                 {
-                    int currChineseLen = inputElement.length();
-                    String currSample = sampleWords.substring(i, i + currChineseLen);
-                    if(currSample.equals(inputElement))
+                    if(nextLevel.size() >= MAX_FRONTIER)
                     {
-                        j++;
-                        start = 0;
-                        i += currChineseLen;
+                        break;
                     }
-                    else
+                    CNode child = tmap.get(key);
+                    if(null == constraint || (constraint.mayContain(child.categoryMask) && mayHaveMarks(child, constraint))) //跳过没有要求类别或者汉字的子树，不占用每层的名额
                     {
-                        return false;
+                        nextLevel.add(child);
                     }
                 }
             }
+            level = nextLevel;
         }
-        return true;
     }
-    
+
     /**
-     * @description 输入前缀是汉字和拼音（数字）混合，验证匹配词语是否和输入前缀保持一致
-     * @author fengliangcheng
-     * @update 2013-7-3 上午9:10:12
-     * @param prefix 输入前缀
-     * @param dest 在trie树匹配到的词语
-     * @return true-通过校验 false-校验失败，匹配词语无效
+     * @description 子树中是否可能有词语满足输入前缀中所有汉字的位置约束：签名是按(读音结束位置, 汉字)散列的位集合，
+     *              缺少任意一位时一定没有，全部都有时仍然可能是冲突，由accept校验
+     * @param node 子树的根节点，深度不小于输入前缀的拼音串长度
+     * @param constraint 编译后的输入前缀
+     * @return true-可能有 false-一定没有
      */
-    private boolean verifyWithPrefix(final String prefix, final String dest)
+    private boolean mayHaveMarks(final CNode node, final PrefixConstraint constraint)
     {
-		String lowerCasePrefix = new String(prefix);
-		String lowerCaseDest =  new String(dest);
-		lowerCasePrefix = lowerCasePrefix.toLowerCase();
-		lowerCaseDest = lowerCaseDest.toLowerCase();
-        Vector<String> tmpVec = new Vector<String>();
-        separateEngChi(lowerCasePrefix, tmpVec); //将输入前缀字符串中的汉字和连续拼音分割开
-        return doVerify(tmpVec, lowerCaseDest); //真正执行校验的方法
+        long required = constraint.markSignature;
+        return !markChars || 0 == required || required == (node.markSignature & required);
     }
-    
+
     /**
-     * @description 输入前缀全部是汉字，验证匹配词是否以它为前缀
+     * @description 递归地在trie树上找出拼音串与词语的所有对齐方式，并在每个汉字读音结束的节点上记录该汉字
      * @author fengliangcheng
-     * @update 2013-7-3 上午9:07:36
-     * @param prefix 输入前缀（全部是汉字）
-     * @param dest 在trie树上匹配到的词语
-     * @return true-校验通过 false-校验不通过
+     * @update 2026-10-19 上午10:42:16
+     * @param curr 当前节点
+     * @param py 插入的拼音串
+     * @param pyIndex 拼音串中当前对齐的位置
+     * @param word 拼音串对应的词语
+     * @param wordIndex 词语中当前对齐的位置
+     * @param signature 该对齐方式在pyIndex之前的(读音结束位置, 汉字)签名，对齐成功时加入剩余路径上的每个节点
+     * @return true-剩余部分可以对齐 false-无法对齐（比如简拼串）
      */
-    private boolean filter(final String prefix, final String dest)
+    private boolean markWord(CNode curr, final String py, final int pyIndex, final String word, final int wordIndex,
+                             final long signature)
     {
-        return dest.length() >= prefix.length() && dest.startsWith(prefix);
+        if(wordIndex == word.length())
+        {
+            return pyIndex == py.length();
+        }
+        if(pyIndex >= py.length())
+        {
+            return false;
+        }
+
+        char ch = PrefixConstraint.fullToHalf(word.charAt(wordIndex));
+        List<String> pyList = pinyinTable.get((Character)ch);
+        if(null == pyList || 0 == pyList.size()) //不是汉字，拼音串中保存的是字符本身
+        {
+            if(ch >= 'A' && ch <= 'Z')
+            {
+                ch = (char)(ch + 32);
+            }
+            if(py.charAt(pyIndex) != ch)
+            {
+                return false;
+            }
+            CNode node = curr.childMap.get(ch);
+            if(null != node && markWord(node, py, pyIndex + 1, word, wordIndex + 1, signature))
+            {
+                node.markSignature |= signature;
+                return true;
+            }
+            return false;
+        }
+
+        boolean aligned = false;
+        for(String pinYin: pyList) //多音字的每个读音都可能对齐，全部记录
+        {
+            if(!py.startsWith(pinYin, pyIndex))
+            {
+                continue;
+            }
+            CNode node = curr;
+            for(int i = 0; i < pinYin.length() && null != node; i++)
+            {
+                node = node.childMap.get(pinYin.charAt(i));
+            }
+            char mark = PrefixConstraint.normalize(ch); //与编译前缀时记录的汉字一致，繁体词语也按简体剪枝
+            int end = pyIndex + pinYin.length();
+            long next = signature | PrefixConstraint.markBit(end, mark);
+            if(null != node && markWord(node, py, end, word, wordIndex + 1, next))
+            {
+                node.addMark(mark);
+                node.markSignature |= next;
+                CNode inner = curr;
+                for(int i = 0; i < pinYin.length() - 1; i++) //读音中间的节点深度小于end，只加入之前的签名
+                {
+                    inner = inner.childMap.get(pinYin.charAt(i));
+                    inner.markSignature |= signature;
+                }
+                aligned = true;
+            }
+        }
+        return aligned;
     }
 
     /**
@@ -537,47 +1002,46 @@ class Trie {
      * @author fengliangcheng
      * @update 2013-7-3 上午9:39:15
      * @param curr 当前匹配到的节点
+     * @param filter 只校验类别的约束，为null时不过滤
      * @param count 最大结果条数
-     * @param prefix 输入的简拼子串前缀
      * @param set_result 保存结果的地方
+     * @param budget 代价上限，为null时不限制
      */
-    private void findSubPrefix(CNode curr, final int count, final String prefix, Set<String> set_result)
+    private void findSubPrefix(CNode curr, final PrefixConstraint filter, final int count,
+                               Set<String> set_result, final SearchBudget budget)
     {
         if(null == curr || set_result.size() >= count)
         {
             return;
         }
 
-        StringBuilder tmpPy = new StringBuilder();
-        tmpPy.append(prefix);
-        HashMap<Character, CNode> tmap = curr.childMap;
-        Iterator<Map.Entry<Character, CNode>> iter = tmap.entrySet().iterator();
+        Iterator<CNode> iter = curr.childMap.values().iterator();
         while(iter.hasNext() && set_result.size() < count) //遍历当前节点的所有子节点
         {
-            Map.Entry<Character, CNode> entry = iter.next();
-            char ch = (char)(entry.getKey());
-            if(tmpPy.length() > prefix.length())
+            CNode node = iter.next();
+            if(null != filter && !filter.mayContain(node.categoryMask))
             {
-                tmpPy.delete(prefix.length(), prefix.length() + 1);
+                continue;
+            }
+            if(null != budget && !budget.spend())
+            {
+                return;
             }
-            tmpPy.append(ch);
-
-            CNode node = entry.getValue();
-            String strPrefixPy = tmpPy.toString();
             if(node.isFinishState)
             {
-                Set<String> wordList = pinyinChineseTable.get(strPrefixPy);
-                for(String word: wordList) //输入的简拼子串前缀都是拼音或者数字，所以无需校验匹配到的词语
+                for(String word: node.words) //输入的简拼子串前缀都是拼音或者数字，所以无需校验匹配到的词语，只按类别过滤
                 {
                     if(set_result.size() >= count)
                     {
                         return;
                     }
-                    set_result.add(word);
+                    if(null == filter || filter.inCategory(word))
+                    {
+                        set_result.add(word);
+                    }
                 }
             }
-            findSubPrefix(node, count, strPrefixPy, set_result);
+            findSubPrefix(node, filter, count, set_result, budget);
         }
     }
 }
-
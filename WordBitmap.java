@@ -0,0 +1,292 @@
+package com.tcgroup.common.spell;
+import java.util.Arrays;
+
+/**
+ * @description 压缩的词语编号集合（roaring方式）：编号按高16位分桶，桶内元素不超过ARRAY_MAX个时保存为有序的低16位数组，
+ *              否则保存为65536位的位图；求交集时只处理两边都有的桶，数组和位图分别用归并、查位和按位与，构建后不可变
+ * @author fengliangcheng
+ * @update 2026-10-21 下午5:10:36
+ */
+
+final class WordBitmap {
+    static final int ARRAY_MAX = 4096; //桶内元素超过该值时改用位图，此时位图（8KB）不大于数组
+    private static final int BITMAP_WORDS = 1 << 10; //位图桶的long个数
+
+    private final char[] keys; //各桶编号的高16位，升序
+    private final Object[] containers; //char[]（有序的低16位）或者long[]（位图）
+    private final int[] cardinalities; //各桶的元素个数
+    private final int size; //桶的个数
+    private final int cardinality; //元素总数
+
+    private WordBitmap(final char[] k, final Object[] c, final int[] cards, final int n)
+    {
+        keys = k;
+        containers = c;
+        cardinalities = cards;
+        size = n;
+        int total = 0;
+        for(int i = 0; i < n; i++)
+        {
+            total += cards[i];
+        }
+        cardinality = total;
+    }
+
+    /**
+     * @description 由编号构建集合
+     * @author fengliangcheng
+     * @update 2026-10-21 下午5:12:20
+     * @param ids 编号，会被排序
+     * @param n 有效元素个数
+     * @return 集合
+     */
+    static WordBitmap of(final int[] ids, final int n)
+    {
+        Arrays.sort(ids, 0, n);
+        char[] k = new char[8];
+        Object[] c = new Object[8];
+        int[] cards = new int[8];
+        int count = 0;
+        int i = 0;
+        while(i < n)
+        {
+            int high = ids[i] >>> 16;
+            int j = i;
+            while(j < n && (ids[j] >>> 16) == high)
+            {
+                j++;
+            }
+            if(count == k.length)
+            {
+                k = Arrays.copyOf(k, count * 2);
+                c = Arrays.copyOf(c, count * 2);
+                cards = Arrays.copyOf(cards, count * 2);
+            }
+            //桶内去重
+            char[] lows = new char[j - i];
+            int m = 0;
+            for(int p = i; p < j; p++)
+            {
+                char low = (char)ids[p];
+                if(0 == m || lows[m - 1] != low)
+                {
+                    lows[m++] = low;
+                }
+            }
+            k[count] = (char)high;
+            c[count] = (m > ARRAY_MAX) ? toBitmap(lows, m) : Arrays.copyOf(lows, m);
+            cards[count] = m;
+            count++;
+            i = j;
+        }
+        return new WordBitmap(k, c, cards, count);
+    }
+
+    private static long[] toBitmap(final char[] lows, final int m)
+    {
+        long[] bits = new long[BITMAP_WORDS];
+        for(int i = 0; i < m; i++)
+        {
+            bits[lows[i] >>> 6] |= 1L << lows[i];
+        }
+        return bits;
+    }
+
+    int cardinality()
+    {
+        return cardinality;
+    }
+
+    /**
+     * @description 判断是否包含某个编号
+     */
+    boolean contains(final int id)
+    {
+        int index = Arrays.binarySearch(keys, 0, size, (char)(id >>> 16));
+        if(index < 0)
+        {
+            return false;
+        }
+        char low = (char)id;
+        Object container = containers[index];
+        if(container instanceof long[])
+        {
+            return 0 != (((long[])container)[low >>> 6] & (1L << low));
+        }
+        return Arrays.binarySearch((char[])container, low) >= 0;
+    }
+
+    /**
+     * @description 求交集，较小的集合放在前面调用更快
+     * @author fengliangcheng
+     * @update 2026-10-21 下午5:15:48
+     * @param other 另一个集合
+     * @return 新的集合
+     */
+    WordBitmap and(final WordBitmap other)
+    {
+        int n = Math.min(size, other.size);
+        char[] k = new char[n];
+        Object[] c = new Object[n];
+        int[] cards = new int[n];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while(i < size && j < other.size)
+        {
+            if(keys[i] < other.keys[j])
+            {
+                i++;
+            }
+            else if(keys[i] > other.keys[j])
+            {
+                j++;
+            }
+            else
+            {
+                Object a = containers[i];
+                Object b = other.containers[j];
+                Object result;
+                if(a instanceof char[] && b instanceof char[])
+                {
+                    result = andArrays((char[])a, (char[])b);
+                }
+                else if(a instanceof char[])
+                {
+                    result = andArrayBitmap((char[])a, (long[])b);
+                }
+                else if(b instanceof char[])
+                {
+                    result = andArrayBitmap((char[])b, (long[])a);
+                }
+                else
+                {
+                    result = andBitmaps((long[])a, (long[])b);
+                }
+                int card = (result instanceof char[]) ? ((char[])result).length : countBits((long[])result);
+                if(card > 0)
+                {
+                    k[count] = keys[i];
+                    c[count] = result;
+                    cards[count] = card;
+                    count++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new WordBitmap(k, c, cards, count);
+    }
+
+    private static char[] andArrays(final char[] a, final char[] b)
+    {
+        char[] result = new char[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while(i < a.length && j < b.length)
+        {
+            if(a[i] < b[j])
+            {
+                i++;
+            }
+            else if(a[i] > b[j])
+            {
+                j++;
+            }
+            else
+            {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static char[] andArrayBitmap(final char[] a, final long[] bits)
+    {
+        char[] result = new char[a.length];
+        int n = 0;
+        for(char low: a)
+        {
+            if(0 != (bits[low >>> 6] & (1L << low)))
+            {
+                result[n++] = low;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static Object andBitmaps(final long[] a, final long[] b)
+    {
+        long[] bits = new long[BITMAP_WORDS];
+        for(int i = 0; i < BITMAP_WORDS; i++)
+        {
+            bits[i] = a[i] & b[i];
+        }
+        int card = countBits(bits);
+        if(card > ARRAY_MAX) //结果变小后改回数组
+        {
+            return bits;
+        }
+        char[] lows = new char[card];
+        int n = 0;
+        for(int i = 0; i < BITMAP_WORDS; i++)
+        {
+            long word = bits[i];
+            while(0 != word)
+            {
+                lows[n++] = (char)((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return lows;
+    }
+
+    private static int countBits(final long[] bits)
+    {
+        int card = 0;
+        for(long word: bits)
+        {
+            card += Long.bitCount(word);
+        }
+        return card;
+    }
+
+    /**
+     * @description 按升序取出所有编号
+     * @return 编号数组
+     */
+    int[] toArray()
+    {
+        int[] ids = new int[cardinality];
+        int n = 0;
+        for(int i = 0; i < size; i++)
+        {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if(container instanceof char[])
+            {
+                for(char low: (char[])container)
+                {
+                    ids[n++] = high | low;
+                }
+            }
+            else
+            {
+                long[] bits = (long[])container;
+                for(int w = 0; w < BITMAP_WORDS; w++)
+                {
+                    long word = bits[w];
+                    while(0 != word)
+                    {
+                        ids[n++] = high | ((w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,63 @@
+package com.tcgroup.common.spell;
+import java.util.AbstractSet;
+
+/**
+ * @description 有序、去重、按编号随机访问的只读词语集合，DAWG的倒排表中保存的是词语编号；
+ *              可以是String数组，也可以是前缀压缩的UTF-8字节存储
+ * @author fengliangcheng
+ * @update 2026-10-21 下午4:02:30
+ */
+
+abstract class WordStore extends AbstractSet<String> {
+    /**
+     * @description 获取词语的编号
+     * @param word 词语
+     * @return 编号，不存在则返回负数
+     */
+    abstract int idOf(String word);
+
+    /**
+     * @description 根据编号获取词语
+     * @param id 词语编号
+     * @return 词语
+     */
+    abstract String wordAt(int id);
+
+    /**
+     * @description 估算占用的堆内存，包括词语本身
+     * @return 估算的字节数
+     */
+    abstract long estimateBytes();
+
+    /**
+     * @description 第一个不小于给定字符串的词语编号，以某个字符串开头的词语从这里开始连续存放
+     * @author fengliangcheng
+     * @update 2026-10-21 下午8:05:12
+     * @param word 字符串
+     * @return 编号，所有词语都小于它时返回size()
+     */
+    int ceiling(final String word)
+    {
+        int low = 0;
+        int high = size() - 1;
+        while(low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            if(wordAt(mid).compareTo(word) < 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return (o instanceof String) && idOf((String)o) >= 0;
+    }
+}
@@ -0,0 +1,190 @@
+package com.tcgroup.common.spell;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @description 比较String数组和前缀压缩两种词语存储：每个词占用的堆内存、按编号随机解码（缓存未命中和命中）的耗时、
+ *              按词语查编号的耗时，以及同一词典分别以两种方式流式加载后，查询时每返回一条结果多出的解码耗时
+ *              用法：WordStoreBench [词典文件] [复制份数] [查询轮数]
+ * @author fengliangcheng
+ * @update 2026-10-21 下午4:40:26
+ */
+
+public class WordStoreBench {
+    private static final long SEED = 20131019L; //随机数种子，保证每次的访问序列相同
+    private static final int HOT_WORDS = 256; //热点访问的词语个数，小于解码缓存
+
+    public static void main(String[] args) throws IOException
+    {
+        String dictFile = (args.length > 0) ? args[0] : "charge.txt";
+        int copies = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 200;
+
+        //词典复制多份，每份加上不同的编号后缀，模拟大量有共同前缀的长词
+        List<String> base = readWords(dictFile);
+        List<String> all = new ArrayList<String>();
+        for(int c = 0; c < copies; c++)
+        {
+            for(String word: base)
+            {
+                all.add((0 == c) ? word : word + c);
+            }
+        }
+        String[] raw = all.toArray(new String[all.size()]);
+        SortedWordSet plain = SortedWordSet.sortAndDedupe(raw, raw.length);
+        FrontCodedWordSet compressed = FrontCodedWordSet.encode(plain);
+        if(null == compressed)
+        {
+            System.out.println("words can not be encoded as UTF-8 losslessly");
+            return;
+        }
+        int n = plain.size();
+        System.out.println("words=" + n + " plain=" + plain.estimateBytes() / n + "B/word compressed="
+                           + compressed.estimateBytes() / n + "B/word (block " + FrontCodedWordSet.BLOCK_SIZE + ")");
+
+        //随机解码：编号打乱后逐个访问，缓存基本不命中
+        List<Integer> order = new ArrayList<Integer>();
+        for(int i = 0; i < n; i++)
+        {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(SEED));
+        long sink = 0;
+        for(int i = 0; i < n; i++) //预热
+        {
+            sink += compressed.wordAt(order.get(i)).length();
+        }
+        long begin = System.nanoTime();
+        for(int r = 0; r < 5; r++)
+        {
+            for(int i = 0; i < n; i++)
+            {
+                sink += compressed.wordAt(order.get(i)).length();
+            }
+        }
+        System.out.println("random decode: " + (System.nanoTime() - begin) / (5L * n) + " ns/word");
+
+        //热点解码：反复访问少量编号，全部命中缓存
+        int hotCount = Math.min(HOT_WORDS, n);
+        begin = System.nanoTime();
+        for(int r = 0; r < 1000; r++)
+        {
+            for(int i = 0; i < hotCount; i++)
+            {
+                sink += compressed.wordAt(i).length();
+            }
+        }
+        System.out.println("hot decode: " + (System.nanoTime() - begin) / (1000L * hotCount) + " ns/word");
+
+        //按词语查编号
+        begin = System.nanoTime();
+        for(int i = 0; i < n; i++)
+        {
+            sink += plain.idOf(raw[i]);
+        }
+        long plainLookup = (System.nanoTime() - begin) / n;
+        begin = System.nanoTime();
+        for(int i = 0; i < n; i++)
+        {
+            sink += compressed.idOf(raw[i]);
+        }
+        System.out.println("idOf: plain " + plainLookup + " ns compressed " + (System.nanoTime() - begin) / n + " ns");
+
+        //同一词典分别以两种方式加载，比较每条结果的查询耗时
+        File tmp = File.createTempFile("spell-bench-", ".txt");
+        try
+        {
+            PrintWriter writer = new PrintWriter(tmp);
+            try
+            {
+                for(String word: all)
+                {
+                    writer.println(word);
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+            KBSmarter smarter = KBSmarter.getInstance(new FileConfigure(), true);
+            smarter.setCompressWords(false);
+            smarter.dictionary_streamLoad("bench-plain", tmp.getPath());
+            smarter.setCompressWords(true);
+            smarter.dictionary_streamLoad("bench-compressed", tmp.getPath());
+
+            List<String> prefixes = new ArrayList<String>();
+            for(char ch = 'a'; ch <= 'z'; ch++)
+            {
+                prefixes.add(String.valueOf(ch));
+            }
+            for(String word: base)
+            {
+                prefixes.add(word.substring(0, 1));
+            }
+            long[] plainCost = measure(smarter, "bench-plain", prefixes, rounds);
+            long[] compressedCost = measure(smarter, "bench-compressed", prefixes, rounds);
+            System.out.println("query: plain " + plainCost[0] / Math.max(1, plainCost[1]) + " ns/result compressed "
+                               + compressedCost[0] / Math.max(1, compressedCost[1]) + " ns/result, decode overhead "
+                               + (compressedCost[0] - plainCost[0]) / Math.max(1, compressedCost[1]) + " ns/result");
+        }
+        finally
+        {
+            tmp.delete();
+        }
+        System.out.println((0 == sink) ? "" : "done");
+    }
+
+    /**
+     * @description 预热后多轮查询所有前缀
+     * @return {总耗时纳秒, 返回的结果条数}
+     */
+    private static long[] measure(final KBSmarter smarter, final String dictName, final List<String> prefixes, final int rounds)
+    {
+        for(int r = 0; r < rounds; r++)
+        {
+            for(String prefix: prefixes)
+            {
+                smarter.findMatch(dictName, prefix, 30);
+            }
+        }
+        long results = 0;
+        long begin = System.nanoTime();
+        for(int r = 0; r < rounds; r++)
+        {
+            for(String prefix: prefixes)
+            {
+                results += smarter.findMatch(dictName, prefix, 30).size();
+            }
+        }
+        return new long[] {System.nanoTime() - begin, results};
+    }
+
+    private static List<String> readWords(final String path) throws IOException
+    {
+        List<String> words = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(path));
+        try
+        {
+            String record;
+            while((record = reader.readLine()) != null)
+            {
+                if(0 != record.length())
+                {
+                    words.add(record);
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return words;
+    }
+}